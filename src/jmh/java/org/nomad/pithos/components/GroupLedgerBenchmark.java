@@ -0,0 +1,98 @@
+package org.nomad.pithos.components;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import org.nomad.pithos.models.MetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changes to a {@link GroupLedger} as made by storing and deleting objects, which also append to its change log and
+ * notify its listeners, plus the repair scan of the super-peer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class GroupLedgerBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    private GroupLedger groupLedger;
+    private String[] keys;
+    private MetaData[] peers;
+    private MetaData[] objects;
+    private MetaData extraPeer;
+    private MetaData expired;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        long ttl = LedgerBenchmark.liveTtl();
+        peers = LedgerBenchmark.peers(ttl);
+        keys = LedgerBenchmark.keys(size);
+        objects = new MetaData[size];
+        groupLedger = new GroupLedger();
+        for (int i = 0; i < size; i++) {
+            objects[i] = MetaData.builder().id(keys[i]).ttl(ttl).build();
+            for (int r = 0; r < LedgerBenchmark.RF; r++) {
+                MetaData peer = peers[(i + r) % LedgerBenchmark.PEERS];
+                groupLedger.addToObjectLedger(keys[i], peer);
+                groupLedger.addToPeerLedger(peer.getId(), objects[i]);
+            }
+        }
+        extraPeer = MetaData.builder().id("peer-extra").ttl(ttl).build();
+        expired = MetaData.builder().id("peer-expired").ttl(1).build();
+    }
+
+    @Benchmark
+    public boolean addRemove() {
+        int index = nextIndex();
+        boolean added = groupLedger.addToObjectLedger(keys[index], extraPeer);
+        groupLedger.addToPeerLedger(extraPeer.getId(), objects[index]);
+        groupLedger.removeFromObjectLedger(keys[index], extraPeer);
+        groupLedger.removeFromPeerLedger(extraPeer.getId(), objects[index]);
+        return added;
+    }
+
+    @Benchmark
+    public boolean containsEntry() {
+        int index = nextIndex();
+        return groupLedger.objectLedgerContainsEntry(keys[index], peers[index % LedgerBenchmark.PEERS]);
+    }
+
+    /**
+     * Full scan for under-replicated objects, every object has enough replicas
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object2ObjectOpenHashMap<String, Integer> repairScan() {
+        return groupLedger.objectsThatNeedRepair(LedgerBenchmark.RF);
+    }
+
+    @Benchmark
+    public boolean cleanupOneExpired() {
+        groupLedger.addToObjectLedger(keys[nextIndex()], expired);
+        return groupLedger.cleanExpiredObjects();
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = next + 1 == size ? 0 : next + 1;
+        return index;
+    }
+}
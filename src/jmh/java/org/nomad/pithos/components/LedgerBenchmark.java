@@ -0,0 +1,153 @@
+package org.nomad.pithos.components;
+
+import org.nomad.pithos.models.MetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single key operations on a {@link Ledger} holding {@code size} keys with {@link #RF} live entries each.
+ * <p>
+ * Every invocation works on the next key, so the ledger keeps its size and lookups do not always hit the same bin.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class LedgerBenchmark {
+    static final int PEERS = 64;
+    static final int RF = 3;
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    private Ledger ledger;
+    private String[] keys;
+    private MetaData[] peers;
+    private MetaData extra;
+    private MetaData expired;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        long ttl = liveTtl();
+        peers = peers(ttl);
+        keys = keys(size);
+        ledger = new Ledger();
+        for (int i = 0; i < size; i++) {
+            for (int r = 0; r < RF; r++) {
+                ledger.add(keys[i], peers[(i + r) % PEERS]);
+            }
+        }
+        extra = MetaData.builder().id("peer-extra").ttl(ttl).build();
+        expired = MetaData.builder().id("peer-expired").ttl(1).build();
+    }
+
+    @Benchmark
+    public boolean addRemove() {
+        String key = keys[nextIndex()];
+        boolean added = ledger.add(key, extra);
+        ledger.remove(key, extra);
+        return added;
+    }
+
+    @Benchmark
+    public boolean containsEntry() {
+        int index = nextIndex();
+        return ledger.containsEntry(keys[index], peers[index % PEERS]);
+    }
+
+    @Benchmark
+    public boolean containsMissingKey() {
+        return ledger.containsKey("object-missing");
+    }
+
+    @Benchmark
+    public int countReplicas() {
+        return ledger.countReplicas(keys[nextIndex()]);
+    }
+
+    /**
+     * Cleanup with nothing due, which is what almost every call of the scheduled cleanup sees
+     */
+    @Benchmark
+    public boolean cleanupNothingDue() {
+        return ledger.cleanExpiredObjects();
+    }
+
+    /**
+     * Cleanup with a single expired entry
+     */
+    @Benchmark
+    public boolean cleanupOneExpired() {
+        ledger.add(keys[nextIndex()], expired);
+        return ledger.cleanExpiredObjects();
+    }
+
+    /**
+     * Removal of a peer holding {@link LeavingPeer#OBJECTS} entries. Its cost should not grow with the ledger size,
+     * since only the keys of the leaving peer are visited.
+     */
+    @Benchmark
+    public void peerLeave(LeavingPeer leaving) {
+        ledger.removeValueNoTTL(LeavingPeer.ID);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = next + 1 == size ? 0 : next + 1;
+        return index;
+    }
+
+    /**
+     * Adds the entries of the leaving peer before every invocation, which takes far longer than the JMH timestamping
+     * overhead of an invocation level setup
+     */
+    @State(Scope.Thread)
+    public static class LeavingPeer {
+        static final int OBJECTS = 1000;
+        static final String ID = "peer-leaving";
+
+        @Setup(Level.Invocation)
+        public void join(LedgerBenchmark benchmark) {
+            MetaData peer = MetaData.builder().id(ID).ttl(liveTtl()).build();
+            for (int i = 0; i < OBJECTS; i++) {
+                benchmark.ledger.add(benchmark.keys[i % benchmark.size], peer);
+            }
+        }
+    }
+
+    static long liveTtl() {
+        return Instant.now().getEpochSecond() + TimeUnit.DAYS.toSeconds(1);
+    }
+
+    static MetaData[] peers(long ttl) {
+        MetaData[] peers = new MetaData[PEERS];
+        for (int i = 0; i < PEERS; i++) {
+            peers[i] = MetaData.builder().id("peer-" + i).ttl(ttl).build();
+        }
+        return peers;
+    }
+
+    static String[] keys(int size) {
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "object-" + i;
+        }
+        return keys;
+    }
+}
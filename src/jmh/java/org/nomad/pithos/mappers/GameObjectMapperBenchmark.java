@@ -0,0 +1,95 @@
+package org.nomad.pithos.mappers;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.nomad.grpc.models.GameObjectGrpc;
+import org.nomad.pithos.models.GameObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GameObjectMapper} conversions between the REST, gRPC and internal models and the protobuf codec of the gRPC
+ * model, for small to large values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GameObjectMapperBenchmark {
+
+    @Param({"64", "1024", "65536"})
+    int valueSize;
+
+    private GameObject internal;
+    private GameObjectGrpc grpc;
+    private org.nomad.api.model.GameObject api;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void create() {
+        byte[] value = new byte[valueSize];
+        ThreadLocalRandom.current().nextBytes(value);
+        internal = GameObject.builder()
+                .id("object-1")
+                .creationTime(System.currentTimeMillis())
+                .lastModified(System.currentTimeMillis())
+                .ttl(System.currentTimeMillis() / 1000 + 3600)
+                .value(value)
+                .build();
+        grpc = GameObjectMapper.INSTANCE.mapToGrpc(internal);
+        api = GameObjectMapper.INSTANCE.mapToAPI(internal);
+        encoded = grpc.toByteArray();
+    }
+
+    @Benchmark
+    public GameObjectGrpc internalToGrpc() {
+        return GameObjectMapper.INSTANCE.mapToGrpc(internal);
+    }
+
+    @Benchmark
+    public GameObject grpcToInternal() {
+        return GameObjectMapper.INSTANCE.mapToInternal(grpc);
+    }
+
+    /**
+     * What every gRPC hop that goes through storage does with the object
+     */
+    @Benchmark
+    public GameObjectGrpc grpcRoundTrip() {
+        return GameObjectMapper.INSTANCE.mapToGrpc(GameObjectMapper.INSTANCE.mapToInternal(grpc));
+    }
+
+    @Benchmark
+    public org.nomad.api.model.GameObject internalToApi() {
+        return GameObjectMapper.INSTANCE.mapToAPI(internal);
+    }
+
+    @Benchmark
+    public GameObject apiToInternal() {
+        return GameObjectMapper.INSTANCE.mapToInternal(api);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return grpc.toByteArray();
+    }
+
+    @Benchmark
+    public GameObjectGrpc decode() throws InvalidProtocolBufferException {
+        return GameObjectGrpc.parseFrom(encoded);
+    }
+}
@@ -0,0 +1,92 @@
+package org.nomad.pithos.mappers;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectCollection;
+import org.nomad.grpc.superpeerservice.MetaDataCollection;
+import org.nomad.grpc.superpeerservice.MultiMapPair;
+import org.nomad.pithos.components.Ledger;
+import org.nomad.pithos.models.MetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ledger snapshot a super-peer sends with a join response, from its ledger to the wire and back into the ledger of
+ * the joining peer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class JoinSnapshotBenchmark {
+    private static final int PEERS = 64;
+    private static final int RF = 3;
+
+    @Param({"10000", "100000"})
+    int keys;
+
+    private Ledger ledger;
+    private MultiMapPair snapshot;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        long ttl = Instant.now().getEpochSecond() + TimeUnit.DAYS.toSeconds(1);
+        ledger = new Ledger();
+        for (int i = 0; i < keys; i++) {
+            for (int r = 0; r < RF; r++) {
+                ledger.add("object-" + i, MetaData.builder().id("peer-" + (i + r) % PEERS).ttl(ttl).build());
+            }
+        }
+        snapshot = MultiMapPair.newBuilder().putAllKeyPair(ledger.asGrpcMetaDataCollection()).build();
+        encoded = snapshot.toByteArray();
+    }
+
+    /**
+     * Super-peer side, {@link CustomMappers#convertToGrpcMap} over the ledger
+     */
+    @Benchmark
+    public Object2ObjectOpenHashMap<String, MetaDataCollection> toGrpc() {
+        return ledger.asGrpcMetaDataCollection();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return snapshot.toByteArray();
+    }
+
+    @Benchmark
+    public MultiMapPair decode() throws InvalidProtocolBufferException {
+        return MultiMapPair.parseFrom(encoded);
+    }
+
+    /**
+     * Joining peer side, {@link CustomMappers#convertToMap} over the received snapshot
+     */
+    @Benchmark
+    public Object2ObjectOpenHashMap<String, ObjectCollection<MetaData>> toInternal() {
+        return CustomMappers.INSTANCE.convertToMap(snapshot);
+    }
+
+    @Benchmark
+    public Ledger populate() {
+        Ledger joined = new Ledger();
+        joined.populateLedger(CustomMappers.INSTANCE.convertToMap(snapshot));
+        return joined;
+    }
+}
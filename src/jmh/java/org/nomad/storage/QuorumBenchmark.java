@@ -0,0 +1,83 @@
+package org.nomad.storage;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.nomad.config.Config;
+import org.nomad.metrics.StorageMetrics;
+import org.nomad.pithos.models.GameObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PeerStorage#finalQuorum} voting over completed replica results, each replica returning its own copy of the
+ * object as it would after deserialisation. With {@code divergent} one replica returns an older version.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuorumBenchmark {
+    private static final int VALUE_SIZE = 1024;
+
+    @Param({"3", "5", "7"})
+    int replicas;
+
+    @Param({"false", "true"})
+    boolean divergent;
+
+    private FanOutExecutor fanOutExecutor;
+    private PeerStorage peerStorage;
+    private ObjectList<Future<GameObject>> futures;
+
+    @Setup(Level.Trial)
+    public void create() {
+        Config configuration = new Config();
+        fanOutExecutor = new FanOutExecutor(configuration);
+        peerStorage = new PeerStorage(null, null, null, configuration, fanOutExecutor, new StorageMetrics());
+
+        byte[] value = new byte[VALUE_SIZE];
+        ThreadLocalRandom.current().nextBytes(value);
+        long now = System.currentTimeMillis();
+        futures = new ObjectArrayList<>(replicas);
+        for (int i = 0; i < replicas; i++) {
+            boolean stale = divergent && i == replicas - 1;
+            GameObject replica = GameObject.builder()
+                    .id("object-1")
+                    .creationTime(now)
+                    .lastModified(stale ? now - 1 : now)
+                    .ttl(now / 1000 + 3600)
+                    .value(Arrays.copyOf(value, value.length))
+                    .build();
+            futures.add(CompletableFuture.completedFuture(replica));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        fanOutExecutor.shutdown();
+    }
+
+    @Benchmark
+    public GameObject finalQuorum() {
+        return peerStorage.finalQuorum(futures);
+    }
+}
@@ -1,6 +1,8 @@
 package org.nomad.application;
 
 import org.nomad.pithos.MainController;
+import org.nomad.storage.FanOutExecutor;
+import org.nomad.storage.group.LedgerNotificationPipeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,8 +18,21 @@ public class ApplicationShutdownManager implements ApplicationListener<ContextCl
     @Autowired
     MainController mainController;
 
+    @Autowired
+    FanOutExecutor fanOutExecutor;
+
+    @Autowired
+    LedgerNotificationPipeline ledgerNotificationPipeline;
+
     @Override
     public void onApplicationEvent(ContextClosedEvent event) {
         logger.info("Nomad System Shutdown");
+        try {
+            ledgerNotificationPipeline.flushAndWait();
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while flushing group-ledger notifications");
+            Thread.currentThread().interrupt();
+        }
+        fanOutExecutor.shutdown();
     }
 }
@@ -51,6 +51,12 @@ public class CliParser {
                     case "rocksdb":
                         parsedResults.put(NomadOption.MODE, "rocksdb");
                         break;
+                    case "offheap":
+                        parsedResults.put(NomadOption.MODE, "offheap");
+                        break;
+                    case "logstore":
+                        parsedResults.put(NomadOption.MODE, "logstore");
+                        break;
                     case "h2":
                     default:
                         parsedResults.put(NomadOption.MODE, "h2");
@@ -20,6 +20,7 @@ import java.net.UnknownHostException;
 import java.time.Duration;
 import java.util.Enumeration;
 import java.util.Random;
+import java.util.function.IntPredicate;
 
 public class NetworkUtility {
     private static final Logger logger = LoggerFactory.getLogger(NetworkUtility.class);
@@ -36,6 +37,7 @@ public class NetworkUtility {
     private static String IP = "";
     private static String ID = "";
     private static String networkInterface = "eth0";
+    private static volatile IntPredicate portFilter = port -> true;
 
     public static String getID() {
         return ID;
@@ -61,7 +63,7 @@ public class NetworkUtility {
     }
 
     /**
-     * Selects a random port within a valid port range
+     * Selects a random port within a valid port range, that is available and accepted by the port filter
      *
      * @param minPortNumber the starting port.
      * @param maxPortNumber the end port.
@@ -74,13 +76,23 @@ public class NetworkUtility {
         Random r = new Random();
         for (int i = 0; i < 3; i++) {
             int port = r.ints(minPortNumber, (maxPortNumber + 1)).findFirst().getAsInt();
-            if (available(port)) {
+            if (available(port) && portFilter.test(port)) {
                 return port;
             }
         }
         throw new PortInUseException(-1);
     }
 
+    /**
+     * Additional check for ports picked by {@link #randomPort}, for servers that never bind their port such as the
+     * in-process transport of tests
+     *
+     * @param filter null accepts every available port
+     */
+    public static void setPortFilter(IntPredicate filter) {
+        portFilter = filter == null ? port -> true : filter;
+    }
+
     /**
      * Returns the initialized binding interface
      */
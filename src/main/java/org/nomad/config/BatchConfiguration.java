@@ -0,0 +1,14 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Micro-batching of group-storage requests to the same replica, a window of 0 disables batching.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class BatchConfiguration {
+    long window = 0;
+    int maxSize = 128;
+}
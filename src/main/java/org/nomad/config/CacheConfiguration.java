@@ -0,0 +1,15 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read-through cache of objects fetched from other peers, a maxSize of 0 disables it.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class CacheConfiguration {
+    int maxSize = 10000;
+    // seconds an object may be served from the cache, bounded by its own TTL
+    long maxAge = 30;
+}
@@ -22,4 +22,5 @@ public class Config {
     private DirectoryServerConfiguration directoryServer;
     private NetworkHostnames networkHostnames;
     private WorldConfiguration world;
+    private TransportConfiguration transport;
 }
\ No newline at end of file
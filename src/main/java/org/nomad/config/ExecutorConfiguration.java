@@ -0,0 +1,17 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Limits for the shared storage fan-out executor, one pool per storage tier.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class ExecutorConfiguration {
+    int peerConcurrency = Runtime.getRuntime().availableProcessors();
+    int groupConcurrency = Runtime.getRuntime().availableProcessors() * 2;
+    int queueCapacity = 256;
+    long keepAlive = 60;
+    long shutdownTimeout = 5;
+}
@@ -0,0 +1,16 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Connection pool and expiry settings of the H2 local storage profile.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class H2Configuration {
+    int poolSize = Runtime.getRuntime().availableProcessors();
+    long acquireTimeout = 5000;
+    // rows deleted per statement by the scheduled clean-up, each chunk commits on its own
+    int expiryChunkSize = 1000;
+}
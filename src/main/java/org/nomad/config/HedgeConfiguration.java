@@ -0,0 +1,19 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Hedged group-storage reads, a second replica is queried once the first one is slower than the given percentile of
+ * the observed replica latencies.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class HedgeConfiguration {
+    double percentile = 95;
+    // bounds of the hedge delay in milliseconds, maxDelay is also used until enough latencies were observed
+    long minDelay = 1;
+    long maxDelay = 50;
+    // number of most recent replica latencies the percentile is taken from
+    int window = 1024;
+}
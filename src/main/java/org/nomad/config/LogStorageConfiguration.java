@@ -0,0 +1,20 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Segment size and durability of the log-structured local storage profile.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class LogStorageConfiguration {
+    String path = "nomad-log";
+    // megabytes, also the largest object that can be stored
+    int segmentSize = 64;
+    // "write" syncs every write, "group" syncs concurrent writes together, "periodic" syncs every syncInterval
+    String syncMode = "group";
+    long syncInterval = 1000;
+    // a sealed segment is compacted once less than this fraction of it is live
+    double compactionThreshold = 0.5;
+}
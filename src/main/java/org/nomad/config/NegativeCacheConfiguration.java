@@ -0,0 +1,19 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Short-lived memory of overlay misses and the optional Bloom filters summarising the objects of the other groups.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class NegativeCacheConfiguration {
+    // milliseconds a miss is remembered, 0 disables the negative cache
+    long ttl = 1000;
+    int maxSize = 10000;
+    boolean groupFilters = false;
+    double falsePositiveRate = 0.01;
+    // milliseconds after which filters that were not refreshed are no longer trusted
+    long filterMaxAge = 30000;
+}
@@ -0,0 +1,19 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Memory layout of the off-heap local storage profile, sizes are in megabytes unless noted otherwise.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class OffHeapConfiguration {
+    long memoryCap = 256;
+    // also the largest object that can be stored
+    int slabSize = 1;
+    // smallest size class in bytes, each following class is growthFactor times larger
+    int minChunkSize = 64;
+    double growthFactor = 1.25;
+    int segments = 16;
+}
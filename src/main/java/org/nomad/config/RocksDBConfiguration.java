@@ -0,0 +1,20 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tuning of the RocksDB local storage profile, sizes are in megabytes.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class RocksDBConfiguration {
+    String path = "nomad-rocksdb";
+    long blockCacheSize = 64;
+    long writeBufferSize = 32;
+    int maxWriteBufferNumber = 3;
+    int bloomFilterBits = 10;
+    // upper bound on the age of a record in seconds, regardless of its own TTL, 0 disables the bound
+    int maxAge = 0;
+    boolean statistics = true;
+}
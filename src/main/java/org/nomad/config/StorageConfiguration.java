@@ -11,4 +11,16 @@ public class StorageConfiguration {
     String retrievalMode;
     int replicationFactor;
     double quorum;
+    // number of independent local stores objects are partitioned across, 1 disables sharding
+    int shards = 1;
+    ExecutorConfiguration executor = new ExecutorConfiguration();
+    BatchConfiguration batch = new BatchConfiguration();
+    BatchConfiguration ledgerBatch = new BatchConfiguration();
+    H2Configuration h2 = new H2Configuration();
+    RocksDBConfiguration rocksdb = new RocksDBConfiguration();
+    OffHeapConfiguration offheap = new OffHeapConfiguration();
+    LogStorageConfiguration log = new LogStorageConfiguration();
+    CacheConfiguration cache = new CacheConfiguration();
+    NegativeCacheConfiguration negativeCache = new NegativeCacheConfiguration();
+    HedgeConfiguration hedge = new HedgeConfiguration();
 }
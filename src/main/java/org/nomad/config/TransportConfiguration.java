@@ -0,0 +1,31 @@
+package org.nomad.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Netty transport of the gRPC servers and channels, sizes in kilobytes and times in seconds.
+ */
+@Data
+@NoArgsConstructor(force = true)
+public class TransportConfiguration {
+    // request handler threads of each server, requests that do not fit in the queue are rejected
+    int serverThreads = Runtime.getRuntime().availableProcessors() * 4;
+    int queueCapacity = 1024;
+    // event loop threads shared by the servers and, separately, the channels with the same settings, 0 uses the Netty default
+    int eventLoopThreads = 0;
+    // native epoll event loops where available, NIO otherwise
+    boolean epoll = true;
+    // Netty's shared pooled buffer allocator, unpooled buffers otherwise
+    boolean pooledAllocator = true;
+    int flowControlWindow = 1024;
+    int maxMessageSize = 4096;
+    long keepAliveTime = 300;
+    long keepAliveTimeout = 20;
+    boolean keepAliveWithoutCalls = false;
+    // shortest keepalive interval a server accepts from its clients
+    long permitKeepAliveTime = 60;
+    // servers close connections idle for maxConnectionIdle (0 keeps them), channels release theirs after idleTimeout
+    long maxConnectionIdle = 0;
+    long idleTimeout = 1800;
+}
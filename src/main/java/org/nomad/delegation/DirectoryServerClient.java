@@ -79,6 +79,27 @@ public interface DirectoryServerClient {
 
     String getGroupMemberDHTHostname(String groupName) throws Exception;
 
+    /**
+     * Publish the serialised Bloom filter of the objects stored by this group
+     */
+    void setObjectFilter(byte[] filter) throws Exception;
+
+    /**
+     * @return the published object filter of every existing group, empty for groups that did not publish one yet
+     * @throws Exception if the Zookeeper commands fail
+     */
+    Object2ObjectOpenHashMap<String, byte[]> getObjectFilters() throws Exception;
+
+    /**
+     * Publish the serialised version of the objects stored by this group, see {@link org.nomad.storage.GroupObjectFilters}
+     */
+    void setObjectFilterVersion(byte[] version) throws Exception;
+
+    /**
+     * @return the published object filter version of every existing group, empty for groups that did not publish one yet
+     */
+    Object2ObjectOpenHashMap<String, byte[]> getObjectFilterVersions() throws Exception;
+
     Object2ObjectOpenHashMap<String, String> getDataMap();
 
     /**
@@ -73,12 +73,16 @@ public class ZookeeperDirectoryServerClient implements DirectoryServerClient {
     private final String GROUPS_PATH = INLINE_BASE_PATH + "groups";
     private final String LEADERS_PATH = INLINE_BASE_PATH + "leaders";
     private final String DHT_PATH = INLINE_BASE_PATH + "dht";
+    private final String FILTERS_PATH = INLINE_BASE_PATH + "filters";
+    private final String FILTER_VERSIONS_PATH = INLINE_BASE_PATH + "filterVersions";
     // Used by GroupMembers
     private final String CACHE_PATH = INLINE_BASE_PATH + "cache";
     private final String INLINE_GROUPS_PATH = GROUPS_PATH + "/";
     private final String INLINE_LEADERS_PATH = LEADERS_PATH + "/";
     private final String INLINE_DHT_PATH = DHT_PATH + "/";
     private final String INLINE_CACHE_PATH = CACHE_PATH + "/";
+    private final String INLINE_FILTERS_PATH = FILTERS_PATH + "/";
+    private final String INLINE_FILTER_VERSIONS_PATH = FILTER_VERSIONS_PATH + "/";
 
     private final Object2ObjectOpenHashMap<String, String> data = new Object2ObjectOpenHashMap<>();
     private final String uuid;
@@ -564,6 +568,37 @@ public class ZookeeperDirectoryServerClient implements DirectoryServerClient {
         return getGroupMemberDHTHostnameFromPath(groupName);
     }
 
+    @Override
+    public void setObjectFilter(byte[] filter) throws Exception {
+        logger.debug("Publishing object filter of {} ({} bytes)", groupName, filter.length);
+        client.create().orSetData().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(INLINE_FILTERS_PATH + groupName, filter);
+    }
+
+    @Override
+    public Object2ObjectOpenHashMap<String, byte[]> getObjectFilters() throws Exception {
+        return getGroupData(INLINE_FILTERS_PATH);
+    }
+
+    @Override
+    public void setObjectFilterVersion(byte[] version) throws Exception {
+        client.create().orSetData().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(INLINE_FILTER_VERSIONS_PATH + groupName, version);
+    }
+
+    @Override
+    public Object2ObjectOpenHashMap<String, byte[]> getObjectFilterVersions() throws Exception {
+        return getGroupData(INLINE_FILTER_VERSIONS_PATH);
+    }
+
+    private Object2ObjectOpenHashMap<String, byte[]> getGroupData(String inlinePath) throws Exception {
+        Object2ObjectOpenHashMap<String, byte[]> result = new Object2ObjectOpenHashMap<>();
+        // data of groups that no longer exist is left behind, only the current groups are considered
+        for (String group : getGroupNames()) {
+            byte[] data = zNodeExists(inlinePath + group) ? client.getData().forPath(inlinePath + group) : null;
+            result.put(group, data == null ? new byte[0] : data);
+        }
+        return result;
+    }
+
     private String getGroupMemberDHTHostnameFromPath(String groupName) throws Exception {
         ObjectArrayList<String> groupClients = new ObjectArrayList<>(client.getChildren().forPath(INLINE_DHT_PATH + groupName));
         logger.info("DHT data for {}: {}", groupName, groupClients);
@@ -640,6 +675,8 @@ public class ZookeeperDirectoryServerClient implements DirectoryServerClient {
         createZNode(GROUPS_PATH, CreateMode.PERSISTENT);
         createZNode(CACHE_PATH, CreateMode.PERSISTENT);
         createZNode(DHT_PATH, CreateMode.PERSISTENT);
+        createZNode(FILTERS_PATH, CreateMode.PERSISTENT);
+        createZNode(FILTER_VERSIONS_PATH, CreateMode.PERSISTENT);
     }
 
     private void createLeadersCache() {
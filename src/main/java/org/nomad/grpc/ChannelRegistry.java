@@ -0,0 +1,246 @@
+package org.nomad.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import org.nomad.config.TransportConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process-wide registry of the client channels, one per target.
+ * <p>
+ * Every {@link #acquire} hands out a new handle to the shared channel of the target, which the clients use and shut
+ * down like a channel of their own. The channel itself is only shut down once the last handle to it is, so a node
+ * holding several clients for the same host keeps a single connection to it. Channels connect as soon as they are
+ * acquired, and again on {@link #connect} after having gone idle, so the first request after a join or migration does
+ * not pay for the connection setup.
+ */
+public class ChannelRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ChannelRegistry.class);
+    private static ChannelRegistry INSTANCE;
+    private final Object2ObjectOpenHashMap<String, SharedEntry> channels = new Object2ObjectOpenHashMap<>();
+
+    ChannelRegistry() {
+    }
+
+    public synchronized static ChannelRegistry getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new ChannelRegistry();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Settings that differ between the clients of a target, such as a larger inbound message size, belong in the call
+     * options of their stubs, as the channel is shared
+     *
+     * @param transport settings of the node, only used if no channel to the target is open yet
+     * @return a handle to the shared channel, shutting it down releases the handle
+     */
+    public synchronized ManagedChannel acquire(String target, TransportConfiguration transport) {
+        SharedEntry entry = channels.get(target);
+        if (entry == null) {
+            entry = new SharedEntry(target, GrpcTransport.forTarget(target, transport).build());
+            channels.put(target, entry);
+            entry.watch(ConnectivityState.IDLE);
+            logger.debug("Opened channel to {}", target);
+        }
+        entry.references++;
+        entry.channel.getState(true);
+        return new SharedChannel(entry);
+    }
+
+    /**
+     * Reconnects the open channels to the given targets that have gone idle, targets without a channel are ignored
+     */
+    public synchronized void connect(Collection<String> targets) {
+        targets.forEach(target -> {
+            SharedEntry entry = channels.get(target);
+            if (entry != null) {
+                entry.channel.getState(true);
+            }
+        });
+    }
+
+    /**
+     * Connectivity state of the channel to every target
+     */
+    public synchronized Object2ObjectMap<String, ConnectivityState> states() {
+        Object2ObjectOpenHashMap<String, ConnectivityState> states = new Object2ObjectOpenHashMap<>(channels.size());
+        channels.forEach((target, entry) -> states.put(target, entry.channel.getState(false)));
+        return states;
+    }
+
+    /**
+     * Open handles to the channel of the target, 0 if there is none
+     */
+    public synchronized int references(String target) {
+        SharedEntry entry = channels.get(target);
+        return entry == null ? 0 : entry.references;
+    }
+
+    /**
+     * @return whether this was the last handle, and the channel is shut down
+     */
+    private synchronized boolean release(SharedEntry entry, boolean now) {
+        if (--entry.references > 0) {
+            return false;
+        }
+        channels.remove(entry.target, entry);
+        if (now) {
+            entry.channel.shutdownNow();
+        } else {
+            entry.channel.shutdown();
+        }
+        logger.debug("Closed channel to {}", entry.target);
+        return true;
+    }
+
+    private static final class SharedEntry {
+        private final String target;
+        private final ManagedChannel channel;
+        private int references = 0;
+
+        SharedEntry(String target, ManagedChannel channel) {
+            this.target = target;
+            this.channel = channel;
+        }
+
+        /**
+         * Logs every state transition of the channel until it is shut down
+         */
+        void watch(ConnectivityState current) {
+            channel.notifyWhenStateChanged(current, () -> {
+                ConnectivityState next = channel.getState(false);
+                if (next == ConnectivityState.TRANSIENT_FAILURE) {
+                    logger.warn("Channel to {} failed to connect", target);
+                } else {
+                    logger.debug("Channel to {}: {} -> {}", target, current, next);
+                }
+                if (next != ConnectivityState.SHUTDOWN) {
+                    watch(next);
+                }
+            });
+        }
+    }
+
+    /**
+     * Handle to a shared channel. Shutting it down only releases the handle, calls already started complete while
+     * calls made through it afterwards fail like those on a shut down channel.
+     */
+    private final class SharedChannel extends ManagedChannel {
+        private final SharedEntry entry;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile boolean last = false;
+
+        SharedChannel(SharedEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public ManagedChannel shutdown() {
+            if (released.compareAndSet(false, true)) {
+                last = release(entry, false);
+            }
+            return this;
+        }
+
+        @Override
+        public ManagedChannel shutdownNow() {
+            if (released.compareAndSet(false, true)) {
+                last = release(entry, true);
+            } else if (last) {
+                entry.channel.shutdownNow();
+            }
+            return this;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return released.get();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return released.get() && (!last || entry.channel.isTerminated());
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return last ? entry.channel.awaitTermination(timeout, unit) : released.get();
+        }
+
+        @Override
+        public ConnectivityState getState(boolean requestConnection) {
+            return entry.channel.getState(requestConnection);
+        }
+
+        @Override
+        public void notifyWhenStateChanged(ConnectivityState source, Runnable callback) {
+            entry.channel.notifyWhenStateChanged(source, callback);
+        }
+
+        @Override
+        public void resetConnectBackoff() {
+            entry.channel.resetConnectBackoff();
+        }
+
+        @Override
+        public void enterIdle() {
+            entry.channel.enterIdle();
+        }
+
+        @Override
+        public <RequestT, ResponseT> ClientCall<RequestT, ResponseT> newCall(MethodDescriptor<RequestT, ResponseT> methodDescriptor, CallOptions callOptions) {
+            if (released.get()) {
+                return new ReleasedCall<>(entry.target);
+            }
+            return entry.channel.newCall(methodDescriptor, callOptions);
+        }
+
+        @Override
+        public String authority() {
+            return entry.channel.authority();
+        }
+    }
+
+    private static final class ReleasedCall<RequestT, ResponseT> extends ClientCall<RequestT, ResponseT> {
+        private final String target;
+
+        ReleasedCall(String target) {
+            this.target = target;
+        }
+
+        @Override
+        public void start(Listener<ResponseT> responseListener, Metadata headers) {
+            responseListener.onClose(Status.UNAVAILABLE.withDescription("Channel handle to " + target + " was shut down"), new Metadata());
+        }
+
+        @Override
+        public void request(int numMessages) {
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+        }
+
+        @Override
+        public void halfClose() {
+        }
+
+        @Override
+        public void sendMessage(RequestT message) {
+        }
+    }
+}
@@ -0,0 +1,630 @@
+package org.nomad.grpc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.BindableService;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.CompressorRegistry;
+import io.grpc.ConnectivityState;
+import io.grpc.DecompressorRegistry;
+import io.grpc.ForwardingChannelBuilder;
+import io.grpc.HandlerRegistry;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.nomad.commons.NetworkUtility;
+import org.nomad.config.TransportConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creates the builders for all gRPC servers and channels of a node, tuned by its {@link TransportConfiguration}.
+ * <p>
+ * By default servers listen on a TCP port and channels connect to "ip:port" targets over Netty. Servers, and
+ * separately channels, with the same event loop settings share their event loops. Each built server and channel holds
+ * a reference to them, and a server owns its request executor, both are released once the server or channel has
+ * terminated. With the in-process transport enabled, which allows several nodes to run inside one JVM, a server is
+ * instead registered under the "ip:port" name it would have listened on, so the hostnames published to the directory
+ * server stay valid targets.
+ */
+public class GrpcTransport {
+    private static final Logger logger = LoggerFactory.getLogger(GrpcTransport.class);
+    private static final int KILOBYTE = 1024;
+    private static final long EXECUTOR_KEEP_ALIVE = 60;
+    private static final long EVENT_LOOP_SHUTDOWN_TIMEOUT = 5;
+    private static volatile boolean inProcess = false;
+    // event loops in use by key, guarded by the class lock
+    private static final Map<String, EventLoops> eventLoops = new TreeMap<>();
+    // waits for stopped servers and channels to terminate before releasing what they used
+    private static final ExecutorService releases = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("nomad-grpc-release-%d").setDaemon(true).build());
+    private static final LongAdder rejectedCalls = new LongAdder();
+
+    public static boolean isInProcess() {
+        return inProcess;
+    }
+
+    /**
+     * Only affects servers and channels built afterwards
+     */
+    public static void setInProcess(boolean enabled) {
+        inProcess = enabled;
+    }
+
+    /**
+     * Calls rejected by saturated servers of this process
+     */
+    public static long getRejectedCalls() {
+        return rejectedCalls.sum();
+    }
+
+    /**
+     * @param transport settings of the node, the defaults are used if null
+     */
+    public static ServerBuilder<?> forPort(int port, TransportConfiguration transport) {
+        TransportConfiguration settings = transport == null ? new TransportConfiguration() : transport;
+        TransportConfiguration defaults = new TransportConfiguration();
+        int maxMessageSize = positiveOrDefault(settings.getMaxMessageSize(), defaults.getMaxMessageSize()) * KILOBYTE;
+        if (inProcess) {
+            return new TransportServerBuilder(InProcessServerBuilder.forName(NetworkUtility.getIP() + ":" + port).maxInboundMessageSize(maxMessageSize), port, settings, null);
+        }
+        NettyServerBuilder builder = NettyServerBuilder.forPort(port)
+                .maxInboundMessageSize(maxMessageSize)
+                .withChildOption(ChannelOption.ALLOCATOR, allocator(settings))
+                .flowControlWindow(positiveOrDefault(settings.getFlowControlWindow(), defaults.getFlowControlWindow()) * KILOBYTE)
+                .keepAliveTime(positiveOrDefault(settings.getKeepAliveTime(), defaults.getKeepAliveTime()), TimeUnit.SECONDS)
+                .keepAliveTimeout(positiveOrDefault(settings.getKeepAliveTimeout(), defaults.getKeepAliveTimeout()), TimeUnit.SECONDS)
+                .permitKeepAliveTime(positiveOrDefault(settings.getPermitKeepAliveTime(), defaults.getPermitKeepAliveTime()), TimeUnit.SECONDS)
+                .permitKeepAliveWithoutCalls(settings.isKeepAliveWithoutCalls());
+        if (settings.getMaxConnectionIdle() > 0) {
+            builder.maxConnectionIdle(settings.getMaxConnectionIdle(), TimeUnit.SECONDS);
+        }
+        return new TransportServerBuilder(builder, port, settings, builder);
+    }
+
+    /**
+     * Plaintext channel builder, callers may still override any of the settings
+     *
+     * @param transport settings of the node, the defaults are used if null
+     */
+    public static ManagedChannelBuilder<?> forTarget(String target, TransportConfiguration transport) {
+        TransportConfiguration settings = transport == null ? new TransportConfiguration() : transport;
+        TransportConfiguration defaults = new TransportConfiguration();
+        ManagedChannelBuilder<?> builder;
+        NettyChannelBuilder nettyBuilder = null;
+        if (inProcess) {
+            builder = InProcessChannelBuilder.forName(target);
+        } else {
+            nettyBuilder = NettyChannelBuilder.forTarget(target)
+                    .withOption(ChannelOption.ALLOCATOR, allocator(settings))
+                    .flowControlWindow(positiveOrDefault(settings.getFlowControlWindow(), defaults.getFlowControlWindow()) * KILOBYTE);
+            builder = nettyBuilder;
+        }
+        builder.usePlaintext()
+                .maxInboundMessageSize(positiveOrDefault(settings.getMaxMessageSize(), defaults.getMaxMessageSize()) * KILOBYTE)
+                .keepAliveTime(positiveOrDefault(settings.getKeepAliveTime(), defaults.getKeepAliveTime()), TimeUnit.SECONDS)
+                .keepAliveTimeout(positiveOrDefault(settings.getKeepAliveTimeout(), defaults.getKeepAliveTimeout()), TimeUnit.SECONDS)
+                .keepAliveWithoutCalls(settings.isKeepAliveWithoutCalls())
+                .idleTimeout(positiveOrDefault(settings.getIdleTimeout(), defaults.getIdleTimeout()), TimeUnit.SECONDS);
+        return new TransportChannelBuilder(builder, settings, nettyBuilder);
+    }
+
+    /**
+     * Request handlers of one server. A saturated executor rejects the call instead of running it on the caller, which
+     * would be a Netty event loop thread also serving other connections.
+     */
+    private static ThreadPoolExecutor serverExecutor(int port, TransportConfiguration settings) {
+        TransportConfiguration defaults = new TransportConfiguration();
+        int threads = positiveOrDefault(settings.getServerThreads(), defaults.getServerThreads());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                EXECUTOR_KEEP_ALIVE,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(positiveOrDefault(settings.getQueueCapacity(), defaults.getQueueCapacity())),
+                new ThreadFactoryBuilder().setNameFormat("nomad-grpc-" + port + "-%d").setDaemon(true).build(),
+                new RejectCall(port));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ByteBufAllocator allocator(TransportConfiguration settings) {
+        return settings.isPooledAllocator() ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT;
+    }
+
+    /**
+     * Takes a reference to the event loops of the settings, creating them if no server or channel uses them yet
+     */
+    private static synchronized EventLoops acquireEventLoops(TransportConfiguration settings, boolean server) {
+        boolean epoll = settings.isEpoll() && Epoll.isAvailable();
+        if (settings.isEpoll() && !epoll) {
+            logger.info("Native epoll transport unavailable, using NIO: {}", Epoll.unavailabilityCause().getMessage());
+        }
+        String key = (server ? "server" : "channel") + "-" + (epoll ? "epoll" : "nio") + "-" + settings.getEventLoopThreads();
+        EventLoops loops = eventLoops.computeIfAbsent(key, k -> new EventLoops(k, settings.getEventLoopThreads(), epoll, server));
+        loops.references++;
+        return loops;
+    }
+
+    /**
+     * The event loops are shut down once the last server or channel using them has released them
+     */
+    private static synchronized void releaseEventLoops(EventLoops loops) {
+        if (--loops.references > 0) {
+            return;
+        }
+        eventLoops.remove(loops.key);
+        if (loops.boss != null) {
+            loops.boss.shutdownGracefully(0, EVENT_LOOP_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+        }
+        loops.workers.shutdownGracefully(0, EVENT_LOOP_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Number of servers and channels per event loop key
+     */
+    static synchronized Map<String, Integer> eventLoopReferences() {
+        Map<String, Integer> result = new TreeMap<>();
+        eventLoops.forEach((key, loops) -> result.put(key, loops.references));
+        return result;
+    }
+
+    private static int positiveOrDefault(int value, int fallback) {
+        return value > 0 ? value : fallback;
+    }
+
+    private static long positiveOrDefault(long value, long fallback) {
+        return value > 0 ? value : fallback;
+    }
+
+    /**
+     * Runs {@code release} once, after {@code termination} returned
+     */
+    private static void releaseAfter(Termination termination, AtomicBoolean released, Runnable release) {
+        if (released.get()) {
+            return;
+        }
+        releases.execute(() -> {
+            try {
+                termination.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    release.run();
+                }
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Termination {
+        void await() throws InterruptedException;
+    }
+
+    /**
+     * Logs a saturated server at most once per interval, with the number of calls it rejected since
+     */
+    private static final class RejectCall implements RejectedExecutionHandler {
+        private static final long WARNING_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+        private final int port;
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong lastWarning = new AtomicLong(System.nanoTime() - WARNING_INTERVAL);
+
+        RejectCall(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            rejectedCalls.increment();
+            rejected.incrementAndGet();
+            long now = System.nanoTime();
+            long last = lastWarning.get();
+            if (now - last >= WARNING_INTERVAL && lastWarning.compareAndSet(last, now)) {
+                logger.warn("gRPC server on port {} saturated, rejected {} calls", port, rejected.getAndSet(0));
+            }
+            throw new RejectedExecutionException("gRPC server on port " + port + " is saturated");
+        }
+    }
+
+    /**
+     * Daemon event loop threads, Netty picks the number of threads if it is 0. Only servers need a boss group.
+     */
+    private static final class EventLoops {
+        private final String key;
+        private final EventLoopGroup boss;
+        private final EventLoopGroup workers;
+        private final Class<? extends ServerChannel> serverChannelType;
+        private final Class<? extends Channel> channelType;
+        // guarded by the GrpcTransport class lock
+        private int references = 0;
+
+        EventLoops(String key, int threads, boolean epoll, boolean server) {
+            this.key = key;
+            if (epoll) {
+                boss = server ? new EpollEventLoopGroup(1, new DefaultThreadFactory("nomad-grpc-" + key + "-boss", true)) : null;
+                workers = new EpollEventLoopGroup(threads, new DefaultThreadFactory("nomad-grpc-" + key, true));
+                serverChannelType = EpollServerSocketChannel.class;
+                channelType = EpollSocketChannel.class;
+            } else {
+                boss = server ? new NioEventLoopGroup(1, new DefaultThreadFactory("nomad-grpc-" + key + "-boss", true)) : null;
+                workers = new NioEventLoopGroup(threads, new DefaultThreadFactory("nomad-grpc-" + key, true));
+                serverChannelType = NioServerSocketChannel.class;
+                channelType = NioSocketChannel.class;
+            }
+        }
+    }
+
+    /**
+     * Creates the executor of the server and takes its event loops when it is built, the server gives both back once
+     * it has terminated
+     */
+    private static final class TransportServerBuilder extends ServerBuilder<TransportServerBuilder> {
+        private final ServerBuilder<?> delegate;
+        private final int port;
+        private final TransportConfiguration settings;
+        private final NettyServerBuilder netty;
+        private boolean customExecutor = false;
+
+        TransportServerBuilder(ServerBuilder<?> delegate, int port, TransportConfiguration settings, NettyServerBuilder netty) {
+            this.delegate = delegate;
+            this.port = port;
+            this.settings = settings;
+            this.netty = netty;
+        }
+
+        /**
+         * Replaces the executor of the transport, the caller then owns the executor
+         */
+        @Override
+        public TransportServerBuilder directExecutor() {
+            delegate.directExecutor();
+            customExecutor = true;
+            return this;
+        }
+
+        /**
+         * Replaces the executor of the transport, the caller then owns the executor
+         */
+        @Override
+        public TransportServerBuilder executor(Executor executor) {
+            delegate.executor(executor);
+            customExecutor = true;
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder addService(ServerServiceDefinition service) {
+            delegate.addService(service);
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder addService(BindableService bindableService) {
+            delegate.addService(bindableService);
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder intercept(ServerInterceptor interceptor) {
+            delegate.intercept(interceptor);
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder fallbackHandlerRegistry(HandlerRegistry fallbackRegistry) {
+            delegate.fallbackHandlerRegistry(fallbackRegistry);
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder useTransportSecurity(File certChain, File privateKey) {
+            delegate.useTransportSecurity(certChain, privateKey);
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder decompressorRegistry(DecompressorRegistry registry) {
+            delegate.decompressorRegistry(registry);
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder compressorRegistry(CompressorRegistry registry) {
+            delegate.compressorRegistry(registry);
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder handshakeTimeout(long timeout, TimeUnit unit) {
+            delegate.handshakeTimeout(timeout, unit);
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder maxInboundMessageSize(int bytes) {
+            delegate.maxInboundMessageSize(bytes);
+            return this;
+        }
+
+        @Override
+        public TransportServerBuilder maxInboundMetadataSize(int bytes) {
+            delegate.maxInboundMetadataSize(bytes);
+            return this;
+        }
+
+        @Override
+        public Server build() {
+            ThreadPoolExecutor executor = customExecutor ? null : serverExecutor(port, settings);
+            EventLoops loops = netty == null ? null : acquireEventLoops(settings, true);
+            Runnable release = () -> {
+                if (executor != null) {
+                    executor.shutdown();
+                }
+                if (loops != null) {
+                    releaseEventLoops(loops);
+                }
+            };
+            try {
+                if (loops != null) {
+                    netty.bossEventLoopGroup(loops.boss)
+                            .workerEventLoopGroup(loops.workers)
+                            .channelType(loops.serverChannelType);
+                }
+                if (executor != null) {
+                    delegate.executor(executor);
+                }
+                return new TransportServer(delegate.build(), release);
+            } catch (RuntimeException e) {
+                release.run();
+                throw e;
+            }
+        }
+    }
+
+    private static final class TransportServer extends Server {
+        private final Server delegate;
+        private final Runnable release;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        TransportServer(Server delegate, Runnable release) {
+            this.delegate = delegate;
+            this.release = release;
+        }
+
+        /**
+         * A server that fails to start is shut down, so that it releases its executor and event loops
+         */
+        @Override
+        public Server start() throws IOException {
+            try {
+                delegate.start();
+            } catch (IOException | RuntimeException e) {
+                shutdownNow();
+                throw e;
+            }
+            return this;
+        }
+
+        @Override
+        public int getPort() {
+            return delegate.getPort();
+        }
+
+        @Override
+        public List<? extends SocketAddress> getListenSockets() {
+            return delegate.getListenSockets();
+        }
+
+        @Override
+        public List<ServerServiceDefinition> getServices() {
+            return delegate.getServices();
+        }
+
+        @Override
+        public List<ServerServiceDefinition> getImmutableServices() {
+            return delegate.getImmutableServices();
+        }
+
+        @Override
+        public List<ServerServiceDefinition> getMutableServices() {
+            return delegate.getMutableServices();
+        }
+
+        @Override
+        public Server shutdown() {
+            delegate.shutdown();
+            releaseAfter(delegate::awaitTermination, released, release);
+            return this;
+        }
+
+        @Override
+        public Server shutdownNow() {
+            delegate.shutdownNow();
+            releaseAfter(delegate::awaitTermination, released, release);
+            return this;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public void awaitTermination() throws InterruptedException {
+            delegate.awaitTermination();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    /**
+     * Takes the event loops of the channel when it is built, the channel gives them back once it has terminated
+     */
+    private static final class TransportChannelBuilder extends ForwardingChannelBuilder<TransportChannelBuilder> {
+        private final ManagedChannelBuilder<?> delegate;
+        private final TransportConfiguration settings;
+        private final NettyChannelBuilder netty;
+
+        TransportChannelBuilder(ManagedChannelBuilder<?> delegate, TransportConfiguration settings, NettyChannelBuilder netty) {
+            this.delegate = delegate;
+            this.settings = settings;
+            this.netty = netty;
+        }
+
+        @Override
+        protected ManagedChannelBuilder<?> delegate() {
+            return delegate;
+        }
+
+        @Override
+        public ManagedChannel build() {
+            if (netty == null) {
+                return delegate.build();
+            }
+            EventLoops loops = acquireEventLoops(settings, false);
+            try {
+                netty.eventLoopGroup(loops.workers).channelType(loops.channelType);
+                return new TransportChannel(netty.build(), () -> releaseEventLoops(loops));
+            } catch (RuntimeException e) {
+                releaseEventLoops(loops);
+                throw e;
+            }
+        }
+    }
+
+    private static final class TransportChannel extends ManagedChannel {
+        private final ManagedChannel delegate;
+        private final Runnable release;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        TransportChannel(ManagedChannel delegate, Runnable release) {
+            this.delegate = delegate;
+            this.release = release;
+        }
+
+        @Override
+        public <RequestT, ResponseT> ClientCall<RequestT, ResponseT> newCall(MethodDescriptor<RequestT, ResponseT> methodDescriptor, CallOptions callOptions) {
+            return delegate.newCall(methodDescriptor, callOptions);
+        }
+
+        @Override
+        public String authority() {
+            return delegate.authority();
+        }
+
+        @Override
+        public ManagedChannel shutdown() {
+            delegate.shutdown();
+            releaseAfter(this::awaitTermination, released, release);
+            return this;
+        }
+
+        @Override
+        public ManagedChannel shutdownNow() {
+            delegate.shutdownNow();
+            releaseAfter(this::awaitTermination, released, release);
+            return this;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public ConnectivityState getState(boolean requestConnection) {
+            return delegate.getState(requestConnection);
+        }
+
+        @Override
+        public void notifyWhenStateChanged(ConnectivityState source, Runnable callback) {
+            delegate.notifyWhenStateChanged(source, callback);
+        }
+
+        @Override
+        public void resetConnectBackoff() {
+            delegate.resetConnectBackoff();
+        }
+
+        @Override
+        public void enterIdle() {
+            delegate.enterIdle();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+
+        private void awaitTermination() throws InterruptedException {
+            while (!delegate.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.debug("Waiting for channel {} to terminate", delegate.authority());
+            }
+        }
+    }
+}
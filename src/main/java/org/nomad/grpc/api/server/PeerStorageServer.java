@@ -1,8 +1,9 @@
 package org.nomad.grpc.api.server;
 
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
 import org.nomad.commons.NetworkUtility;
+import org.nomad.config.Config;
+import org.nomad.grpc.GrpcTransport;
 import org.nomad.grpc.api.service.PeerStorageService;
 import org.nomad.grpc.management.servers.GroupStorageServer;
 import org.slf4j.Logger;
@@ -17,13 +18,15 @@ import java.util.concurrent.TimeUnit;
 public class PeerStorageServer {
     private final Logger logger = LoggerFactory.getLogger(GroupStorageServer.class);
     private final PeerStorageService peerStorageService;
+    private final Config config;
     private int port;
     private Server server;
     private String host;
 
     @Autowired
-    private PeerStorageServer(PeerStorageService groupStorageService) {
+    private PeerStorageServer(PeerStorageService groupStorageService, Config config) {
         this.peerStorageService = groupStorageService;
+        this.config = config;
         NetworkUtility.init();
     }
 
@@ -31,7 +34,7 @@ public class PeerStorageServer {
         logger.info("Initializing group storage server...");
         this.port = port;
         host = NetworkUtility.getIP() + ":" + port;
-        server = ServerBuilder.forPort(port).addService(peerStorageService).build();
+        server = GrpcTransport.forPort(port, config.getTransport()).addService(peerStorageService).build();
     }
 
     /**
@@ -1,26 +1,29 @@
 package org.nomad.grpc.management.clients;
 
-import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.protobuf.Empty;
 import io.grpc.Channel;
 import io.grpc.ManagedChannel;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
-import org.checkerframework.checker.nullness.qual.Nullable;
 import org.nomad.commons.NetworkUtility;
 import org.nomad.grpc.groupstorage.AddToGroupLedgerRequest;
 import org.nomad.grpc.groupstorage.AddToGroupLedgerResponse;
 import org.nomad.grpc.groupstorage.DeleteObjectRequest;
 import org.nomad.grpc.groupstorage.DeleteObjectResponse;
+import org.nomad.grpc.groupstorage.GetBatchResponse;
 import org.nomad.grpc.groupstorage.GetObjectRequest;
 import org.nomad.grpc.groupstorage.GetObjectResponse;
 import org.nomad.grpc.groupstorage.GroupStorageServiceGrpc;
 import org.nomad.grpc.groupstorage.HealthCheckResponse;
+import org.nomad.grpc.groupstorage.PutBatchResponse;
 import org.nomad.grpc.groupstorage.PutObjectRequest;
 import org.nomad.grpc.groupstorage.PutObjectResponse;
 import org.nomad.grpc.groupstorage.RemovePeerGroupLedgerRequest;
@@ -34,13 +37,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.nomad.grpc.groupstorage.HealthCheckResponse.ServingStatus.SERVING;
@@ -51,12 +58,16 @@ public class GroupStorageClient {
             .withDelay(Duration.ofMillis(20))
             .handle(Exception.class)
             .withMaxRetries(3);
+    private static final long ASYNC_DEADLINE_MILLIS = 5000;
     private final GroupStorageServiceGrpc.GroupStorageServiceBlockingStub blockingStub;
     private final GroupStorageServiceGrpc.GroupStorageServiceStub asyncStub;
     private final GroupStorageServiceGrpc.GroupStorageServiceFutureStub futureStub;
     private final ManagedChannel managedChannel;
     private final CustomMappers mapper = new CustomMappers();
     private final String server;
+    private final Executor callbackExecutor;
+    private RequestBatcher<GameObject, Boolean> putBatcher;
+    private RequestBatcher<String, GameObject> getBatcher;
     private boolean isActive = false;
     private long rpcCount;
 
@@ -64,6 +75,14 @@ public class GroupStorageClient {
      * Construct client for accessing RouteGuide server using the existing channel.
      */
     public GroupStorageClient(Channel channel) {
+        this(channel, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Construct client whose non-blocking responses are mapped on the given executor instead of the transport thread.
+     */
+    public GroupStorageClient(Channel channel, Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
         this.managedChannel = (ManagedChannel) channel;
         this.blockingStub = GroupStorageServiceGrpc.newBlockingStub(channel);
         this.asyncStub = GroupStorageServiceGrpc.newStub(channel);
@@ -77,6 +96,10 @@ public class GroupStorageClient {
     }
 
     public void close() throws InterruptedException {
+        if (putBatcher != null) {
+            putBatcher.flush();
+            getBatcher.flush();
+        }
         this.isActive = false;
         managedChannel.shutdown().awaitTermination(60, TimeUnit.SECONDS);
     }
@@ -244,300 +267,272 @@ public class GroupStorageClient {
         return result;
     }
 
-    /**
+    /*
      * ===================================================================
-     * FUTURE STUB
+     * NON-BLOCKING FUTURES
      * ===================================================================
      */
-    public boolean putGameObjectFuture(GameObject gameObject) throws InterruptedException {
+
+    /**
+     * Non-blocking put, the returned future completes with the replica's result once the RPC finishes
+     */
+    public ListenableFuture<Boolean> putGameObjectAsync(GameObject gameObject) {
         logger.debug("Adding object: {}", gameObject.getId());
+        if (!isActive || managedChannel.isShutdown()) {
+            logger.warn("The client wasn't active");
+            return Futures.immediateFuture(false);
+        }
 
         PutObjectRequest request = PutObjectRequest.newBuilder()
                 .setObject(GameObjectMapperImpl.INSTANCE.mapToGrpc(gameObject))
                 .build();
 
-        ListenableFuture<PutObjectResponse> futureResponse = futureStub.put(request);
-        final CountDownLatch finishLatch = new CountDownLatch(1);
-        Futures.addCallback(futureResponse, new FutureCallback<PutObjectResponse>() {
-            @Override
-            public void onSuccess(@Nullable PutObjectResponse result) {
-                finishLatch.countDown();
-            }
-
-            @Override
-            public void onFailure(Throwable t) {
-                finishLatch.countDown();
-            }
-        }, MoreExecutors.directExecutor());
-
-        finishLatch.await();
-        PutObjectResponse putObjectResponse;
-
-        if (!futureResponse.isCancelled()) {
-            try {
-                if (futureResponse.isDone()) {
-                    putObjectResponse = futureResponse.get();
-                } else {
-                    putObjectResponse = futureResponse.get(50, TimeUnit.MILLISECONDS);
-                }
-                logger.debug("Put result: {}", putObjectResponse.getResult());
-
-            } catch (InterruptedException e) {
-                logger.error("Put result Interrupted", e);
-                Thread.currentThread().interrupt();
-                return false;
-            } catch (TimeoutException e) {
-                logger.error("Put result Timed out", e);
-                // e.printStackTrace();
-                return false;
-            } catch (ExecutionException e) {
-                logger.error("Put result execution failed");
-                // e.printStackTrace();
-                return false;
-            }
-        } else {
-            logger.error("Put has been cancelled!");
-            return false;
-        }
-        logger.debug("Successful Put request");
-        return putObjectResponse.getResult();
+        ListenableFuture<PutObjectResponse> futureResponse = futureStub.withDeadlineAfter(ASYNC_DEADLINE_MILLIS, TimeUnit.MILLISECONDS).put(request);
+        return Futures.transform(futureResponse, PutObjectResponse::getResult, callbackExecutor);
     }
 
-    public GameObject getGameObjectFuture(String id) throws NoSuchElementException, InterruptedException {
+    /**
+     * Non-blocking get, the returned future fails with {@link NoSuchElementException} if the replica does not store
+     * the object
+     */
+    public ListenableFuture<GameObject> getGameObjectAsync(String id) {
         logger.debug("Getting object: {}", id);
-
         if (!isActive || managedChannel.isShutdown()) {
             logger.warn("The client wasn't active");
-            throw new NoSuchElementException();
+            return Futures.immediateFailedFuture(new NoSuchElementException());
         }
 
         GetObjectRequest request = GetObjectRequest.newBuilder().setId(id).build();
-        ListenableFuture<GetObjectResponse> future = futureStub.get(request);
-
-        final CountDownLatch finishLatch = new CountDownLatch(1);
-        Futures.addCallback(future, new FutureCallback<GetObjectResponse>() {
-            @Override
-            public void onSuccess(@Nullable GetObjectResponse result) {
-                logger.debug("Successful request");
-                finishLatch.countDown();
-            }
-
-            @Override
-            public void onFailure(Throwable t) {
-                logger.error("Get Failed");
-                finishLatch.countDown();
+        ListenableFuture<GetObjectResponse> futureResponse = futureStub.withDeadlineAfter(ASYNC_DEADLINE_MILLIS, TimeUnit.MILLISECONDS).get(request);
+        return Futures.transform(futureResponse, response -> {
+            if (response.getResult()) {
+                return GameObjectMapperImpl.INSTANCE.mapToInternal(response.getObject());
             }
-        }, MoreExecutors.directExecutor());
-
-        finishLatch.await();
-        GetObjectResponse getObjectResponse;
-
-        if (!future.isCancelled()) {
-            try {
-                if (future.isDone()) {
-                    getObjectResponse = future.get();
-                } else {
-                    getObjectResponse = future.get(50, TimeUnit.MILLISECONDS);
-                }
-                logger.debug("Get result: {}", getObjectResponse.getResult());
-
-            } catch (InterruptedException e) {
-                logger.debug("Get Interrupted", e);
-                Thread.currentThread().interrupt();
-                throw new NoSuchElementException();
-            } catch (TimeoutException e) {
-                logger.error("Get Timed out", e);
-                // e.printStackTrace();
-                throw new NoSuchElementException();
-            } catch (ExecutionException e) {
-                logger.error("Get execution failed");
-                // e.printStackTrace();
-                throw new NoSuchElementException();
-            }
-        } else {
-            logger.error("Get has been cancelled!");
-            throw new NoSuchElementException();
-        }
-
-        if (getObjectResponse.getResult()) {
-            logger.debug("successful Get request!");
-            return GameObjectMapperImpl.INSTANCE.mapToInternal(getObjectResponse.getObject());
-        }
-        throw new NoSuchElementException("Object with id: " + id + " not found");
+            throw new NoSuchElementException("Object with id: " + id + " not found");
+        }, callbackExecutor);
     }
 
     /**
-     * Blocking unary call. Calls updateGameObject and prints the response.
+     * Non-blocking update, the returned future completes with the replica's result once the RPC finishes
      */
-    public boolean updateGameObjectFuture(GameObject gameObject) throws InterruptedException {
+    public ListenableFuture<Boolean> updateGameObjectAsync(GameObject gameObject) {
         logger.debug("Updating object: {}", gameObject.getId());
+        if (!isActive || managedChannel.isShutdown()) {
+            logger.warn("The client wasn't active");
+            return Futures.immediateFuture(false);
+        }
 
         UpdateObjectRequest request = UpdateObjectRequest.newBuilder()
                 .setObject(GameObjectMapperImpl.INSTANCE.mapToGrpc(gameObject))
                 .build();
 
+        ListenableFuture<UpdateObjectResponse> futureResponse = futureStub.withDeadlineAfter(ASYNC_DEADLINE_MILLIS, TimeUnit.MILLISECONDS).update(request);
+        return Futures.transform(futureResponse, UpdateObjectResponse::getResult, callbackExecutor);
+    }
 
-        ListenableFuture<UpdateObjectResponse> futureResponse = futureStub.update(request);
-        final CountDownLatch finishLatch = new CountDownLatch(1);
-        Futures.addCallback(futureResponse, new FutureCallback<UpdateObjectResponse>() {
-            @Override
-            public void onSuccess(@Nullable UpdateObjectResponse result) {
-                logger.debug("Successful Update");
-                finishLatch.countDown();
-            }
-
-            @Override
-            public void onFailure(Throwable t) {
-                logger.error("Update Failed");
-                finishLatch.countDown();
-            }
-        }, MoreExecutors.directExecutor());
-
-        finishLatch.await();
-        UpdateObjectResponse updateObjectResponse;
-
-        if (!futureResponse.isCancelled()) {
-            try {
-                if (futureResponse.isDone()) {
-                    updateObjectResponse = futureResponse.get();
-                } else {
-                    updateObjectResponse = futureResponse.get(50, TimeUnit.MILLISECONDS);
-                }
-                logger.debug("Update result: {}", updateObjectResponse.getResult());
-
-            } catch (InterruptedException e) {
-                logger.error("Update result Interrupted", e);
-                Thread.currentThread().interrupt();
-                return false;
-            } catch (TimeoutException e) {
-                logger.error("Put result Timed out", e);
-                // e.printStackTrace();
-                return false;
-            } catch (ExecutionException e) {
-                logger.error("Update result execution failed");
-                // e.printStackTrace();
-                return false;
-            }
-        } else {
-            logger.error("Update has been cancelled!");
-            return false;
+    /**
+     * Non-blocking group ledger addition, the returned future completes with the member's result once the RPC finishes
+     */
+    public ListenableFuture<Boolean> notifyObjectAddedAsync(String objectId, String peerId, long TTL) {
+        logger.debug("Adding object reference to ledger: {}", objectId);
+        if (!isActive || managedChannel.isShutdown()) {
+            logger.warn("The client wasn't active");
+            return Futures.immediateFuture(false);
         }
-        return updateObjectResponse.getResult();
-    }
 
-    public boolean notifyObjectAddedFuture(String objectId, String peerId, long TTL) throws InterruptedException {
         AddToGroupLedgerRequest request = AddToGroupLedgerRequest.newBuilder()
                 .setObjectId(objectId)
                 .setPeerId(peerId)
                 .setTtl(TTL)
                 .build();
+        ListenableFuture<AddToGroupLedgerResponse> futureResponse = futureStub.withDeadlineAfter(ASYNC_DEADLINE_MILLIS, TimeUnit.MILLISECONDS).addToGroupLedger(request);
+        return Futures.transform(futureResponse, AddToGroupLedgerResponse::getResult, callbackExecutor);
+    }
 
-        ListenableFuture<AddToGroupLedgerResponse> futureResponse = futureStub
-//                .withDeadlineAfter(100, TimeUnit.MILLISECONDS)
-                .addToGroupLedger(request);
+    /**
+     * Non-blocking removal of the peer from this member's group ledger, the returned future completes with the
+     * member's result once the RPC finishes
+     */
+    public ListenableFuture<Boolean> notifyRemovePeerFromGroupLedgerAsync(String peerId) {
+        logger.debug("Sending request to remove peer from group-ledger: {}", peerId);
+        if (!isActive || managedChannel.isShutdown()) {
+            logger.warn("The client wasn't active");
+            return Futures.immediateFuture(false);
+        }
 
-        final CountDownLatch finishLatch = new CountDownLatch(1);
-        Futures.addCallback(futureResponse, new FutureCallback<AddToGroupLedgerResponse>() {
-            @Override
-            public void onSuccess(@Nullable AddToGroupLedgerResponse result) {
-                logger.debug("Successful Add to ledger");
-                finishLatch.countDown();
-            }
+        RemovePeerGroupLedgerRequest request = RemovePeerGroupLedgerRequest.newBuilder().setPeerId(peerId).build();
+        ListenableFuture<RemovePeerGroupLedgerResponse> futureResponse = futureStub.withDeadlineAfter(ASYNC_DEADLINE_MILLIS, TimeUnit.MILLISECONDS).removePeerGroupLedger(request);
+        return Futures.transform(futureResponse, RemovePeerGroupLedgerResponse::getResult, callbackExecutor);
+    }
 
-            @Override
-            public void onFailure(Throwable t) {
-                logger.error("Add to ledger Failed");
-                finishLatch.countDown();
-            }
-        }, MoreExecutors.directExecutor());
+    /**
+     * Client-streaming put of several objects in a single call
+     *
+     * @return future of object id to put result
+     */
+    public ListenableFuture<Map<String, Boolean>> putBatchAsync(List<GameObject> gameObjects) {
+        logger.debug("Adding batch of {} objects", gameObjects.size());
+        SettableFuture<Map<String, Boolean>> result = SettableFuture.create();
+        if (!isActive || managedChannel.isShutdown()) {
+            logger.warn("The client wasn't active");
+            result.setException(new IllegalStateException("The client wasn't active"));
+            return result;
+        }
 
-        finishLatch.await();
-        AddToGroupLedgerResponse addToGroupLedgerResponse;
-
-        if (!futureResponse.isCancelled()) {
-            try {
-                if (futureResponse.isDone()) {
-                    addToGroupLedgerResponse = futureResponse.get();
-                } else {
-                    addToGroupLedgerResponse = futureResponse.get(50, TimeUnit.MILLISECONDS);
-                }
-                logger.debug("Add to ledger result: {}", addToGroupLedgerResponse.getResult());
-
-            } catch (InterruptedException e) {
-                logger.error("Add to ledger Interrupted", e);
-                Thread.currentThread().interrupt();
-                return false;
-            } catch (TimeoutException e) {
-                logger.error("Add to ledger Timed out", e);
-                // e.printStackTrace();
-                return false;
-            } catch (ExecutionException e) {
-                logger.error("Add to ledger execution failed");
-//                e.printStackTrace();
-                return false;
+        StreamObserver<PutObjectRequest> requestObserver = asyncStub.withDeadlineAfter(ASYNC_DEADLINE_MILLIS, TimeUnit.MILLISECONDS)
+                .putBatch(new StreamObserver<PutBatchResponse>() {
+                    @Override
+                    public void onNext(PutBatchResponse response) {
+                        result.set(response.getResultsMap());
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        logger.error("Put batch failed: {}", t.getMessage());
+                        result.setException(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        result.set(Collections.emptyMap());
+                    }
+                });
+
+        try {
+            for (GameObject gameObject : gameObjects) {
+                requestObserver.onNext(PutObjectRequest.newBuilder()
+                        .setObject(GameObjectMapperImpl.INSTANCE.mapToGrpc(gameObject))
+                        .build());
             }
-        } else {
-            logger.error("Add to ledger has been cancelled!");
-            return false;
+        } catch (RuntimeException e) {
+            requestObserver.onError(e);
+            result.setException(e);
+            return result;
         }
-        return addToGroupLedgerResponse.getResult();
+        requestObserver.onCompleted();
+        return result;
     }
 
-    public boolean notifyRemovePeerFromGroupLedgerFuture(String peerId) throws InterruptedException {
-        logger.debug("Sending request to remove peer from group-ledger: {}", peerId);
+    /**
+     * Bidirectional streaming get of several objects in a single call, objects the replica does not store are
+     * omitted from the result
+     *
+     * @return future of object id to object
+     */
+    public ListenableFuture<Map<String, GameObject>> getBatchAsync(List<String> ids) {
+        logger.debug("Getting batch of {} objects", ids.size());
+        SettableFuture<Map<String, GameObject>> result = SettableFuture.create();
         if (!isActive || managedChannel.isShutdown()) {
             logger.warn("The client wasn't active");
-            return false;
+            result.setException(new NoSuchElementException());
+            return result;
         }
 
-        RemovePeerGroupLedgerRequest request = RemovePeerGroupLedgerRequest.newBuilder().setPeerId(peerId).build();
+        Map<String, GameObject> gameObjects = new Object2ObjectOpenHashMap<>(ids.size());
+        StreamObserver<GetObjectRequest> requestObserver = asyncStub.withDeadlineAfter(ASYNC_DEADLINE_MILLIS, TimeUnit.MILLISECONDS)
+                .getBatch(new StreamObserver<GetBatchResponse>() {
+                    @Override
+                    public void onNext(GetBatchResponse response) {
+                        if (response.getResult()) {
+                            gameObjects.put(response.getId(), GameObjectMapperImpl.INSTANCE.mapToInternal(response.getObject()));
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        logger.error("Get batch failed: {}", t.getMessage());
+                        result.setException(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        result.set(gameObjects);
+                    }
+                });
 
-        ListenableFuture<RemovePeerGroupLedgerResponse> futureResponse = futureStub.removePeerGroupLedger(request);
-        final CountDownLatch finishLatch = new CountDownLatch(1);
-        Futures.addCallback(futureResponse, new FutureCallback<RemovePeerGroupLedgerResponse>() {
-            @Override
-            public void onSuccess(@Nullable RemovePeerGroupLedgerResponse result) {
-                logger.debug("Successful request");
-                finishLatch.countDown();
+        try {
+            for (String id : ids) {
+                requestObserver.onNext(GetObjectRequest.newBuilder().setId(id).build());
             }
+        } catch (RuntimeException e) {
+            requestObserver.onError(e);
+            result.setException(e);
+            return result;
+        }
+        requestObserver.onCompleted();
+        return result;
+    }
 
-            @Override
-            public void onFailure(Throwable t) {
-                logger.error("Remove from group ledger Failed");
-                finishLatch.countDown();
-            }
-        }, MoreExecutors.directExecutor());
+    /**
+     * Streams all group-ledger additions for the given peer in one call
+     *
+     * @param peerId     peer storing the objects
+     * @param objectTtls object id to TTL
+     */
+    public ListenableFuture<Boolean> notifyObjectsAddedBatch(String peerId, Object2LongMap<String> objectTtls) {
+        logger.debug("Adding {} object references to ledger for {}", objectTtls.size(), peerId);
+        SettableFuture<Boolean> result = SettableFuture.create();
+        if (!isActive || managedChannel.isShutdown()) {
+            logger.warn("The client wasn't active");
+            result.set(false);
+            return result;
+        }
 
-        finishLatch.await();
-        RemovePeerGroupLedgerResponse removePeerGroupLedgerResponse;
-
-        if (!futureResponse.isCancelled()) {
-            try {
-                if (futureResponse.isDone()) {
-                    removePeerGroupLedgerResponse = futureResponse.get();
-                } else {
-                    removePeerGroupLedgerResponse = futureResponse.get(50, TimeUnit.MILLISECONDS);
-                }
-                logger.debug("Remove from group ledger result: {}", removePeerGroupLedgerResponse.getResult());
-
-            } catch (InterruptedException e) {
-                logger.error("Remove from group ledger Interrupted", e);
-                Thread.currentThread().interrupt();
-                return false;
-            } catch (TimeoutException e) {
-                logger.error("Remove from group ledger Timed out", e);
-                // e.printStackTrace();
-                return false;
-            } catch (ExecutionException e) {
-                logger.error("Remove from group ledger execution failed");
-                // e.printStackTrace();
-                return false;
+        StreamObserver<AddToGroupLedgerRequest> requestObserver = asyncStub.withDeadlineAfter(ASYNC_DEADLINE_MILLIS, TimeUnit.MILLISECONDS)
+                .addToGroupLedgerBatch(new StreamObserver<AddToGroupLedgerResponse>() {
+                    @Override
+                    public void onNext(AddToGroupLedgerResponse response) {
+                        result.set(response.getResult());
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        logger.error("Add to ledger batch Failed");
+                        result.setException(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        result.set(false);
+                    }
+                });
+
+        try {
+            for (Object2LongMap.Entry<String> entry : objectTtls.object2LongEntrySet()) {
+                requestObserver.onNext(AddToGroupLedgerRequest.newBuilder()
+                        .setObjectId(entry.getKey())
+                        .setPeerId(peerId)
+                        .setTtl(entry.getLongValue())
+                        .build());
             }
-        } else {
-            logger.error("Add to ledger has been cancelled!");
-            return false;
+        } catch (RuntimeException e) {
+            requestObserver.onError(e);
+            result.setException(e);
+            return result;
+        }
+        requestObserver.onCompleted();
+        return result;
+    }
+
+    /**
+     * Requests issued through {@link #putGameObjectBatched} and {@link #getGameObjectBatched} within the window are
+     * sent to this replica as one streaming call. A window of 0 disables batching.
+     */
+    public void enableBatching(ScheduledExecutorService scheduler, long windowMillis, int maxBatchSize) {
+        if (windowMillis <= 0) {
+            return;
         }
-        return removePeerGroupLedgerResponse.getResult();
+        logger.debug("Batching requests to {} every {}ms", server, windowMillis);
+        putBatcher = new RequestBatcher<>(scheduler, windowMillis, maxBatchSize, GameObject::getId, this::putGameObjectAsync, this::putBatchAsync);
+        getBatcher = new RequestBatcher<>(scheduler, windowMillis, maxBatchSize, id -> id, this::getGameObjectAsync, this::getBatchAsync);
+    }
+
+    public ListenableFuture<Boolean> putGameObjectBatched(GameObject gameObject) {
+        return putBatcher == null ? putGameObjectAsync(gameObject) : putBatcher.submit(gameObject);
+    }
+
+    public ListenableFuture<GameObject> getGameObjectBatched(String id) {
+        return getBatcher == null ? getGameObjectAsync(id) : getBatcher.submit(id);
     }
 
     /**
@@ -657,27 +652,25 @@ public class GroupStorageClient {
             gameObject.setId("" + random.nextInt(500));
             int command = random.nextInt(5);
             if (command == 0) {
-                putGameObjectFuture(gameObject);
+                awaitQuietly(putGameObjectAsync(gameObject));
                 putCount++;
                 continue;
             }
             if (command == 1) {
                 notifyObjectAddedCount++;
-                notifyObjectAddedFuture(gameObject.getId(), NetworkUtility.getID(), gameObject.getTtl());
+                awaitQuietly(notifyObjectAddedAsync(gameObject.getId(), NetworkUtility.getID(), gameObject.getTtl()));
             } else if (command == 2) {
                 notifyRemovePeerCount++;
-                notifyRemovePeerFromGroupLedgerFuture(NetworkUtility.getID());
+                awaitQuietly(notifyRemovePeerFromGroupLedgerAsync(NetworkUtility.getID()));
             } else if (command == 3) {
-                try {
-                    getCount++;
-                    getGameObjectFuture("" + random.nextInt(500));
+                getCount++;
+                if (awaitQuietly(getGameObjectAsync("" + random.nextInt(500))) != null) {
                     continue;
-                } catch (NoSuchElementException e) {
-                    logger.debug("not found");
                 }
+                logger.debug("not found");
             } else if (command == 4) {
                 updateCount++;
-                updateGameObjectFuture(gameObject);
+                awaitQuietly(updateGameObjectAsync(gameObject));
             } else {
                 throw new AssertionError();
             }
@@ -686,6 +679,14 @@ public class GroupStorageClient {
         printResults(putCount, getCount, updateCount, notifyObjectAddedCount, notifyRemovePeerCount);
     }
 
+    private static <T> T awaitQuietly(ListenableFuture<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
     public void doClientWorkBlocking(AtomicBoolean done, GameObject gameObject) {
         Random random = new Random();
 
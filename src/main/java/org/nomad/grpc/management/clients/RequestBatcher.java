@@ -0,0 +1,111 @@
+package org.nomad.grpc.management.clients;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects requests to a single replica for a short window and sends them as one streaming call.
+ * <p>
+ * The first request of a batch schedules the flush, so an idle replica adds at most one window of latency. A batch
+ * that reaches {@code maxBatchSize} is flushed immediately, and a batch of one falls back to the unary call.
+ *
+ * @param <T> request type
+ * @param <R> per-request result type
+ */
+class RequestBatcher<T, R> {
+    private static final Logger logger = LoggerFactory.getLogger(RequestBatcher.class);
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final Function<T, String> keyOf;
+    private final Function<T, ListenableFuture<R>> singleCall;
+    private final Function<ObjectList<T>, ListenableFuture<Map<String, R>>> batchCall;
+    private ObjectList<T> pendingRequests = new ObjectArrayList<>();
+    private ObjectList<SettableFuture<R>> pendingResults = new ObjectArrayList<>();
+
+    RequestBatcher(ScheduledExecutorService scheduler,
+                   long windowMillis,
+                   int maxBatchSize,
+                   Function<T, String> keyOf,
+                   Function<T, ListenableFuture<R>> singleCall,
+                   Function<ObjectList<T>, ListenableFuture<Map<String, R>>> batchCall) {
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.keyOf = keyOf;
+        this.singleCall = singleCall;
+        this.batchCall = batchCall;
+    }
+
+    ListenableFuture<R> submit(T request) {
+        SettableFuture<R> result = SettableFuture.create();
+        boolean firstInBatch;
+        boolean full;
+        synchronized (this) {
+            firstInBatch = pendingRequests.isEmpty();
+            pendingRequests.add(request);
+            pendingResults.add(result);
+            full = pendingRequests.size() >= maxBatchSize;
+        }
+
+        if (full) {
+            flush();
+        } else if (firstInBatch) {
+            scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    void flush() {
+        ObjectList<T> requests;
+        ObjectList<SettableFuture<R>> results;
+        synchronized (this) {
+            if (pendingRequests.isEmpty()) {
+                return;
+            }
+            requests = pendingRequests;
+            results = pendingResults;
+            pendingRequests = new ObjectArrayList<>();
+            pendingResults = new ObjectArrayList<>();
+        }
+
+        if (requests.size() == 1) {
+            results.get(0).setFuture(singleCall.apply(requests.get(0)));
+            return;
+        }
+
+        logger.debug("Flushing batch of {} requests", requests.size());
+        Futures.addCallback(batchCall.apply(requests), new FutureCallback<Map<String, R>>() {
+            @Override
+            public void onSuccess(Map<String, R> batchResult) {
+                for (int i = 0; i < requests.size(); i++) {
+                    String key = keyOf.apply(requests.get(i));
+                    R value = batchResult.get(key);
+                    if (value != null) {
+                        results.get(i).set(value);
+                    } else {
+                        results.get(i).setException(new NoSuchElementException("Object with id: " + key + " not found"));
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                results.forEach(result -> result.setException(t));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+}
@@ -4,8 +4,11 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import io.grpc.Channel;
 import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.nomad.grpc.management.models.JoinResponse;
 import org.nomad.grpc.management.models.UpdatePeerPositionResponse;
@@ -14,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -21,23 +25,35 @@ import java.util.concurrent.TimeoutException;
 
 public class SuperPeerClient {
     private static final Logger logger = LoggerFactory.getLogger(SuperPeerClient.class);
+    // ledger syncs can be large, set per call as the channel to the super-peer may be shared
+    private static final int MAX_INBOUND_MESSAGE_SIZE = 1024 * 1024 * 1024;
 
     private final SuperPeerServiceGrpc.SuperPeerServiceBlockingStub blockingStub;
     private final SuperPeerServiceGrpc.SuperPeerServiceFutureStub futureStub;
+    private final SuperPeerServiceGrpc.SuperPeerServiceStub asyncStub;
     private final ManagedChannel managedChannel;
     private boolean isActive;
     private int superPeerReplicationFactor = 1; // default
 
     public SuperPeerClient(Channel channel) {
         this.managedChannel = (ManagedChannel) channel;
-        this.blockingStub = SuperPeerServiceGrpc.newBlockingStub(channel);
-        this.futureStub = SuperPeerServiceGrpc.newFutureStub(channel);
+        this.blockingStub = SuperPeerServiceGrpc.newBlockingStub(channel).withMaxInboundMessageSize(MAX_INBOUND_MESSAGE_SIZE);
+        this.futureStub = SuperPeerServiceGrpc.newFutureStub(channel).withMaxInboundMessageSize(MAX_INBOUND_MESSAGE_SIZE);
+        this.asyncStub = SuperPeerServiceGrpc.newStub(channel).withMaxInboundMessageSize(MAX_INBOUND_MESSAGE_SIZE);
         this.isActive = true;
     }
 
     public boolean close() throws InterruptedException {
+        shutdown();
+        return managedChannel.awaitTermination(350, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Releases the channel without waiting for the calls in flight
+     */
+    public void shutdown() {
         isActive = false;
-        return managedChannel.shutdown().awaitTermination(350, TimeUnit.SECONDS);
+        managedChannel.shutdown();
     }
 
     public boolean isActive() {
@@ -46,7 +62,7 @@ public class SuperPeerClient {
 
     /**
      * Send GRPC join request to the Super Peer (30 sec timeout)
-     * On response, the client updates the group ledger
+     * The group ledger is not part of the response and has to be fetched with {@link #syncLedger(long, long, int)}
      *
      * @param peerServerHostname         of the Peer Server to add
      * @param groupStorageServerHostname of the Group Storage Server to add
@@ -58,6 +74,7 @@ public class SuperPeerClient {
                 .setPeerServerHost(peerServerHostname)
                 .setGroupStorageServerHost(groupStorageServerHostname)
                 .setPosition(position)
+                .setDeferLedger(true)
                 .build();
 
         JoinResponseWithLedger response = blockingStub.handleJoin(request);
@@ -76,6 +93,24 @@ public class SuperPeerClient {
         }
     }
 
+    /**
+     * Stream the group ledger from the Super Peer, chunks are fetched as the caller consumes the iterator
+     *
+     * @param ledgerId     ledger last synced from, 0 if none
+     * @param sinceVersion last version applied from that ledger
+     * @param chunkSize    preferred number of changes per chunk
+     */
+    public Iterator<LedgerSyncChunk> syncLedger(long ledgerId, long sinceVersion, int chunkSize) {
+        logger.debug("Syncing group ledger from super-peer: {} since {}:{}", managedChannel.authority(), ledgerId, sinceVersion);
+        LedgerSyncRequest request = LedgerSyncRequest.newBuilder()
+                .setLedgerId(ledgerId)
+                .setSinceVersion(sinceVersion)
+                .setChunkSize(chunkSize)
+                .build();
+
+        return blockingStub.withDeadlineAfter(60, TimeUnit.SECONDS).syncLedger(request);
+    }
+
     public boolean leaveGroup(String peerServer, String groupStorageServer) {
         LeaveRequest request = LeaveRequest.newBuilder()
                 .setPeerServerHostname(peerServer)
@@ -174,6 +209,57 @@ public class SuperPeerClient {
         }
     }
 
+    /**
+     * Streams all object references stored by the given peer in one call
+     *
+     * @param peerId     peer storing the objects
+     * @param objectTtls object id to TTL
+     */
+    public ListenableFuture<Boolean> addObjectReferenceBatch(String peerId, Object2LongMap<String> objectTtls) {
+        logger.debug("Contacting Super-Peer: Adding {} object references for {}", objectTtls.size(), peerId);
+        SettableFuture<Boolean> result = SettableFuture.create();
+        if (!isActive) {
+            logger.warn("client not active!");
+            result.set(false);
+            return result;
+        }
+
+        StreamObserver<AddObjectRequest> requestObserver = asyncStub.withDeadlineAfter(5, TimeUnit.SECONDS)
+                .addObjectReferenceBatch(new StreamObserver<AddObjectResponse>() {
+                    @Override
+                    public void onNext(AddObjectResponse response) {
+                        result.set(response.getSucceed());
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        logger.error("AddObjectReferenceBatch Failed");
+                        result.setException(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        result.set(false);
+                    }
+                });
+
+        try {
+            for (Object2LongMap.Entry<String> entry : objectTtls.object2LongEntrySet()) {
+                requestObserver.onNext(AddObjectRequest.newBuilder()
+                        .setObjectId(entry.getKey())
+                        .setPeerId(peerId)
+                        .setTtl(entry.getLongValue())
+                        .build());
+            }
+        } catch (RuntimeException e) {
+            requestObserver.onError(e);
+            result.setException(e);
+            return result;
+        }
+        requestObserver.onCompleted();
+        return result;
+    }
+
     public boolean removePeerGroupLedger(String peerId) throws InterruptedException {
         logger.debug("Contacting Super-Peer: removing peer, {}", peerId);
         if (!isActive) {
@@ -1,9 +1,10 @@
 package org.nomad.grpc.management.servers;
 
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
 import lombok.Data;
 import org.nomad.commons.NetworkUtility;
+import org.nomad.config.Config;
+import org.nomad.grpc.GrpcTransport;
 import org.nomad.grpc.management.clients.GroupStorageClient;
 import org.nomad.grpc.management.clients.SuperPeerClient;
 import org.nomad.grpc.management.services.GroupStorageService;
@@ -26,12 +27,14 @@ public class GroupStorageServer {
     private int port;
     private Server server;
     private GroupStorageService groupStorageService;
+    private Config config;
     private String host;
     private boolean initialized = false;
 
     @Autowired
-    private GroupStorageServer(GroupStorageService groupStorageService) {
+    public GroupStorageServer(GroupStorageService groupStorageService, Config config) {
         this.groupStorageService = groupStorageService;
+        this.config = config;
         NetworkUtility.init();
     }
 
@@ -42,7 +45,7 @@ public class GroupStorageServer {
         host = NetworkUtility.getIP() + ":" + port;
         groupStorageService.updateSuperPeerClient(superPeerClient);
         groupStorageService.updateHostname(host);
-        server = ServerBuilder.forPort(port).addService(groupStorageService).build();
+        server = GrpcTransport.forPort(port, config.getTransport()).addService(groupStorageService).build();
     }
 
     /**
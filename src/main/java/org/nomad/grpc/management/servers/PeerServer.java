@@ -1,8 +1,8 @@
 package org.nomad.grpc.management.servers;
 
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
 import org.nomad.config.Config;
+import org.nomad.grpc.GrpcTransport;
 import org.nomad.grpc.groupstorage.HealthCheckResponse;
 import org.nomad.grpc.management.services.PeerService;
 import org.nomad.pithos.components.Peer;
@@ -45,7 +45,7 @@ public class PeerServer {
         this.initialized = true;
         this.port = port;
         this.peer.setPeerPort(port);
-        this.server = ServerBuilder.forPort(port).addService(peerService).build();
+        this.server = GrpcTransport.forPort(port, config.getTransport()).addService(peerService).build();
     }
 
     public void start() throws Exception {
@@ -2,6 +2,8 @@ package org.nomad.grpc.management.servers;
 
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import org.nomad.config.Config;
+import org.nomad.grpc.GrpcTransport;
 import org.nomad.grpc.groupstorage.HealthCheckResponse;
 import org.nomad.grpc.management.services.SuperPeerService;
 import org.nomad.grpc.superpeerservice.VirtualPosition;
@@ -28,7 +30,7 @@ public class SuperPeerServer {
     private final String group;
 
     @Autowired
-    public SuperPeerServer(SuperPeer superPeer, SuperPeerService superPeerService) {
+    public SuperPeerServer(SuperPeer superPeer, SuperPeerService superPeerService, Config config) {
         // will become static port once using the internet
         this.port = superPeer.getSuperPeerPort();
         this.group = superPeer.getGroupName();
@@ -36,7 +38,7 @@ public class SuperPeerServer {
 
         // TODO might need to move to the start method
         this.superPeerService = superPeerService;
-        ServerBuilder<?> serverBuilder = ServerBuilder.forPort(port);
+        ServerBuilder<?> serverBuilder = GrpcTransport.forPort(port, config.getTransport());
         this.server = serverBuilder.addService(superPeerService).build();
     }
 
@@ -9,10 +9,12 @@ import org.nomad.grpc.groupstorage.AddToGroupLedgerRequest;
 import org.nomad.grpc.groupstorage.AddToGroupLedgerResponse;
 import org.nomad.grpc.groupstorage.DeleteObjectRequest;
 import org.nomad.grpc.groupstorage.DeleteObjectResponse;
+import org.nomad.grpc.groupstorage.GetBatchResponse;
 import org.nomad.grpc.groupstorage.GetObjectRequest;
 import org.nomad.grpc.groupstorage.GetObjectResponse;
 import org.nomad.grpc.groupstorage.GroupStorageServiceGrpc;
 import org.nomad.grpc.groupstorage.HealthCheckResponse;
+import org.nomad.grpc.groupstorage.PutBatchResponse;
 import org.nomad.grpc.groupstorage.PutObjectRequest;
 import org.nomad.grpc.groupstorage.PutObjectResponse;
 import org.nomad.grpc.groupstorage.RemovePeerGroupLedgerRequest;
@@ -27,40 +29,43 @@ import org.nomad.pithos.components.GroupLedger;
 import org.nomad.pithos.mappers.GameObjectMapperImpl;
 import org.nomad.pithos.models.GameObject;
 import org.nomad.pithos.models.MetaData;
+import org.nomad.storage.group.LedgerNotificationPipeline;
 import org.nomad.storage.local.LocalStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 public class GroupStorageService extends GroupStorageServiceGrpc.GroupStorageServiceImplBase {
     private final Logger logger = LoggerFactory.getLogger(GroupStorageService.class);
     private final LocalStorage storage;
     private final GenericGroupLedger groupLedger;
-    private List<GroupStorageClient> clients = new ArrayList<>();
-    private SuperPeerClient superPeerClient;
+    private final LedgerNotificationPipeline notificationPipeline;
     private String hostname;
     private HealthCheckResponse.ServingStatus status;
 
     @Autowired
-    public GroupStorageService(LocalStorage storage) {
+    public GroupStorageService(LocalStorage storage, LedgerNotificationPipeline notificationPipeline) {
         // Assume the storage unit has been initialized already
         this.storage = storage;
         this.groupLedger = GroupLedger.getInstance();
+        this.notificationPipeline = notificationPipeline;
     }
 
     public void updateGroupStorageClients(List<GroupStorageClient> clients) {
-        this.clients = clients;
+        notificationPipeline.updateClients(clients);
     }
 
     public void updateSuperPeerClient(SuperPeerClient superPeerClient) {
-        this.superPeerClient = superPeerClient;
-        if (this.superPeerClient.isActive()) {
+        notificationPipeline.updateSuperPeerClient(superPeerClient);
+        if (superPeerClient.isActive()) {
             logger.info("Super-client is active!");
         }
     }
@@ -104,7 +109,18 @@ public class GroupStorageService extends GroupStorageServiceGrpc.GroupStorageSer
     public void put(PutObjectRequest putObjectRequest, StreamObserver<PutObjectResponse> responseObserver) {
         logger.debug("gRPC 'put' received");
 
-        GameObjectGrpc gameObjectGrpc = putObjectRequest.getObject();
+        boolean result = putObject(putObjectRequest.getObject());
+
+        PutObjectResponse response = PutObjectResponse.newBuilder()
+                .setResult(result)
+                .build();
+
+        GRPCUtils.checkGrpcCallStatus(responseObserver);
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private boolean putObject(GameObjectGrpc gameObjectGrpc) {
         GameObject gameObject = GameObjectMapperImpl.INSTANCE.mapToInternal(gameObjectGrpc);
         String id = gameObject.getId();
         long ttl = gameObject.getTtl();
@@ -117,14 +133,85 @@ public class GroupStorageService extends GroupStorageServiceGrpc.GroupStorageSer
                 notifyAllClientsObjectAdded(id, hostname, ttl);
             }
         }
+        return result;
+    }
 
-        PutObjectResponse response = PutObjectResponse.newBuilder()
-                .setResult(result)
-                .build();
+    /**
+     * Client-streaming put, the objects are written to local storage in one batch and the results of all objects in
+     * the stream are returned once the client completes
+     */
+    @Override
+    public StreamObserver<PutObjectRequest> putBatch(StreamObserver<PutBatchResponse> responseObserver) {
+        logger.debug("gRPC 'putBatch' received");
+        PutBatchResponse.Builder response = PutBatchResponse.newBuilder();
+        Map<String, GameObject> pending = new LinkedHashMap<>();
+
+        return new StreamObserver<PutObjectRequest>() {
+            @Override
+            public void onNext(PutObjectRequest putObjectRequest) {
+                GameObject gameObject = GameObjectMapperImpl.INSTANCE.mapToInternal(putObjectRequest.getObject());
+                String id = gameObject.getId();
+                // defaults to true - we don't want to fail if the object exists in group storage.
+                if (groupLedger.thisPeerContainsObject(hostname, id) || pending.containsKey(id)) {
+                    response.putResults(id, true);
+                } else {
+                    pending.put(id, gameObject);
+                }
+            }
 
-        GRPCUtils.checkGrpcCallStatus(responseObserver);
-        responseObserver.onNext(response);
-        responseObserver.onCompleted();
+            @Override
+            public void onError(Throwable t) {
+                logger.warn("putBatch cancelled after {} objects: {}", response.getResultsCount() + pending.size(), t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                storage.putAll(pending.values()).forEach((id, result) -> {
+                    if (result) {
+                        notifyAllClientsObjectAdded(id, hostname, pending.get(id).getTtl());
+                    }
+                    response.putResults(id, result);
+                });
+                logger.debug("putBatch completed: {} objects", response.getResultsCount());
+                GRPCUtils.checkGrpcCallStatus(responseObserver);
+                responseObserver.onNext(response.build());
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    /**
+     * Bidirectional streaming get, every request is answered as soon as it is read from the stream
+     */
+    @Override
+    public StreamObserver<GetObjectRequest> getBatch(StreamObserver<GetBatchResponse> responseObserver) {
+        logger.debug("gRPC 'getBatch' received");
+
+        return new StreamObserver<GetObjectRequest>() {
+            @Override
+            public void onNext(GetObjectRequest getObjectRequest) {
+                String id = getObjectRequest.getId();
+                GetBatchResponse.Builder response = GetBatchResponse.newBuilder().setId(id);
+                try {
+                    response.setObject(GameObjectMapperImpl.INSTANCE.mapToGrpc(storage.get(id))).setResult(true);
+                } catch (NoSuchElementException e) {
+                    logger.warn("Not found: {}", id);
+                    response.setResult(false);
+                }
+                GRPCUtils.checkGrpcCallStatus(responseObserver);
+                responseObserver.onNext(response.build());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                logger.warn("getBatch cancelled: {}", t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onCompleted();
+            }
+        };
     }
 
     @Override
@@ -159,23 +246,8 @@ public class GroupStorageService extends GroupStorageServiceGrpc.GroupStorageSer
     }
 
     protected void notifyAllClientsObjectAdded(String id, String hostname, long ttl) {
-        try {
-            logger.debug("notifying super-peer to add object reference - {}:{}", id, hostname);
-            superPeerClient.addObjectReferenceFuture(id, hostname, ttl);
-            if (!clients.isEmpty()) {
-                for (GroupStorageClient client : clients) {
-                    if (client.isActive()) {
-                        logger.debug("notifying client: {} to add object reference - {}:{}", client.getClientHostname(), id, hostname);
-                        client.notifyObjectAddedFuture(id, hostname, ttl);
-                    } else {
-                        logger.warn("Not contacting inactive client {}", client.getClientHostname());
-                    }
-                }
-            }
-        } catch (InterruptedException e) {
-            logger.error("Error occurred while notifying super peer that an object was added");
-            Thread.currentThread().interrupt();
-        }
+        logger.debug("queueing group-ledger notification to add object reference - {}:{}", id, hostname);
+        notificationPipeline.objectAdded(id, hostname, ttl);
     }
 
     @Override
@@ -201,7 +273,16 @@ public class GroupStorageService extends GroupStorageServiceGrpc.GroupStorageSer
     public void addToGroupLedger(AddToGroupLedgerRequest addToGroupLedgerRequest, StreamObserver<AddToGroupLedgerResponse> responseObserver) {
         logger.debug("gRPC 'addToGroupLedger' received");
 
-        boolean result;
+        boolean result = addToLedger(addToGroupLedgerRequest);
+
+        AddToGroupLedgerResponse response = AddToGroupLedgerResponse.newBuilder().setResult(result).build();
+
+        GRPCUtils.checkGrpcCallStatus(responseObserver);
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private boolean addToLedger(AddToGroupLedgerRequest addToGroupLedgerRequest) {
         String objectId = addToGroupLedgerRequest.getObjectId();
         String peerId = addToGroupLedgerRequest.getPeerId();
         long ttl = addToGroupLedgerRequest.getTtl();
@@ -211,13 +292,39 @@ public class GroupStorageService extends GroupStorageServiceGrpc.GroupStorageSer
         boolean objectLedgerResult = groupLedger.addToObjectLedger(objectId, metaDataBuilder.id(peerId).build());
         boolean peerLedgerResult = groupLedger.addToPeerLedger(peerId, metaDataBuilder.id(objectId).build());
 
-        result = objectLedgerResult && peerLedgerResult;
+        return objectLedgerResult && peerLedgerResult;
+    }
 
-        AddToGroupLedgerResponse response = AddToGroupLedgerResponse.newBuilder().setResult(result).build();
+    /**
+     * Client-streaming variant of addToGroupLedger, used by the group-ledger notification pipeline
+     */
+    @Override
+    public StreamObserver<AddToGroupLedgerRequest> addToGroupLedgerBatch(StreamObserver<AddToGroupLedgerResponse> responseObserver) {
+        logger.debug("gRPC 'addToGroupLedgerBatch' received");
+        AtomicBoolean result = new AtomicBoolean(true);
+
+        return new StreamObserver<AddToGroupLedgerRequest>() {
+            @Override
+            public void onNext(AddToGroupLedgerRequest addToGroupLedgerRequest) {
+                if (!addToLedger(addToGroupLedgerRequest)) {
+                    result.set(false);
+                }
+            }
 
-        GRPCUtils.checkGrpcCallStatus(responseObserver);
-        responseObserver.onNext(response);
-        responseObserver.onCompleted();
+            @Override
+            public void onError(Throwable t) {
+                logger.warn("addToGroupLedgerBatch cancelled: {}", t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                AddToGroupLedgerResponse response = AddToGroupLedgerResponse.newBuilder().setResult(result.get()).build();
+
+                GRPCUtils.checkGrpcCallStatus(responseObserver);
+                responseObserver.onNext(response);
+                responseObserver.onCompleted();
+            }
+        };
     }
 
     @Override
@@ -1,5 +1,7 @@
 package org.nomad.grpc.management.services;
 
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.nomad.delegation.models.NeighbourData;
 import org.nomad.grpc.GRPCUtils;
@@ -11,7 +13,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 /**
  * Start gRPC Service
@@ -20,6 +24,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 @Component
 public class SuperPeerService extends SuperPeerServiceGrpc.SuperPeerServiceImplBase {
+    private static final int MAX_SYNC_CHUNK_SIZE = 4096;
     private final Logger logger = LoggerFactory.getLogger(SuperPeerService.class);
     private final GroupLedger groupLedger;
     private final SuperPeer superPeer;
@@ -57,18 +62,71 @@ public class SuperPeerService extends SuperPeerServiceGrpc.SuperPeerServiceImplB
 
         accepted.set(superPeer.handleJoin(newPeer, newGroupStoragePeer));
 
-        JoinResponseWithLedger response = JoinResponseWithLedger.newBuilder()
+        JoinResponseWithLedger.Builder response = JoinResponseWithLedger.newBuilder()
                 .setAccepted(accepted.get())
-                .setObjectLedger(MultiMapPair.newBuilder().putAllKeyPair(groupLedger.getGrpcObjectLedger()).build())
-                .setPeerLedger(MultiMapPair.newBuilder().putAllKeyPair(groupLedger.getGrpcPeerLedger()).build())
-                .setReplicationFactor(superPeer.getReplicationFactor())
-                .build();
+                .setReplicationFactor(superPeer.getReplicationFactor());
+        if (!joinRequest.getDeferLedger()) {
+            response.setObjectLedger(MultiMapPair.newBuilder().putAllKeyPair(groupLedger.getGrpcObjectLedger()).build())
+                    .setPeerLedger(MultiMapPair.newBuilder().putAllKeyPair(groupLedger.getGrpcPeerLedger()).build());
+        }
 
         GRPCUtils.checkGrpcCallStatus(responseObserver);
-        responseObserver.onNext(response);
+        responseObserver.onNext(response.build());
         responseObserver.onCompleted();
     }
 
+    /**
+     * Streams the group ledger to a joining or migrating peer, either as the changes since the version it last synced
+     * or as a snapshot followed by the changes made while it was sent. Chunks are only produced while the transport
+     * is ready, so a slow peer never makes the super-peer buffer the whole ledger.
+     *
+     * @param ledgerSyncRequest ledger id and version the peer last synced, with the preferred chunk size
+     * @param responseObserver  ledger chunks
+     */
+    @Override
+    public void syncLedger(LedgerSyncRequest ledgerSyncRequest, StreamObserver<LedgerSyncChunk> responseObserver) {
+        logger.info("gRPC 'syncLedger' request received");
+        int chunkSize = Math.min(MAX_SYNC_CHUNK_SIZE, Math.max(1, ledgerSyncRequest.getChunkSize()));
+        Iterator<LedgerSyncChunk> chunks = groupLedger.syncChunks(ledgerSyncRequest.getLedgerId(), ledgerSyncRequest.getSinceVersion(), chunkSize);
+
+        if (!(responseObserver instanceof ServerCallStreamObserver)) {
+            sendChunks(chunks, responseObserver, () -> true);
+            return;
+        }
+
+        ServerCallStreamObserver<LedgerSyncChunk> serverObserver = (ServerCallStreamObserver<LedgerSyncChunk>) responseObserver;
+        AtomicBoolean done = new AtomicBoolean(false);
+        serverObserver.setOnCancelHandler(() -> {
+            logger.warn("Ledger sync cancelled by peer");
+            done.set(true);
+        });
+        serverObserver.setOnReadyHandler(() -> {
+            if (!done.get() && sendChunks(chunks, serverObserver, serverObserver::isReady)) {
+                done.set(true);
+            }
+        });
+    }
+
+    /**
+     * @return true once the stream has been completed or failed
+     */
+    private boolean sendChunks(Iterator<LedgerSyncChunk> chunks, StreamObserver<LedgerSyncChunk> responseObserver, BooleanSupplier ready) {
+        try {
+            while (ready.getAsBoolean() && chunks.hasNext()) {
+                responseObserver.onNext(chunks.next());
+            }
+            if (!chunks.hasNext()) {
+                responseObserver.onCompleted();
+                return true;
+            }
+            return false;
+        } catch (IllegalStateException e) {
+            logger.warn("Ledger sync aborted: {}", e.getMessage());
+            responseObserver.onError(Status.ABORTED.withDescription(e.getMessage()).asRuntimeException());
+            return true;
+        }
+    }
+
     /**
      * @param leaveRequest     the hostname of the PeerServer to remove & the groupStorage hostname to notify peers to remove
      * @param responseObserver result of the remove
@@ -175,6 +233,40 @@ public class SuperPeerService extends SuperPeerServiceGrpc.SuperPeerServiceImplB
         responseObserver.onCompleted();
     }
 
+    /**
+     * Client-streaming variant of addObjectReference, used by the group-ledger notification pipeline
+     */
+    @Override
+    public StreamObserver<AddObjectRequest> addObjectReferenceBatch(StreamObserver<AddObjectResponse> responseObserver) {
+        logger.debug("gRPC 'addObjectReferenceBatch' request received");
+        AtomicBoolean result = new AtomicBoolean(true);
+
+        return new StreamObserver<AddObjectRequest>() {
+            @Override
+            public void onNext(AddObjectRequest addObjectRequest) {
+                if (!superPeer.addObjectReference(addObjectRequest.getObjectId(), addObjectRequest.getPeerId(), addObjectRequest.getTtl())) {
+                    result.set(false);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                logger.warn("addObjectReferenceBatch cancelled: {}", t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                AddObjectResponse response = AddObjectResponse.newBuilder()
+                        .setSucceed(result.get())
+                        .build();
+
+                GRPCUtils.checkGrpcCallStatus(responseObserver);
+                responseObserver.onNext(response);
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
     @Override
     public void removePeerGroupLedger(RemovePeerGroupLedgerRequest addObjectRequest, StreamObserver<RemovePeerGroupLedgerResponse> responseObserver) {
         logger.info("gRPC 'removePeerGroupLedger' request received");
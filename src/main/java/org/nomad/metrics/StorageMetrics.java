@@ -0,0 +1,212 @@
+package org.nomad.metrics;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the timers, distribution summaries, counters and gauges of the storage tiers, exported over JMX.
+ * <p>
+ * Meters are identified like Micrometer meters, a dot-separated name plus tags given as key/value pairs, and reported
+ * as {@code name{key=value,...}}, so they map one-to-one onto a Micrometer registry. Hot paths keep the meters they
+ * record to in {@link PerOperation} instead of building the id on every call.
+ */
+@Component
+@ManagedResource(objectName = "org.nomad:type=StorageMetrics", description = "Latency, fan-out, quorum and queue metrics of the storage tiers")
+public class StorageMetrics {
+    public static final String LATENCY = "nomad.storage.latency";
+    public static final String FAN_OUT = "nomad.storage.fanout";
+    public static final String QUORUM = "nomad.storage.quorum";
+    public static final String HEDGES = "nomad.storage.hedges";
+    private final ConcurrentHashMap<String, Histogram> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> summaries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public Histogram timer(String name, String... tags) {
+        return timers.computeIfAbsent(id(name, tags), key -> new Histogram());
+    }
+
+    /**
+     * Records the time since {@code startNanos}, taken from {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos, String name, String... tags) {
+        timer(name, tags).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the time until the future completes, cancelled futures are not recorded
+     */
+    public <T> ListenableFuture<T> time(ListenableFuture<T> future, String name, String... tags) {
+        return time(future, timer(name, tags));
+    }
+
+    public <T> ListenableFuture<T> time(ListenableFuture<T> future, Histogram timer) {
+        long start = System.nanoTime();
+        future.addListener(() -> {
+            if (!future.isCancelled()) {
+                timer.record(System.nanoTime() - start);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * Runs the call and records its time, calls that fail are recorded as well
+     */
+    public <T, E extends Exception> T timed(Call<T, E> call, String name, String... tags) throws E {
+        return timed(call, timer(name, tags));
+    }
+
+    public <T, E extends Exception> T timed(Call<T, E> call, Histogram timer) throws E {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+
+    public Histogram summary(String name, String... tags) {
+        return summaries.computeIfAbsent(id(name, tags), key -> new Histogram());
+    }
+
+    public LongAdder counter(String name, String... tags) {
+        return counters.computeIfAbsent(id(name, tags), key -> new LongAdder());
+    }
+
+    public void increment(String name, String... tags) {
+        counter(name, tags).increment();
+    }
+
+    /**
+     * Registers a gauge, a gauge registered again under the same name and tags replaces the previous one
+     */
+    public void gauge(LongSupplier value, String name, String... tags) {
+        gauges.put(id(name, tags), value);
+    }
+
+    /**
+     * Count, mean, maximum and percentiles in milliseconds per timer
+     */
+    @ManagedAttribute(description = "Latency per tier, operation and mode in milliseconds")
+    public Map<String, Map<String, Double>> getTimers() {
+        Map<String, Map<String, Double>> result = new TreeMap<>();
+        timers.forEach((id, timer) -> result.put(id, describe(timer, TimeUnit.MILLISECONDS.toNanos(1))));
+        return result;
+    }
+
+    @ManagedAttribute(description = "Distribution summaries such as replica fan-out per request")
+    public Map<String, Map<String, Double>> getSummaries() {
+        Map<String, Map<String, Double>> result = new TreeMap<>();
+        summaries.forEach((id, summary) -> result.put(id, describe(summary, 1)));
+        return result;
+    }
+
+    @ManagedAttribute(description = "Counters such as quorum outcomes")
+    public Map<String, Long> getCounters() {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((id, counter) -> result.put(id, counter.sum()));
+        return result;
+    }
+
+    @ManagedAttribute(description = "Current ledger sizes, repair backlog, cache sizes and executor queue depths")
+    public Map<String, Long> getGauges() {
+        Map<String, Long> result = new TreeMap<>();
+        gauges.forEach((id, gauge) -> result.put(id, gauge.getAsLong()));
+        return result;
+    }
+
+    /**
+     * Clears timers, summaries and counters, gauges report current values and are kept
+     */
+    @ManagedOperation(description = "Reset timers, summaries and counters")
+    public void reset() {
+        timers.values().forEach(Histogram::reset);
+        summaries.values().forEach(Histogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+    static String id(String name, String... tags) {
+        if (tags.length == 0) {
+            return name;
+        }
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be key/value pairs: " + String.join(",", tags));
+        }
+        StringBuilder id = new StringBuilder(name).append('{');
+        for (int i = 0; i < tags.length; i += 2) {
+            if (i > 0) {
+                id.append(',');
+            }
+            id.append(tags[i]).append('=').append(tags[i + 1]);
+        }
+        return id.append('}').toString();
+    }
+
+    private static Map<String, Double> describe(Histogram histogram, double unit) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        result.put("count", (double) histogram.getCount());
+        result.put("mean", histogram.getMean() / unit);
+        result.put("max", histogram.getMax() / unit);
+        result.put("p50", histogram.percentile(50) / unit);
+        result.put("p95", histogram.percentile(95) / unit);
+        result.put("p99", histogram.percentile(99) / unit);
+        return result;
+    }
+
+    /**
+     * Value of the {@code operation} tag
+     */
+    public enum Operation {
+        GET, PUT, UPDATE, DELETE;
+
+        private final String tag = name().toLowerCase();
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    /**
+     * The meters of one call site per operation, each is looked up once on first use and kept
+     */
+    public static final class PerOperation<M> {
+        private final Function<Operation, M> meter;
+        private final AtomicReferenceArray<M> meters = new AtomicReferenceArray<>(Operation.values().length);
+
+        /**
+         * @param meter looks up the meter of an operation, concurrent first uses may both call it
+         */
+        public PerOperation(Function<Operation, M> meter) {
+            this.meter = meter;
+        }
+
+        public M get(Operation operation) {
+            M result = meters.get(operation.ordinal());
+            if (result == null) {
+                result = meter.apply(operation);
+                meters.set(operation.ordinal(), result);
+            }
+            return result;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+}
@@ -15,7 +15,7 @@ public class ScheduledLedgerCleanUp extends AbstractScheduledService {
     protected void runOneIteration() throws Exception {
         boolean result = ledger.cleanExpiredObjects();
         if (result) {
-            logger.info("Ledger cleanup was successful");
+            logger.debug("Expired ledger entries cleaned up");
         } else {
             logger.debug("No Ledger entries cleaned up");
         }
@@ -23,6 +23,6 @@ public class ScheduledLedgerCleanUp extends AbstractScheduledService {
 
     @Override
     protected Scheduler scheduler() {
-        return Scheduler.newFixedRateSchedule(60, 60, TimeUnit.SECONDS);
+        return Scheduler.newFixedRateSchedule(1, 1, TimeUnit.SECONDS);
     }
 }
@@ -0,0 +1,59 @@
+package org.nomad.pithos.components;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Expiry buckets keyed by the epoch second of a ledger entry's TTL.
+ * <p>
+ * Every addition records its key in the bucket of its TTL, so expiring entries only visits the buckets that have come
+ * due instead of the whole ledger. Buckets are not updated on removal, a key found in a due bucket may therefore no
+ * longer hold an expired entry, which callers must tolerate.
+ */
+class ExpiryIndex {
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+
+    void schedule(String key, long ttl) {
+        // the key is added inside compute so that a bucket being drained concurrently is never missed, if the bucket
+        // is removed before the remapping is published the function is retried against a fresh bucket
+        buckets.compute(ttl, (second, keys) -> {
+            Set<String> bucket = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+            bucket.add(key);
+            return bucket;
+        });
+    }
+
+    /**
+     * Removes and returns every key scheduled at or before the given epoch second
+     */
+    ObjectOpenHashSet<String> pollDue(long epochSecond) {
+        ObjectOpenHashSet<String> due = new ObjectOpenHashSet<>();
+        Map.Entry<Long, Set<String>> bucket;
+        while ((bucket = buckets.firstEntry()) != null && bucket.getKey() <= epochSecond) {
+            if (buckets.remove(bucket.getKey(), bucket.getValue())) {
+                due.addAll(bucket.getValue());
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Epoch second of the earliest scheduled expiry, or {@link Long#MAX_VALUE} if nothing is scheduled
+     */
+    long nextExpiry() {
+        Map.Entry<Long, Set<String>> bucket = buckets.firstEntry();
+        return bucket == null ? Long.MAX_VALUE : bucket.getKey();
+    }
+
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    void clear() {
+        buckets.clear();
+    }
+}
@@ -3,10 +3,12 @@ package org.nomad.pithos.components;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.nomad.grpc.superpeerservice.LedgerSyncChunk;
 import org.nomad.grpc.superpeerservice.MultiMapPair;
 import org.nomad.pithos.models.MetaData;
 
 import java.util.Collection;
+import java.util.Iterator;
 
 public interface GenericGroupLedger {
 
@@ -78,6 +80,30 @@ public interface GenericGroupLedger {
 
     Object2ObjectOpenHashMap<String, org.nomad.grpc.superpeerservice.MetaDataCollection> getGrpcPeerLedger();
 
+    /* Synchronisation
+    ================================================================================================================*/
+
+    /**
+     * Chunks that bring a ledger last synced at {@code sinceVersion} of {@code ledgerId} up to date, a full snapshot
+     * followed by the changes made while it was streamed if no delta is available
+     */
+    Iterator<LedgerSyncChunk> syncChunks(long ledgerId, long sinceVersion, int chunkSize);
+
+    void applySyncChunk(LedgerSyncChunk chunk);
+
+    long getVersion();
+
+    /**
+     * Ledger id of the last sync, 0 if there was none or changes were applied locally since then
+     */
+    long getSyncedLedgerId();
+
+    long getSyncedVersion();
+
+    void addChangeListener(LedgerChangeListener listener);
+
+    void removeChangeListener(LedgerChangeListener listener);
+
     /* Getters & Setters
     ================================================================================================================*/
 
@@ -4,17 +4,48 @@ import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.nomad.grpc.superpeerservice.LedgerChange;
+import org.nomad.grpc.superpeerservice.LedgerSyncChunk;
 import org.nomad.grpc.superpeerservice.MultiMapPair;
 import org.nomad.pithos.mappers.CustomMappers;
 import org.nomad.pithos.models.MetaData;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
+/**
+ * Object and peer ledgers of a group.
+ * <p>
+ * Every explicit change is appended to a {@link LedgerChangeLog} so that peers can catch up by replaying it. Changes to
+ * one key hold the lock stripe of that key while they are applied and versioned, so the versions of a key follow the
+ * order in which its changes were applied. Changes spanning keys and resets exclude all other writers, reads never
+ * lock. Expiry is not logged since every copy of the ledger expires the same TTLs on its own, neither are changes
+ * applied from a sync.
+ */
 public class GroupLedger implements GenericGroupLedger {
+    private static final int CHANGE_LOG_CAPACITY = 1 << 15;
+    private static final int LOCK_STRIPES = 64;
+    private static final SyncState NOT_SYNCED = new SyncState(0, 0, -1);
     private static GroupLedger INSTANCE;
     private final Ledger objectLedger = new Ledger();
     private final Ledger peerLedger = new Ledger();
+    private final LedgerChangeLog changeLog = new LedgerChangeLog(CHANGE_LOG_CAPACITY);
+    private final List<LedgerChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+    private volatile SyncState synced = NOT_SYNCED;
+
+    public GroupLedger() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+    }
 
     public synchronized static GroupLedger getInstance() {
         if (INSTANCE == null) {
@@ -60,18 +91,28 @@ public class GroupLedger implements GenericGroupLedger {
 
     @Override
     public void populateGroupLedger(MultiMapPair objectLedger, MultiMapPair peerLedger) {
-        this.objectLedger.populateLedger(CustomMappers.INSTANCE.convertToMap(objectLedger));
-        this.peerLedger.populateLedger(CustomMappers.INSTANCE.convertToMap(peerLedger));
+        boolean populated = objectLedger.getKeyPairCount() > 0 || peerLedger.getKeyPairCount() > 0;
+        exclusively(() -> {
+            this.objectLedger.populateLedger(CustomMappers.INSTANCE.convertToMap(objectLedger));
+            this.peerLedger.populateLedger(CustomMappers.INSTANCE.convertToMap(peerLedger));
+            if (populated) {
+                changeLog.reset();
+                synced = NOT_SYNCED;
+            }
+        });
+        if (populated) {
+            listeners.forEach(LedgerChangeListener::ledgerReset);
+        }
     }
 
     @Override
     public boolean addToObjectLedger(String objectId, MetaData peerId) {
-        return objectLedger.add(objectId, peerId);
+        return isValid(objectId, peerId) && apply(LedgerChange.Operation.ADD, LedgerChange.Target.OBJECT_LEDGER, objectId, peerId.getId(), peerId.getTtl(), true);
     }
 
     @Override
     public boolean addToPeerLedger(String peerId, MetaData objectId) {
-        return peerLedger.add(peerId, objectId);
+        return isValid(peerId, objectId) && apply(LedgerChange.Operation.ADD, LedgerChange.Target.PEER_LEDGER, peerId, objectId.getId(), objectId.getTtl(), true);
     }
 
     @Override
@@ -104,24 +145,34 @@ public class GroupLedger implements GenericGroupLedger {
 
     @Override
     public void removeFromObjectLedger(String objectId, MetaData peerId) {
-        objectLedger.remove(objectId, peerId);
+        if (isValid(objectId, peerId)) {
+            apply(LedgerChange.Operation.REMOVE, LedgerChange.Target.OBJECT_LEDGER, objectId, peerId.getId(), peerId.getTtl(), true);
+        }
     }
 
     @Override
     public void removeFromPeerLedger(String peerId, MetaData objectId) {
-        peerLedger.remove(peerId, objectId);
+        if (isValid(peerId, objectId)) {
+            apply(LedgerChange.Operation.REMOVE, LedgerChange.Target.PEER_LEDGER, peerId, objectId.getId(), objectId.getTtl(), true);
+        }
     }
 
     @Override
     public void removePeerFromGroupLedger(String peerId) {
-        peerLedger.removeAll(peerId);
-        objectLedger.removeValueNoTTL(peerId);
+        if (peerId == null) {
+            return;
+        }
+        apply(LedgerChange.Operation.REMOVE_KEY, LedgerChange.Target.PEER_LEDGER, peerId, null, 0, true);
+        apply(LedgerChange.Operation.REMOVE_VALUE_ID, LedgerChange.Target.OBJECT_LEDGER, null, peerId, 0, true);
     }
 
     @Override
     public void removeObjectFromGroupLedger(String objectId) {
-        objectLedger.removeAll(objectId);
-        peerLedger.removeValueNoTTL(objectId);
+        if (objectId == null) {
+            return;
+        }
+        apply(LedgerChange.Operation.REMOVE_KEY, LedgerChange.Target.OBJECT_LEDGER, objectId, null, 0, true);
+        apply(LedgerChange.Operation.REMOVE_VALUE_ID, LedgerChange.Target.PEER_LEDGER, null, objectId, 0, true);
     }
 
     @Override
@@ -133,8 +184,13 @@ public class GroupLedger implements GenericGroupLedger {
 
     @Override
     public void clearAll() {
-        peerLedger.clear();
-        objectLedger.clear();
+        exclusively(() -> {
+            peerLedger.clear();
+            objectLedger.clear();
+            changeLog.reset();
+            synced = NOT_SYNCED;
+        });
+        listeners.forEach(LedgerChangeListener::ledgerReset);
     }
 
     /* Viewing Data
@@ -181,6 +237,154 @@ public class GroupLedger implements GenericGroupLedger {
         return new Object2ObjectOpenHashMap<>(peerLedger.asGrpcMetaDataCollection());
     }
 
+    /* Synchronisation
+    ================================================================================================================*/
+
+    @Override
+    public Iterator<LedgerSyncChunk> syncChunks(long ledgerId, long sinceVersion, int chunkSize) {
+        return new LedgerSyncIterator(changeLog, objectLedger, peerLedger, ledgerId, sinceVersion, chunkSize);
+    }
+
+    @Override
+    public void applySyncChunk(LedgerSyncChunk chunk) {
+        if (chunk.getReset()) {
+            exclusively(() -> {
+                peerLedger.clear();
+                objectLedger.clear();
+            });
+            listeners.forEach(LedgerChangeListener::ledgerReset);
+        }
+        for (LedgerChange change : chunk.getChangesList()) {
+            apply(change.getOperation(), change.getTarget(), change.getKey(), change.getValueId(), change.getTtl(), false);
+        }
+        exclusively(() -> {
+            if (chunk.getReset() || chunk.getChangesCount() > 0) {
+                // the synced changes were not logged, so the log no longer describes this ledger
+                changeLog.reset();
+            }
+            synced = new SyncState(chunk.getLedgerId(), chunk.getVersion(), changeLog.getVersion());
+        });
+    }
+
+    @Override
+    public long getVersion() {
+        return changeLog.getVersion();
+    }
+
+    @Override
+    public long getSyncedLedgerId() {
+        return inSync().ledgerId;
+    }
+
+    @Override
+    public long getSyncedVersion() {
+        return inSync().version;
+    }
+
+    @Override
+    public void addChangeListener(LedgerChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(LedgerChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Applies the change and appends it to the change log unless it came from a sync, additions that were already
+     * present are not logged. Listeners are called once the locks are released, also for additions that were already
+     * present: an object announced again was written again.
+     */
+    private boolean apply(LedgerChange.Operation operation, LedgerChange.Target target, String key, String valueId, long ttl, boolean log) {
+        Ledger ledger = target == LedgerChange.Target.OBJECT_LEDGER ? objectLedger : peerLedger;
+        boolean changed;
+        if (operation == LedgerChange.Operation.REMOVE_VALUE_ID) {
+            Lock exclusive = lock.writeLock();
+            exclusive.lock();
+            try {
+                changed = update(ledger, operation, target, key, valueId, ttl, log);
+            } finally {
+                exclusive.unlock();
+            }
+        } else {
+            Lock shared = lock.readLock();
+            shared.lock();
+            try {
+                synchronized (stripes[(key.hashCode() & Integer.MAX_VALUE) % stripes.length]) {
+                    changed = update(ledger, operation, target, key, valueId, ttl, log);
+                }
+            } finally {
+                shared.unlock();
+            }
+        }
+        if (changed || operation == LedgerChange.Operation.ADD) {
+            for (LedgerChangeListener listener : listeners) {
+                listener.changeApplied(operation, target, key, valueId);
+            }
+        }
+        return changed;
+    }
+
+    private boolean update(Ledger ledger, LedgerChange.Operation operation, LedgerChange.Target target, String key, String valueId, long ttl, boolean log) {
+        boolean changed = true;
+        switch (operation) {
+            case ADD:
+                changed = ledger.add(key, MetaData.builder().id(valueId).ttl(ttl).build());
+                break;
+            case REMOVE:
+                ledger.remove(key, MetaData.builder().id(valueId).ttl(ttl).build());
+                break;
+            case REMOVE_KEY:
+                ledger.removeAll(key);
+                break;
+            case REMOVE_VALUE_ID:
+                ledger.removeValueNoTTL(valueId);
+                break;
+            default:
+                return false;
+        }
+        if (changed && log) {
+            changeLog.append(operation, target, key, valueId, ttl);
+        }
+        return changed;
+    }
+
+    private void exclusively(Runnable action) {
+        Lock exclusive = lock.writeLock();
+        exclusive.lock();
+        try {
+            action.run();
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * The last sync, or none once changes were applied locally since then: a delta replayed on top of diverged state
+     * would not converge, the next sync has to be a snapshot
+     */
+    private SyncState inSync() {
+        SyncState state = synced;
+        return state.localVersion == changeLog.getVersion() ? state : NOT_SYNCED;
+    }
+
+    private static boolean isValid(String key, MetaData value) {
+        return key != null && value.getId() != null;
+    }
+
+    private static final class SyncState {
+        private final long ledgerId;
+        private final long version;
+        private final long localVersion;
+
+        SyncState(long ledgerId, long version, long localVersion) {
+            this.ledgerId = ledgerId;
+            this.version = version;
+            this.localVersion = localVersion;
+        }
+    }
+
     /* Getters & Setters
     ================================================================================================================*/
 
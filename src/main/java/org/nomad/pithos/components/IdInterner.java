@@ -0,0 +1,104 @@
+package org.nomad.pithos.components;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps peer and object identifiers to dense ints so ledger entries can be stored in primitive arrays.
+ * <p>
+ * Every id is reference counted, {@link #acquire} and {@link #release} of an identifier are atomic with respect to
+ * each other. Once the last reference is released the identifier is dropped and its id is handed out again, so the
+ * interner only holds the identifiers that are stored somewhere. Lookups are lock-free, only allocating and freeing an
+ * id takes the interner lock.
+ * <p>
+ * As ids are reused, a reader holding an old snapshot must check that the snapshot was still current after resolving
+ * its ids.
+ */
+class IdInterner {
+    static final int ABSENT = -1;
+    private final ConcurrentHashMap<String, Slot> ids = new ConcurrentHashMap<>();
+    private final IntArrayList freeIds = new IntArrayList();
+    private volatile String[] names = new String[64];
+    private int nextId = 0;
+
+    /**
+     * @return the id of the identifier, or {@link #ABSENT} if it is not interned
+     */
+    int lookup(String name) {
+        if (name == null) {
+            return ABSENT;
+        }
+        Slot slot = ids.get(name);
+        return slot == null ? ABSENT : slot.id;
+    }
+
+    /**
+     * Interns the identifier and takes a reference to its id
+     */
+    int acquire(String name) {
+        return ids.compute(name, (n, slot) -> {
+            if (slot == null) {
+                return new Slot(allocate(n));
+            }
+            slot.references++;
+            return slot;
+        }).id;
+    }
+
+    /**
+     * Releases a reference taken by {@link #acquire}, the id may be reused once the last one is released
+     */
+    void release(int id) {
+        ids.computeIfPresent(names[id], (n, slot) -> {
+            if (--slot.references > 0) {
+                return slot;
+            }
+            free(slot.id);
+            return null;
+        });
+    }
+
+    /**
+     * @return the identifier, or null if the id was freed
+     */
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Number of identifiers currently interned
+     */
+    int size() {
+        return ids.size();
+    }
+
+    private synchronized int allocate(String name) {
+        int id = freeIds.isEmpty() ? nextId++ : freeIds.popInt();
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = name;
+        names = current;
+        return id;
+    }
+
+    private synchronized void free(int id) {
+        String[] current = names;
+        current[id] = null;
+        names = current;
+        freeIds.add(id);
+    }
+
+    private static final class Slot {
+        private final int id;
+        // only accessed within the compute functions of the identifier
+        private int references = 1;
+
+        Slot(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package org.nomad.pithos.components;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.collect.Iterators;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectCollection;
@@ -12,15 +10,47 @@ import org.nomad.pithos.mappers.CustomMappers;
 import org.nomad.pithos.models.MetaData;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
 
+/**
+ * Concurrent multimap from a key to a set of {@link MetaData} values.
+ * <p>
+ * Value ids are interned as ints and each key maps to an immutable {@link Entries} snapshot holding the ids and their
+ * TTLs in parallel primitive arrays. Writers replace a key's snapshot inside {@link ConcurrentHashMap#compute}, which
+ * only locks the bin of that key, while readers work on whatever snapshot is current and never take a lock.
+ * <p>
+ * A reverse index from value id to the keys holding it is maintained under the same bin lock, so removing a value
+ * from every key only touches the keys that actually store it. Every stored entry holds a reference to its interned
+ * value id, so the ids of values that are no longer stored, together with their reverse index sets, are reclaimed.
+ * <p>
+ * Additions are also recorded in an {@link ExpiryIndex}, so {@link #cleanExpiredObjects()} only visits keys with an
+ * entry whose TTL has come due and is cheap enough to run frequently.
+ */
 public class Ledger {
-    private final Multimap<String, MetaData> ledgerMultiMap = Multimaps.synchronizedMultimap(HashMultimap.create());
+    private final ConcurrentHashMap<String, Entries> ledgerMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<String>> keysByValue = new ConcurrentHashMap<>();
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private final IdInterner interner;
+
+    public Ledger() {
+        this(new IdInterner());
+    }
+
+    Ledger(IdInterner interner) {
+        this.interner = interner;
+    }
 
     public int countReplicas(String key) {
-        return ledgerMultiMap.get(key).size();
+        Entries entries = entriesOf(key);
+        return entries == null ? 0 : entries.size();
     }
 
     /**
@@ -31,75 +61,121 @@ public class Ledger {
      */
     public ObjectList<String> getObjectsNeedingRepair(int rf) {
         cleanExpiredObjects();
-        synchronized (ledgerMultiMap) {
-            return new ObjectArrayList<>(ledgerMultiMap.keySet()
-                    .stream()
-                    .filter(key -> countReplicas(key) < rf)
-                    .collect(Collectors.toList()));
-        }
+        ObjectList<String> keys = new ObjectArrayList<>();
+        ledgerMap.forEach((key, entries) -> {
+            if (entries.size() < rf) {
+                keys.add(key);
+            }
+        });
+        return keys;
     }
 
     public ObjectCollection<MetaData> get(String key) {
-        return new ObjectArrayList<>(ledgerMultiMap.get(key));
+        Entries entries = entriesOf(key);
+        return entries == null ? new ObjectArrayList<>() : toMetaData(key, entries);
     }
 
     public boolean add(String key, MetaData value) {
-        synchronized (ledgerMultiMap) {
-            return ledgerMultiMap.put(key, value);
+        if (key == null || value.getId() == null) {
+            return false;
         }
+        int id = interner.acquire(value.getId());
+        long ttl = value.getTtl();
+        AtomicBoolean added = new AtomicBoolean(false);
+        ledgerMap.compute(key, (k, entries) -> {
+            if (entries != null && entries.indexOf(id, ttl) >= 0) {
+                return entries;
+            }
+            added.set(true);
+            keysByValue.compute(id, (i, keys) -> {
+                Set<String> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                result.add(k);
+                return result;
+            });
+            expiryIndex.schedule(k, ttl);
+            return entries == null ? Entries.of(id, ttl) : entries.with(id, ttl);
+        });
+        if (!added.get()) {
+            interner.release(id);
+        }
+        return added.get();
     }
 
     public void remove(String key, MetaData value) {
-        synchronized (ledgerMultiMap) {
-            ledgerMultiMap.remove(key, value);
+        if (key == null) {
+            return;
+        }
+        int id = interner.lookup(value.getId());
+        if (id == IdInterner.ABSENT) {
+            return;
         }
+        ledgerMap.computeIfPresent(key, (k, entries) -> reindex(k, entries, entries.without(id, value.getTtl())));
     }
 
     public void removeAll(String key) {
-        synchronized (ledgerMultiMap) {
-            ledgerMultiMap.removeAll(key);
+        if (key != null) {
+            ledgerMap.computeIfPresent(key, (k, entries) -> reindex(k, entries, null));
         }
     }
 
     public boolean containsKey(String key) {
-        return ledgerMultiMap.containsKey(key);
+        return entriesOf(key) != null;
     }
 
     public void removeValue(MetaData value) {
-        synchronized (ledgerMultiMap) {
-            ledgerMultiMap.values().removeIf(metaData -> metaData.equals(value));
+        int id = interner.lookup(value.getId());
+        if (id == IdInterner.ABSENT) {
+            return;
+        }
+        for (String key : keysStoring(id)) {
+            ledgerMap.computeIfPresent(key, (k, entries) -> reindex(k, entries, entries.without(id, value.getTtl())));
         }
     }
 
     public void removeValueNoTTL(String value) {
-        synchronized (ledgerMultiMap) {
-            ledgerMultiMap.values().removeIf(metaData -> metaData.getId().equals(value));
+        int id = interner.lookup(value);
+        if (id == IdInterner.ABSENT) {
+            return;
+        }
+        for (String key : keysStoring(id)) {
+            ledgerMap.computeIfPresent(key, (k, entries) -> reindex(k, entries, entries.withoutId(id)));
         }
     }
 
     public boolean containsEntry(String key, MetaData value) {
-        return ledgerMultiMap.containsEntry(key, value);
+        Entries entries = entriesOf(key);
+        if (entries == null) {
+            return false;
+        }
+        int id = interner.lookup(value.getId());
+        return id != IdInterner.ABSENT && entries.indexOf(id, value.getTtl()) >= 0 && resolves(id, value.getId());
     }
 
     public boolean containsEntry(String key, String value) {
-        synchronized (ledgerMultiMap) {
-            return ledgerMultiMap.get(key).stream().anyMatch(metaData -> metaData.getId().equals(value));
-        }
+        return containsEntryNoTTL(key, value);
     }
 
     public boolean cleanExpiredObjects() {
-        if (ledgerMultiMap.isEmpty()) {
+        if (ledgerMap.isEmpty()) {
             return false;
         }
 
         long expiryInstant = Instant.now().getEpochSecond();
-        synchronized (ledgerMultiMap) {
-            return ledgerMultiMap.values().removeIf(metadata -> ttlIsExpired(metadata, expiryInstant));
+        if (expiryIndex.nextExpiry() > expiryInstant) {
+            return false;
         }
-    }
 
-    private boolean ttlIsExpired(MetaData metaData, long expiryInstant) {
-        return metaData.getTtl() <= expiryInstant;
+        AtomicBoolean removed = new AtomicBoolean(false);
+        for (String key : expiryIndex.pollDue(expiryInstant)) {
+            ledgerMap.computeIfPresent(key, (k, entries) -> {
+                Entries remaining = entries.withoutExpired(expiryInstant);
+                if (remaining != entries) {
+                    removed.set(true);
+                }
+                return reindex(k, entries, remaining);
+            });
+        }
+        return removed.get();
     }
 
     /**
@@ -108,40 +184,55 @@ public class Ledger {
      * @param value of the object we want
      */
     public String getFirstMatch(MetaData value) {
-        synchronized (ledgerMultiMap) {
-            for (String key : ledgerMultiMap.keySet()) {
-                if (ledgerMultiMap.get(key).stream().anyMatch(x -> x.equals(value))) {
-                    return key;
-                }
+        int id = interner.lookup(value.getId());
+        if (id == IdInterner.ABSENT) {
+            return null;
+        }
+        for (String key : keysStoring(id)) {
+            Entries entries = ledgerMap.get(key);
+            if (entries != null && entries.indexOf(id, value.getTtl()) >= 0 && resolves(id, value.getId())) {
+                return key;
             }
         }
         return null;
     }
 
     public boolean containsValue(MetaData value) {
-        return ledgerMultiMap.containsValue(value);
+        return getFirstMatch(value) != null;
     }
 
     public boolean containsEntryNoTTL(String key, String value) {
-        synchronized (ledgerMultiMap) {
-            return ledgerMultiMap.get(key).stream().anyMatch(metaData -> metaData.getId().equals(value));
+        Entries entries = entriesOf(key);
+        if (entries == null) {
+            return false;
         }
+        int id = interner.lookup(value);
+        return id != IdInterner.ABSENT && entries.containsId(id) && resolves(id, value);
     }
 
-    public ObjectOpenHashSet<String> keySet() {
-        return new ObjectOpenHashSet<>(ledgerMultiMap.keySet());
+    public int size() {
+        return ledgerMap.size();
     }
 
-    public ObjectCollection<MetaData> values() {
-        return new ObjectArrayList<>(ledgerMultiMap.values());
+    public ObjectOpenHashSet<String> keySet() {
+        return new ObjectOpenHashSet<>(ledgerMap.keySet());
     }
 
-    public Multimap<String, MetaData> getLedgerMultiMap() {
-        return ledgerMultiMap;
+    public ObjectCollection<MetaData> values() {
+        ObjectList<MetaData> values = new ObjectArrayList<>();
+        ledgerMap.forEach((key, entries) -> values.addAll(toMetaData(key, entries)));
+        return values;
     }
 
     public Object2ObjectOpenHashMap<String, Collection<MetaData>> asMap() {
-        return new Object2ObjectOpenHashMap<>(ledgerMultiMap.asMap());
+        Object2ObjectOpenHashMap<String, Collection<MetaData>> map = new Object2ObjectOpenHashMap<>(ledgerMap.size());
+        ledgerMap.forEach((key, entries) -> {
+            ObjectList<MetaData> values = toMetaData(key, entries);
+            if (!values.isEmpty()) {
+                map.put(key, values);
+            }
+        });
+        return map;
     }
 
     /**
@@ -150,16 +241,202 @@ public class Ledger {
      * @return converted map to be sent to the joining peer
      */
     public Object2ObjectOpenHashMap<String, org.nomad.grpc.superpeerservice.MetaDataCollection> asGrpcMetaDataCollection() {
-        return new Object2ObjectOpenHashMap<>(CustomMappers.INSTANCE.convertToGrpcMap(ledgerMultiMap.asMap()));
+        return new Object2ObjectOpenHashMap<>(CustomMappers.INSTANCE.convertToGrpcMap(asMap()));
     }
 
     public void populateLedger(Object2ObjectOpenHashMap<String, ObjectCollection<MetaData>> map) {
         for (Map.Entry<String, ObjectCollection<MetaData>> entry : map.entrySet()) {
-            ledgerMultiMap.putAll(entry.getKey(), entry.getValue());
+            entry.getValue().forEach(value -> add(entry.getKey(), value));
         }
     }
 
+    /**
+     * Weakly consistent view of the keys, used to stream the ledger without copying it
+     */
+    Iterator<String> keyIterator() {
+        return Iterators.unmodifiableIterator(ledgerMap.keySet().iterator());
+    }
+
+    /**
+     * Keys that currently store the given value id, regardless of TTL
+     */
+    public ObjectOpenHashSet<String> keysContainingValue(String value) {
+        int id = interner.lookup(value);
+        ObjectOpenHashSet<String> keys = new ObjectOpenHashSet<>(keysStoring(id));
+        return resolves(id, value) ? keys : new ObjectOpenHashSet<>();
+    }
+
+    /**
+     * Removes every key one by one, so the references to the interned value ids are released
+     */
     public void clear() {
-        ledgerMultiMap.clear();
+        ledgerMap.keySet().forEach(this::removeAll);
+        expiryIndex.clear();
+    }
+
+    /**
+     * Number of value ids currently interned
+     */
+    int internedValues() {
+        return interner.size();
+    }
+
+    /**
+     * Number of value ids in the reverse index
+     */
+    int indexedValues() {
+        return keysByValue.size();
+    }
+
+    private Set<String> keysStoring(int id) {
+        if (id == IdInterner.ABSENT) {
+            return Collections.emptySet();
+        }
+        Set<String> keys = keysByValue.get(id);
+        return keys == null ? Collections.emptySet() : keys;
+    }
+
+    /**
+     * Releases the value id of every removed entry and drops the key from the reverse index of every value id that is
+     * no longer present, must be called from within the compute function of that key
+     */
+    private Entries reindex(String key, Entries before, Entries after) {
+        if (before == after) {
+            return after;
+        }
+        for (int i = 0; i < before.size(); i++) {
+            int id = before.ids[i];
+            if (after != null && after.indexOf(id, before.ttls[i]) >= 0) {
+                continue;
+            }
+            if (after == null || !after.containsId(id)) {
+                keysByValue.computeIfPresent(id, (v, keys) -> {
+                    keys.remove(key);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+            interner.release(id);
+        }
+        return after;
+    }
+
+    /**
+     * Whether the id still stands for the identifier, it may have been freed and reused since it was looked up
+     */
+    private boolean resolves(int id, String name) {
+        return id != IdInterner.ABSENT && name.equals(interner.name(id));
+    }
+
+    private Entries entriesOf(String key) {
+        return key == null ? null : ledgerMap.get(key);
+    }
+
+    /**
+     * Resolves the value ids of the snapshot. The ids of a snapshot that is still current cannot have been freed, so
+     * the snapshot is checked again afterwards and the current one resolved if it was replaced in the meantime.
+     */
+    private ObjectList<MetaData> toMetaData(String key, Entries entries) {
+        while (entries != null) {
+            ObjectList<MetaData> values = new ObjectArrayList<>(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                values.add(MetaData.builder().id(interner.name(entries.ids[i])).ttl(entries.ttls[i]).build());
+            }
+            Entries current = ledgerMap.get(key);
+            if (current == entries) {
+                return values;
+            }
+            entries = current;
+        }
+        return new ObjectArrayList<>();
+    }
+
+    /**
+     * Immutable value set of a single key, every change produces a new instance. Methods that remove the last entry
+     * return {@code null} so that {@link ConcurrentHashMap#computeIfPresent} drops the key.
+     */
+    static final class Entries {
+        final int[] ids;
+        final long[] ttls;
+
+        private Entries(int[] ids, long[] ttls) {
+            this.ids = ids;
+            this.ttls = ttls;
+        }
+
+        static Entries of(int id, long ttl) {
+            return new Entries(new int[]{id}, new long[]{ttl});
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        int indexOf(int id, long ttl) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id && ttls[i] == ttl) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        boolean containsId(int id) {
+            for (int existing : ids) {
+                if (existing == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Entries with(int id, long ttl) {
+            int[] newIds = Arrays.copyOf(ids, ids.length + 1);
+            long[] newTtls = Arrays.copyOf(ttls, ttls.length + 1);
+            newIds[ids.length] = id;
+            newTtls[ttls.length] = ttl;
+            return new Entries(newIds, newTtls);
+        }
+
+        Entries without(int id, long ttl) {
+            int index = indexOf(id, ttl);
+            if (index < 0) {
+                return this;
+            }
+            if (ids.length == 1) {
+                return null;
+            }
+            int[] newIds = new int[ids.length - 1];
+            long[] newTtls = new long[ttls.length - 1];
+            System.arraycopy(ids, 0, newIds, 0, index);
+            System.arraycopy(ttls, 0, newTtls, 0, index);
+            System.arraycopy(ids, index + 1, newIds, index, ids.length - index - 1);
+            System.arraycopy(ttls, index + 1, newTtls, index, ttls.length - index - 1);
+            return new Entries(newIds, newTtls);
+        }
+
+        Entries withoutId(int id) {
+            return filter(i -> ids[i] != id);
+        }
+
+        Entries withoutExpired(long expiryInstant) {
+            return filter(i -> ttls[i] > expiryInstant);
+        }
+
+        private Entries filter(IntPredicate keep) {
+            int[] newIds = new int[ids.length];
+            long[] newTtls = new long[ttls.length];
+            int size = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (keep.test(i)) {
+                    newIds[size] = ids[i];
+                    newTtls[size] = ttls[i];
+                    size++;
+                }
+            }
+            if (size == ids.length) {
+                return this;
+            }
+            return size == 0 ? null : new Entries(Arrays.copyOf(newIds, size), Arrays.copyOf(newTtls, size));
+        }
     }
 }
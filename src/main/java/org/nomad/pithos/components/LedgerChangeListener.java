@@ -0,0 +1,20 @@
+package org.nomad.pithos.components;
+
+import org.nomad.grpc.superpeerservice.LedgerChange;
+
+/**
+ * Observer of group-ledger changes. Listeners are called on the thread applying the change once the ledger locks are
+ * released, concurrent changes may be reported out of version order. They must return quickly.
+ */
+public interface LedgerChangeListener {
+
+    /**
+     * Called for every change that altered the ledger and for every addition, even of an entry that was present
+     */
+    void changeApplied(LedgerChange.Operation operation, LedgerChange.Target target, String key, String valueId);
+
+    /**
+     * The ledger was cleared or replaced wholesale, any state derived from it is stale
+     */
+    void ledgerReset();
+}
@@ -0,0 +1,134 @@
+package org.nomad.pithos.components;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.nomad.grpc.superpeerservice.LedgerChange;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded log of the most recent group-ledger changes, numbered by a monotonically increasing version.
+ * <p>
+ * Peers that synced from this ledger before can catch up by replaying the changes after their last version. The
+ * ledger id changes whenever the log can no longer describe the ledger (clear, bulk population, sync), which forces
+ * those peers to fetch a full snapshot instead.
+ * <p>
+ * Appending is lock-free: the version comes from an atomic counter and the change is then published to its ring slot,
+ * so a reader stops at a version that was assigned but not published yet. Changes are kept as plain fields and only
+ * turned into protos when a sync reads them.
+ */
+class LedgerChangeLog {
+    private final AtomicReferenceArray<Change> changes;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Epoch epoch = new Epoch(newLedgerId(), 0);
+
+    LedgerChangeLog(int capacity) {
+        this.changes = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    long append(LedgerChange.Operation operation, LedgerChange.Target target, String key, String valueId, long ttl) {
+        long v = version.incrementAndGet();
+        changes.set(slot(v), new Change(v, operation, target, key, valueId, ttl));
+        return v;
+    }
+
+    /**
+     * Changes after {@code sinceVersion}, at most {@code max} of them
+     *
+     * @return the changes, or {@code null} if the caller synced from another ledger or fell too far behind
+     */
+    ObjectList<LedgerChange> since(long ledgerId, long sinceVersion, int max) {
+        Epoch current = epoch;
+        long latest = version.get();
+        if (ledgerId != current.ledgerId || sinceVersion < current.resetVersion || sinceVersion > latest || latest - sinceVersion > changes.length()) {
+            return null;
+        }
+
+        long until = Math.min(latest, sinceVersion + max);
+        ObjectList<LedgerChange> result = new ObjectArrayList<>((int) (until - sinceVersion));
+        for (long v = sinceVersion + 1; v <= until; v++) {
+            Change change = changes.get(slot(v));
+            if (change == null || change.version < v) {
+                // still being appended, the caller gets it with its next read
+                break;
+            }
+            if (change.version > v) {
+                return null;
+            }
+            result.add(change.toProto());
+        }
+        return epoch == current ? result : null;
+    }
+
+    /**
+     * Start a new ledger id, the version keeps increasing so that it stays monotonic for local observers. Must not run
+     * concurrently with {@link #append}.
+     */
+    void reset() {
+        epoch = new Epoch(newLedgerId(), version.get());
+    }
+
+    long getLedgerId() {
+        return epoch.ledgerId;
+    }
+
+    long getVersion() {
+        return version.get();
+    }
+
+    private int slot(long v) {
+        return (int) (v % changes.length());
+    }
+
+    private static long newLedgerId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    private static final class Epoch {
+        private final long ledgerId;
+        private final long resetVersion;
+
+        Epoch(long ledgerId, long resetVersion) {
+            this.ledgerId = ledgerId;
+            this.resetVersion = resetVersion;
+        }
+    }
+
+    private static final class Change {
+        private final long version;
+        private final LedgerChange.Operation operation;
+        private final LedgerChange.Target target;
+        private final String key;
+        private final String valueId;
+        private final long ttl;
+
+        Change(long version, LedgerChange.Operation operation, LedgerChange.Target target, String key, String valueId, long ttl) {
+            this.version = version;
+            this.operation = operation;
+            this.target = target;
+            this.key = key;
+            this.valueId = valueId;
+            this.ttl = ttl;
+        }
+
+        LedgerChange toProto() {
+            LedgerChange.Builder builder = LedgerChange.newBuilder()
+                    .setOperation(operation)
+                    .setTarget(target)
+                    .setTtl(ttl);
+            if (key != null) {
+                builder.setKey(key);
+            }
+            if (valueId != null) {
+                builder.setValueId(valueId);
+            }
+            return builder.build();
+        }
+    }
+}
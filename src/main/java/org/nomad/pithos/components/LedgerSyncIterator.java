@@ -0,0 +1,91 @@
+package org.nomad.pithos.components;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.nomad.grpc.superpeerservice.LedgerChange;
+import org.nomad.grpc.superpeerservice.LedgerSyncChunk;
+
+import java.util.Iterator;
+
+/**
+ * Produces the chunks of a single ledger sync lazily, so neither side holds more than one chunk in memory.
+ * <p>
+ * A caller that synced from this ledger and whose version is still covered by the change log only receives the changes
+ * after it. Otherwise, including when its ledger id or version does not match, the object and peer ledgers are
+ * streamed as a snapshot starting with a reset chunk, followed by every change logged since the snapshot started.
+ * Replaying those changes is idempotent, so entries that already made it into the snapshot are harmless.
+ */
+class LedgerSyncIterator extends AbstractIterator<LedgerSyncChunk> {
+    private final LedgerChangeLog changeLog;
+    private final int chunkSize;
+    private final long ledgerId;
+    private final Iterator<LedgerChange> snapshot;
+    private long version;
+    private boolean first = true;
+
+    LedgerSyncIterator(LedgerChangeLog changeLog, Ledger objectLedger, Ledger peerLedger, long sinceLedgerId, long sinceVersion, int chunkSize) {
+        this.changeLog = changeLog;
+        this.chunkSize = Math.max(1, chunkSize);
+        if (changeLog.since(sinceLedgerId, sinceVersion, 0) != null) {
+            this.ledgerId = sinceLedgerId;
+            this.version = sinceVersion;
+            this.snapshot = null;
+        } else {
+            // a change is versioned after it was applied, so everything up to this version is in the snapshot
+            this.ledgerId = changeLog.getLedgerId();
+            this.version = changeLog.getVersion();
+            this.snapshot = Iterators.concat(
+                    additions(objectLedger, LedgerChange.Target.OBJECT_LEDGER),
+                    additions(peerLedger, LedgerChange.Target.PEER_LEDGER));
+        }
+    }
+
+    boolean isSnapshot() {
+        return snapshot != null;
+    }
+
+    @Override
+    protected LedgerSyncChunk computeNext() {
+        if (snapshot != null && snapshot.hasNext()) {
+            ObjectList<LedgerChange> changes = new ObjectArrayList<>(chunkSize);
+            while (snapshot.hasNext() && changes.size() < chunkSize) {
+                changes.add(snapshot.next());
+            }
+            return chunk(changes);
+        }
+
+        ObjectList<LedgerChange> changes = changeLog.since(ledgerId, version, chunkSize);
+        if (changes == null) {
+            throw new IllegalStateException("Ledger " + ledgerId + " changed beyond version " + version + " during sync");
+        }
+        if (changes.isEmpty() && !first) {
+            return endOfData();
+        }
+        version += changes.size();
+        return chunk(changes);
+    }
+
+    private LedgerSyncChunk chunk(ObjectList<LedgerChange> changes) {
+        LedgerSyncChunk chunk = LedgerSyncChunk.newBuilder()
+                .setLedgerId(ledgerId)
+                .setVersion(version)
+                .setReset(first && snapshot != null)
+                .addAllChanges(changes)
+                .build();
+        first = false;
+        return chunk;
+    }
+
+    private static Iterator<LedgerChange> additions(Ledger ledger, LedgerChange.Target target) {
+        return Iterators.concat(Iterators.transform(ledger.keyIterator(), key ->
+                Iterators.transform(ledger.get(key).iterator(), metaData -> LedgerChange.newBuilder()
+                        .setOperation(LedgerChange.Operation.ADD)
+                        .setTarget(target)
+                        .setKey(key)
+                        .setValueId(metaData.getId())
+                        .setTtl(metaData.getTtl())
+                        .build())));
+    }
+}
@@ -1,7 +1,8 @@
 package org.nomad.pithos.components;
 
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import it.unimi.dsi.fastutil.objects.ObjectList;
 import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
@@ -9,10 +10,12 @@ import org.nomad.commons.NetworkUtility;
 import org.nomad.config.Config;
 import org.nomad.delegation.DirectoryServerClient;
 import org.nomad.delegation.models.VoronoiSitePoint;
+import org.nomad.grpc.ChannelRegistry;
 import org.nomad.grpc.management.clients.GroupStorageClient;
 import org.nomad.grpc.management.clients.SuperPeerClient;
 import org.nomad.grpc.management.models.JoinResponse;
 import org.nomad.grpc.management.models.UpdatePeerPositionResponse;
+import org.nomad.grpc.superpeerservice.LedgerSyncChunk;
 import org.nomad.grpc.superpeerservice.VirtualPosition;
 import org.nomad.pithos.MainController;
 import org.nomad.pithos.models.GameObject;
@@ -29,9 +32,9 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.time.temporal.ChronoUnit;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Random;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Second iteration of the peer, more in line with Pithos architecture
@@ -45,6 +48,7 @@ import java.util.concurrent.TimeUnit;
 @Component
 @DependsOn("ZookeeperDirectoryServerClient")
 public class Peer {
+    private static final int LEDGER_SYNC_CHUNK_SIZE = 1024;
     private final Logger logger = LoggerFactory.getLogger(Peer.class);
     private final String peerIp;
     private final GenericGroupLedger groupLedger; // keep track of objects and peers
@@ -80,6 +84,8 @@ public class Peer {
     private SuperPeerClient superPeerClient;
     private VirtualPosition virtualPosition;
     private ObjectList<VirtualPosition> movements;
+    // movement model read on start, asked for on the console when not set
+    private Integer movementModel;
     private int lastPosition = 0;
     private boolean isActive = false;
 
@@ -96,7 +102,7 @@ public class Peer {
 
     private void start() {
         try {
-            movements = inputReader.readMovements();
+            movements = movementModel == null ? inputReader.readMovements() : inputReader.readMovements(movementModel);
             logger.info("Initializing peer components");
             virtualPosition = movements.get(lastPosition);
             isActive = true;
@@ -113,6 +119,10 @@ public class Peer {
         isActive = flag;
     }
 
+    public void setMovementModel(int movementModel) {
+        this.movementModel = movementModel;
+    }
+
     public boolean joinGroup(String group, String id, String superPeerId) throws Exception {
         logger.info("Joining {}...", group);
         this.group = group;
@@ -132,7 +142,7 @@ public class Peer {
      * 1. Updates the peer & group server hostnames<p>
      * 2. Calls 'joinGroup' from super-peer client<p>
      * 3. Sets replication factor<p>
-     * 4. Updates group ledger with response from super-peer<p>
+     * 4. Syncs the group ledger from the super-peer<p>
      *
      * @throws IOException
      */
@@ -148,10 +158,34 @@ public class Peer {
         // update the rf set by the super-peer
         configuration.getStorage().setReplicationFactor(superPeerClient.getSuperPeerReplicationFactor());
         groupLedger.populateGroupLedger(joinResponse.getObjectLedger(), joinResponse.getPeerLedger());
+        syncGroupLedger();
         groupLedger.printObjectLedger();
         groupLedger.printPeerLedger();
     }
 
+    /**
+     * Fetch the changes since the last sync from the super-peer, a peer that has not synced from this super-peer
+     * before receives a snapshot instead
+     */
+    private void syncGroupLedger() throws IOException {
+        try {
+            Iterator<LedgerSyncChunk> chunks = superPeerClient.syncLedger(groupLedger.getSyncedLedgerId(), groupLedger.getSyncedVersion(), LEDGER_SYNC_CHUNK_SIZE);
+            int changes = 0;
+            while (chunks.hasNext()) {
+                LedgerSyncChunk chunk = chunks.next();
+                groupLedger.applySyncChunk(chunk);
+                changes += chunk.getChangesCount();
+            }
+            logger.debug("Group ledger synced to version {} ({} changes)", groupLedger.getSyncedVersion(), changes);
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.UNIMPLEMENTED) {
+                logger.warn("Super-peer does not support ledger sync, using the ledger from the join response");
+                return;
+            }
+            throw new IOException("Group ledger sync failed: " + e.getStatus());
+        }
+    }
+
     public void updateGroupStorageComponents() throws Exception {
         // group is updated when the group-member is created
         groupStoragePeerList = directoryServerClient.getGroupStorageHostnames(group);
@@ -202,6 +236,34 @@ public class Peer {
         }
     }
 
+    /**
+     * Fetches the object filters the super-peers of the other groups published, see {@link org.nomad.storage.GroupObjectFilters}
+     */
+    @Scheduled(fixedRateString = "${spring.schedule.objectFilter}")
+    public void refreshObjectFilters() {
+        if (isActive && peerStorage.getGroupObjectFilters().isEnabled()) {
+            try {
+                peerStorage.getGroupObjectFilters().update(directoryServerClient.getObjectFilters(), group);
+            } catch (Exception e) {
+                logger.warn("Failed to fetch the object filters: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fetches the versions the object filters of the other groups have to be at to be trusted
+     */
+    @Scheduled(fixedRateString = "${spring.schedule.objectFilterVersion}")
+    public void refreshObjectFilterVersions() {
+        if (isActive && peerStorage.getGroupObjectFilters().isEnabled()) {
+            try {
+                peerStorage.getGroupObjectFilters().updateVersions(directoryServerClient.getObjectFilterVersions());
+            } catch (Exception e) {
+                logger.warn("Failed to fetch the object filter versions: {}", e.getMessage());
+            }
+        }
+    }
+
     private void executePings() {
         String randomGroupStorageClientHostname = groupStoragePeerList.get(rand.nextInt(groupStoragePeerList.size()));
 
@@ -259,15 +321,8 @@ public class Peer {
         String target = SuperPeerIp + ":" + superPeerPort;
         logger.debug("Super peer hostname: {}", target);
 
-        ManagedChannel channel = ManagedChannelBuilder.forTarget(target)
-                .usePlaintext()
-                .maxInboundMessageSize(1024 * 1024 * 1024)
-                .keepAliveTime(300, TimeUnit.SECONDS)
-                .build();
-        superPeerClient = new SuperPeerClient(channel);
-
-        logger.debug("Updating group storage client reference!");
-        peerStorage.updateGroupStorageSuperPeerClient(superPeerClient);
+        ManagedChannel channel = ChannelRegistry.getInstance().acquire(target, configuration.getTransport());
+        replaceSuperPeerClient(new SuperPeerClient(channel));
     }
 
     /**
@@ -280,10 +335,21 @@ public class Peer {
      */
     private void createSuperPeerClient(String hostname) {
         logger.debug("Super peer hostname: {}", hostname);
-        ManagedChannel channel = ManagedChannelBuilder.forTarget(hostname).usePlaintext().keepAliveTime(300, TimeUnit.SECONDS).build();
-        superPeerClient = new SuperPeerClient(channel);
+        ManagedChannel channel = ChannelRegistry.getInstance().acquire(hostname, configuration.getTransport());
+        replaceSuperPeerClient(new SuperPeerClient(channel));
+    }
+
+    /**
+     * The previous client is shut down once group storage uses the new one, releasing its handle to the channel
+     */
+    private void replaceSuperPeerClient(SuperPeerClient client) {
+        SuperPeerClient previous = superPeerClient;
+        superPeerClient = client;
         logger.debug("Updating group storage client reference!");
         peerStorage.updateGroupStorageSuperPeerClient(superPeerClient);
+        if (previous != null) {
+            previous.shutdown();
+        }
     }
 
     /**
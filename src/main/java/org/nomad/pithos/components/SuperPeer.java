@@ -3,7 +3,6 @@ package org.nomad.pithos.components;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectList;
@@ -12,12 +11,16 @@ import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
 import org.nomad.commons.NetworkUtility;
 import org.nomad.config.Config;
+import org.nomad.config.NegativeCacheConfiguration;
 import org.nomad.delegation.DirectoryServerClient;
 import org.nomad.delegation.models.NeighbourData;
+import org.nomad.grpc.ChannelRegistry;
 import org.nomad.grpc.management.clients.PeerClient;
 import org.nomad.grpc.management.services.callables.HandleSuperPeerLeaveCallable;
 import org.nomad.grpc.superpeerservice.VirtualPosition;
+import org.nomad.metrics.StorageMetrics;
 import org.nomad.pithos.models.MetaData;
+import org.nomad.storage.GroupObjectFilters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -57,21 +60,28 @@ public class SuperPeer {
     private final Object2ObjectOpenHashMap<String, String> groupStorageServer_peerServer = new Object2ObjectOpenHashMap<>();
     private final Config configuration;
     private final DirectoryServerClient directoryServerClient;
+    private final StorageMetrics metrics;
     private final String superPeerIp;
     private final int superPeerPort;
+    private final GroupObjectFilters.Additions objectAdditions = new GroupObjectFilters.Additions();
     private GenericGroupLedger groupLedger;
     private String groupName;
     private boolean running = false;
+    private volatile int repairBacklog = 0;
+    private long publishedFilterVersion = -1;
 
     @Autowired
-    public SuperPeer(DirectoryServerClient directoryServerClient, Config configuration) {
+    public SuperPeer(DirectoryServerClient directoryServerClient, Config configuration, StorageMetrics metrics) {
         NetworkUtility.init();
         this.groupLedger = GroupLedger.getInstance();
+        groupLedger.addChangeListener(objectAdditions);
         this.directoryServerClient = directoryServerClient;
         this.groupName = directoryServerClient.getGroupName();
         this.superPeerIp = NetworkUtility.getIP();
         this.superPeerPort = NetworkUtility.randomPort(5001, 8999);
         this.configuration = configuration;
+        this.metrics = metrics;
+        metrics.gauge(() -> repairBacklog, "nomad.repair.backlog");
     }
 
     public boolean isWithinAOI(VirtualPosition position) {
@@ -91,11 +101,11 @@ public class SuperPeer {
             return false;
         }
 
-        ManagedChannel channel = ManagedChannelBuilder.forTarget(newPeer).usePlaintext().keepAliveTime(300, TimeUnit.SECONDS).build();
-        PeerClient client = new PeerClient(channel);
-        logger.info("Adding to list of available Peers: {}", newPeer);
-
-        clients.putIfAbsent(newPeer, client);
+        if (!clients.containsKey(newPeer)) {
+            ManagedChannel channel = ChannelRegistry.getInstance().acquire(newPeer, configuration.getTransport());
+            logger.info("Adding to list of available Peers: {}", newPeer);
+            clients.put(newPeer, new PeerClient(channel));
+        }
         peerServer_groupStorageServer.putIfAbsent(newPeer, newGroupStoragePeer);
         groupStorageServer_peerServer.putIfAbsent(newGroupStoragePeer, newPeer);
 
@@ -113,7 +123,12 @@ public class SuperPeer {
         logger.debug("Group storage hostname to remove: {}", groupStorageServer);
 
         if (clients.containsKey(peerServer) && peerServer != null) {
-            clients.remove(peerServer);
+            try {
+                clients.remove(peerServer).close();
+            } catch (InterruptedException e) {
+                logger.error("Failed to close peer client: {}", peerServer);
+                Thread.currentThread().interrupt();
+            }
             if (peerServer_groupStorageServer.containsValue(groupStorageServer)) {
                 peerServer_groupStorageServer.remove(peerServer);
                 groupStorageServer_peerServer.remove(groupStorageServer);
@@ -142,11 +157,49 @@ public class SuperPeer {
             int rf = configuration.getStorage().getReplicationFactor();
             Object2ObjectOpenHashMap<String, Integer> objectRepairCount = groupLedger.objectsThatNeedRepair(rf);
             logger.info("RF: {} - Objects needing repair: {}", rf, objectRepairCount);
+            repairBacklog = objectRepairCount.size();
+            long start = System.nanoTime();
             repair(objectRepairCount);
+            metrics.recordSince(start, "nomad.repair.latency");
             busy.set(false);
         }
     }
 
+    /**
+     * Publishes a Bloom filter of the objects of this group, which lets peers of other groups answer overlay lookups
+     * for objects that no group holds without asking the DHT
+     */
+    @Scheduled(fixedRateString = "${spring.schedule.objectFilter}")
+    public void publishObjectFilter() {
+        NegativeCacheConfiguration negativeCache = configuration.getStorage().getNegativeCache();
+        if (running && negativeCache.isGroupFilters()) {
+            try {
+                long version = objectAdditions.getVersion();
+                directoryServerClient.setObjectFilter(GroupObjectFilters.encode(groupLedger.getAllGroupObjects(),
+                        negativeCache.getFalsePositiveRate(), objectAdditions.getSource(), version));
+            } catch (Exception e) {
+                logger.warn("Failed to publish the object filter: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Publishes the version the object filter of this group has to be at, whenever objects were added since the last
+     * time. Peers of other groups stop trusting an older filter once they fetched it.
+     */
+    @Scheduled(fixedRateString = "${spring.schedule.objectFilterVersion}")
+    public void publishObjectFilterVersion() {
+        long version = objectAdditions.getVersion();
+        if (running && configuration.getStorage().getNegativeCache().isGroupFilters() && version != publishedFilterVersion) {
+            try {
+                directoryServerClient.setObjectFilterVersion(GroupObjectFilters.encodeVersion(objectAdditions.getSource(), version));
+                publishedFilterVersion = version;
+            } catch (Exception e) {
+                logger.warn("Failed to publish the object filter version: {}", e.getMessage());
+            }
+        }
+    }
+
     /**
      * Sends repairObject requests to the peer client future stub
      *
@@ -160,9 +213,9 @@ public class SuperPeer {
         if (!objects.isEmpty() && !groupStoragePeerList.isEmpty()) {
             objects.forEach((objectId, count) -> {
                 ObjectList<String> narrowed = groupLedger.removePeersStoringObject(groupStoragePeerList, objectId);
-                ObjectList<String> randomPicks = pickNRandom(narrowed, count);
-                if (!randomPicks.isEmpty()) {
-                    randomPicks.forEach(peer -> {
+                ObjectList<String> picks = pickNRandom(narrowed, count);
+                if (!picks.isEmpty()) {
+                    picks.forEach(peer -> {
                         PeerClient client = clients.get(groupStorageServer_peerServer.get(peer));
                         if (client != null) {
                             peersObjectsRepairMap.put(client, objectId);
@@ -227,6 +280,10 @@ public class SuperPeer {
         }
     }
 
+    /**
+     * Repair targets are picked at random, the super-peer does not call group storage itself and so has no latency
+     * or load observations to rank them by
+     */
     protected ObjectList<String> pickNRandom(List<String> lst, int n) {
         ObjectList<String> copy = new ObjectArrayList<>(lst);
         Collections.shuffle(copy);
@@ -349,7 +406,9 @@ public class SuperPeer {
 
     public void setGroupLedger(GroupLedger groupLedger) {
         logger.info("Updating group ledger");
+        this.groupLedger.removeChangeListener(objectAdditions);
         this.groupLedger = groupLedger;
+        groupLedger.addChangeListener(objectAdditions);
     }
 
     public boolean migrationEnabled() {
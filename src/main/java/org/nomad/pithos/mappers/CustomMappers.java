@@ -1,6 +1,8 @@
 package org.nomad.pithos.mappers;
 
+import com.google.protobuf.ByteOutput;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectCollection;
@@ -8,15 +10,31 @@ import org.nomad.grpc.superpeerservice.MetaDataCollection;
 import org.nomad.grpc.superpeerservice.MultiMapPair;
 import org.nomad.pithos.models.MetaData;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 
+/**
+ * Object values are never modified once they have been created, so the mappings between gRPC and internal objects
+ * share the value arrays instead of copying them. The REST mappings still copy, the generated API model is mutable.
+ */
 public class CustomMappers {
     public static CustomMappers INSTANCE = new CustomMappers();
 
+    /**
+     * @return the array backing the {@link ByteString} if it covers all of it, as for the values parsed from a gRPC
+     * message or wrapped by {@link #byteArrayToByteString(byte[])}, a copy otherwise
+     */
     public byte[] byteStringToByteArray(ByteString bytes) {
-        return bytes.toByteArray();
+        BackingArray backingArray = new BackingArray();
+        try {
+            UnsafeByteOperations.unsafeWriteTo(bytes, backingArray);
+        } catch (IOException e) {
+            // BackingArray does not throw
+        }
+        return backingArray.get() != null ? backingArray.get() : bytes.toByteArray();
     }
 
     public byte[] copyByteArray(byte[] bytes) {
@@ -24,7 +42,7 @@ public class CustomMappers {
     }
 
     public ByteString byteArrayToByteString(byte[] bytes) {
-        return ByteString.copyFrom(bytes);
+        return UnsafeByteOperations.unsafeWrap(bytes);
     }
 
     public Object2ObjectOpenHashMap<String, org.nomad.grpc.superpeerservice.MetaDataCollection> convertToGrpcMap(Map<String, java.util.Collection<MetaData>> map) {
@@ -59,4 +77,45 @@ public class CustomMappers {
         });
         return resultList;
     }
-}
\ No newline at end of file
+
+    /**
+     * Captures the array a {@link ByteString} writes itself out of, if it is written as a single whole array
+     */
+    private static class BackingArray extends ByteOutput {
+        private byte[] array;
+        private boolean whole = true;
+
+        byte[] get() {
+            return whole ? array : null;
+        }
+
+        @Override
+        public void writeLazy(byte[] value, int offset, int length) {
+            if (array == null && offset == 0 && length == value.length) {
+                array = value;
+            } else {
+                whole = false;
+            }
+        }
+
+        @Override
+        public void write(byte value) {
+            whole = false;
+        }
+
+        @Override
+        public void write(byte[] value, int offset, int length) {
+            whole = false;
+        }
+
+        @Override
+        public void write(ByteBuffer value) {
+            whole = false;
+        }
+
+        @Override
+        public void writeLazy(ByteBuffer value) {
+            whole = false;
+        }
+    }
+}
@@ -20,5 +20,6 @@ public class GameObject implements Serializable {
     private long creationTime;
     private long lastModified;
     private long ttl;
+    // shared with the gRPC messages the object is mapped from and to, replace it rather than modifying it in place
     private byte[] value;
 }
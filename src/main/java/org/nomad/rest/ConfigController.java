@@ -44,7 +44,7 @@ public class ConfigController implements ConfigApi {
 
     @Override
     @ResponseBody
-    public ResponseEntity<Void> setRetrievalMode(@NotNull @ApiParam(value = "Storage mode used for _get_.", required = true, allowableValues = "FAST, SAFE, PARALLEL") @Valid @RequestParam(value = "retrievalMode", required = true) RetrievalMode retrievalMode) {
+    public ResponseEntity<Void> setRetrievalMode(@NotNull @ApiParam(value = "Storage mode used for _get_.", required = true, allowableValues = "FAST, SAFE, PARALLEL, HEDGED") @Valid @RequestParam(value = "retrievalMode", required = true) RetrievalMode retrievalMode) {
         logger.info("Update Retrieval-Mode request received!");
         String mode = retrievalMode.getValue().toLowerCase();
         config.getStorage().setRetrievalMode(mode);
@@ -0,0 +1,140 @@
+package org.nomad.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.nomad.config.Config;
+import org.nomad.config.ExecutorConfiguration;
+import org.nomad.config.StorageConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared fan-out executor for all storage tiers.
+ * <p>
+ * Each tier gets its own bounded pool so that a peer-storage task waiting on a group-storage fan-out can never starve
+ * the pool it is waiting on. When a pool and its queue are saturated the submitting thread runs the task itself, which
+ * throttles callers instead of dropping requests.
+ */
+@Component
+public class FanOutExecutor {
+    private final Logger logger = LoggerFactory.getLogger(FanOutExecutor.class);
+    private final Map<Tier, ThreadPoolExecutor> executors = new EnumMap<>(Tier.class);
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong rejected = new AtomicLong();
+    private final long shutdownTimeout;
+
+    @Autowired
+    public FanOutExecutor(Config configuration) {
+        StorageConfiguration storage = configuration.getStorage();
+        ExecutorConfiguration executorConfiguration = (storage == null || storage.getExecutor() == null) ? new ExecutorConfiguration() : storage.getExecutor();
+        ExecutorConfiguration defaults = new ExecutorConfiguration();
+
+        int queueCapacity = positiveOrDefault(executorConfiguration.getQueueCapacity(), defaults.getQueueCapacity());
+        long keepAlive = positiveOrDefault(executorConfiguration.getKeepAlive(), defaults.getKeepAlive());
+        this.shutdownTimeout = positiveOrDefault(executorConfiguration.getShutdownTimeout(), defaults.getShutdownTimeout());
+
+        executors.put(Tier.PEER, createExecutor(Tier.PEER, positiveOrDefault(executorConfiguration.getPeerConcurrency(), defaults.getPeerConcurrency()), queueCapacity, keepAlive));
+        executors.put(Tier.GROUP, createExecutor(Tier.GROUP, positiveOrDefault(executorConfiguration.getGroupConcurrency(), defaults.getGroupConcurrency()), queueCapacity, keepAlive));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("nomad-fanout-scheduler-%d").setDaemon(true).build());
+    }
+
+    private ThreadPoolExecutor createExecutor(Tier tier, int concurrency, int queueCapacity, long keepAlive) {
+        logger.debug("Creating {} fan-out executor: concurrency={}, queue={}", tier, concurrency, queueCapacity);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                concurrency,
+                concurrency,
+                keepAlive,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("nomad-" + tier.name().toLowerCase() + "-fanout-%d").setDaemon(true).build(),
+                callerRunsPolicy(tier));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private RejectedExecutionHandler callerRunsPolicy(Tier tier) {
+        ThreadPoolExecutor.CallerRunsPolicy callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+        return (runnable, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException(tier + " fan-out executor has been shut down");
+            }
+            rejected.incrementAndGet();
+            logger.debug("{} fan-out executor saturated, running task on caller thread", tier);
+            callerRuns.rejectedExecution(runnable, executor);
+        };
+    }
+
+    public ExecutorService forTier(Tier tier) {
+        return executors.get(tier);
+    }
+
+    /**
+     * Timer thread for delayed storage work such as batch flushes, scheduled tasks must be short and non-blocking
+     */
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    public int queueDepth(Tier tier) {
+        return executors.get(tier).getQueue().size();
+    }
+
+    public int activeCount(Tier tier) {
+        return executors.get(tier).getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public boolean isShutdown() {
+        return scheduler.isShutdown() && executors.values().stream().allMatch(ThreadPoolExecutor::isShutdown);
+    }
+
+    /**
+     * Stop accepting new tasks and give in-flight storage requests a chance to complete
+     */
+    public void shutdown() {
+        logger.info("Shutting down storage fan-out executors ...");
+        scheduler.shutdown();
+        executors.values().forEach(ThreadPoolExecutor::shutdown);
+        try {
+            for (Map.Entry<Tier, ThreadPoolExecutor> entry : executors.entrySet()) {
+                if (!entry.getValue().awaitTermination(shutdownTimeout, TimeUnit.SECONDS)) {
+                    logger.warn("{} fan-out executor did not terminate in time, forcing shutdown", entry.getKey());
+                    entry.getValue().shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while shutting down fan-out executors");
+            executors.values().forEach(ThreadPoolExecutor::shutdownNow);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int positiveOrDefault(int value, int fallback) {
+        return value > 0 ? value : fallback;
+    }
+
+    private static long positiveOrDefault(long value, long fallback) {
+        return value > 0 ? value : fallback;
+    }
+
+    public enum Tier {
+        PEER,
+        GROUP
+    }
+}
@@ -0,0 +1,71 @@
+package org.nomad.storage;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often keys were accessed recently.
+ * <p>
+ * Each key maps to one counter in each of four rows, packed sixteen to a long, and its frequency is the smallest of
+ * them. Once as many increments as ten times the cache size were recorded, all counters are halved so that the sketch
+ * forgets old popularity. Not thread-safe, the owning cache guards it.
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions = 0;
+
+    FrequencySketch(int maximumSize) {
+        int size = Integer.highestOneBit(Math.max(8, maximumSize - 1) << 1);
+        this.table = new long[size];
+        this.mask = size - 1;
+        this.sampleSize = 10 * Math.max(1, maximumSize);
+    }
+
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long spread = spread(hash, row);
+            frequency = Math.min(frequency, (int) ((table[index(spread)] >>> offset(spread)) & MAX_COUNT));
+        }
+        return frequency;
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long spread = spread(hash, row);
+            int index = index(spread);
+            int offset = offset(spread);
+            if (((table[index] >>> offset) & MAX_COUNT) < MAX_COUNT) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private static long spread(int hash, int row) {
+        long spread = (hash + SEEDS[row]) * SEEDS[row];
+        return spread ^ (spread >>> 32);
+    }
+
+    private int index(long spread) {
+        return (int) spread & mask;
+    }
+
+    // bit offset of one of the sixteen counters in the long
+    private static int offset(long spread) {
+        return ((int) (spread >>> 40) & 15) << 2;
+    }
+}
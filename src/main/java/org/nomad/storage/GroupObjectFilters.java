@@ -0,0 +1,209 @@
+package org.nomad.storage;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.nomad.config.NegativeCacheConfiguration;
+import org.nomad.grpc.superpeerservice.LedgerChange;
+import org.nomad.pithos.components.LedgerChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filters of the objects held by every other group, published by their super-peers through the directory server.
+ * <p>
+ * An id that is in none of the filters is not stored by any group, so an overlay lookup for it is bound to miss. Every
+ * filter carries the {@link Additions} version of its group it was taken at, and super-peers publish their current
+ * version far more often than their filter. A negative is only trusted while there is a filter for every other group,
+ * each of them is at least at the latest published version of its group, and both were refreshed within
+ * {@code filterMaxAge}: objects added since a filter was taken, or held by groups without a published filter, would
+ * otherwise be reported missing.
+ */
+public class GroupObjectFilters {
+    private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+    private final Logger logger = LoggerFactory.getLogger(GroupObjectFilters.class);
+    private final boolean enabled;
+    private final long maxAge;
+    private final LongAdder rejections = new LongAdder();
+    private static final int VERSION_BYTES = 2 * Long.BYTES;
+    // null while the filters of some group are missing
+    private volatile ObjectList<Snapshot> filters = null;
+    private volatile long updatedAt = 0;
+    private volatile Map<String, Version> versions = Collections.emptyMap();
+    private volatile long versionsUpdatedAt = 0;
+
+    public GroupObjectFilters(NegativeCacheConfiguration configuration) {
+        this.enabled = configuration.isGroupFilters();
+        this.maxAge = configuration.getFilterMaxAge();
+    }
+
+    /**
+     * Serialised Bloom filter of the given object ids, preceded by the version they were read at. The version must be
+     * taken before the ids are read.
+     */
+    public static byte[] encode(Collection<String> objectIds, double falsePositiveRate, long source, long version) throws IOException {
+        BloomFilter<CharSequence> filter = BloomFilter.create(FUNNEL, Math.max(1, objectIds.size()), falsePositiveRate);
+        objectIds.forEach(filter::put);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(encodeVersion(source, version));
+        filter.writeTo(output);
+        return output.toByteArray();
+    }
+
+    public static byte[] encodeVersion(long source, long version) {
+        return ByteBuffer.allocate(VERSION_BYTES).putLong(source).putLong(version).array();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replace the filters with the ones currently published for each group
+     *
+     * @param published serialised filter per group, empty for a group that did not publish one yet
+     * @param ownGroup  the group of this peer, which is covered by the group ledger instead
+     */
+    public void update(Map<String, byte[]> published, String ownGroup) {
+        ObjectList<Snapshot> result = new ObjectArrayList<>();
+        for (Map.Entry<String, byte[]> entry : published.entrySet()) {
+            if (entry.getKey().equals(ownGroup)) {
+                continue;
+            }
+            byte[] data = entry.getValue();
+            if (data == null || data.length == 0) {
+                logger.debug("No object filter published for {}", entry.getKey());
+                filters = null;
+                return;
+            }
+            try {
+                if (data.length < VERSION_BYTES) {
+                    throw new IOException("Truncated object filter");
+                }
+                BloomFilter<CharSequence> filter = BloomFilter.readFrom(new ByteArrayInputStream(data, VERSION_BYTES, data.length - VERSION_BYTES), FUNNEL);
+                result.add(new Snapshot(entry.getKey(), Version.decode(data), filter));
+            } catch (IOException e) {
+                logger.warn("Invalid object filter published for {}", entry.getKey());
+                filters = null;
+                return;
+            }
+        }
+        filters = result;
+        updatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Replace the latest versions with the ones currently published for each group
+     *
+     * @param published serialised version per group, empty for a group that did not publish one yet
+     */
+    public void updateVersions(Map<String, byte[]> published) {
+        Map<String, Version> result = new Object2ObjectOpenHashMap<>();
+        published.forEach((group, data) -> {
+            if (data != null && data.length == VERSION_BYTES) {
+                result.put(group, Version.decode(data));
+            }
+        });
+        versions = result;
+        versionsUpdatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * @return true if no other group can hold the object
+     */
+    public boolean isAbsent(String key) {
+        ObjectList<Snapshot> current = filters;
+        long now = System.currentTimeMillis();
+        if (!enabled || current == null || now - updatedAt > maxAge || now - versionsUpdatedAt > maxAge) {
+            return false;
+        }
+        Map<String, Version> latest = versions;
+        for (Snapshot snapshot : current) {
+            // a filter taken before the latest additions of its group may miss them
+            if (snapshot.filter.mightContain(key) || !snapshot.version.covers(latest.get(snapshot.group))) {
+                return false;
+            }
+        }
+        rejections.increment();
+        return true;
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Counts the objects added to the ledger of a group, the version its filter is taken at. The source changes with
+     * every instance, so versions of different super-peers are never compared.
+     */
+    public static class Additions implements LedgerChangeListener {
+        private final long source = ThreadLocalRandom.current().nextLong();
+        private final AtomicLong version = new AtomicLong();
+
+        @Override
+        public void changeApplied(LedgerChange.Operation operation, LedgerChange.Target target, String key, String valueId) {
+            if (operation == LedgerChange.Operation.ADD && target == LedgerChange.Target.OBJECT_LEDGER) {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void ledgerReset() {
+            version.incrementAndGet();
+        }
+
+        public long getSource() {
+            return source;
+        }
+
+        public long getVersion() {
+            return version.get();
+        }
+    }
+
+    private static final class Version {
+        private final long source;
+        private final long version;
+
+        private Version(long source, long version) {
+            this.source = source;
+            this.version = version;
+        }
+
+        static Version decode(byte[] data) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            return new Version(buffer.getLong(), buffer.getLong());
+        }
+
+        boolean covers(Version latest) {
+            return latest != null && latest.source == source && version >= latest.version;
+        }
+    }
+
+    private static final class Snapshot {
+        private final String group;
+        private final Version version;
+        private final BloomFilter<CharSequence> filter;
+
+        private Snapshot(String group, Version version, BloomFilter<CharSequence> filter) {
+            this.group = group;
+            this.version = version;
+            this.filter = filter;
+        }
+    }
+}
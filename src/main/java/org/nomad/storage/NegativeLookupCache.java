@@ -0,0 +1,116 @@
+package org.nomad.storage;
+
+import org.nomad.config.NegativeCacheConfiguration;
+import org.nomad.grpc.superpeerservice.LedgerChange;
+import org.nomad.pithos.components.LedgerChangeListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers ids the overlay recently reported as missing, so repeated lookups of an object that does not exist yet are
+ * answered without a DHT round trip.
+ * <p>
+ * A miss is forgotten after the configured TTL, when the object is stored through this peer, or when the group ledger
+ * reports it. The oldest misses are dropped once {@code maxSize} ids are remembered.
+ */
+public class NegativeLookupCache implements LedgerChangeListener {
+    private final long ttl;
+    private final Misses misses;
+    private long hits = 0;
+    private long invalidations = 0;
+
+    public NegativeLookupCache(NegativeCacheConfiguration configuration) {
+        int maxSize = Math.max(0, configuration.getMaxSize());
+        this.ttl = TimeUnit.MILLISECONDS.toNanos(Math.max(0, configuration.getTtl()));
+        this.misses = new Misses(maxSize);
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    /**
+     * @return true if the overlay reported the id as missing less than the TTL ago
+     */
+    public synchronized boolean contains(String key) {
+        Long expiresAt = misses.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt - System.nanoTime() < 0) {
+            misses.remove(key);
+            return false;
+        }
+        hits++;
+        return true;
+    }
+
+    public synchronized void add(String key) {
+        if (isEnabled()) {
+            // re-inserted so that the insertion order stays the expiry order
+            misses.remove(key);
+            misses.put(key, System.nanoTime() + ttl);
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        if (misses.remove(key) != null) {
+            invalidations++;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations += misses.size();
+        misses.clear();
+    }
+
+    public synchronized int size() {
+        return misses.size();
+    }
+
+    /**
+     * Lookups answered from the cache, misses dropped because the object appeared, and the ids currently remembered
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("hits", hits);
+        result.put("invalidations", invalidations);
+        result.put("size", (long) misses.size());
+        return result;
+    }
+
+    /**
+     * Objects added to the group ledger exist now
+     */
+    @Override
+    public void changeApplied(LedgerChange.Operation operation, LedgerChange.Target target, String key, String valueId) {
+        if (operation == LedgerChange.Operation.ADD) {
+            invalidate(target == LedgerChange.Target.OBJECT_LEDGER ? key : valueId);
+        }
+    }
+
+    @Override
+    public void ledgerReset() {
+        invalidateAll();
+    }
+
+    /**
+     * Expiry time per missing id in insertion order, bounded to {@code maxSize} ids
+     */
+    private static final class Misses extends LinkedHashMap<String, Long> {
+        private static final long serialVersionUID = 1L;
+        private final int maxSize;
+
+        Misses(int maxSize) {
+            super(16, 0.75f, false);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package org.nomad.storage;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import org.nomad.config.CacheConfiguration;
+import org.nomad.grpc.superpeerservice.LedgerChange;
+import org.nomad.pithos.components.LedgerChangeListener;
+import org.nomad.pithos.models.GameObject;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of objects fetched from other peers, with W-TinyLFU admission.
+ * <p>
+ * New objects enter a small LRU window. Objects leaving the window compete with the least recently used object of the
+ * probation part of the main LRU and only the one a {@link FrequencySketch} deems more popular stays, so a burst of
+ * one-off reads cannot flush the hot objects. Objects read again while on probation are promoted to the protected part.
+ * <p>
+ * An object is served until its own TTL or {@code maxAge} after it was cached, whichever comes first, and is dropped
+ * when it is updated or deleted through this peer or whenever the group ledger reports a change to it.
+ */
+public class ObjectCache implements LedgerChangeListener {
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+    private static final int GENERATION_STRIPES = 1024;
+    private final int maxSize;
+    private final long maxAge;
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final Object2ObjectOpenHashMap<String, Node> data = new Object2ObjectOpenHashMap<>();
+    private final Queue window = new Queue();
+    private final Queue probation = new Queue();
+    private final Queue protectedQueue = new Queue();
+    private final FrequencySketch sketch;
+    // bumped by every invalidation of a key hashing to the stripe
+    private final long[] generations = new long[GENERATION_STRIPES];
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+    private long invalidations = 0;
+
+    public ObjectCache(CacheConfiguration configuration) {
+        this.maxSize = Math.max(0, configuration.getMaxSize());
+        this.maxAge = configuration.getMaxAge();
+        this.windowCapacity = Math.max(1, maxSize / 100);
+        this.protectedCapacity = (int) ((maxSize - windowCapacity) * 0.8);
+        this.sketch = new FrequencySketch(maxSize);
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * @return a copy of the cached object sharing its value, or {@code null} if it is not cached or expired
+     */
+    public synchronized GameObject get(String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        int hash = hash(key);
+        sketch.increment(hash);
+        Node node = data.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        if (node.expiresAt < Instant.now().getEpochSecond()) {
+            remove(node);
+            expirations++;
+            misses++;
+            return null;
+        }
+
+        hits++;
+        onAccess(node);
+        return copy(node.object);
+    }
+
+    /**
+     * Invalidation generation of the key, to be read before fetching the object that is then passed to
+     * {@link #put(GameObject, long)}
+     */
+    public synchronized long generation(String key) {
+        return generations[stripe(hash(key))];
+    }
+
+    public synchronized void put(GameObject object) {
+        if (object != null && object.getId() != null) {
+            put(object, generation(object.getId()));
+        }
+    }
+
+    /**
+     * Caches a copy of the object sharing its value, an object whose TTL already passed is not cached and drops any cached copy. An
+     * object older than the cached copy is ignored, as is one fetched before the key was last invalidated, so a read
+     * that raced with an update cannot bring back the old value.
+     *
+     * @param generation the {@link #generation(String)} of the key read before the object was fetched
+     */
+    public synchronized void put(GameObject object, long generation) {
+        if (!isEnabled() || object == null || object.getId() == null) {
+            return;
+        }
+        int hash = hash(object.getId());
+        if (generations[stripe(hash)] != generation) {
+            return;
+        }
+
+        long now = Instant.now().getEpochSecond();
+        long expiresAt = Math.min(object.getTtl(), now + maxAge);
+        Node node = data.get(object.getId());
+        if (expiresAt < now) {
+            if (node != null) {
+                remove(node);
+                expirations++;
+            }
+            return;
+        }
+
+        if (node != null) {
+            if (object.getLastModified() < node.object.getLastModified()) {
+                return;
+            }
+            node.object = copy(object);
+            node.expiresAt = expiresAt;
+            onAccess(node);
+            return;
+        }
+
+        node = new Node(object.getId(), hash, copy(object), expiresAt);
+        data.put(node.key, node);
+        node.queue = WINDOW;
+        window.addLast(node);
+        if (window.size > windowCapacity) {
+            Node candidate = window.first();
+            window.remove(candidate);
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+            if (data.size() > maxSize) {
+                evict(candidate);
+            }
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        generations[stripe(hash(key))]++;
+        Node node = data.get(key);
+        if (node != null) {
+            remove(node);
+            invalidations++;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        for (int i = 0; i < generations.length; i++) {
+            generations[i]++;
+        }
+        invalidations += data.size();
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+    }
+
+    public synchronized int size() {
+        return data.size();
+    }
+
+    /**
+     * Hit, miss, eviction, expiration and invalidation counts since start-up and the current number of objects
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("hits", hits);
+        result.put("misses", misses);
+        result.put("evictions", evictions);
+        result.put("expirations", expirations);
+        result.put("invalidations", invalidations);
+        result.put("size", (long) data.size());
+        return result;
+    }
+
+    /**
+     * Drops objects the group ledger reports as added, removed or updated by any peer
+     */
+    @Override
+    public void changeApplied(LedgerChange.Operation operation, LedgerChange.Target target, String key, String valueId) {
+        boolean objectLedger = target == LedgerChange.Target.OBJECT_LEDGER;
+        switch (operation) {
+            case ADD:
+            case REMOVE:
+                invalidate(objectLedger ? key : valueId);
+                break;
+            case REMOVE_KEY:
+                if (objectLedger) {
+                    invalidate(key);
+                }
+                break;
+            case REMOVE_VALUE_ID:
+                if (!objectLedger) {
+                    invalidate(valueId);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void ledgerReset() {
+        invalidateAll();
+    }
+
+    /**
+     * The candidate just left the window and competes with the probation victim, the less frequent one is evicted
+     */
+    private void evict(Node candidate) {
+        Node victim = probation.first();
+        boolean admit = victim != candidate && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash);
+        remove(admit ? victim : candidate);
+        evictions++;
+    }
+
+    private void onAccess(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                if (protectedQueue.size > protectedCapacity) {
+                    Node demoted = protectedQueue.first();
+                    protectedQueue.remove(demoted);
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            default:
+                protectedQueue.moveToLast(node);
+                break;
+        }
+    }
+
+    private void remove(Node node) {
+        data.remove(node.key);
+        queueOf(node).remove(node);
+    }
+
+    private Queue queueOf(Node node) {
+        return node.queue == WINDOW ? window : node.queue == PROBATION ? probation : protectedQueue;
+    }
+
+    private static int hash(String key) {
+        return HashCommon.mix(key.hashCode());
+    }
+
+    private static int stripe(int hash) {
+        return hash & (GENERATION_STRIPES - 1);
+    }
+
+    // callers may change the id, TTL and timestamps of the objects they pass in or get back, values are never
+    // modified in place so the value array is shared
+    static GameObject copy(GameObject object) {
+        return GameObject.builder()
+                .id(object.getId())
+                .creationTime(object.getCreationTime())
+                .lastModified(object.getLastModified())
+                .ttl(object.getTtl())
+                .value(object.getValue())
+                .build();
+    }
+
+    private static final class Node {
+        private final String key;
+        private final int hash;
+        private GameObject object;
+        private long expiresAt;
+        private byte queue;
+        private Node previous;
+        private Node next;
+
+        private Node(String key, int hash, GameObject object, long expiresAt) {
+            this.key = key;
+            this.hash = hash;
+            this.object = object;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Doubly linked LRU list, least recently used first
+     */
+    private static final class Queue {
+        private final Node head = new Node(null, 0, null, 0);
+        private int size = 0;
+
+        private Queue() {
+            head.previous = head;
+            head.next = head;
+        }
+
+        private Node first() {
+            return head.next;
+        }
+
+        private void addLast(Node node) {
+            node.previous = head.previous;
+            node.next = head;
+            head.previous.next = node;
+            head.previous = node;
+            size++;
+        }
+
+        private void remove(Node node) {
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            node.previous = null;
+            node.next = null;
+            size--;
+        }
+
+        private void moveToLast(Node node) {
+            remove(node);
+            addLast(node);
+        }
+
+        private void clear() {
+            head.previous = head;
+            head.next = head;
+            size = 0;
+        }
+    }
+}
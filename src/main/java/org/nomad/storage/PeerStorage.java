@@ -5,8 +5,14 @@ import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import lombok.Data;
+import lombok.Value;
+import org.nomad.config.CacheConfiguration;
 import org.nomad.config.Config;
+import org.nomad.config.NegativeCacheConfiguration;
 import org.nomad.grpc.management.clients.SuperPeerClient;
+import org.nomad.grpc.GrpcTransport;
+import org.nomad.metrics.Histogram;
+import org.nomad.metrics.StorageMetrics;
 import org.nomad.pithos.components.GenericGroupLedger;
 import org.nomad.pithos.components.GroupLedger;
 import org.nomad.pithos.models.GameObject;
@@ -31,7 +37,6 @@ import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -45,23 +50,75 @@ public class PeerStorage {
     private final DHTOverlayStorage dhtOverlayStorage;
     private final GroupStorage groupStorage;
     private final Config configuration;
+    private final FanOutExecutor fanOutExecutor;
+    private final StorageMetrics metrics;
+    private final ObjectCache objectCache;
+    private final NegativeLookupCache negativeLookups;
+    private final GroupObjectFilters groupObjectFilters;
+    private final SingleFlight<RemoteGet, GameObject> remoteGets = new SingleFlight<>(ObjectCache::copy);
     private GenericGroupLedger groupLedger;
     private String RETRIEVAL_MODE;
     private String STORAGE_MODE;
+    private String LOCAL_MODE;
+    private final StorageMetrics.PerOperation<Histogram> overlayLatency;
+    private volatile StorageMetrics.PerOperation<Histogram> peerLatency;
+    private volatile StorageMetrics.PerOperation<Histogram> localLatency;
     private int overlayPort;
     private boolean initialized = false;
 
     @Autowired
-    public PeerStorage(LocalStorage localStorage, DHTOverlayStorage dhtOverlayStorage, GroupStorage groupStorage, Config configuration) {
+    public PeerStorage(LocalStorage localStorage, DHTOverlayStorage dhtOverlayStorage, GroupStorage groupStorage, Config configuration, FanOutExecutor fanOutExecutor, StorageMetrics metrics) {
         this.authoritativeObjectStore = localStorage;
         this.dhtOverlayStorage = dhtOverlayStorage;
         this.groupStorage = groupStorage;
         this.groupLedger = GroupLedger.getInstance();
         this.configuration = configuration;
+        this.fanOutExecutor = fanOutExecutor;
+        this.metrics = metrics;
+        CacheConfiguration cache = (configuration.getStorage() == null || configuration.getStorage().getCache() == null) ? new CacheConfiguration() : configuration.getStorage().getCache();
+        this.objectCache = new ObjectCache(cache);
+        NegativeCacheConfiguration negativeCache = (configuration.getStorage() == null || configuration.getStorage().getNegativeCache() == null) ? new NegativeCacheConfiguration() : configuration.getStorage().getNegativeCache();
+        this.negativeLookups = new NegativeLookupCache(negativeCache);
+        this.groupObjectFilters = new GroupObjectFilters(negativeCache);
+        groupLedger.addChangeListener(objectCache);
+        groupLedger.addChangeListener(negativeLookups);
+        this.overlayLatency = new StorageMetrics.PerOperation<>(operation -> metrics.timer(StorageMetrics.LATENCY, "tier", "overlay", "operation", operation.tag(), "mode", "dht"));
+        updateLatencyMeters();
+        registerGauges();
+    }
+
+    /**
+     * The peer and local latencies are tagged with the configured modes, their meters are replaced when a mode changes
+     */
+    private void updateLatencyMeters() {
+        String retrievalMode = RETRIEVAL_MODE;
+        String storageMode = STORAGE_MODE;
+        String localMode = LOCAL_MODE;
+        peerLatency = new StorageMetrics.PerOperation<>(operation -> metrics.timer(StorageMetrics.LATENCY, "tier", "peer", "operation", operation.tag(), "mode",
+                operation == StorageMetrics.Operation.GET ? retrievalMode : operation == StorageMetrics.Operation.PUT ? storageMode : "safe"));
+        localLatency = new StorageMetrics.PerOperation<>(operation -> metrics.timer(StorageMetrics.LATENCY, "tier", "local", "operation", operation.tag(), "mode", localMode));
+    }
+
+    private void registerGauges() {
+        metrics.gauge(() -> groupLedger.getObjectLedger().size(), "nomad.ledger.size", "ledger", "object");
+        metrics.gauge(() -> groupLedger.getPeerLedger().size(), "nomad.ledger.size", "ledger", "peer");
+        metrics.gauge(objectCache::size, "nomad.cache.size", "cache", "object");
+        metrics.gauge(negativeLookups::size, "nomad.cache.size", "cache", "negative");
+        metrics.gauge(remoteGets::inFlight, "nomad.storage.coalesced.inflight");
+        for (FanOutExecutor.Tier tier : FanOutExecutor.Tier.values()) {
+            metrics.gauge(() -> fanOutExecutor.queueDepth(tier), "nomad.executor.queue", "tier", tier.name().toLowerCase());
+            metrics.gauge(() -> fanOutExecutor.activeCount(tier), "nomad.executor.active", "tier", tier.name().toLowerCase());
+        }
+        metrics.gauge(fanOutExecutor::getRejectedCount, "nomad.executor.rejected");
+        metrics.gauge(GrpcTransport::getRejectedCalls, "nomad.grpc.rejected");
     }
 
     protected void setGroupLedger(GroupLedger ledger) {
+        groupLedger.removeChangeListener(objectCache);
+        groupLedger.removeChangeListener(negativeLookups);
         groupLedger = ledger;
+        groupLedger.addChangeListener(objectCache);
+        groupLedger.addChangeListener(negativeLookups);
     }
 
     /**
@@ -79,6 +136,8 @@ public class PeerStorage {
         initialized = true;
         RETRIEVAL_MODE = configuration.getStorage().getRetrievalMode();
         STORAGE_MODE = configuration.getStorage().getStorageMode();
+        LOCAL_MODE = configuration.getStorage().getMode();
+        updateLatencyMeters();
     }
 
     public void updateGroupStorageSuperPeerClient(SuperPeerClient superPeerClient) {
@@ -102,91 +161,133 @@ public class PeerStorage {
         groupStorage.notifyAllPeersRemovePeerFromGroupLedger();
     }
 
+    /**
+     * Objects fetched from group or overlay storage are cached, see {@link ObjectCache}. Concurrent misses for the same
+     * object share one remote fetch and all receive its result or failure.
+     */
     public GameObject get(String key, boolean groupStorageEnabled, boolean overlayStorageEnabled) throws NoSuchElementException, InterruptedException {
-        GameObject resultObject;
+        return metrics.timed(() -> lookup(key, groupStorageEnabled, overlayStorageEnabled), peerLatency.get(StorageMetrics.Operation.GET));
+    }
+
+    private GameObject lookup(String key, boolean groupStorageEnabled, boolean overlayStorageEnabled) throws NoSuchElementException, InterruptedException {
+        GameObject resultObject = objectCache.get(key);
+        if (resultObject != null) {
+            logger.debug("found in cache");
+            return resultObject;
+        }
+        // read before any remote fetch, an update invalidating the key meanwhile keeps the fetched object out of the cache
+        long generation = objectCache.generation(key);
 
         if (groupLedger.objectLedgerContainsKey(key)) {
             logger.debug("found in group-ledger");
             try {
-                resultObject = authoritativeObjectStore.get(key);
+                resultObject = local(StorageMetrics.Operation.GET, () -> authoritativeObjectStore.get(key));
                 return resultObject;
             } catch (NoSuchElementException e) {
                 logger.debug("Key: {} not found locally, checking group & overlay storage", key);
+                return remoteGets.execute(new RemoteGet(key, groupStorageEnabled, overlayStorageEnabled), () -> getFromGroupOrOverlay(key, generation, groupStorageEnabled, overlayStorageEnabled));
+            }
+        } else if (overlayStorageEnabled) {
+            if (negativeLookups.contains(key) || groupObjectFilters.isAbsent(key)) {
+                logger.debug("{} known to be missing, skipping overlay call", key);
+                throw new NoSuchElementException();
+            }
+            return remoteGets.execute(new RemoteGet(key, false, true), () -> getFromOverlay(key, generation));
+        }
+        throw new NoSuchElementException();
+    }
 
-                ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-                ObjectOpenHashSet<Callable<GameObject>> callable = new ObjectOpenHashSet<>();
+    private GameObject getFromGroupOrOverlay(String key, long generation, boolean groupStorageEnabled, boolean overlayStorageEnabled) throws InterruptedException {
+        ExecutorService executorService = fanOutExecutor.forTier(FanOutExecutor.Tier.PEER);
+        ObjectOpenHashSet<Callable<GameObject>> callable = new ObjectOpenHashSet<>();
 
-                if (overlayStorageEnabled) {
-                    callable.add(() -> dhtOverlayStorage.get(key));
-                }
+        if (overlayStorageEnabled) {
+            callable.add(() -> overlay(StorageMetrics.Operation.GET, () -> dhtOverlayStorage.get(key)));
+        }
 
-                if (groupStorageEnabled) {
-                    switch (RETRIEVAL_MODE) {
-                        case "fast": {
-                            callable.add(() -> groupStorage.fastGet(key));
-                            try {
-                                resultObject = executorService.invokeAny(callable, 2500, TimeUnit.MILLISECONDS);
-                                executorService.shutdown();
-                                return resultObject;
-                            } catch (InterruptedException | TimeoutException | ExecutionException ex) {
-                                logger.warn("{} Not found!", key);
-                                logger.warn(ex.getMessage());
-                                executorService.shutdownNow();
-                                throw new NoSuchElementException();
-                            }
-                        }
-                        case "parallel": {
-                            callable.add(() -> groupStorage.parallelGet(key));
-                            try {
-                                resultObject = executorService.invokeAny(callable, 2500, TimeUnit.MILLISECONDS);
-                                executorService.shutdown();
-                                return resultObject;
-                            } catch (InterruptedException | TimeoutException | ExecutionException ex) {
-                                logger.warn("{} Not found!", key);
-                                logger.warn(ex.getMessage());
-                                executorService.shutdownNow();
-                                throw new NoSuchElementException();
-                            }
-                        }
-                        case "safe": {
-                            callable.add(() -> groupStorage.safeGet(key));
-                            ObjectList<Future<GameObject>> futures = new ObjectArrayList<>(executorService.invokeAll(callable, 2500, TimeUnit.MILLISECONDS));
-                            executorService.shutdown();
-                            resultObject = finalQuorum(futures);
-                            if (resultObject != null) {
-                                return resultObject;
-                            }
-                            throw new NoSuchElementException();
-                        }
-                    }
-                } else {
-                    logger.warn("Group-Storage is disabled!");
-                    try {
-                        resultObject = executorService.invokeAny(callable, 2500, TimeUnit.MILLISECONDS);
-                        executorService.shutdown();
-                        return resultObject;
-                    } catch (InterruptedException | TimeoutException | ExecutionException ex) {
-                        logger.warn("{} Not found!", key);
-                        logger.warn(ex.getMessage());
-                        executorService.shutdownNow();
-                        throw new NoSuchElementException();
-                    }
+        if (!groupStorageEnabled) {
+            logger.warn("Group-Storage is disabled!");
+            return firstResult(key, generation, executorService, callable);
+        }
+        switch (RETRIEVAL_MODE) {
+            case "fast":
+                callable.add(() -> groupStorage.fastGet(key));
+                return firstResult(key, generation, executorService, callable);
+            case "parallel":
+                callable.add(() -> groupStorage.parallelGet(key));
+                return firstResult(key, generation, executorService, callable);
+            case "hedged":
+                callable.add(() -> groupStorage.hedgedGet(key));
+                return firstResult(key, generation, executorService, callable);
+            case "safe": {
+                callable.add(() -> groupStorage.safeGet(key));
+                ObjectList<Future<GameObject>> futures = new ObjectArrayList<>(executorService.invokeAll(callable, 2500, TimeUnit.MILLISECONDS));
+                GameObject resultObject = finalQuorum(futures);
+                if (resultObject != null) {
+                    return cached(resultObject, generation);
                 }
-            }
-        } else if (overlayStorageEnabled) {
-            logger.debug("Not found in group-ledger, executing Overlay call");
-            try {
-                resultObject = dhtOverlayStorage.get(key);
-                return resultObject;
-            } catch (ClassNotFoundException | NoSuchElementException | IOException | InterruptedException e) {
-                logger.debug("{} Not found in overlay!", key);
                 throw new NoSuchElementException();
             }
+            default:
+                throw new NoSuchElementException();
         }
-        throw new NoSuchElementException();
+    }
+
+    /**
+     * First object returned by group or overlay storage, the remaining lookups are cancelled
+     */
+    private GameObject firstResult(String key, long generation, ExecutorService executorService, ObjectOpenHashSet<Callable<GameObject>> callable) {
+        try {
+            return cached(executorService.invokeAny(callable, 2500, TimeUnit.MILLISECONDS), generation);
+        } catch (InterruptedException | TimeoutException | ExecutionException ex) {
+            logger.warn("{} Not found!", key);
+            logger.warn(ex.getMessage());
+            throw new NoSuchElementException();
+        }
+    }
+
+    private GameObject getFromOverlay(String key, long generation) {
+        GameObject resultObject;
+        logger.debug("Not found in group-ledger, executing Overlay call");
+        long start = System.nanoTime();
+        try {
+            resultObject = dhtOverlayStorage.get(key);
+            return cached(resultObject, generation);
+        } catch (NoSuchElementException e) {
+            logger.debug("{} Not found in overlay!", key);
+            negativeLookups.add(key);
+            throw new NoSuchElementException();
+        } catch (ClassNotFoundException | IOException | InterruptedException e) {
+            logger.debug("{} Not found in overlay!", key);
+            throw new NoSuchElementException();
+        } finally {
+            overlayLatency.get(StorageMetrics.Operation.GET).record(System.nanoTime() - start);
+        }
+    }
+
+    private <T, E extends Exception> T local(StorageMetrics.Operation operation, StorageMetrics.Call<T, E> call) throws E {
+        return metrics.timed(call, localLatency.get(operation));
+    }
+
+    private <T, E extends Exception> T overlay(StorageMetrics.Operation operation, StorageMetrics.Call<T, E> call) throws E {
+        return metrics.timed(call, overlayLatency.get(operation));
+    }
+
+    private GameObject cached(GameObject object, long generation) {
+        objectCache.put(object, generation);
+        return object;
     }
 
     public boolean put(GameObject object, boolean groupStorageEnabled, boolean overlayStorageEnabled) throws DuplicateKeyException, InterruptedException, IOException {
+        long start = System.nanoTime();
+        try {
+            return store(object, groupStorageEnabled, overlayStorageEnabled);
+        } finally {
+            peerLatency.get(StorageMetrics.Operation.PUT).record(System.nanoTime() - start);
+        }
+    }
+
+    private boolean store(GameObject object, boolean groupStorageEnabled, boolean overlayStorageEnabled) throws DuplicateKeyException, InterruptedException, IOException {
         if (groupLedger.thisPeerContainsObject(configuration.getNetworkHostnames().getGroupStorageServer(), object.getId())) {
             throw new DuplicateKeyException("Object with id: " + object.getId() + " already exists!");
         }
@@ -194,18 +295,19 @@ public class PeerStorage {
         if (object.getLastModified() == 0) {
             object.setLastModified(object.getCreationTime());
         }
+        negativeLookups.invalidate(object.getId());
 
-        boolean localPut = authoritativeObjectStore.put(object);
+        boolean localPut = local(StorageMetrics.Operation.PUT, () -> authoritativeObjectStore.put(object));
 
         if (localPut) {
             groupStorage.notifyAllPeersObjectAdded(object.getId(), object.getTtl());
 
-            ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            ExecutorService executorService = fanOutExecutor.forTier(FanOutExecutor.Tier.PEER);
             ObjectOpenHashSet<Callable<Boolean>> callable = new ObjectOpenHashSet<>();
 
             if (overlayStorageEnabled) {
                 // ensure that at least at group level the object isn't stored in overlay more than once
-                callable.add(() -> dhtOverlayStorage.put(object));
+                callable.add(() -> overlay(StorageMetrics.Operation.PUT, () -> dhtOverlayStorage.put(object)));
             } else {
                 logger.warn("Not adding to overlay!");
             }
@@ -216,7 +318,6 @@ public class PeerStorage {
                         callable.add(() -> groupStorage.fastPut(object));
                         try {
                             boolean result = executorService.invokeAny(callable, 2500, TimeUnit.MILLISECONDS);
-                            executorService.shutdown();
                             return result;
                         } catch (ExecutionException e) {
                             logger.error("Put failed");
@@ -230,7 +331,6 @@ public class PeerStorage {
                     default: {
                         callable.add(() -> groupStorage.safePut(object));
                         ObjectList<Future<Boolean>> futures = new ObjectArrayList<>(executorService.invokeAll(callable, 2500, TimeUnit.MILLISECONDS));
-                        executorService.shutdown();
                         boolean allSuccess = allRequestsSucceeded(futures);
 
                         if (allSuccess) {
@@ -245,7 +345,6 @@ public class PeerStorage {
                 logger.warn("Group-Storage is disabled!");
                 try {
                     boolean result = executorService.invokeAny(callable, 2500, TimeUnit.MILLISECONDS);
-                    executorService.shutdown();
                     return result;
                 } catch (ExecutionException e) {
                     logger.error("Put failed");
@@ -261,23 +360,32 @@ public class PeerStorage {
     }
 
     public boolean update(GameObject object) throws InterruptedException, NoSuchElementException {
+        return metrics.timed(() -> replace(object), peerLatency.get(StorageMetrics.Operation.UPDATE));
+    }
+
+    private boolean replace(GameObject object) throws InterruptedException, NoSuchElementException {
         boolean isPut = !groupLedger.objectLedgerContainsKey(object.getId());
+        objectCache.invalidate(object.getId());
+        negativeLookups.invalidate(object.getId());
 
         if (object.getLastModified() == 0) {
             object.setLastModified(Instant.now().getEpochSecond());
         }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        ExecutorService executorService = fanOutExecutor.forTier(FanOutExecutor.Tier.PEER);
         ObjectOpenHashSet<Callable<Boolean>> callable = new ObjectOpenHashSet<>();
 
-        callable.add(() -> authoritativeObjectStore.update(object));
+        callable.add(() -> local(StorageMetrics.Operation.UPDATE, () -> authoritativeObjectStore.update(object)));
         callable.add(() -> groupStorage.safeUpdate(object));
-        callable.add(() -> dhtOverlayStorage.update(object));
+        callable.add(() -> overlay(StorageMetrics.Operation.UPDATE, () -> dhtOverlayStorage.update(object)));
 
         ObjectList<Future<Boolean>> futures = new ObjectArrayList<>(executorService.invokeAll(callable, 2500, TimeUnit.MILLISECONDS));
-        executorService.shutdown();
 
         boolean allSuccess = allRequestsSucceeded(futures);
+        // a get that read a replica before the write started may still cache the previous version, invalidating
+        // again after the write keeps it out
+        objectCache.invalidate(object.getId());
+        negativeLookups.invalidate(object.getId());
 
         if (allSuccess || isPut) {
             // only notify peer if the object was indeed added
@@ -365,15 +473,15 @@ public class PeerStorage {
 
     // TODO do I need this?
     public boolean delete(String key) throws NoSuchElementException, InterruptedException {
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        objectCache.invalidate(key);
+        ExecutorService executorService = fanOutExecutor.forTier(FanOutExecutor.Tier.PEER);
         ObjectOpenHashSet<Callable<Boolean>> callable = new ObjectOpenHashSet<>();
 
-        Boolean localDelete = callable.add(() -> authoritativeObjectStore.delete(key));
+        Boolean localDelete = callable.add(() -> local(StorageMetrics.Operation.DELETE, () -> authoritativeObjectStore.delete(key)));
         Boolean groupDelete = callable.add(() -> groupStorage.safeDelete(key));
-        Boolean overlayDelete = callable.add(() -> dhtOverlayStorage.delete(key));
+        Boolean overlayDelete = callable.add(() -> overlay(StorageMetrics.Operation.DELETE, () -> dhtOverlayStorage.delete(key)));
 
         executorService.invokeAll(callable, 2500, TimeUnit.MILLISECONDS);
-        executorService.shutdown();
 
         // TODO: notify peers and super Peer that an object was added
 
@@ -384,7 +492,7 @@ public class PeerStorage {
     public boolean localPut(GameObject object) throws InterruptedException {
         String objectId = object.getId();
         if (!groupLedger.thisPeerContainsObject(configuration.getNetworkHostnames().getGroupStorageServer(), objectId)) {
-            boolean result = authoritativeObjectStore.put(object);
+            boolean result = local(StorageMetrics.Operation.PUT, () -> authoritativeObjectStore.put(object));
             if (result) {
                 groupStorage.notifyAllPeersObjectAdded(objectId, object.getTtl());
             }
@@ -400,11 +508,13 @@ public class PeerStorage {
     public void setRetrievalMode(String retrievalMode) {
         logger.info("Retrieval mode updated: {}", retrievalMode);
         this.RETRIEVAL_MODE = retrievalMode;
+        updateLatencyMeters();
     }
 
     public void setStorageMode(String storageMode) {
         logger.info("Storage mode updated: {}", storageMode);
         this.STORAGE_MODE = storageMode;
+        updateLatencyMeters();
     }
 
     public void setRF() {
@@ -415,4 +525,34 @@ public class PeerStorage {
     public void truncateAuthoritativeObjectStore() {
         authoritativeObjectStore.truncate();
     }
+
+    public Map<String, Long> getCacheStatistics() {
+        return objectCache.getStatistics();
+    }
+
+    /**
+     * Remote fetches started and gets that shared a fetch already in flight
+     */
+    public Map<String, Long> getCoalescingStatistics() {
+        return remoteGets.getStatistics();
+    }
+
+    /**
+     * Overlay lookups answered by the negative cache and by the object filters of the other groups
+     */
+    public Map<String, Long> getNegativeCacheStatistics() {
+        Map<String, Long> result = negativeLookups.getStatistics();
+        result.put("filterRejections", groupObjectFilters.getRejections());
+        return result;
+    }
+
+    /**
+     * Misses are only shared between gets that would query the same storage tiers
+     */
+    @Value
+    private static class RemoteGet {
+        String key;
+        boolean groupStorageEnabled;
+        boolean overlayStorageEnabled;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package org.nomad.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lets concurrent callers asking for the same key share one load.
+ * <p>
+ * The first caller runs the load on its own thread, callers arriving while it is in flight wait for it and receive its
+ * result or its failure. Waiters get the result through {@code share}, so callers that modify it do not affect each
+ * other. Nothing is kept once the load completed.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> share;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(UnaryOperator<V> share) {
+        this.share = share;
+    }
+
+    /**
+     * @throws InterruptedException if this caller was interrupted, waiters of an interrupted load fail with
+     *                              {@link NoSuchElementException}
+     */
+    public V execute(K key, Loader<V> loader) throws InterruptedException {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.load();
+            // waiters copy from a snapshot, the caller may already modify the value it got back
+            load.complete(value == null ? null : share.apply(value));
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } catch (InterruptedException e) {
+            load.completeExceptionally(new NoSuchElementException());
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Loads started and callers that shared a load started by another caller since start-up
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("loads", loads.sum());
+        result.put("coalesced", coalesced.sum());
+        return result;
+    }
+
+    private V await(CompletableFuture<V> load) throws InterruptedException {
+        try {
+            V value = load.get();
+            return value == null ? null : share.apply(value);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new NoSuchElementException();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws InterruptedException;
+    }
+}
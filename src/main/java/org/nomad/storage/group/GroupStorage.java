@@ -1,20 +1,28 @@
 package org.nomad.storage.group;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectList;
 import it.unimi.dsi.fastutil.objects.ObjectLists;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.nomad.config.BatchConfiguration;
 import org.nomad.config.Config;
+import org.nomad.config.HedgeConfiguration;
+import org.nomad.grpc.ChannelRegistry;
 import org.nomad.grpc.management.clients.GroupStorageClient;
 import org.nomad.grpc.management.clients.SuperPeerClient;
 import org.nomad.grpc.management.servers.GroupStorageServer;
+import org.nomad.metrics.Histogram;
+import org.nomad.metrics.StorageMetrics;
 import org.nomad.pithos.components.GenericGroupLedger;
 import org.nomad.pithos.components.GroupLedger;
 import org.nomad.pithos.models.GameObject;
+import org.nomad.storage.FanOutExecutor;
 import org.nomad.storage.QuorumException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,14 +35,13 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Random;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 @DependsOn("ZookeeperDirectoryServerClient")
@@ -43,17 +50,44 @@ public class GroupStorage {
     private final GroupStorageServer server;
     private final Config configuration;
     private final GenericGroupLedger groupLedger;
-    private final Object2ObjectOpenHashMap<String, GroupStorageClient> clientsMap = new Object2ObjectOpenHashMap<>();
-    private final Random random = new Random();
+    private final FanOutExecutor fanOutExecutor;
+    private final LedgerNotificationPipeline notificationPipeline;
+    private final ConcurrentHashMap<String, GroupStorageClient> clientsMap = new ConcurrentHashMap<>();
+    private static final long REPLICA_TIMEOUT_SECONDS = 5;
+    private final HedgeConfiguration hedge;
+    private final ReplicaStatistics replicaStatistics;
+    private final StorageMetrics metrics;
+    private final StorageMetrics.PerOperation<Histogram> directLatency;
+    private final StorageMetrics.PerOperation<Histogram> batchedLatency;
+    private final StorageMetrics.PerOperation<LongAdder> quorumReached;
+    private final StorageMetrics.PerOperation<LongAdder> quorumFailed;
+    private final ModeMeters fast;
+    private final ModeMeters safe;
+    private final ModeMeters parallel;
+    private final ModeMeters hedged;
     private boolean initialized = false;
     private SuperPeerClient superPeerClient;
     private int replicationFactor;
 
     @Autowired
-    public GroupStorage(GroupStorageServer groupStorageServer, Config configuration) {
+    public GroupStorage(GroupStorageServer groupStorageServer, Config configuration, FanOutExecutor fanOutExecutor, LedgerNotificationPipeline notificationPipeline, ReplicaStatistics replicaStatistics, StorageMetrics metrics) {
         this.server = groupStorageServer;
         this.configuration = configuration;
         this.groupLedger = GroupLedger.getInstance();
+        this.fanOutExecutor = fanOutExecutor;
+        this.notificationPipeline = notificationPipeline;
+        this.hedge = (configuration.getStorage() == null || configuration.getStorage().getHedge() == null) ? new HedgeConfiguration() : configuration.getStorage().getHedge();
+        this.replicaStatistics = replicaStatistics;
+        this.metrics = metrics;
+        metrics.gauge(clientsMap::size, "nomad.group.members");
+        this.directLatency = new StorageMetrics.PerOperation<>(operation -> metrics.timer(StorageMetrics.LATENCY, "tier", "replica", "operation", operation.tag(), "mode", "direct"));
+        this.batchedLatency = new StorageMetrics.PerOperation<>(operation -> metrics.timer(StorageMetrics.LATENCY, "tier", "replica", "operation", operation.tag(), "mode", "batched"));
+        this.quorumReached = new StorageMetrics.PerOperation<>(operation -> metrics.counter(StorageMetrics.QUORUM, "operation", operation.tag(), "outcome", "reached"));
+        this.quorumFailed = new StorageMetrics.PerOperation<>(operation -> metrics.counter(StorageMetrics.QUORUM, "operation", operation.tag(), "outcome", "failed"));
+        this.fast = new ModeMeters(metrics, "fast");
+        this.safe = new ModeMeters(metrics, "safe");
+        this.parallel = new ModeMeters(metrics, "parallel");
+        this.hedged = new ModeMeters(metrics, "hedged");
     }
 
     /**
@@ -88,6 +122,7 @@ public class GroupStorage {
             boolean activeClient = checkHealthWithRetry(clientsMap.get(hostname));
             if (!activeClient) {
                 clientsMap.remove(hostname);
+                replicaStatistics.remove(hostname);
             }
         }
     }
@@ -123,9 +158,7 @@ public class GroupStorage {
         clients.forEach(target -> {
             if (!target.equals(server.getHost()) && !target.isEmpty() && !clientsMap.containsKey(target)) {
                 logger.debug("Adding target: {}", target);
-                ManagedChannel channel = ManagedChannelBuilder.forTarget(target).usePlaintext().keepAliveTime(300, TimeUnit.SECONDS).build();
-                GroupStorageClient client = new GroupStorageClient(channel);
-                clientsMap.put(target, client);
+                clientsMap.put(target, createClient(target));
             }
         });
     }
@@ -172,19 +205,31 @@ public class GroupStorage {
         });
 
         clientsMap.keySet().removeAll(clientsToRemove);
+        clientsToRemove.forEach(replicaStatistics::remove);
 
         clientsToAdd.forEach(clientToAdd -> {
             if (!clientToAdd.equals(server.getHost()) && !clientToAdd.isEmpty()) {
                 logger.debug("Adding target: {}", clientToAdd);
-                ManagedChannel channel = ManagedChannelBuilder.forTarget(clientToAdd).usePlaintext().keepAliveTime(300, TimeUnit.SECONDS).build();
-                GroupStorageClient client = new GroupStorageClient(channel);
-                clientsMap.put(clientToAdd, client);
+                clientsMap.put(clientToAdd, createClient(clientToAdd));
             }
         });
+        // new clients connect on creation, reconnect the retained ones that went idle
+        ChannelRegistry.getInstance().connect(clientsMap.keySet());
+        logger.debug("Group-storage connections: {}", ChannelRegistry.getInstance().states());
 
         server.updateAvailableClients(new ObjectArrayList<>(clientsMap.values()));
     }
 
+    private GroupStorageClient createClient(String target) {
+        ManagedChannel channel = ChannelRegistry.getInstance().acquire(target, configuration.getTransport());
+        GroupStorageClient client = new GroupStorageClient(channel, fanOutExecutor.forTier(FanOutExecutor.Tier.GROUP));
+        BatchConfiguration batch = configuration.getStorage().getBatch();
+        if (batch != null) {
+            client.enableBatching(fanOutExecutor.scheduler(), batch.getWindow(), batch.getMaxSize());
+        }
+        return client;
+    }
+
     public GroupStorageClient getClient(String client) {
         return clientsMap.get(client);
     }
@@ -225,40 +270,17 @@ public class GroupStorage {
      **/
     public boolean fastPut(GameObject gameObject) throws IOException {
         logger.debug("fast put");
-        boolean result;
-
         if (clientsMap.values().isEmpty()) {
             logger.warn("No additional group members...");
             return true;
         }
+        return awaitResult(fastPutAsync(gameObject), "Group put");
+    }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        ObjectList<String> clientHostnames = new ObjectArrayList<>(clientsMap.keySet());
-        Collections.shuffle(clientHostnames, random);
-        ObjectOpenHashSet<Callable<Boolean>> callable = new ObjectOpenHashSet<>();
-        int replicaCount = 0;
-
-        for (String hostname : clientHostnames) {
-            if (replicaCount < replicationFactor - 1) {
-                GroupStorageClient client = clientsMap.get(hostname);
-                callable.add(() -> client.putGameObjectFuture(gameObject));
-                replicaCount++;
-            }
-        }
-
-        try {
-            result = executorService.invokeAny(callable, 5, TimeUnit.SECONDS);
-            executorService.shutdown();
-            return result;
-        } catch (InterruptedException e) {
-            logger.error("Group put interrupted!");
-            Thread.currentThread().interrupt();
-            // e.printStackTrace();
-            return false;
-        } catch (ExecutionException | TimeoutException e) {
-//            e.printStackTrace();
-            return false;
-        }
+    public ListenableFuture<Boolean> fastPutAsync(GameObject gameObject) {
+        ObjectList<ListenableFuture<Boolean>> futures = new ObjectArrayList<>();
+        pickReplicas().forEach(hostname -> futures.add(call(hostname, StorageMetrics.Operation.PUT, client -> client.putGameObjectAsync(gameObject), true)));
+        return measured(Futures.catching(ReplicaFutures.firstSuccessful(futures, Boolean::booleanValue), NoSuchElementException.class, e -> false, MoreExecutors.directExecutor()), futures.size(), StorageMetrics.Operation.PUT, fast);
     }
 
     /**
@@ -269,53 +291,21 @@ public class GroupStorage {
      **/
     public boolean safePut(GameObject gameObject) throws IllegalStateException {
         logger.debug("safe put");
-        ObjectList<Future<Boolean>> results;
-        int successfulResults = 0;
         if (clientsMap.values().isEmpty()) {
             logger.warn("No additional group members...");
             return true;
         }
+        return awaitResult(safePutAsync(gameObject), "Group put");
+    }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        ObjectList<String> clientHostnames = new ObjectArrayList<>(clientsMap.keySet());
-        Collections.shuffle(clientHostnames, random);
-        ObjectOpenHashSet<Callable<Boolean>> callable = new ObjectOpenHashSet<>();
-        int replicaCount = 0;
-
-        for (String hostname : clientHostnames) {
-            if (replicaCount < replicationFactor - 1) {
-                GroupStorageClient client = clientsMap.get(hostname);
-                callable.add(() -> client.putGameObjectFuture(gameObject));
-                replicaCount++;
-            }
-        }
-
-        try {
-            results = new ObjectArrayList<>(executorService.invokeAll(callable, 5, TimeUnit.SECONDS));
-            executorService.shutdown();
-            logger.debug("{} replicas created.", replicaCount);
-            for (Future<Boolean> future : results) {
-                if (!future.isCancelled()) {
-                    try {
-                        if (future.get()) {
-                            // Put was successful, now add to the list
-                            successfulResults++;
-                        }
-                    } catch (ExecutionException e) {
-                        logger.error("Failed to get result", e);
-                    } catch (InterruptedException e) {
-                        logger.error("Interrupted", e);
-                        Thread.currentThread().interrupt();
-                    }
-                }
-            }
-            return quorum(successfulResults);
-        } catch (InterruptedException e) {
-            logger.error("Thread was interrupted!");
-            Thread.currentThread().interrupt();
-            // e.printStackTrace();
-            return false;
-        }
+    /**
+     * Quorum is evaluated once every replica has responded or failed
+     */
+    public ListenableFuture<Boolean> safePutAsync(GameObject gameObject) {
+        ObjectList<ListenableFuture<Boolean>> futures = new ObjectArrayList<>();
+        pickReplicas().forEach(hostname -> futures.add(call(hostname, StorageMetrics.Operation.PUT, client -> client.putGameObjectBatched(gameObject), false)));
+        logger.debug("{} replicas created.", futures.size());
+        return measured(Futures.transform(ReplicaFutures.countSuccessful(futures), successes -> countQuorum(StorageMetrics.Operation.PUT, quorum(successes)), MoreExecutors.directExecutor()), futures.size(), StorageMetrics.Operation.PUT, safe);
     }
 
     /**
@@ -325,64 +315,129 @@ public class GroupStorage {
      * @throws NoSuchElementException if no element is found
      **/
     public GameObject parallelGet(String id) throws NoSuchElementException {
-        if (clientsMap.values().isEmpty()) {
-            logger.warn("No additional group members...");
-            throw new NoSuchElementException();
-        }
-
-        GameObject resultObject;
+        return awaitGet(() -> parallelGetAsync(id));
+    }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        ObjectOpenHashSet<Callable<GameObject>> callable = new ObjectOpenHashSet<>();
-        ObjectList<String> peersThatStoreObject = groupLedger.removePeersNotStoringObject(clientsMap.keySet(), id);
-        Collections.shuffle(peersThatStoreObject, random);
+    public ListenableFuture<GameObject> parallelGetAsync(String id) {
+        ObjectList<ListenableFuture<GameObject>> futures = new ObjectArrayList<>();
+        replicasStoring(id).forEach(clientHostname -> futures.add(call(clientHostname, StorageMetrics.Operation.GET, client -> client.getGameObjectBatched(id), false)));
+        return measured(ReplicaFutures.firstSuccessful(futures), futures.size(), StorageMetrics.Operation.GET, parallel);
+    }
 
-        peersThatStoreObject.forEach(clientHostname -> {
-            GroupStorageClient client = clientsMap.get(clientHostname);
-            callable.add(() -> client.getGameObjectFuture(id));
-        });
+    /**
+     * Send out one Get command to the best ranked replica
+     *
+     * @return GameObject from one node in group storage
+     * @throws NoSuchElementException if no element is found
+     **/
+    public GameObject fastGet(String id) throws NoSuchElementException {
+        return awaitGet(() -> fastGetAsync(id));
+    }
 
-        try {
-            resultObject = executorService.invokeAny(callable, 5, TimeUnit.SECONDS);
-            executorService.shutdown();
-            logger.debug("Get result: {}", resultObject);
-            return resultObject;
-        } catch (TimeoutException | ExecutionException e) {
-            logger.error("All gets failed!");
-            executorService.shutdownNow();
-            throw new NoSuchElementException();
-        } catch (InterruptedException e) {
-            logger.warn("Gets interrupted!");
-            Thread.currentThread().interrupt();
-            throw new NoSuchElementException();
+    public ListenableFuture<GameObject> fastGetAsync(String id) {
+        ObjectList<String> peersThatStoreObject = replicaStatistics.pick(replicasStoring(id), 1);
+        if (peersThatStoreObject.isEmpty()) {
+            return Futures.immediateFailedFuture(new NoSuchElementException("No replicas available"));
         }
+        return measured(timedGet(peersThatStoreObject.get(0), id), 1, StorageMetrics.Operation.GET, fast);
     }
 
     /**
-     * Send out one Get command to a single client
+     * Send a Get command to the best ranked replica and a second one to the next one only if the first has
+     * not answered within the configured percentile of observed replica latencies
      *
      * @return GameObject from one node in group storage
      * @throws NoSuchElementException if no element is found
      **/
-    public GameObject fastGet(String id) throws NoSuchElementException {
+    public GameObject hedgedGet(String id) throws NoSuchElementException {
+        return awaitGet(() -> hedgedGetAsync(id));
+    }
+
+    /**
+     * The slower call is cancelled once the other one returns the object, a failed first call starts the second one
+     * right away
+     */
+    public ListenableFuture<GameObject> hedgedGetAsync(String id) {
+        ObjectList<String> peersThatStoreObject = replicaStatistics.rank(replicasStoring(id));
+        if (peersThatStoreObject.isEmpty()) {
+            return Futures.immediateFailedFuture(new NoSuchElementException("No replicas available"));
+        }
+
+        String primary = peersThatStoreObject.get(0);
+        if (peersThatStoreObject.size() == 1) {
+            return measured(timedGet(primary, id), 1, StorageMetrics.Operation.GET, hedged);
+        }
+        String backup = peersThatStoreObject.get(1);
+        return measured(ReplicaFutures.hedged(() -> timedGet(primary, id), () -> {
+            metrics.increment(StorageMetrics.HEDGES);
+            return timedGet(backup, id);
+        }, hedgeDelay(), TimeUnit.NANOSECONDS, fanOutExecutor.scheduler()), 1, StorageMetrics.Operation.GET, hedged);
+    }
+
+    /**
+     * Blocking form of the single-result get modes, fails right away when the peer has no group members
+     */
+    private GameObject awaitGet(Supplier<ListenableFuture<GameObject>> get) throws NoSuchElementException {
         if (clientsMap.values().isEmpty()) {
             logger.warn("No additional group members...");
             throw new NoSuchElementException();
         }
 
-        ObjectList<String> peersThatStoreObject = groupLedger.removePeersNotStoringObject(clientsMap.keySet(), id);
-        Collections.shuffle(peersThatStoreObject, random);
-        if (!peersThatStoreObject.isEmpty()) {
-            GroupStorageClient client = clientsMap.get(peersThatStoreObject.iterator().next());
-            try {
-                return client.getGameObjectFuture(id);
-            } catch (InterruptedException e) {
-                logger.warn("Gets interrupted!");
-                Thread.currentThread().interrupt();
-                throw new NoSuchElementException();
-            }
+        GameObject resultObject = awaitObject(get.get());
+        logger.debug("Get result: {}", resultObject);
+        return resultObject;
+    }
+
+    /**
+     * Group members the group ledger lists as storing the object
+     */
+    private ObjectList<String> replicasStoring(String id) {
+        return groupLedger.removePeersNotStoringObject(clientsMap.keySet(), id);
+    }
+
+    /**
+     * The configured percentile of observed replica latencies bounded by the minimum and maximum delay
+     */
+    protected long hedgeDelay() {
+        long percentile = replicaStatistics.percentile(hedge.getPercentile());
+        long maxDelay = TimeUnit.MILLISECONDS.toNanos(hedge.getMaxDelay());
+        if (percentile < 0) {
+            return maxDelay;
         }
-        throw new NoSuchElementException();
+        return Math.min(maxDelay, Math.max(TimeUnit.MILLISECONDS.toNanos(hedge.getMinDelay()), percentile));
+    }
+
+    /**
+     * Unbatched get whose response time is recorded for the replica
+     */
+    private ListenableFuture<GameObject> timedGet(String hostname, String id) {
+        return call(hostname, StorageMetrics.Operation.GET, client -> client.getGameObjectAsync(id), true);
+    }
+
+    /**
+     * Call on the replica whose outcome feeds the replica selection
+     *
+     * @param timed false for batched calls, their response time includes the batching window
+     */
+    private <T> ListenableFuture<T> call(String hostname, StorageMetrics.Operation operation, Function<GroupStorageClient, ListenableFuture<T>> call, boolean timed) {
+        GroupStorageClient client = clientsMap.get(hostname);
+        if (client == null) {
+            return Futures.immediateFailedFuture(new NoSuchElementException(hostname + " is no longer a group member"));
+        }
+        return metrics.time(replicaStatistics.track(hostname, () -> call.apply(client), timed), (timed ? directLatency : batchedLatency).get(operation));
+    }
+
+    /**
+     * Records the replicas a request was sent to and its latency once it completes
+     */
+    private <T> ListenableFuture<T> measured(ListenableFuture<T> result, int fanOut, StorageMetrics.Operation operation, ModeMeters mode) {
+        mode.fanOut.get(operation).record(fanOut);
+        return metrics.time(result, mode.latency.get(operation));
+    }
+
+    private boolean countQuorum(StorageMetrics.Operation operation, boolean reached) {
+        (reached ? quorumReached : quorumFailed).get(operation).increment();
+        return reached;
     }
 
     /**
@@ -398,51 +453,34 @@ public class GroupStorage {
             throw new NoSuchElementException();
         }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        ObjectList<Future<GameObject>> resultObjects;
-        ObjectOpenHashSet<Callable<GameObject>> callable = new ObjectOpenHashSet<>();
-        Object2ObjectOpenHashMap<GameObject, Integer> quorumMap = new Object2ObjectOpenHashMap<>();
-        ObjectList<String> peersThatStoreObject = groupLedger.removePeersNotStoringObject(clientsMap.keySet(), id);
-        Collections.shuffle(peersThatStoreObject, random);
-        int replicaCount = 0;
-        int successfulResults = 0;
-
-        for (String clientHostname : peersThatStoreObject) {
-            if (replicaCount <= replicationFactor - 1) {
-                GroupStorageClient client = clientsMap.get(clientHostname);
-                callable.add(() -> client.getGameObjectFuture(id));
-                replicaCount++;
-            }
-        }
+        return awaitObject(safeGetAsync(id));
+    }
 
-        try {
-            resultObjects = new ObjectArrayList<>(executorService.invokeAll(callable, 5, TimeUnit.SECONDS));
-            executorService.shutdown();
-            for (Future<GameObject> future : resultObjects) {
-                if (!future.isCancelled()) {
-                    try {
-                        GameObject retrievedGameObject;
-                        if (future.isDone()) {
-                            retrievedGameObject = future.get();
-                        } else {
-                            retrievedGameObject = future.get(10, TimeUnit.MILLISECONDS);
-                        }
-                        logger.debug("Get result: {}", retrievedGameObject);
-                        quorumMap.merge(retrievedGameObject, 1, Integer::sum);
-                        successfulResults++;
-
-                    } catch (ExecutionException e) {
-                        // this will happen if the peer does not store this object
-                        executorService.shutdown();
-                        logger.error("Failed to get result", e);
-                    } catch (InterruptedException e) {
-                        logger.error("Interrupted", e);
-                        executorService.shutdown();
-                        Thread.currentThread().interrupt();
-                    }
+    /**
+     * The most common response is picked once every replica has responded or failed, the future fails with
+     * {@link QuorumException} if it was not returned by a quorum of replicas
+     */
+    public ListenableFuture<GameObject> safeGetAsync(String id) {
+        ObjectList<ListenableFuture<GameObject>> futures = new ObjectArrayList<>();
+        ObjectList<String> peersThatStoreObject = replicaStatistics.pick(replicasStoring(id), replicationFactor);
+        peersThatStoreObject.forEach(clientHostname -> futures.add(timedGet(clientHostname, id)));
+
+        return measured(Futures.transform(Futures.successfulAsList(futures), results -> {
+            Object2ObjectOpenHashMap<GameObject, Integer> quorumMap = new Object2ObjectOpenHashMap<>();
+            int successfulResults = 0;
+            for (GameObject retrievedGameObject : results) {
+                if (retrievedGameObject != null) {
+                    logger.debug("Get result: {}", retrievedGameObject);
+                    quorumMap.merge(retrievedGameObject, 1, Integer::sum);
+                    successfulResults++;
                 }
             }
 
+            if (quorumMap.isEmpty()) {
+                logger.error("All gets failed!");
+                throw new NoSuchElementException();
+            }
+
             Map.Entry<GameObject, Integer> max = Collections.max(quorumMap.entrySet(), Comparator.comparingInt(Map.Entry::getValue));
             GameObject finalResult = max.getKey();
             int consistentResults = max.getValue();
@@ -450,17 +488,12 @@ public class GroupStorage {
             logger.debug("{}/{} successful results were consistent", consistentResults, successfulResults);
             logger.debug("Get result: {}", finalResult);
 
-            if (!quorum(consistentResults)) {
+            if (!countQuorum(StorageMetrics.Operation.GET, quorum(consistentResults))) {
                 logger.error("Quorum was not reached!");
                 throw new QuorumException();
             }
             return finalResult;
-
-        } catch (InterruptedException | TimeoutException e) {
-            logger.error("All gets failed!");
-            executorService.shutdownNow();
-            throw new NoSuchElementException();
-        }
+        }, MoreExecutors.directExecutor()), futures.size(), StorageMetrics.Operation.GET, safe);
     }
 
     /**
@@ -470,54 +503,19 @@ public class GroupStorage {
      * false one request failed
      **/
     public boolean safeUpdate(GameObject gameObject) throws IOException {
-        logger.debug("safe put");
-        ObjectList<Future<Boolean>> results;
-        int successfulResults = 0;
+        logger.debug("safe update");
         if (clientsMap.values().isEmpty()) {
             logger.warn("No additional group members...");
             return true;
         }
+        return awaitResult(safeUpdateAsync(gameObject), "Group update");
+    }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        ObjectList<String> clientHostnames = new ObjectArrayList<>(clientsMap.keySet());
-        Collections.shuffle(clientHostnames, random);
-        ObjectOpenHashSet<Callable<Boolean>> callable = new ObjectOpenHashSet<>();
-        int replicaCount = 0;
-
-        for (String hostname : clientHostnames) {
-            if (replicaCount < replicationFactor - 1) {
-                GroupStorageClient client = clientsMap.get(hostname);
-                callable.add(() -> client.updateGameObjectFuture(gameObject));
-                replicaCount++;
-            }
-        }
-
-        try {
-            results = new ObjectArrayList<>(executorService.invokeAll(callable, 5, TimeUnit.SECONDS));
-            executorService.shutdown();
-            logger.debug("{} replicas created.", replicaCount);
-            for (Future<Boolean> future : results) {
-                if (!future.isCancelled()) {
-                    try {
-                        if (future.get()) {
-                            // Put was successful, now add to the list
-                            successfulResults++;
-                        }
-                    } catch (ExecutionException e) {
-                        logger.error("Failed to get result", e);
-                    } catch (InterruptedException e) {
-                        logger.error("Interrupted", e);
-                        Thread.currentThread().interrupt();
-                    }
-                }
-            }
-            return quorum(successfulResults);
-        } catch (InterruptedException e) {
-            logger.error("Thread was interrupted!");
-            Thread.currentThread().interrupt();
-            // e.printStackTrace();
-            return false;
-        }
+    public ListenableFuture<Boolean> safeUpdateAsync(GameObject gameObject) {
+        ObjectList<ListenableFuture<Boolean>> futures = new ObjectArrayList<>();
+        pickReplicas().forEach(hostname -> futures.add(call(hostname, StorageMetrics.Operation.UPDATE, client -> client.updateGameObjectAsync(gameObject), true)));
+        logger.debug("{} replicas updated.", futures.size());
+        return measured(Futures.transform(ReplicaFutures.countSuccessful(futures), successes -> countQuorum(StorageMetrics.Operation.UPDATE, quorum(successes)), MoreExecutors.directExecutor()), futures.size(), StorageMetrics.Operation.UPDATE, safe);
     }
 
     /**
@@ -529,40 +527,64 @@ public class GroupStorage {
     @Deprecated
     public boolean fastUpdate(GameObject gameObject) throws IOException {
         logger.debug("fast update");
-        boolean result;
-
         if (clientsMap.values().isEmpty()) {
             logger.warn("No additional group members...");
             return true;
         }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        ObjectList<String> clientHostnames = new ObjectArrayList<>(clientsMap.keySet());
-        Collections.shuffle(clientHostnames, random);
-        ObjectOpenHashSet<Callable<Boolean>> callable = new ObjectOpenHashSet<>();
-        int replicaCount = 0;
-
-        for (String hostname : clientHostnames) {
-            if (replicaCount < replicationFactor - 1) {
-                GroupStorageClient client = clientsMap.get(hostname);
-                callable.add(() -> client.updateGameObjectFuture(gameObject));
-                replicaCount++;
-            }
-        }
+        ObjectList<ListenableFuture<Boolean>> futures = new ObjectArrayList<>();
+        pickReplicas().forEach(hostname -> futures.add(call(hostname, StorageMetrics.Operation.UPDATE, client -> client.updateGameObjectAsync(gameObject), true)));
+        return awaitResult(measured(Futures.catching(ReplicaFutures.firstSuccessful(futures, Boolean::booleanValue), NoSuchElementException.class, e -> false, MoreExecutors.directExecutor()), futures.size(), StorageMetrics.Operation.UPDATE, fast), "Group update");
+    }
 
+    /**
+     * Up to RF-1 clients picked by their observed latency and load, this peer holds the remaining replica
+     */
+    private ObjectList<String> pickReplicas() {
+        return replicaStatistics.pick(clientsMap.keySet(), replicationFactor - 1);
+    }
+
+    /**
+     * Average latency, outstanding calls and error rate per group member
+     */
+    public Map<String, Map<String, Long>> getReplicaStatistics() {
+        return replicaStatistics.getStatistics();
+    }
+
+    private boolean awaitResult(ListenableFuture<Boolean> future, String operation) {
         try {
-            result = executorService.invokeAny(callable, 5, TimeUnit.SECONDS);
-            executorService.shutdown();
-            return result;
+            return future.get(REPLICA_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
-            logger.error("Group put interrupted!");
+            logger.error("{} interrupted!", operation);
             Thread.currentThread().interrupt();
             return false;
         } catch (ExecutionException | TimeoutException e) {
+            logger.error("{} failed!", operation);
+            future.cancel(true);
             return false;
         }
     }
 
+    private GameObject awaitObject(ListenableFuture<GameObject> future) throws NoSuchElementException, QuorumException {
+        try {
+            return future.get(REPLICA_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QuorumException) {
+                throw (QuorumException) e.getCause();
+            }
+            logger.error("All gets failed!");
+            throw new NoSuchElementException();
+        } catch (TimeoutException e) {
+            logger.error("Gets timed out!");
+            future.cancel(true);
+            throw new NoSuchElementException();
+        } catch (InterruptedException e) {
+            logger.warn("Gets interrupted!");
+            Thread.currentThread().interrupt();
+            throw new NoSuchElementException();
+        }
+    }
+
     /**
      * Delete on one node
      *
@@ -608,20 +630,13 @@ public class GroupStorage {
     }
 
 
+    /**
+     * Queue the group-ledger addition, it is sent to the super-peer and all group members with the next flush of the
+     * notification pipeline
+     */
     public void notifyAllPeersObjectAdded(String objectId, long ttl) throws InterruptedException {
-        String peerGroupStorageHostname = server.getHost();
-
-        logger.debug("Notifying Super-Peer Object {} added...", objectId);
-        superPeerClient.addObjectReferenceFuture(objectId, peerGroupStorageHostname, ttl);
-        if (!clientsMap.values().isEmpty()) {
-            for (GroupStorageClient client : clientsMap.values()) {
-                if (client.isActive()) {
-                    logger.debug("Notifying client: {}", client.getClientHostname());
-                    client.notifyObjectAddedFuture(objectId, peerGroupStorageHostname, ttl);
-                }
-            }
-        }
-        logger.debug("All peers notified Object {} added...", objectId);
+        logger.debug("Queueing group-ledger notification: Object {} added...", objectId);
+        notificationPipeline.objectAdded(objectId, server.getHost(), ttl);
     }
 
     /**
@@ -630,17 +645,21 @@ public class GroupStorage {
     public void notifyAllPeersRemovePeerFromGroupLedger() throws InterruptedException {
         // Could also use the configuration
         String peerGroupStorageHostname = server.getHost();
+        // pending additions must reach the group before the removal does
+        notificationPipeline.flushAndWait();
 
         logger.debug("Notifying Super-Peer to remove {} from group-ledger...", peerGroupStorageHostname);
         superPeerClient.removePeerGroupLedgerFuture(peerGroupStorageHostname);
 
-        if (!clientsMap.values().isEmpty()) {
-            for (GroupStorageClient client : clientsMap.values()) {
-                if (client.isActive()) {
-                    client.notifyRemovePeerFromGroupLedgerFuture(peerGroupStorageHostname);
-                }
+        ObjectList<ListenableFuture<Boolean>> removals = new ObjectArrayList<>();
+        for (GroupStorageClient client : clientsMap.values()) {
+            if (client.isActive()) {
+                removals.add(client.notifyRemovePeerFromGroupLedgerAsync(peerGroupStorageHostname));
             }
         }
+        for (ListenableFuture<Boolean> removal : removals) {
+            awaitResult(removal, "Remove from group ledger");
+        }
         logger.debug("All peers notified to remove {} from group-ledger...", peerGroupStorageHostname);
     }
 
@@ -671,4 +690,17 @@ public class GroupStorage {
     public void updateReplicationFactor() {
         replicationFactor = configuration.getStorage().getReplicationFactor();
     }
-}
\ No newline at end of file
+
+    /**
+     * Fan-out and latency meters of one request mode
+     */
+    private static final class ModeMeters {
+        private final StorageMetrics.PerOperation<Histogram> fanOut;
+        private final StorageMetrics.PerOperation<Histogram> latency;
+
+        ModeMeters(StorageMetrics metrics, String mode) {
+            this.fanOut = new StorageMetrics.PerOperation<>(operation -> metrics.summary(StorageMetrics.FAN_OUT, "operation", operation.tag(), "mode", mode));
+            this.latency = new StorageMetrics.PerOperation<>(operation -> metrics.timer(StorageMetrics.LATENCY, "tier", "group", "operation", operation.tag(), "mode", mode));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.nomad.storage.group;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.nomad.config.BatchConfiguration;
+import org.nomad.config.Config;
+import org.nomad.config.StorageConfiguration;
+import org.nomad.grpc.management.clients.GroupStorageClient;
+import org.nomad.grpc.management.clients.SuperPeerClient;
+import org.nomad.storage.FanOutExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Buffers group-ledger additions and ships them to every group member and the super-peer as one streaming call per
+ * destination.
+ * <p>
+ * Repeated additions of the same object by the same peer within a window are coalesced, keeping the latest TTL.
+ * The buffer is flushed when the window elapses, when it holds {@code maxSize} entries, and before this peer asks
+ * the group to drop its ledger entries so that removals can never overtake pending additions.
+ */
+@Component
+public class LedgerNotificationPipeline {
+    private static final long FLUSH_TIMEOUT_SECONDS = 5;
+    private final Logger logger = LoggerFactory.getLogger(LedgerNotificationPipeline.class);
+    private final FanOutExecutor fanOutExecutor;
+    private final long window;
+    private final int maxSize;
+    private final Set<ListenableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private Object2ObjectOpenHashMap<String, Object2LongOpenHashMap<String>> pending = new Object2ObjectOpenHashMap<>();
+    private int pendingEntries = 0;
+    private volatile List<GroupStorageClient> clients = Collections.emptyList();
+    private volatile SuperPeerClient superPeerClient;
+
+    @Autowired
+    public LedgerNotificationPipeline(Config configuration, FanOutExecutor fanOutExecutor) {
+        StorageConfiguration storage = configuration.getStorage();
+        BatchConfiguration ledgerBatch = (storage == null || storage.getLedgerBatch() == null) ? new BatchConfiguration() : storage.getLedgerBatch();
+        this.fanOutExecutor = fanOutExecutor;
+        this.window = ledgerBatch.getWindow();
+        this.maxSize = Math.max(1, ledgerBatch.getMaxSize());
+    }
+
+    public void updateClients(List<GroupStorageClient> clients) {
+        this.clients = clients;
+    }
+
+    public void updateSuperPeerClient(SuperPeerClient superPeerClient) {
+        this.superPeerClient = superPeerClient;
+    }
+
+    public synchronized int getPendingEntries() {
+        return pendingEntries;
+    }
+
+    public void objectAdded(String objectId, String peerId, long ttl) {
+        boolean firstEntry;
+        boolean full;
+        synchronized (this) {
+            firstEntry = pendingEntries == 0;
+            Object2LongOpenHashMap<String> objects = pending.computeIfAbsent(peerId, k -> new Object2LongOpenHashMap<>());
+            if (objects.containsKey(objectId)) {
+                objects.put(objectId, Math.max(objects.getLong(objectId), ttl));
+            } else {
+                objects.put(objectId, ttl);
+                pendingEntries++;
+            }
+            full = pendingEntries >= maxSize;
+        }
+
+        if (window <= 0 || full) {
+            flush();
+        } else if (firstEntry) {
+            try {
+                fanOutExecutor.scheduler().schedule(this::flush, window, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Scheduler unavailable, flushing ledger notifications immediately");
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Send all buffered entries without waiting for the destinations to respond
+     */
+    public void flush() {
+        Object2ObjectOpenHashMap<String, Object2LongOpenHashMap<String>> batch;
+        synchronized (this) {
+            if (pendingEntries == 0) {
+                return;
+            }
+            batch = pending;
+            logger.debug("Flushing {} group-ledger notifications", pendingEntries);
+            pending = new Object2ObjectOpenHashMap<>();
+            pendingEntries = 0;
+        }
+
+        ObjectList<ListenableFuture<Boolean>> futures = new ObjectArrayList<>();
+        SuperPeerClient superPeer = superPeerClient;
+        batch.forEach((peerId, objects) -> {
+            if (superPeer != null) {
+                futures.add(superPeer.addObjectReferenceBatch(peerId, objects));
+            }
+            for (GroupStorageClient client : clients) {
+                if (client.isActive()) {
+                    futures.add(client.notifyObjectsAddedBatch(peerId, objects));
+                }
+            }
+        });
+
+        ListenableFuture<List<Boolean>> sent = Futures.successfulAsList(futures);
+        inFlight.add(sent);
+        sent.addListener(() -> inFlight.remove(sent), MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Flush buffered entries and wait until every destination acknowledged all notifications sent so far
+     */
+    public void flushAndWait() throws InterruptedException {
+        flush();
+        for (ListenableFuture<?> future : new ObjectArrayList<>(inFlight)) {
+            try {
+                future.get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                logger.warn("Group-ledger notifications were not acknowledged in time");
+            }
+        }
+    }
+}
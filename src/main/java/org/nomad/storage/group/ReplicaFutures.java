@@ -0,0 +1,152 @@
+package org.nomad.storage.group;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Combinators for composing replica RPC futures without parking a thread per replica.
+ */
+public final class ReplicaFutures {
+
+    private ReplicaFutures() {
+    }
+
+    /**
+     * Completes with the first result accepted by the predicate and cancels the remaining calls.
+     * Fails with {@link NoSuchElementException} once every call has completed without an accepted result.
+     */
+    public static <T> ListenableFuture<T> firstSuccessful(List<ListenableFuture<T>> futures, Predicate<T> accept) {
+        SettableFuture<T> result = SettableFuture.create();
+        if (futures.isEmpty()) {
+            result.setException(new NoSuchElementException("No replicas available"));
+            return result;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (ListenableFuture<T> future : futures) {
+            Futures.addCallback(future, new FutureCallback<T>() {
+                @Override
+                public void onSuccess(T value) {
+                    if (value != null && accept.test(value)) {
+                        result.set(value);
+                    }
+                    onDone();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    onDone();
+                }
+
+                private void onDone() {
+                    if (remaining.decrementAndGet() == 0) {
+                        result.setException(new NoSuchElementException("No replica returned a successful result"));
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        result.addListener(() -> futures.forEach(future -> future.cancel(true)), MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /**
+     * Completes with the first non-null result
+     */
+    public static <T> ListenableFuture<T> firstSuccessful(List<ListenableFuture<T>> futures) {
+        return firstSuccessful(futures, value -> true);
+    }
+
+    /**
+     * Starts the primary call and the backup call only if the primary has not answered within the delay or failed
+     * before that. Completes with the first non-null result and cancels the other call, fails with
+     * {@link NoSuchElementException} once every started call has completed without one.
+     */
+    public static <T> ListenableFuture<T> hedged(Supplier<ListenableFuture<T>> primary, Supplier<ListenableFuture<T>> backup,
+                                                 long delay, TimeUnit unit, ScheduledExecutorService scheduler) {
+        SettableFuture<T> result = SettableFuture.create();
+        List<ListenableFuture<T>> calls = new CopyOnWriteArrayList<>();
+        // the backup counts as outstanding until it is started or no longer needed
+        AtomicInteger remaining = new AtomicInteger(2);
+        AtomicBoolean backupStarted = new AtomicBoolean(false);
+
+        Runnable startBackup = () -> {
+            if (backupStarted.compareAndSet(false, true)) {
+                if (result.isDone()) {
+                    return;
+                }
+                start(backup, calls, result, remaining, () -> {
+                });
+                if (result.isDone()) {
+                    calls.forEach(call -> call.cancel(true));
+                }
+            }
+        };
+
+        start(primary, calls, result, remaining, startBackup);
+        if (!result.isDone()) {
+            ScheduledFuture<?> hedge = scheduler.schedule(startBackup, delay, unit);
+            result.addListener(() -> hedge.cancel(false), MoreExecutors.directExecutor());
+        }
+        result.addListener(() -> calls.forEach(call -> call.cancel(true)), MoreExecutors.directExecutor());
+        return result;
+    }
+
+    private static <T> void start(Supplier<ListenableFuture<T>> supplier, List<ListenableFuture<T>> calls,
+                                  SettableFuture<T> result, AtomicInteger remaining, Runnable onFailure) {
+        ListenableFuture<T> call;
+        try {
+            call = supplier.get();
+        } catch (RuntimeException e) {
+            call = Futures.immediateFailedFuture(e);
+        }
+        calls.add(call);
+        Futures.addCallback(call, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                if (value != null) {
+                    result.set(value);
+                    return;
+                }
+                onFailure(null);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                onFailure.run();
+                if (remaining.decrementAndGet() == 0) {
+                    result.setException(new NoSuchElementException("No replica returned a successful result"));
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Number of calls that completed successfully with {@code true}
+     */
+    public static ListenableFuture<Integer> countSuccessful(List<ListenableFuture<Boolean>> futures) {
+        return Futures.transform(Futures.successfulAsList(futures), results -> {
+            int successfulResults = 0;
+            for (Boolean result : results) {
+                if (Boolean.TRUE.equals(result)) {
+                    successfulResults++;
+                }
+            }
+            return successfulResults;
+        }, MoreExecutors.directExecutor());
+    }
+}
@@ -0,0 +1,229 @@
+package org.nomad.storage.group;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.nomad.config.Config;
+import org.nomad.config.HedgeConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Observed load and response times of the group-storage replicas, used to pick the replicas a request is sent to.
+ * <p>
+ * Every replica has an exponentially weighted moving average of its latency and error rate and a count of outstanding
+ * calls. Its cost is the average latency scaled by the outstanding calls and the error rate, so slow, busy and failing
+ * replicas are avoided. A replica that was never measured costs as much as the average measured replica.
+ * <p>
+ * The most recent latencies of all replicas are also kept in a ring, percentiles are taken over that window and
+ * recomputed after every {@link #RECOMPUTE_INTERVAL} samples.
+ */
+@Component
+public class ReplicaStatistics {
+    private static final double ALPHA = 0.2;
+    private static final double MIN_SUCCESS_RATE = 0.05;
+    private static final int RECOMPUTE_INTERVAL = 64;
+    private final long[] samples;
+    private final Object2ObjectOpenHashMap<String, Replica> replicas = new Object2ObjectOpenHashMap<>();
+    private int next = 0;
+    private int count = 0;
+    private int sinceRecompute = 0;
+    private long[] sorted = new long[0];
+
+    @Autowired
+    public ReplicaStatistics(Config configuration) {
+        this((configuration.getStorage() == null || configuration.getStorage().getHedge() == null) ? new HedgeConfiguration().getWindow() : configuration.getStorage().getHedge().getWindow());
+    }
+
+    ReplicaStatistics(int window) {
+        this.samples = new long[Math.max(1, window)];
+    }
+
+    /**
+     * Starts the call and records its outcome for the replica, cancelled calls only count until they are cancelled
+     *
+     * @param timed whether the response time is representative of the replica, calls that wait for a batch are not
+     */
+    public <T> ListenableFuture<T> track(String hostname, Supplier<ListenableFuture<T>> call, boolean timed) {
+        started(hostname);
+        long start = System.nanoTime();
+        ListenableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+
+        ListenableFuture<T> tracked = future;
+        tracked.addListener(() -> {
+            if (tracked.isCancelled()) {
+                completed(hostname);
+                return;
+            }
+            boolean success;
+            try {
+                Futures.getDone(tracked);
+                success = true;
+            } catch (Exception e) {
+                success = false;
+            }
+            completed(hostname, timed ? System.nanoTime() - start : -1, success);
+        }, MoreExecutors.directExecutor());
+        return tracked;
+    }
+
+    synchronized void started(String hostname) {
+        replicas.computeIfAbsent(hostname, key -> new Replica()).inFlight++;
+    }
+
+    synchronized void completed(String hostname) {
+        Replica replica = replicas.get(hostname);
+        if (replica == null) {
+            return;
+        }
+        replica.inFlight = Math.max(0, replica.inFlight - 1);
+    }
+
+    /**
+     * @param nanos response time, negative if it should not be recorded
+     */
+    synchronized void completed(String hostname, long nanos, boolean success) {
+        // replicas that left the group are not tracked any more
+        Replica replica = replicas.get(hostname);
+        if (replica == null) {
+            return;
+        }
+        replica.inFlight = Math.max(0, replica.inFlight - 1);
+        replica.errorRate += ALPHA * ((success ? 0 : 1) - replica.errorRate);
+        if (success && nanos >= 0) {
+            replica.latency = replica.measured ? replica.latency + ALPHA * (nanos - replica.latency) : nanos;
+            replica.measured = true;
+
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            sinceRecompute++;
+        }
+    }
+
+    /**
+     * Picks up to n distinct replicas, each the cheaper of two random candidates that were not picked yet
+     */
+    public synchronized ObjectList<String> pick(Collection<String> hostnames, int n) {
+        ObjectList<String> candidates = new ObjectArrayList<>(hostnames);
+        ObjectList<String> picks = new ObjectArrayList<>();
+        double neutral = neutralLatency();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (picks.size() < n && !candidates.isEmpty()) {
+            int chosen = random.nextInt(candidates.size());
+            if (candidates.size() > 1) {
+                int other = random.nextInt(candidates.size() - 1);
+                other = other >= chosen ? other + 1 : other;
+                if (cost(candidates.get(other), neutral) < cost(candidates.get(chosen), neutral)) {
+                    chosen = other;
+                }
+            }
+            picks.add(candidates.get(chosen));
+            // swap-remove, the order of the remaining candidates does not matter
+            candidates.set(chosen, candidates.get(candidates.size() - 1));
+            candidates.remove(candidates.size() - 1);
+        }
+        return picks;
+    }
+
+    /**
+     * The hostnames ordered from the cheapest to the most expensive replica
+     */
+    public synchronized ObjectList<String> rank(Collection<String> hostnames) {
+        double neutral = neutralLatency();
+        ObjectList<String> ranked = new ObjectArrayList<>(hostnames);
+        ranked.sort(Comparator.comparingDouble(hostname -> cost(hostname, neutral)));
+        return ranked;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency in nanoseconds, or -1 if no latency was observed yet
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        if (sorted.length != count || sinceRecompute >= RECOMPUTE_INTERVAL) {
+            sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            sinceRecompute = 0;
+        }
+        int index = (int) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    public synchronized void remove(String hostname) {
+        replicas.remove(hostname);
+    }
+
+    /**
+     * Average latency in microseconds, outstanding calls and error rate in percent per replica
+     */
+    public synchronized Map<String, Map<String, Long>> getStatistics() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        replicas.forEach((hostname, replica) -> {
+            Map<String, Long> statistics = new LinkedHashMap<>();
+            statistics.put("latency", (long) (replica.latency / 1000));
+            statistics.put("inFlight", (long) replica.inFlight);
+            statistics.put("errorRate", Math.round(replica.errorRate * 100));
+            result.put(hostname, statistics);
+        });
+        return result;
+    }
+
+    synchronized double average(String hostname) {
+        Replica replica = replicas.get(hostname);
+        return replica == null ? 0 : replica.latency;
+    }
+
+    synchronized int inFlight(String hostname) {
+        Replica replica = replicas.get(hostname);
+        return replica == null ? 0 : replica.inFlight;
+    }
+
+    private double cost(String hostname, double neutral) {
+        Replica replica = replicas.get(hostname);
+        if (replica == null) {
+            return neutral + 1;
+        }
+        double latency = replica.measured ? replica.latency : neutral;
+        return (latency + 1) * (replica.inFlight + 1) / Math.max(MIN_SUCCESS_RATE, 1 - replica.errorRate);
+    }
+
+    private double neutralLatency() {
+        double sum = 0;
+        int measured = 0;
+        for (Replica replica : replicas.values()) {
+            if (replica.measured) {
+                sum += replica.latency;
+                measured++;
+            }
+        }
+        return measured == 0 ? 0 : sum / measured;
+    }
+
+    private static final class Replica {
+        private double latency = 0;
+        private double errorRate = 0;
+        private int inFlight = 0;
+        private boolean measured = false;
+    }
+}
@@ -0,0 +1,105 @@
+package org.nomad.storage.local;
+
+import org.nomad.pithos.models.GameObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-layout binary encoding of a {@link GameObject} for local storage backends.
+ * <p>
+ * Layout (big-endian): format version (1 byte), id length (4 bytes), id (UTF-8), creation time, last modified and
+ * TTL (8 bytes each), value length (4 bytes, -1 for a null value) and the raw value. Unlike Java serialization there
+ * are no class descriptors, so a record is only {@value #HEADER_SIZE} bytes larger than its id and value.
+ */
+public final class GameObjectCodec {
+    static final byte FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 1 + 4 + 8 + 8 + 8 + 4;
+    private static final byte JAVA_SERIALIZATION_MAGIC_0 = (byte) 0xAC;
+    private static final byte JAVA_SERIALIZATION_MAGIC_1 = (byte) 0xED;
+
+    private GameObjectCodec() {
+    }
+
+    public static byte[] encode(GameObject object) {
+        byte[] id = encodeKey(object.getId());
+        byte[] value = object.getValue();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + id.length + (value == null ? 0 : value.length));
+        write(buffer, id, object, value);
+        return buffer.array();
+    }
+
+    /**
+     * Encode into the given buffer at its current position
+     *
+     * @throws java.nio.BufferOverflowException if the buffer has less than {@link #encodedSize(GameObject)} bytes left
+     */
+    public static void encode(GameObject object, ByteBuffer buffer) {
+        write(buffer, encodeKey(object.getId()), object, object.getValue());
+    }
+
+    public static int encodedSize(GameObject object) {
+        byte[] value = object.getValue();
+        return HEADER_SIZE + encodeKey(object.getId()).length + (value == null ? 0 : value.length);
+    }
+
+    public static byte[] encodeKey(String id) {
+        return id.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static GameObject decode(byte[] data) {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Decode a record starting at the buffer's current position, the position is advanced past the record
+     *
+     * @throws IllegalArgumentException if the record was not written by this codec
+     */
+    public static GameObject decode(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported GameObject format version: " + version);
+        }
+
+        byte[] id = new byte[buffer.getInt()];
+        buffer.get(id);
+        long creationTime = buffer.getLong();
+        long lastModified = buffer.getLong();
+        long ttl = buffer.getLong();
+        int valueLength = buffer.getInt();
+        byte[] value = null;
+        if (valueLength >= 0) {
+            value = new byte[valueLength];
+            buffer.get(value);
+        }
+
+        return GameObject.builder()
+                .id(new String(id, StandardCharsets.UTF_8))
+                .creationTime(creationTime)
+                .lastModified(lastModified)
+                .ttl(ttl)
+                .value(value)
+                .build();
+    }
+
+    /**
+     * Records written before this codec was introduced are Java-serialized and start with the stream magic 0xACED
+     */
+    public static boolean isJavaSerialized(byte[] data) {
+        return data.length >= 2 && data[0] == JAVA_SERIALIZATION_MAGIC_0 && data[1] == JAVA_SERIALIZATION_MAGIC_1;
+    }
+
+    private static void write(ByteBuffer buffer, byte[] id, GameObject object, byte[] value) {
+        buffer.put(FORMAT_VERSION)
+                .putInt(id.length)
+                .put(id)
+                .putLong(object.getCreationTime())
+                .putLong(object.getLastModified())
+                .putLong(object.getTtl())
+                .putInt(value == null ? -1 : value.length);
+        if (value != null) {
+            buffer.put(value);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.nomad.storage.local;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fixed-size pool of H2 connections, each of which keeps its prepared statements for reuse.
+ * <p>
+ * General purpose pools close the statements of a connection when it is returned, so statements could not outlive a
+ * single operation. Here a connection and its statements stay with the pool until it is closed, and a borrowed
+ * connection is used by one thread at a time.
+ */
+class H2ConnectionPool implements AutoCloseable {
+    private final BlockingQueue<PooledConnection> idle;
+    private final ObjectList<PooledConnection> connections;
+    private final long acquireTimeout;
+
+    H2ConnectionPool(String url, String username, String password, int size, long acquireTimeout) throws SQLException {
+        int poolSize = Math.max(1, size);
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+        this.connections = new ObjectArrayList<>(poolSize);
+        this.acquireTimeout = acquireTimeout;
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                PooledConnection connection = new PooledConnection(DriverManager.getConnection(url, username, password));
+                connections.add(connection);
+                idle.add(connection);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Borrow a connection, closing it returns it to the pool once
+     *
+     * @throws SQLException if no connection became available within the acquire timeout
+     */
+    PooledConnection acquire() throws SQLException {
+        try {
+            PooledConnection connection = idle.poll(acquireTimeout, TimeUnit.MILLISECONDS);
+            if (connection == null) {
+                throw new SQLException("No H2 connection available after " + acquireTimeout + "ms");
+            }
+            connection.borrowed.set(true);
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for an H2 connection", e);
+        }
+    }
+
+    int size() {
+        return connections.size();
+    }
+
+    int available() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        for (PooledConnection connection : connections) {
+            connection.closeConnection();
+        }
+        connections.clear();
+        idle.clear();
+    }
+
+    class PooledConnection implements AutoCloseable {
+        private final Connection connection;
+        private final Object2ObjectOpenHashMap<String, PreparedStatement> statements = new Object2ObjectOpenHashMap<>();
+        private final AtomicBoolean borrowed = new AtomicBoolean();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * The prepared statement for the given SQL, prepared on first use and cached for the lifetime of the pool
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        Connection connection() {
+            return connection;
+        }
+
+        /**
+         * Returns the connection to the pool, closing it again has no effect
+         */
+        @Override
+        public void close() {
+            if (borrowed.compareAndSet(true, false)) {
+                idle.offer(this);
+            }
+        }
+
+        private void closeConnection() {
+            try {
+                if (!connection.isClosed()) {
+                    connection.close();
+                }
+            } catch (SQLException ignored) {
+                // the statements are closed together with their connection
+            }
+            statements.clear();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.jasypt.encryption.pbe.PooledPBEStringEncryptor;
 import org.jasypt.encryption.pbe.config.SimpleStringPBEConfig;
 import org.nomad.commons.Base64Utility;
 import org.nomad.config.Config;
+import org.nomad.config.H2Configuration;
 import org.nomad.grpc.models.GameObjectGrpc;
 import org.nomad.pithos.components.GenericGroupLedger;
 import org.nomad.pithos.components.GroupLedger;
@@ -20,13 +21,16 @@ import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 
@@ -37,10 +41,20 @@ public class H2ObjectStorage implements LocalStorage {
     private static final Logger logger = LoggerFactory.getLogger(H2ObjectStorage.class);
     private final GenericGroupLedger groupLedger;
     private final Config config;
+    private static final String INSERT = "INSERT INTO gameobjects (id, creation_time, last_modified, ttl, value) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT = "SELECT id, creation_time, last_modified, ttl, value FROM gameobjects WHERE id=?";
+    private static final String UPDATE = "UPDATE gameobjects SET ttl=?, last_modified=?, value=? WHERE id=?";
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS gameobjects (id VARCHAR(36) PRIMARY KEY,creation_time BIGINT NOT NULL, last_modified BIGINT NOT NULL, ttl BIGINT NOT NULL,value BINARY NOT NULL)";
+    private static final String CREATE_TTL_INDEX = "CREATE INDEX IF NOT EXISTS gameobjects_ttl ON gameobjects (ttl)";
+    private static final String DELETE = "DELETE FROM gameobjects WHERE id=?";
+    private static final String DELETE_EXPIRED = "DELETE FROM gameobjects WHERE ttl < ? LIMIT ?";
     @Autowired
     ApplicationContext appCtx;
-    private Connection connection;
-    private boolean initialised = false;
+    private H2ConnectionPool pool;
+    // appended to the database name of shards, empty for the primary store
+    private String databaseSuffix = "";
+    private int expiryChunkSize;
+    private volatile boolean initialised = false;
     private String peerId;
 
     @Autowired
@@ -68,26 +82,52 @@ public class H2ObjectStorage implements LocalStorage {
     public void init() throws SQLException {
         //gameObjectsH2Repository.deleteAll();
         Environment environment = appCtx.getBean(Environment.class);
-        logger.info("Starting H2 client connection ...");
-        this.connection = DriverManager.getConnection(
-                Objects.requireNonNull(environment.getProperty("spring.datasource.jdbcUrl")),
+        H2Configuration h2 = config.getStorage().getH2();
+        logger.info("Starting H2 connection pool ({} connections) ...", h2.getPoolSize());
+        this.pool = new H2ConnectionPool(
+                withDatabaseSuffix(Objects.requireNonNull(environment.getProperty("spring.datasource.jdbcUrl"))),
                 Objects.requireNonNull(environment.getProperty("spring.datasource.username")),
-                Objects.requireNonNull(environment.getProperty("spring.datasource.password"))); // encrypt credentials
+                Objects.requireNonNull(environment.getProperty("spring.datasource.password")), // encrypt credentials
+                h2.getPoolSize(),
+                h2.getAcquireTimeout());
+        this.expiryChunkSize = Math.max(1, h2.getExpiryChunkSize());
+        createTableIfMissing();
         this.initialised = true;
         peerId = config.getNetworkHostnames().getGroupStorageServer(); // right now we use the hostname
     }
 
+    /**
+     * Every shard is a separate database of the same kind, e.g. {@code jdbc:h2:mem:testdb_shard3}
+     */
     @Override
-    public void close() {
-        logger.info("Closing H2 client connection ...");
-        try {
-            if (!connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException e) {
-            logger.error("Unable to close H2 client connection!");
+    public LocalStorage newShard(int index) {
+        H2ObjectStorage shard = new H2ObjectStorage(config);
+        shard.appCtx = appCtx;
+        shard.databaseSuffix = "_shard" + index;
+        return shard;
+    }
+
+    private String withDatabaseSuffix(String jdbcUrl) {
+        int options = jdbcUrl.indexOf(';');
+        return options < 0 ? jdbcUrl + databaseSuffix : jdbcUrl.substring(0, options) + databaseSuffix + jdbcUrl.substring(options);
+    }
+
+    // the primary database is populated from data.sql, shards start out empty
+    private void createTableIfMissing() throws SQLException {
+        try (H2ConnectionPool.PooledConnection connection = pool.acquire();
+             Statement statement = connection.connection().createStatement()) {
+            statement.execute(CREATE_TABLE);
+            statement.execute(CREATE_TTL_INDEX);
         }
+    }
+
+    @Override
+    public void close() {
+        logger.info("Closing H2 connection pool ...");
         this.initialised = false;
+        if (pool != null) {
+            pool.close();
+        }
     }
 
     /**
@@ -100,24 +140,13 @@ public class H2ObjectStorage implements LocalStorage {
         String objectId = object.getId();
 
         logger.debug("Adding object: {}", objectId);
-        long creationTime = object.getCreationTime();
-        long lastModified = object.getLastModified();
-        long TTL = object.getTtl();
-
-        String sql = "INSERT INTO gameobjects (id, creation_time, last_modified, ttl, value) VALUES (?, ?, ?, ?, ?)";
-
-        try {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setString(1, objectId);
-            statement.setLong(2, creationTime);
-            statement.setLong(3, lastModified);
-            statement.setLong(4, TTL);
-            statement.setBytes(5, object.getValue());
+        try (H2ConnectionPool.PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(INSERT);
+            bindInsert(statement, object);
             statement.executeUpdate();
-            statement.close();
             logger.debug("Put successful!");
 
-            addToGroupLedger(objectId, TTL);
+            addToGroupLedger(objectId, object.getTtl());
 
             return true;
         } catch (SQLException e) {
@@ -126,6 +155,73 @@ public class H2ObjectStorage implements LocalStorage {
         }
     }
 
+    /**
+     * Inserts all objects in a single JDBC batch and transaction. An object that cannot be inserted, e.g. because it
+     * already exists, only fails its own entry.
+     */
+    @Override
+    public Map<String, Boolean> putAll(Collection<GameObject> objects) {
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        if (objects.isEmpty()) {
+            return results;
+        }
+
+        logger.debug("Adding {} objects", objects.size());
+        try (H2ConnectionPool.PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(INSERT);
+            for (GameObject object : objects) {
+                bindInsert(statement, object);
+                statement.addBatch();
+            }
+
+            int[] updateCounts = executeBatch(connection.connection(), statement);
+            int i = 0;
+            for (GameObject object : objects) {
+                boolean result = i < updateCounts.length && updateCounts[i] > 0;
+                if (result) {
+                    addToGroupLedger(object.getId(), object.getTtl());
+                }
+                results.merge(object.getId(), result, Boolean::logicalOr);
+                i++;
+            }
+        } catch (SQLException e) {
+            logger.warn("Batch put failed: {}", e.getMessage());
+            for (GameObject object : objects) {
+                results.put(object.getId(), false);
+            }
+        }
+        return results;
+    }
+
+    private int[] executeBatch(Connection connection, PreparedStatement statement) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            int[] updateCounts;
+            try {
+                updateCounts = statement.executeBatch();
+            } catch (BatchUpdateException e) {
+                logger.warn("Batch put partially failed: {}", e.getMessage());
+                updateCounts = e.getUpdateCounts();
+            }
+            connection.commit();
+            return updateCounts;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            statement.clearBatch();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static void bindInsert(PreparedStatement statement, GameObject object) throws SQLException {
+        statement.setString(1, object.getId());
+        statement.setLong(2, object.getCreationTime());
+        statement.setLong(3, object.getLastModified());
+        statement.setLong(4, object.getTtl());
+        statement.setBytes(5, object.getValue());
+    }
+
     /**
      * The TTL is stored as creation time + ttl
      */
@@ -134,23 +230,20 @@ public class H2ObjectStorage implements LocalStorage {
         logger.debug("Retrieving object: {}", key);
         GameObject gameObject = null;
 
-        String sqlStatement = "SELECT * FROM gameobjects WHERE id=?";
-
-        try {
-            PreparedStatement statement = connection.prepareStatement(sqlStatement);
+        try (H2ConnectionPool.PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(SELECT);
             statement.setString(1, key);
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                gameObject = GameObject.builder()
-                        .id(resultSet.getString(1))
-                        .creationTime(resultSet.getLong(2))
-                        .lastModified(resultSet.getLong(3))
-                        .ttl(resultSet.getLong(4))
-                        .value(resultSet.getBytes(5))
-                        .build();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    gameObject = GameObject.builder()
+                            .id(resultSet.getString(1))
+                            .creationTime(resultSet.getLong(2))
+                            .lastModified(resultSet.getLong(3))
+                            .ttl(resultSet.getLong(4))
+                            .value(resultSet.getBytes(5))
+                            .build();
+                }
             }
-            statement.close();
         } catch (SQLException e) {
             logger.error("Get failed: {}", e.getMessage());
             // e.printStackTrace();
@@ -175,43 +268,41 @@ public class H2ObjectStorage implements LocalStorage {
     }
 
     /**
-     * The TTL is stored as creation time + ttl
-     * Technically we don't want creation time to be altered - this can be improved
+     * Updates the stored row, its creation time is kept. An object that is new to the group is put instead, while
+     * one the group knows of but this peer does not store is missing.
      */
     @Override
     public boolean update(GameObject object) throws NoSuchElementException {
         String id = object.getId();
-        boolean isPut = !groupLedger.objectLedgerContainsKey(id);
-
         logger.debug("Updating object: {}", id);
-        long timestamp = object.getLastModified();
-        long TTL = object.getTtl();
-
-        if (isPut) {
-            return put(object);
-        }
 
-        String sql = "UPDATE gameobjects SET ttl=?, last_modified=?, value=? WHERE id=?";
-
-        try {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setLong(1, TTL);
-            statement.setLong(2, timestamp);
+        boolean missing;
+        try (H2ConnectionPool.PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(UPDATE);
+            statement.setLong(1, object.getTtl());
+            statement.setLong(2, object.getLastModified());
             statement.setBytes(3, object.getValue());
             statement.setString(4, id);
-            int updateResult = statement.executeUpdate();
-            if (updateResult == 0) {
-                throw new NoSuchElementException(id);
-            }
-            statement.close();
-            logger.debug("Update successful!");
-
-            return true;
+            missing = statement.executeUpdate() == 0;
         } catch (SQLException e) {
             logger.error("Update failed: {}", e.getMessage());
             // e.printStackTrace();
             return false;
         }
+
+        if (missing) {
+            if (groupLedger.objectLedgerContainsKey(id)) {
+                throw new NoSuchElementException(id);
+            }
+            // the connection is back in the pool, put acquires its own
+            return put(object);
+        }
+        logger.debug("Update successful!");
+
+        if (!groupLedger.thisPeerContainsObject(peerId, id)) {
+            addToGroupLedger(id, object.getTtl());
+        }
+        return true;
     }
 
     private void addToGroupLedger(String objectId, long TTL) {
@@ -230,23 +321,23 @@ public class H2ObjectStorage implements LocalStorage {
     @Override
     public boolean delete(String key) throws NoSuchElementException {
         logger.debug("Deleting object: {}", key);
-        String sqlStatement = "DELETE FROM gameobjects WHERE id=?";
 
-        try {
-            PreparedStatement statement = connection.prepareStatement(sqlStatement);
+        int deleteResult;
+        try (H2ConnectionPool.PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(DELETE);
             statement.setString(1, key);
-            int deleteResult = statement.executeUpdate();
-            if (deleteResult == 0) {
-                throw new NoSuchElementException(key);
-            }
-            statement.close();
-            logger.debug("Delete successful!");
-            return true;
+            deleteResult = statement.executeUpdate();
         } catch (SQLException e) {
             logger.error("Delete failed: {}", e.getMessage());
             // e.printStackTrace();
             return false;
         }
+
+        if (deleteResult == 0) {
+            throw new NoSuchElementException(key);
+        }
+        logger.debug("Delete successful!");
+        return true;
     }
 
     @Override
@@ -258,16 +349,9 @@ public class H2ObjectStorage implements LocalStorage {
     public void truncate() {
         if (initialised) {
             logger.debug("Truncating gameobjects table...");
-            String sqlStatement = "TRUNCATE TABLE gameobjects";
 
-            try {
-                PreparedStatement statement = connection.prepareStatement(sqlStatement);
-
-                boolean truncate = statement.execute();
-                if (truncate) {
-                    logger.debug("Nothing to truncate");
-                }
-                statement.close();
+            try (H2ConnectionPool.PooledConnection connection = pool.acquire()) {
+                connection.prepare("TRUNCATE TABLE gameobjects").execute();
                 logger.debug("Truncate successful!");
             } catch (SQLException e) {
                 logger.error("Truncate failed: {}", e.getMessage());
@@ -278,24 +362,33 @@ public class H2ObjectStorage implements LocalStorage {
         }
     }
 
+    /**
+     * Deletes expired rows in chunks of {@code expiryChunkSize} through the TTL index, so that a large expiry never
+     * holds the table for longer than a single chunk
+     */
+    @Override
     @Scheduled(fixedRateString = "${spring.schedule.dbCleanup}", initialDelay = 60000)
     public void cleanUp() {
         if (initialised) {
             logger.debug("Running scheduled cleanup...");
             long now = Instant.now().getEpochSecond();
-            String sqlStatement = "DELETE FROM gameobjects WHERE ttl < ?";
 
-            try {
-                PreparedStatement statement = connection.prepareStatement(sqlStatement);
-                statement.setLong(1, now);
+            try (H2ConnectionPool.PooledConnection connection = pool.acquire()) {
+                PreparedStatement statement = connection.prepare(DELETE_EXPIRED);
+                int deleteResult = 0;
+                int chunk;
+                do {
+                    statement.setLong(1, now);
+                    statement.setInt(2, expiryChunkSize);
+                    chunk = statement.executeUpdate();
+                    deleteResult += chunk;
+                } while (chunk == expiryChunkSize);
 
-                int deleteResult = statement.executeUpdate();
                 if (deleteResult == 0) {
                     logger.debug("Nothing to clean");
                 } else {
                     logger.debug("{} rows cleaned", deleteResult);
                 }
-                statement.close();
                 logger.debug("Cleanup successful!");
             } catch (SQLException e) {
                 logger.error("Cleanup failed: {}", e.getMessage());
@@ -307,14 +400,14 @@ public class H2ObjectStorage implements LocalStorage {
     }
 
     public void initialiseTable() throws SQLException {
-        final long unixTime = Instant.now().getEpochSecond();
         logger.debug("Populating H2 table ...");
 
-        Statement statement1 = connection.createStatement();
-
-        statement1.execute("DROP TABLE IF EXISTS gameobjects");
-        statement1.execute("CREATE TABLE gameobjects (id VARCHAR(36) PRIMARY KEY,creation_time BIGINT NOT NULL, last_modified BIGINT NOT NULL, ttl BIGINT NOT NULL,value BINARY NOT NULL)");
-        statement1.close();
+        try (H2ConnectionPool.PooledConnection connection = pool.acquire();
+             Statement statement1 = connection.connection().createStatement()) {
+            statement1.execute("DROP TABLE IF EXISTS gameobjects");
+            statement1.execute(CREATE_TABLE);
+            statement1.execute(CREATE_TTL_INDEX);
+        }
     }
 
     @Override
@@ -3,6 +3,9 @@ package org.nomad.storage.local;
 import org.nomad.pithos.models.GameObject;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 /* Interface to allow for abstraction around the Local Storage implementation */
@@ -13,6 +16,19 @@ public interface LocalStorage {
 
     boolean put(GameObject value);
 
+    /**
+     * Put several objects at once, implementations that can write them in one round trip should override this
+     *
+     * @return the put result of every object, keyed by object id
+     */
+    default Map<String, Boolean> putAll(Collection<GameObject> values) {
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        for (GameObject value : values) {
+            results.merge(value.getId(), put(value), Boolean::logicalOr);
+        }
+        return results;
+    }
+
     GameObject get(String key) throws NoSuchElementException;
 
     boolean update(GameObject value) throws NoSuchElementException;
@@ -24,4 +40,18 @@ public interface LocalStorage {
     boolean isMalicious();
 
     void truncate();
+
+    /**
+     * Remove expired objects, backends that expire objects on their own schedule can ignore this
+     */
+    default void cleanUp() {
+    }
+
+    /**
+     * Create an independent, uninitialised store of the same kind for the given shard
+     *
+     * @throws UnsupportedOperationException if the backend cannot be sharded
+     * @see ShardedLocalStorage
+     */
+    LocalStorage newShard(int index);
 }
@@ -0,0 +1,273 @@
+package org.nomad.storage.local;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped, append-only file of the storage log.
+ * <p>
+ * A segment is preallocated to its full size, so the first entry with a zero length marks the end of the log. Entry
+ * layout: CRC32 of everything after the length (4 bytes), length of the remainder (4 bytes), type (1 byte), TTL
+ * (8 bytes) and the payload, which is a {@link GameObjectCodec} record for puts and the UTF-8 id for tombstones. An
+ * entry whose checksum does not match was torn by a crash and ends the log as well.
+ * <p>
+ * Once sealed, a segment can be summarised in a hint file that lists its entries without their values, so the key
+ * directory can be rebuilt without reading the data.
+ */
+class LogSegment {
+    static final byte PUT = 0;
+    static final byte TOMBSTONE = 1;
+    static final int HEADER_SIZE = 4 + 4 + 1 + 8;
+    private static final String DATA_SUFFIX = ".data";
+    private static final String HINT_SUFFIX = ".hint";
+    private final int id;
+    private final Path dataPath;
+    private final Path hintPath;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final AtomicLong liveBytes = new AtomicLong();
+    private volatile int position = 0;
+
+    private LogSegment(int id, Path directory, int size) throws IOException {
+        this.id = id;
+        this.dataPath = directory.resolve(fileName(id, DATA_SUFFIX));
+        this.hintPath = directory.resolve(fileName(id, HINT_SUFFIX));
+        this.channel = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+    }
+
+    /**
+     * Open or create the segment, appends start at the beginning until its entries are loaded or scanned
+     */
+    static LogSegment open(Path directory, int id, int size) throws IOException {
+        return new LogSegment(id, directory, size);
+    }
+
+    /**
+     * Segment id encoded in a data file name, or -1 if the file is not a segment
+     */
+    static int idOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(DATA_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(0, name.length() - DATA_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static int entrySize(int payloadLength) {
+        return HEADER_SIZE + payloadLength;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    AtomicLong liveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Appends an entry, only one thread may append at a time
+     *
+     * @return the offset of the entry, or -1 if the segment has no room left for it
+     */
+    int append(byte type, long ttl, byte[] payload) {
+        int size = entrySize(payload.length);
+        // a zero length behind the entry marks the end of the log, the preallocated file already holds zeros there
+        if (position + size > buffer.capacity()) {
+            return -1;
+        }
+
+        CRC32 crc = new CRC32();
+        ByteBuffer entry = buffer.duplicate();
+        entry.position(position + 8);
+        entry.put(type).putLong(ttl).put(payload);
+        ByteBuffer checked = buffer.duplicate();
+        checked.position(position + 8).limit(position + size);
+        crc.update(checked);
+        buffer.putInt(position + 4, size - 8);
+        buffer.putInt(position, (int) crc.getValue());
+
+        int offset = position;
+        position += size;
+        return offset;
+    }
+
+    /**
+     * The payload of the entry at the given offset, as a buffer positioned at its start
+     */
+    ByteBuffer payload(int offset) {
+        ByteBuffer payload = buffer.duplicate();
+        int length = buffer.getInt(offset + 4) - 1 - 8;
+        payload.position(offset + HEADER_SIZE).limit(offset + HEADER_SIZE + length);
+        return payload;
+    }
+
+    /**
+     * Copy of the payload of the entry at the given offset, used to move live entries into another segment
+     */
+    byte[] payloadBytes(int offset) {
+        ByteBuffer payload = payload(offset);
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Visits the entries from the hint file if there is one, otherwise from the data. Appends continue after the last
+     * entry visited.
+     */
+    void load(EntryVisitor visitor) throws IOException {
+        if (Files.exists(hintPath)) {
+            try {
+                readHint(visitor);
+                return;
+            } catch (EOFException e) {
+                // a truncated hint is ignored, the data is authoritative
+            }
+        }
+        scan(visitor);
+    }
+
+    /**
+     * Visits the valid entries of the data, appends continue after the last one
+     */
+    void scan(EntryVisitor visitor) {
+        CRC32 crc = new CRC32();
+        int offset = 0;
+        while (offset + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset + 4);
+            if (length < 1 + 8 || offset + 8 + length > buffer.capacity()) {
+                return;
+            }
+
+            ByteBuffer checked = buffer.duplicate();
+            checked.position(offset + 8).limit(offset + 8 + length);
+            crc.reset();
+            crc.update(checked);
+            if ((int) crc.getValue() != buffer.getInt(offset)) {
+                return;
+            }
+
+            byte type = buffer.get(offset + 8);
+            long ttl = buffer.getLong(offset + 9);
+            visitor.visit(key(type, payload(offset)), type, ttl, offset, 8 + length);
+            offset += 8 + length;
+            position = Math.max(position, offset);
+        }
+    }
+
+    /**
+     * Writes the hint file of a sealed segment, atomically replacing any previous one
+     */
+    void writeHint() throws IOException {
+        Path temporary = hintPath.resolveSibling(hintPath.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file))) {
+            IOException[] failure = new IOException[1];
+            scan((key, type, ttl, offset, size) -> {
+                try {
+                    byte[] id = key.getBytes(StandardCharsets.UTF_8);
+                    output.writeByte(type);
+                    output.writeLong(ttl);
+                    output.writeInt(offset);
+                    output.writeInt(size);
+                    output.writeInt(id.length);
+                    output.write(id);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            output.writeByte(-1);
+        }
+        Files.move(temporary, hintPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    boolean hasHint() {
+        return Files.exists(hintPath);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Closes the segment and removes its files, a mapping still held by readers stays valid until they let go of it
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(hintPath);
+        Files.deleteIfExists(dataPath);
+    }
+
+    private void readHint(EntryVisitor visitor) throws IOException {
+        try (InputStream file = Files.newInputStream(hintPath);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(file))) {
+            byte type;
+            while ((type = input.readByte()) != -1) {
+                long ttl = input.readLong();
+                int offset = input.readInt();
+                int size = input.readInt();
+                byte[] id = new byte[input.readInt()];
+                input.readFully(id);
+                visitor.visit(new String(id, StandardCharsets.UTF_8), type, ttl, offset, size);
+                position = Math.max(position, offset + size);
+            }
+        }
+    }
+
+    private static String key(byte type, ByteBuffer payload) {
+        byte[] id;
+        if (type == TOMBSTONE) {
+            id = new byte[payload.remaining()];
+            payload.get(id);
+        } else {
+            // skip the format version of the GameObjectCodec record
+            id = new byte[payload.getInt(payload.position() + 1)];
+            ByteBuffer idBuffer = payload.duplicate();
+            idBuffer.position(payload.position() + 5);
+            idBuffer.get(id);
+        }
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private static String fileName(int id, String suffix) {
+        return String.format("%010d%s", id, suffix);
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(String key, byte type, long ttl, int offset, int size);
+    }
+}
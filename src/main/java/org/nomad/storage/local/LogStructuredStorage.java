@@ -0,0 +1,555 @@
+package org.nomad.storage.local;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.nomad.commons.NetworkUtility;
+import org.nomad.config.Config;
+import org.nomad.config.LogStorageConfiguration;
+import org.nomad.pithos.components.GenericGroupLedger;
+import org.nomad.pithos.components.GroupLedger;
+import org.nomad.pithos.models.GameObject;
+import org.nomad.pithos.models.MetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Durable local storage in the style of Bitcask: every write is appended to a memory-mapped segment log and an
+ * in-memory key directory points at the latest entry of each object.
+ * <p>
+ * Reads are a key directory lookup plus a decode straight from the mapping, without locks. Writes are serialised by a
+ * single writer lock, which also orders key directory updates with the log. Full segments are sealed and get a hint
+ * file, so a restart only reads hint files and the tail segment. The scheduled clean-up drops expired objects and
+ * compacts sealed segments that are mostly dead by moving their live entries to the tail.
+ * <p>
+ * Durability follows {@code node.storage.log.syncMode}: {@code write} syncs before every write returns, {@code group}
+ * lets concurrent writers share one sync, and {@code periodic} syncs in the background every {@code syncInterval}.
+ */
+@Component
+@Profile("logstore")
+public class LogStructuredStorage implements LocalStorage {
+    private static final Logger logger = LoggerFactory.getLogger(LogStructuredStorage.class);
+    private static final long MB = 1024 * 1024;
+    private final Config config;
+    private final GenericGroupLedger groupLedger;
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private final ConcurrentHashMap<String, Location> keydir = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, LogSegment> segments = new ConcurrentSkipListMap<>();
+    private ScheduledExecutorService maintenance;
+    private LogStorageConfiguration settings;
+    private Path directory;
+    private volatile LogSegment active;
+    // group commit: number of appends written and synced so far, and whether a writer is currently syncing
+    private long written = 0;
+    private long synced = 0;
+    private boolean syncing = false;
+    // appended to the log directory of shards, empty for the primary store
+    private String pathSuffix = "";
+    private String peerId;
+    private volatile boolean initialised = false;
+
+    @Autowired
+    public LogStructuredStorage(Config configuration) {
+        this.config = configuration;
+        this.groupLedger = GroupLedger.getInstance();
+    }
+
+    @Override
+    public void init() throws SQLException {
+        settings = config.getStorage().getLog();
+        directory = Paths.get(settings.getPath(), "nomad-" + NetworkUtility.getID() + pathSuffix);
+        peerId = config.getNetworkHostnames().getGroupStorageServer(); // right now we use the hostname
+        maintenance = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("nomad-log-maintenance-%d").setDaemon(true).build());
+
+        try {
+            Files.createDirectories(directory);
+            long start = System.nanoTime();
+            recover();
+            logger.info("Opened storage log {} with {} objects in {} segments in {}ms", directory, keydir.size(),
+                    segments.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            logger.error("Failed to open storage log: {}", e.getMessage());
+            maintenance.shutdownNow();
+            throw new SQLException(e);
+        }
+
+        if ("periodic".equals(settings.getSyncMode())) {
+            maintenance.scheduleAtFixedRate(this::sync, settings.getSyncInterval(), settings.getSyncInterval(), TimeUnit.MILLISECONDS);
+        }
+        initialised = true;
+    }
+
+    @Override
+    public LocalStorage newShard(int index) {
+        LogStructuredStorage shard = new LogStructuredStorage(config);
+        shard.pathSuffix = "-shard" + index;
+        return shard;
+    }
+
+    /**
+     * Rebuilds the key directory from the hint files of sealed segments and the entries of the tail segment
+     */
+    private void recover() throws IOException {
+        List<Integer> ids;
+        try (Stream<Path> files = Files.list(directory)) {
+            ids = files.map(LogSegment::idOf).filter(id -> id >= 0).sorted().collect(Collectors.toList());
+        }
+
+        int segmentSize = (int) (settings.getSegmentSize() * MB);
+        for (int i = 0; i < ids.size(); i++) {
+            LogSegment segment = LogSegment.open(directory, ids.get(i), segmentSize);
+            segments.put(segment.getId(), segment);
+            if (i == ids.size() - 1) {
+                // the tail has no hint yet and may end in a torn entry, appends resume after the last valid one
+                segment.scan((key, type, ttl, offset, size) -> apply(segment, key, type, ttl, offset, size));
+            } else {
+                segment.load((key, type, ttl, offset, size) -> apply(segment, key, type, ttl, offset, size));
+                if (!segment.hasHint()) {
+                    segment.writeHint();
+                }
+            }
+        }
+
+        active = segments.isEmpty() ? newSegment(1) : segments.lastEntry().getValue();
+    }
+
+    private void apply(LogSegment segment, String key, byte type, long ttl, int offset, int size) {
+        if (type == LogSegment.TOMBSTONE) {
+            release(keydir.remove(key));
+            return;
+        }
+
+        Location location = new Location(segment.getId(), offset, size, ttl);
+        Location previous = keydir.put(key, location);
+        if (!location.equals(previous)) {
+            release(previous);
+            segment.liveBytes().addAndGet(size);
+        }
+    }
+
+    @Override
+    public void close() {
+        logger.info("Closing storage log ...");
+        initialised = false;
+        if (maintenance != null) {
+            // hint files of sealed segments must be complete before the segments are closed
+            maintenance.shutdown();
+            try {
+                if (!maintenance.awaitTermination(5, TimeUnit.SECONDS)) {
+                    logger.warn("Storage log maintenance did not finish in time");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (writeLock) {
+            for (LogSegment segment : segments.values()) {
+                try {
+                    segment.force();
+                    segment.close();
+                } catch (IOException e) {
+                    logger.error("Failed to close segment {}: {}", segment.getId(), e.getMessage());
+                }
+            }
+            segments.clear();
+            keydir.clear();
+        }
+    }
+
+    @Override
+    public boolean put(GameObject object) {
+        String objectId = object.getId();
+        logger.debug("Adding object: {}", objectId);
+        if (!write(object, false)) {
+            return false;
+        }
+        addToGroupLedger(objectId, object.getTtl());
+        return true;
+    }
+
+    @Override
+    public GameObject get(String key) throws NoSuchElementException {
+        // a location can go stale if compaction moves the object between the lookup and the read
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Location location = keydir.get(key);
+            if (location == null || location.ttl < Instant.now().getEpochSecond()) {
+                break;
+            }
+            LogSegment segment = segments.get(location.segment);
+            if (segment != null) {
+                return GameObjectCodec.decode(segment.payload(location.offset));
+            }
+        }
+        throw new NoSuchElementException(key);
+    }
+
+    /**
+     * Replaces the object or stores it if it is missing, the ledger is only updated for objects this peer did not
+     * hold before
+     */
+    @Override
+    public boolean update(GameObject object) throws NoSuchElementException {
+        String objectId = object.getId();
+        logger.debug("Updating object: {}", objectId);
+        if (!write(object, true)) {
+            return false;
+        }
+        if (!groupLedger.thisPeerContainsObject(peerId, objectId)) {
+            addToGroupLedger(objectId, object.getTtl());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(String key) throws NoSuchElementException {
+        logger.debug("Deleting object: {}", key);
+        long sequence;
+        synchronized (writeLock) {
+            Location removed = keydir.remove(key);
+            if (removed == null) {
+                throw new NoSuchElementException(key);
+            }
+            release(removed);
+            if (append(LogSegment.TOMBSTONE, 0, GameObjectCodec.encodeKey(key)) == null) {
+                return false;
+            }
+            sequence = ++written;
+        }
+        awaitDurable(sequence);
+        return true;
+    }
+
+    @Override
+    public boolean isInitialised() {
+        return initialised;
+    }
+
+    @Override
+    public boolean isMalicious() {
+        return false;
+    }
+
+    /**
+     * Removes every segment and starts a new log
+     */
+    @Override
+    public void truncate() {
+        if (!initialised) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            keydir.clear();
+            int next = segments.lastKey() + 1;
+            for (LogSegment segment : segments.values()) {
+                try {
+                    segment.delete();
+                } catch (IOException e) {
+                    logger.error("Failed to delete segment {}: {}", segment.getId(), e.getMessage());
+                }
+            }
+            segments.clear();
+            try {
+                active = newSegment(next);
+            } catch (IOException e) {
+                logger.error("Truncate failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drops expired objects and compacts sealed segments whose live fraction fell below the compaction threshold
+     */
+    @Override
+    @Scheduled(fixedRateString = "${spring.schedule.dbCleanup}", initialDelay = 60000)
+    public void cleanUp() {
+        if (initialised) {
+            logger.debug("Running scheduled cleanup...");
+            int expired = removeExpired(Instant.now().getEpochSecond());
+            int compacted = compact();
+            logger.debug("{} objects expired, {} segments compacted", expired, compacted);
+        }
+    }
+
+    int removeExpired(long epochSecond) {
+        int removed = 0;
+        for (Map.Entry<String, Location> entry : keydir.entrySet()) {
+            if (entry.getValue().ttl < epochSecond) {
+                synchronized (writeLock) {
+                    if (keydir.remove(entry.getKey(), entry.getValue())) {
+                        release(entry.getValue());
+                        writeTombstoneIfShadowing(entry.getKey(), entry.getValue().segment);
+                        removed++;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    int compact() {
+        int compacted = 0;
+        for (LogSegment segment : segments.values()) {
+            if (segment == active) {
+                continue;
+            }
+            if ((double) segment.liveBytes().get() / Math.max(1, segment.getPosition()) < settings.getCompactionThreshold()) {
+                try {
+                    compact(segment);
+                    compacted++;
+                } catch (IOException e) {
+                    logger.error("Failed to compact segment {}: {}", segment.getId(), e.getMessage());
+                }
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Moves the live entries of a sealed segment to the tail of the log and deletes it. Tombstones are carried over
+     * while an older segment may still hold a value they shadow.
+     */
+    private void compact(LogSegment segment) throws IOException {
+        int id = segment.getId();
+        segment.load((key, type, ttl, offset, size) -> {
+            synchronized (writeLock) {
+                if (type == LogSegment.TOMBSTONE) {
+                    if (!keydir.containsKey(key)) {
+                        writeTombstoneIfShadowing(key, id);
+                    }
+                    return;
+                }
+
+                Location location = keydir.get(key);
+                if (location == null || location.segment != id || location.offset != offset) {
+                    return;
+                }
+                Location moved = append(LogSegment.PUT, ttl, segment.payloadBytes(offset));
+                if (moved != null) {
+                    keydir.put(key, moved);
+                }
+            }
+        });
+
+        synchronized (writeLock) {
+            active.force();
+            segments.remove(id);
+        }
+        segment.delete();
+    }
+
+    /**
+     * Object count, segment count and live bytes of the log
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("objects", (long) keydir.size());
+        result.put("segments", (long) segments.size());
+        result.put("live", segments.values().stream().mapToLong(segment -> segment.liveBytes().get()).sum());
+        return result;
+    }
+
+    private boolean write(GameObject object, boolean replace) {
+        byte[] record = GameObjectCodec.encode(object);
+        if (LogSegment.entrySize(record.length) > settings.getSegmentSize() * MB) {
+            logger.warn("Object {} of {} bytes exceeds the log segment size", object.getId(), record.length);
+            return false;
+        }
+
+        long sequence;
+        synchronized (writeLock) {
+            Location existing = keydir.get(object.getId());
+            if (!replace && existing != null && existing.ttl >= Instant.now().getEpochSecond()) {
+                logger.debug("Put failed, object {} already exists", object.getId());
+                return false;
+            }
+
+            Location location = append(LogSegment.PUT, object.getTtl(), record);
+            if (location == null) {
+                return false;
+            }
+            release(keydir.put(object.getId(), location));
+            sequence = ++written;
+        }
+        awaitDurable(sequence);
+        return true;
+    }
+
+    /**
+     * Appends to the active segment, rolling over to a new one when it is full. Must hold the write lock.
+     *
+     * @return the location of the entry, or {@code null} if a new segment could not be created
+     */
+    private Location append(byte type, long ttl, byte[] payload) {
+        int offset = active.append(type, ttl, payload);
+        if (offset < 0) {
+            try {
+                roll();
+            } catch (IOException e) {
+                logger.error("Failed to start a new log segment: {}", e.getMessage());
+                return null;
+            }
+            offset = active.append(type, ttl, payload);
+        }
+
+        int size = LogSegment.entrySize(payload.length);
+        if (type == LogSegment.PUT) {
+            active.liveBytes().addAndGet(size);
+        }
+        return new Location(active.getId(), offset, size, ttl);
+    }
+
+    /**
+     * Seals the active segment and continues in a new one, the hint file of the sealed segment is written in the
+     * background
+     */
+    private void roll() throws IOException {
+        LogSegment sealed = active;
+        sealed.force();
+        active = newSegment(sealed.getId() + 1);
+        maintenance.execute(() -> {
+            try {
+                sealed.writeHint();
+            } catch (IOException e) {
+                logger.warn("Failed to write hint file of segment {}: {}", sealed.getId(), e.getMessage());
+            }
+        });
+    }
+
+    private LogSegment newSegment(int id) throws IOException {
+        LogSegment segment = LogSegment.open(directory, id, (int) (settings.getSegmentSize() * MB));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    // a value of the key may survive in a segment older than the one it was dropped from, which a restart would revive
+    private void writeTombstoneIfShadowing(String key, int segment) {
+        if (segments.firstKey() < segment) {
+            append(LogSegment.TOMBSTONE, 0, GameObjectCodec.encodeKey(key));
+        }
+    }
+
+    private void release(Location location) {
+        if (location != null) {
+            LogSegment segment = segments.get(location.segment);
+            if (segment != null) {
+                segment.liveBytes().addAndGet(-location.size);
+            }
+        }
+    }
+
+    /**
+     * Blocks until the write with the given sequence number is synced, as far as the sync mode requires
+     */
+    private void awaitDurable(long sequence) {
+        String mode = settings.getSyncMode();
+        if ("write".equals(mode)) {
+            active.force();
+        } else if ("group".equals(mode)) {
+            groupCommit(sequence);
+        }
+    }
+
+    /**
+     * The first writer to find no sync in progress syncs on behalf of every write up to now, the others wait for it
+     */
+    private void groupCommit(long sequence) {
+        synchronized (syncLock) {
+            while (synced < sequence && syncing) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (synced >= sequence) {
+                return;
+            }
+            syncing = true;
+        }
+
+        long target;
+        synchronized (writeLock) {
+            target = written;
+        }
+        try {
+            active.force();
+        } finally {
+            synchronized (syncLock) {
+                synced = Math.max(synced, target);
+                syncing = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    private void sync() {
+        try {
+            active.force();
+        } catch (RuntimeException e) {
+            logger.warn("Periodic sync failed: {}", e.getMessage());
+        }
+    }
+
+    private void addToGroupLedger(String objectId, long TTL) {
+        if (peerId.isEmpty()) {
+            logger.error("PeerID/group-storage hostname was not set correctly in the config!");
+            peerId = config.getNetworkHostnames().getGroupStorageServer();
+        }
+        groupLedger.addToObjectLedger(objectId, MetaData.builder().ttl(TTL).id(peerId).build());
+        groupLedger.addToPeerLedger(peerId, MetaData.builder().ttl(TTL).id(objectId).build());
+    }
+
+    /**
+     * Position of the latest entry of an object in the log
+     */
+    private static final class Location {
+        private final int segment;
+        private final int offset;
+        private final int size;
+        private final long ttl;
+
+        private Location(int segment, int offset, int size, long ttl) {
+            this.segment = segment;
+            this.offset = offset;
+            this.size = size;
+            this.ttl = ttl;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Location)) {
+                return false;
+            }
+            Location location = (Location) other;
+            return segment == location.segment && offset == location.offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * segment + offset;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.nomad.storage.local;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash table from object id to the handle of its off-heap record, one per storage segment.
+ * <p>
+ * Only the hash and the record handle are kept on the heap, ids are compared against the record itself. Collisions are
+ * resolved by linear probing and removals shift the following entries back, so no tombstones accumulate. The index is
+ * not thread-safe, the owning segment guards it with its lock.
+ */
+class OffHeapIndex {
+    static final long EMPTY = -1L;
+    private static final float LOAD_FACTOR = 0.75f;
+    // record layout of GameObjectCodec: format version (1 byte), id length (4 bytes), id
+    private static final int ID_LENGTH_OFFSET = 1;
+    private static final int ID_OFFSET = 5;
+    private final SlabAllocator allocator;
+    private int[] hashes;
+    private long[] handles;
+    private int mask;
+    private int size = 0;
+
+    OffHeapIndex(SlabAllocator allocator, int initialCapacity) {
+        this.allocator = allocator;
+        allocate(Integer.highestOneBit(Math.max(16, initialCapacity - 1) << 1));
+    }
+
+    long find(int hash, byte[] id) {
+        for (int slot = hash & mask; handles[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && idEquals(handles[slot], id)) {
+                return handles[slot];
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * @return the handle previously stored for the id, or {@link #EMPTY}
+     */
+    long put(int hash, byte[] id, long handle) {
+        int slot = hash & mask;
+        for (; handles[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && idEquals(handles[slot], id)) {
+                long previous = handles[slot];
+                handles[slot] = handle;
+                return previous;
+            }
+        }
+
+        hashes[slot] = hash;
+        handles[slot] = handle;
+        if (++size > mask * LOAD_FACTOR) {
+            resize();
+        }
+        return EMPTY;
+    }
+
+    /**
+     * @return the handle removed for the id, or {@link #EMPTY}
+     */
+    long remove(int hash, byte[] id) {
+        for (int slot = hash & mask; handles[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && idEquals(handles[slot], id)) {
+                long removed = handles[slot];
+                removeAt(slot);
+                return removed;
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Removes every entry whose handle matches the predicate and passes the removed handles to the consumer
+     *
+     * @return the number of entries removed
+     */
+    int removeIf(LongPredicate predicate, LongConsumer removed) {
+        int count = 0;
+        for (int slot = 0; slot < handles.length; ) {
+            long handle = handles[slot];
+            if (handle != EMPTY && predicate.test(handle)) {
+                removeAt(slot);
+                removed.accept(handle);
+                count++;
+                // the slot now holds a shifted entry, which has to be tested as well
+            } else {
+                slot++;
+            }
+        }
+        return count;
+    }
+
+    void clear(LongConsumer removed) {
+        for (long handle : handles) {
+            if (handle != EMPTY) {
+                removed.accept(handle);
+            }
+        }
+        Arrays.fill(handles, EMPTY);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void removeAt(int slot) {
+        int gap = slot;
+        for (int next = (gap + 1) & mask; handles[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hashes[next] & mask;
+            // an entry may only move back if the gap lies between its home slot and its current slot
+            boolean movable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                hashes[gap] = hashes[next];
+                handles[gap] = handles[next];
+                gap = next;
+            }
+        }
+        handles[gap] = EMPTY;
+        size--;
+    }
+
+    private void resize() {
+        int[] oldHashes = hashes;
+        long[] oldHandles = handles;
+        allocate(handles.length * 2);
+        for (int i = 0; i < oldHandles.length; i++) {
+            if (oldHandles[i] != EMPTY) {
+                int slot = oldHashes[i] & mask;
+                while (handles[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = oldHashes[i];
+                handles[slot] = oldHandles[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new int[capacity];
+        handles = new long[capacity];
+        Arrays.fill(handles, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private boolean idEquals(long handle, byte[] id) {
+        ByteBuffer slab = allocator.slab(handle);
+        int offset = SlabAllocator.offset(handle);
+        if (slab.getInt(offset + ID_LENGTH_OFFSET) != id.length) {
+            return false;
+        }
+        int start = offset + ID_OFFSET;
+        for (int i = 0; i < id.length; i++) {
+            if (slab.get(start + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
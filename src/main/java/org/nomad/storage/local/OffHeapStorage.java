@@ -0,0 +1,325 @@
+package org.nomad.storage.local;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import org.nomad.config.Config;
+import org.nomad.config.OffHeapConfiguration;
+import org.nomad.pithos.components.GenericGroupLedger;
+import org.nomad.pithos.components.GroupLedger;
+import org.nomad.pithos.models.GameObject;
+import org.nomad.pithos.models.MetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory local storage that keeps objects outside the Java heap.
+ * <p>
+ * Records are written in the {@link GameObjectCodec} format into chunks of a {@link SlabAllocator} and found through
+ * an {@link OffHeapIndex} per segment, so the heap only holds two primitive arrays per segment regardless of the number
+ * of objects. Segments are locked independently, gets of different segments never contend. An object whose TTL has
+ * passed is not returned and its memory is reclaimed by the scheduled clean-up, or earlier if the memory cap is
+ * reached. Nothing survives a restart.
+ */
+@Component
+@Profile("offheap")
+public class OffHeapStorage implements LocalStorage {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapStorage.class);
+    private static final long MB = 1024 * 1024;
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+    // record layout of GameObjectCodec: the TTL follows the id, creation time and last modified
+    private static final int TTL_OFFSET = 5 + 8 + 8;
+    private final Config config;
+    private final GenericGroupLedger groupLedger;
+    private SlabAllocator allocator;
+    private Segment[] segments;
+    private int segmentShift;
+    private String peerId;
+    // a shard gets its share of the memory cap
+    private int memoryShares = 1;
+    private volatile boolean initialised = false;
+
+    @Autowired
+    public OffHeapStorage(Config configuration) {
+        this.config = configuration;
+        this.groupLedger = GroupLedger.getInstance();
+    }
+
+    @Override
+    public void init() {
+        OffHeapConfiguration offheap = config.getStorage().getOffheap();
+        int segmentCount = Integer.highestOneBit(Math.max(1, offheap.getSegments()));
+        long memoryCap = offheap.getMemoryCap() * MB / memoryShares;
+        logger.info("Reserving up to {}MB off-heap memory in {} segments ...", memoryCap / MB, segmentCount);
+
+        allocator = new SlabAllocator(memoryCap, (int) (offheap.getSlabSize() * MB),
+                offheap.getMinChunkSize(), offheap.getGrowthFactor());
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(new OffHeapIndex(allocator, INITIAL_SEGMENT_CAPACITY));
+        }
+        // the upper hash bits select the segment, the lower ones the slot within it
+        segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        peerId = config.getNetworkHostnames().getGroupStorageServer(); // right now we use the hostname
+        initialised = true;
+    }
+
+    @Override
+    public void close() {
+        logger.info("Releasing off-heap storage ...");
+        initialised = false;
+        truncate();
+        allocator.release();
+    }
+
+    @Override
+    public boolean put(GameObject object) {
+        String objectId = object.getId();
+        logger.debug("Adding object: {}", objectId);
+        if (!write(object, false)) {
+            return false;
+        }
+        addToGroupLedger(objectId, object.getTtl());
+        return true;
+    }
+
+    @Override
+    public GameObject get(String key) throws NoSuchElementException {
+        byte[] id = GameObjectCodec.encodeKey(key);
+        int hash = HashCommon.mix(key.hashCode());
+        Segment segment = segmentFor(hash);
+
+        GameObject object = null;
+        segment.lock.readLock().lock();
+        try {
+            long handle = segment.index.find(hash, id);
+            if (handle != OffHeapIndex.EMPTY && !isExpired(handle, Instant.now().getEpochSecond())) {
+                ByteBuffer record = allocator.slab(handle).duplicate();
+                record.position(SlabAllocator.offset(handle));
+                object = GameObjectCodec.decode(record);
+            }
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+
+        if (object == null) {
+            throw new NoSuchElementException(key);
+        }
+        return object;
+    }
+
+    /**
+     * Replaces the object or stores it if it is missing, the ledger is only updated for objects this peer did not
+     * hold before
+     */
+    @Override
+    public boolean update(GameObject object) throws NoSuchElementException {
+        String objectId = object.getId();
+        logger.debug("Updating object: {}", objectId);
+        if (!write(object, true)) {
+            return false;
+        }
+        if (!groupLedger.thisPeerContainsObject(peerId, objectId)) {
+            addToGroupLedger(objectId, object.getTtl());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(String key) throws NoSuchElementException {
+        logger.debug("Deleting object: {}", key);
+        byte[] id = GameObjectCodec.encodeKey(key);
+        int hash = HashCommon.mix(key.hashCode());
+        Segment segment = segmentFor(hash);
+
+        long removed;
+        segment.lock.writeLock().lock();
+        try {
+            removed = segment.index.remove(hash, id);
+            if (removed != OffHeapIndex.EMPTY) {
+                allocator.free(removed);
+            }
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+
+        if (removed == OffHeapIndex.EMPTY) {
+            throw new NoSuchElementException(key);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isInitialised() {
+        return initialised;
+    }
+
+    @Override
+    public boolean isMalicious() {
+        return false;
+    }
+
+    /**
+     * Every shard has its own slab allocator with an equal share of the memory cap
+     */
+    @Override
+    public LocalStorage newShard(int index) {
+        OffHeapStorage shard = new OffHeapStorage(config);
+        shard.memoryShares = Math.max(1, config.getStorage().getShards());
+        return shard;
+    }
+
+    @Override
+    public void truncate() {
+        if (segments == null) {
+            return;
+        }
+        for (Segment segment : segments) {
+            segment.lock.writeLock().lock();
+            try {
+                segment.index.clear(allocator::free);
+            } finally {
+                segment.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    @Scheduled(fixedRateString = "${spring.schedule.dbCleanup}", initialDelay = 60000)
+    public void cleanUp() {
+        if (initialised) {
+            logger.debug("Running scheduled cleanup...");
+            int removed = removeExpired(Instant.now().getEpochSecond());
+            if (removed == 0) {
+                logger.debug("Nothing to clean");
+            } else {
+                logger.debug("{} objects cleaned", removed);
+            }
+        }
+    }
+
+    /**
+     * Frees every object whose TTL lies before the given epoch second
+     *
+     * @return the number of objects removed
+     */
+    int removeExpired(long epochSecond) {
+        int removed = 0;
+        for (Segment segment : segments) {
+            segment.lock.writeLock().lock();
+            try {
+                removed += segment.index.removeIf(handle -> isExpired(handle, epochSecond), allocator::free);
+            } finally {
+                segment.lock.writeLock().unlock();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Object count and memory use in bytes: {@code used} by live chunks, {@code reserved} by slabs and the {@code cap}
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (!initialised) {
+            return result;
+        }
+
+        long objects = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                objects += segment.index.size();
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        result.put("objects", objects);
+        result.put("used", allocator.usedBytes());
+        result.put("reserved", allocator.reservedBytes());
+        result.put("cap", allocator.capacity());
+        return result;
+    }
+
+    /**
+     * Encodes the object into a new chunk before taking the segment lock, so the lock only covers the index update
+     */
+    private boolean write(GameObject object, boolean replace) {
+        int size = GameObjectCodec.encodedSize(object);
+        if (size > allocator.maxChunkSize()) {
+            logger.warn("Object {} of {} bytes exceeds the off-heap slab size", object.getId(), size);
+            return false;
+        }
+
+        long handle = allocator.allocate(size);
+        if (handle == SlabAllocator.NO_SPACE && removeExpired(Instant.now().getEpochSecond()) > 0) {
+            handle = allocator.allocate(size);
+        }
+        if (handle == SlabAllocator.NO_SPACE) {
+            logger.warn("Off-heap storage is full, cannot store object {}", object.getId());
+            return false;
+        }
+        ByteBuffer record = allocator.slab(handle).duplicate();
+        record.position(SlabAllocator.offset(handle));
+        GameObjectCodec.encode(object, record);
+
+        byte[] id = GameObjectCodec.encodeKey(object.getId());
+        int hash = HashCommon.mix(object.getId().hashCode());
+        Segment segment = segmentFor(hash);
+        segment.lock.writeLock().lock();
+        try {
+            long existing = segment.index.find(hash, id);
+            if (existing != OffHeapIndex.EMPTY && !replace && !isExpired(existing, Instant.now().getEpochSecond())) {
+                allocator.free(handle);
+                logger.debug("Put failed, object {} already exists", object.getId());
+                return false;
+            }
+            long previous = segment.index.put(hash, id, handle);
+            if (previous != OffHeapIndex.EMPTY) {
+                allocator.free(previous);
+            }
+            return true;
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    // same rule as the other local storages, an object expires once its TTL lies in the past
+    private boolean isExpired(long handle, long epochSecond) {
+        ByteBuffer slab = allocator.slab(handle);
+        int offset = SlabAllocator.offset(handle);
+        int idLength = slab.getInt(offset + 1);
+        return slab.getLong(offset + TTL_OFFSET + idLength) < epochSecond;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    private void addToGroupLedger(String objectId, long TTL) {
+        if (peerId.isEmpty()) {
+            logger.error("PeerID/group-storage hostname was not set correctly in the config!");
+            peerId = config.getNetworkHostnames().getGroupStorageServer();
+        }
+        groupLedger.addToObjectLedger(objectId, MetaData.builder().ttl(TTL).id(peerId).build());
+        groupLedger.addToPeerLedger(peerId, MetaData.builder().ttl(TTL).id(objectId).build());
+    }
+
+    private static final class Segment {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final OffHeapIndex index;
+
+        private Segment(OffHeapIndex index) {
+            this.index = index;
+        }
+    }
+}
@@ -2,38 +2,102 @@ package org.nomad.storage.local;
 
 import org.nomad.commons.NetworkUtility;
 import org.nomad.config.Config;
+import org.nomad.config.RocksDBConfiguration;
 import org.nomad.pithos.components.GenericGroupLedger;
 import org.nomad.pithos.components.GroupLedger;
 import org.nomad.pithos.models.GameObject;
 import org.nomad.pithos.models.MetaData;
-import org.rocksdb.Options;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Slice;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
 import org.rocksdb.TtlDB;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.util.SerializationUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * RocksDB backed local storage.
+ * <p>
+ * Objects live in their own column family next to an expiry index keyed by TTL and object id, so expired objects are
+ * found without scanning the store and the whole store can be truncated by dropping both column families. An object
+ * whose TTL has passed is never returned, even before the scheduled clean-up removed it.
+ */
 @Component
 @Profile("rocksdb")
 @DependsOn("ZookeeperDirectoryServerClient")
 public class RocksDBStorage implements LocalStorage {
+    private static final Logger logger = LoggerFactory.getLogger(RocksDBStorage.class);
+    private static final byte[] OBJECT_COLUMN = "gameobjects".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EXPIRY_COLUMN = "expiry".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EMPTY = new byte[0];
+    private static final long MB = 1024 * 1024;
+    private static final int WRITE_BATCH_SIZE = 1000;
+    private static final TickerType[] TICKERS = {
+            TickerType.BLOCK_CACHE_HIT,
+            TickerType.BLOCK_CACHE_MISS,
+            TickerType.BLOOM_FILTER_USEFUL,
+            TickerType.MEMTABLE_HIT,
+            TickerType.MEMTABLE_MISS,
+            TickerType.NUMBER_KEYS_READ,
+            TickerType.NUMBER_KEYS_WRITTEN,
+            TickerType.BYTES_READ,
+            TickerType.BYTES_WRITTEN,
+            TickerType.COMPACTION_KEY_DROP_USER
+    };
+
     private final Config config;
     private final GenericGroupLedger groupLedger;
+    // column family handles are replaced by truncate, which holds the write lock while every other operation holds
+    // the read lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private TtlDB db;
+    private DBOptions dbOptions;
+    private ColumnFamilyOptions columnOptions;
+    private WriteOptions writeOptions;
+    private LRUCache blockCache;
+    private BloomFilter bloomFilter;
+    private Statistics statistics;
+    private ColumnFamilyHandle defaultColumn;
+    private ColumnFamilyHandle objectColumn;
+    private ColumnFamilyHandle expiryColumn;
+    private int maxAge;
+    // appended to the database directory of shards, empty for the primary store
+    private String pathSuffix = "";
     private String peerId;
-    private boolean initialised = false;
-    private static final Logger logger = LoggerFactory.getLogger(RocksDBStorage.class);
+    private volatile boolean initialised = false;
 
     @Autowired
     public RocksDBStorage(Config configuration) {
@@ -44,21 +108,66 @@ public class RocksDBStorage implements LocalStorage {
     @Override
     public void init() throws SQLException {
         logger.info("Opening RocksDB instance ...");
-        TtlDB.loadLibrary();
-        String id = NetworkUtility.getID();
-        this.initialised = true;
+        RocksDB.loadLibrary();
+        RocksDBConfiguration rocksdb = config.getStorage().getRocksdb();
         peerId = config.getNetworkHostnames().getGroupStorageServer(); // right now we use the hostname
-        Options options = new Options().setCreateIfMissing(true).optimizeForSmallDb();
+        maxAge = rocksdb.getMaxAge();
+
+        lock.writeLock().lock();
         try {
-            String dirName = "nomad-rocksdb";
-            String dbName = "/nomad-" + id;
-            createDirectory(dirName);
-            db = TtlDB.open(options, dirName + dbName, 300, false);
+            createDirectory(rocksdb.getPath());
+            openDatabase(rocksdb, rocksdb.getPath() + "/nomad-" + NetworkUtility.getID() + pathSuffix);
+            migrateLegacyRecords();
+            this.initialised = true;
         } catch (RocksDBException | IOException e) {
-            e.printStackTrace();
+            logger.error("Failed to open RocksDB: {}", e.getMessage());
+            throw new SQLException(e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
+    @Override
+    public LocalStorage newShard(int index) {
+        RocksDBStorage shard = new RocksDBStorage(config);
+        shard.pathSuffix = "-shard" + index;
+        return shard;
+    }
+
+    private void openDatabase(RocksDBConfiguration rocksdb, String path) throws RocksDBException {
+        dbOptions = new DBOptions()
+                .setCreateIfMissing(true)
+                .setCreateMissingColumnFamilies(true);
+        if (rocksdb.isStatistics()) {
+            statistics = new Statistics();
+            dbOptions.setStatistics(statistics);
+        }
+
+        blockCache = new LRUCache(rocksdb.getBlockCacheSize() * MB);
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig()
+                .setBlockCache(blockCache)
+                .setCacheIndexAndFilterBlocks(true);
+        if (rocksdb.getBloomFilterBits() > 0) {
+            bloomFilter = new BloomFilter(rocksdb.getBloomFilterBits(), false);
+            tableConfig.setFilterPolicy(bloomFilter);
+        }
+        columnOptions = new ColumnFamilyOptions()
+                .setWriteBufferSize(rocksdb.getWriteBufferSize() * MB)
+                .setMaxWriteBufferNumber(rocksdb.getMaxWriteBufferNumber())
+                .setTableFormatConfig(tableConfig);
+        writeOptions = new WriteOptions();
+
+        List<ColumnFamilyDescriptor> descriptors = Arrays.asList(
+                new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, columnOptions),
+                new ColumnFamilyDescriptor(OBJECT_COLUMN, columnOptions),
+                new ColumnFamilyDescriptor(EXPIRY_COLUMN, columnOptions));
+        List<ColumnFamilyHandle> handles = new ArrayList<>(descriptors.size());
+        db = TtlDB.open(dbOptions, path, descriptors, handles, Arrays.asList(maxAge, maxAge, maxAge), false);
+        defaultColumn = handles.get(0);
+        objectColumn = handles.get(1);
+        expiryColumn = handles.get(2);
+    }
+
     private File createDirectory(String directoryPath) throws IOException {
         File dir = new File(directoryPath);
         if (dir.exists()) {
@@ -72,8 +181,20 @@ public class RocksDBStorage implements LocalStorage {
 
     @Override
     public void close() throws SQLException {
-        db.close();
-        this.initialised = false;
+        lock.writeLock().lock();
+        try {
+            this.initialised = false;
+            for (AutoCloseable resource : Arrays.asList(defaultColumn, objectColumn, expiryColumn, db, writeOptions,
+                    columnOptions, dbOptions, statistics, bloomFilter, blockCache)) {
+                if (resource != null) {
+                    resource.close();
+                }
+            }
+        } catch (Exception e) {
+            throw new SQLException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
@@ -82,14 +203,9 @@ public class RocksDBStorage implements LocalStorage {
         long TTL = object.getTtl();
         logger.info("Adding object: {}", objectId);
 
-        byte[] id = objectId.getBytes(StandardCharsets.UTF_8);
-        try {
-            byte[] data = SerializationUtils.serialize(object);
-            db.put(id, data);
+        if (write(object)) {
             addToGroupLedger(objectId, TTL);
             return true;
-        } catch (RocksDBException e) {
-            e.printStackTrace();
         }
         return false;
     }
@@ -97,16 +213,22 @@ public class RocksDBStorage implements LocalStorage {
     @Override
     public GameObject get(String key) throws NoSuchElementException {
         logger.info("Retrieving object: {}", key);
-        byte[] id = key.getBytes(StandardCharsets.UTF_8);
+        byte[] id = GameObjectCodec.encodeKey(key);
+        lock.readLock().lock();
         try {
-            byte[] getResult = db.get(id);
+            byte[] getResult = db.get(objectColumn, id);
             if (getResult == null) {
                 throw new NoSuchElementException(key);
             }
-            return (GameObject) SerializationUtils.deserialize(getResult);
+            GameObject object = decode(getResult);
+            if (isExpired(object, Instant.now().getEpochSecond())) {
+                throw new NoSuchElementException(key);
+            }
+            return object;
         } catch (RocksDBException e) {
-            e.printStackTrace();
             logger.error("Get failed: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
         }
         throw new NoSuchElementException();
     }
@@ -119,34 +241,30 @@ public class RocksDBStorage implements LocalStorage {
             return put(object);
         }
 
-        byte[] id = object.getId().getBytes(StandardCharsets.UTF_8);
-        try {
-            logger.debug("Updating object: {}", objectId);
-            byte[] data = SerializationUtils.serialize(object);
-            db.put(id, data);
-            return true;
-        } catch (RocksDBException e) {
-            e.printStackTrace();
-        }
-        return false;
+        logger.debug("Updating object: {}", objectId);
+        return write(object);
     }
 
     @Override
     public boolean delete(String key) throws NoSuchElementException {
         logger.debug("Deleting object: {}", key);
-        byte[] id = key.getBytes(StandardCharsets.UTF_8);
+        byte[] id = GameObjectCodec.encodeKey(key);
+        lock.readLock().lock();
         try {
-            db.delete(id);
+            // the expiry entry is left behind, the clean-up discards entries whose object is gone
+            db.delete(objectColumn, writeOptions, id);
             return true;
         } catch (RocksDBException e) {
-            e.printStackTrace();
+            logger.error("Delete failed: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
         }
         return false;
     }
 
     @Override
     public boolean isInitialised() {
-        return false;
+        return initialised;
     }
 
     @Override
@@ -154,8 +272,177 @@ public class RocksDBStorage implements LocalStorage {
         return false;
     }
 
+    /**
+     * Drops and recreates the object and expiry column families, which releases their files at once instead of
+     * writing a tombstone per object
+     */
     @Override
     public void truncate() {
+        if (!initialised) {
+            logger.debug("Not truncating, not initialised...");
+            return;
+        }
+
+        logger.debug("Truncating gameobjects column family...");
+        lock.writeLock().lock();
+        try {
+            db.dropColumnFamilies(Arrays.asList(objectColumn, expiryColumn));
+            objectColumn.close();
+            expiryColumn.close();
+            objectColumn = db.createColumnFamilyWithTtl(new ColumnFamilyDescriptor(OBJECT_COLUMN, columnOptions), maxAge);
+            expiryColumn = db.createColumnFamilyWithTtl(new ColumnFamilyDescriptor(EXPIRY_COLUMN, columnOptions), maxAge);
+            logger.debug("Truncate successful!");
+        } catch (RocksDBException e) {
+            logger.error("Truncate failed: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    @Scheduled(fixedRateString = "${spring.schedule.dbCleanup}", initialDelay = 60000)
+    public void cleanUp() {
+        if (initialised) {
+            logger.debug("Running scheduled cleanup...");
+            try {
+                int removed = removeExpired(Instant.now().getEpochSecond());
+                if (removed == 0) {
+                    logger.debug("Nothing to clean");
+                } else {
+                    logger.debug("{} objects cleaned", removed);
+                }
+            } catch (RocksDBException e) {
+                logger.error("Cleanup failed: {}", e.getMessage());
+            }
+            logger.debug("RocksDB statistics: {}", getStatistics());
+        }
+    }
+
+    /**
+     * Deletes every object whose TTL lies before the given epoch second. Only the expiry index entries that have come
+     * due are visited, stale entries of objects that were deleted or rewritten with a later TTL are dropped on the way.
+     *
+     * @return the number of objects deleted
+     */
+    int removeExpired(long epochSecond) throws RocksDBException {
+        int removed = 0;
+        lock.readLock().lock();
+        try (Slice upperBound = new Slice(ByteBuffer.allocate(Long.BYTES).putLong(Math.max(0, epochSecond)).array());
+             ReadOptions readOptions = new ReadOptions().setIterateUpperBound(upperBound);
+             RocksIterator iterator = db.newIterator(expiryColumn, readOptions);
+             WriteBatch batch = new WriteBatch()) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] expiryKey = iterator.key();
+                byte[] id = Arrays.copyOfRange(expiryKey, Long.BYTES, expiryKey.length);
+                byte[] value = db.get(objectColumn, id);
+                if (value != null && isExpired(decode(value), epochSecond)) {
+                    batch.delete(objectColumn, id);
+                    removed++;
+                }
+                batch.delete(expiryColumn, expiryKey);
+                if (batch.count() >= WRITE_BATCH_SIZE) {
+                    db.write(writeOptions, batch);
+                    batch.clear();
+                }
+            }
+            db.write(writeOptions, batch);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return removed;
+    }
+
+    /**
+     * Ticker counts of the RocksDB statistics, if enabled, together with the estimated number of objects and the
+     * memory held by the block cache and memtables
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (!initialised) {
+            return result;
+        }
+
+        lock.readLock().lock();
+        try {
+            result.put("estimate-num-keys", db.getLongProperty(objectColumn, "rocksdb.estimate-num-keys"));
+            result.put("block-cache-usage", db.getLongProperty("rocksdb.block-cache-usage"));
+            result.put("cur-size-all-mem-tables", db.getLongProperty("rocksdb.cur-size-all-mem-tables"));
+            if (statistics != null) {
+                for (TickerType ticker : TICKERS) {
+                    result.put(ticker.name().toLowerCase(), statistics.getTickerCount(ticker));
+                }
+            }
+        } catch (RocksDBException e) {
+            logger.error("Failed to read RocksDB properties: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private boolean write(GameObject object) {
+        byte[] id = GameObjectCodec.encodeKey(object.getId());
+        lock.readLock().lock();
+        try (WriteBatch batch = new WriteBatch()) {
+            batch.put(objectColumn, id, GameObjectCodec.encode(object));
+            batch.put(expiryColumn, expiryKey(object.getTtl(), id), EMPTY);
+            db.write(writeOptions, batch);
+            return true;
+        } catch (RocksDBException e) {
+            logger.error("Write failed: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return false;
+    }
+
+    // same rule as the H2 storage clean-up, an object expires once its TTL lies in the past
+    private static boolean isExpired(GameObject object, long epochSecond) {
+        return object.getTtl() < epochSecond;
+    }
+
+    /**
+     * Expiry index key, the big-endian TTL first so that the index iterates in expiry order
+     */
+    private static byte[] expiryKey(long ttl, byte[] id) {
+        return ByteBuffer.allocate(Long.BYTES + id.length)
+                .putLong(Math.max(0, ttl))
+                .put(id)
+                .array();
+    }
+
+    private static GameObject decode(byte[] data) {
+        if (GameObjectCodec.isJavaSerialized(data)) {
+            return (GameObject) SerializationUtils.deserialize(data);
+        }
+        return GameObjectCodec.decode(data);
+    }
+
+    /**
+     * Earlier versions kept objects in the default column family, some of them Java-serialized. Those records are
+     * moved into the object column family in the binary codec format and indexed by expiry before the storage is used.
+     */
+    private void migrateLegacyRecords() throws RocksDBException {
+        int migrated = 0;
+        try (RocksIterator iterator = db.newIterator(defaultColumn);
+             WriteBatch batch = new WriteBatch()) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] key = iterator.key();
+                GameObject object = decode(iterator.value());
+                batch.put(objectColumn, key, GameObjectCodec.encode(object));
+                batch.put(expiryColumn, expiryKey(object.getTtl(), key), EMPTY);
+                batch.delete(defaultColumn, key);
+                migrated++;
+                if (batch.count() >= WRITE_BATCH_SIZE) {
+                    db.write(writeOptions, batch);
+                    batch.clear();
+                }
+            }
+            db.write(writeOptions, batch);
+        }
+        if (migrated > 0) {
+            logger.info("Migrated {} objects to the object column family", migrated);
+        }
     }
 
     private void addToGroupLedger(String objectId, long TTL) {
@@ -0,0 +1,351 @@
+package org.nomad.storage.local;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import lombok.Value;
+import org.nomad.config.Config;
+import org.nomad.pithos.models.GameObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local storage that hash-partitions objects across several independent stores of the active backend.
+ * <p>
+ * Point operations run on the calling thread against the shard owning the object, so callers on different shards never
+ * contend on the same connection or lock. Every shard also has a single-threaded executor that runs its share of bulk
+ * operations (batch puts, clean-up, truncate) in parallel with the other shards, and the async variants of the point
+ * operations. Enabled by setting {@code node.storage.shards} above 1.
+ */
+@Primary
+@Component
+@ConditionalOnExpression("${node.storage.shards:1} > 1")
+public class ShardedLocalStorage implements LocalStorage {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedLocalStorage.class);
+    private static final long SHUTDOWN_TIMEOUT = 5;
+    private final ObjectList<Shard> shards;
+    private final boolean malicious;
+    private volatile boolean initialised = false;
+
+    @Autowired
+    public ShardedLocalStorage(Config config, List<LocalStorage> backends) {
+        this(backends.stream()
+                .filter(backend -> !(backend instanceof ShardedLocalStorage))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No local storage backend to shard")),
+                config.getStorage().getShards(),
+                Boolean.TRUE.equals(config.getMalicious()));
+    }
+
+    ShardedLocalStorage(LocalStorage template, int shardCount, boolean malicious) {
+        int count = Math.max(1, shardCount);
+        this.shards = new ObjectArrayList<>(count);
+        this.malicious = malicious;
+        for (int i = 0; i < count; i++) {
+            shards.add(new Shard(i, template.newShard(i)));
+        }
+        logger.info("Partitioning local storage across {} {} shards", count, template.getClass().getSimpleName());
+    }
+
+    @Override
+    public void init() throws SQLException {
+        awaitAll(shard -> () -> {
+            shard.storage.init();
+            return null;
+        });
+        initialised = true;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        initialised = false;
+        try {
+            awaitAll(shard -> () -> {
+                shard.storage.close();
+                return null;
+            });
+        } finally {
+            for (Shard shard : shards) {
+                shard.executor.shutdown();
+            }
+            for (Shard shard : shards) {
+                try {
+                    if (!shard.executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                        shard.executor.shutdownNow();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    shard.executor.shutdownNow();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean put(GameObject value) {
+        return shardFor(value.getId()).put(value);
+    }
+
+    @Override
+    public Map<String, Boolean> putAll(Collection<GameObject> values) {
+        ObjectList<ObjectList<GameObject>> partitions = new ObjectArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            partitions.add(new ObjectArrayList<>());
+        }
+        for (GameObject value : values) {
+            partitions.get(indexOf(value.getId())).add(value);
+        }
+
+        ObjectList<ListenableFuture<Map<String, Boolean>>> futures = new ObjectArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            ObjectList<GameObject> partition = partitions.get(i);
+            if (!partition.isEmpty()) {
+                Shard shard = shards.get(i);
+                futures.add(shard.executor.submit(() -> shard.putAll(partition)));
+            }
+        }
+
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        try {
+            // a failed shard yields null, only its own partition is reported as failed below
+            for (Map<String, Boolean> shardResults : Futures.successfulAsList(futures).get()) {
+                if (shardResults != null) {
+                    results.putAll(shardResults);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for sharded batch put");
+        } catch (ExecutionException e) {
+            logger.warn("Sharded batch put failed: {}", e.getCause().getMessage());
+        }
+        for (GameObject value : values) {
+            results.putIfAbsent(value.getId(), false);
+        }
+        return results;
+    }
+
+    /**
+     * Shards are partitions of this store and are not partitioned again
+     */
+    @Override
+    public LocalStorage newShard(int index) {
+        throw new UnsupportedOperationException("Local storage is already sharded");
+    }
+
+    @Override
+    public GameObject get(String key) throws NoSuchElementException {
+        return shardFor(key).get(key);
+    }
+
+    @Override
+    public boolean update(GameObject value) throws NoSuchElementException {
+        return shardFor(value.getId()).update(value);
+    }
+
+    @Override
+    public boolean delete(String key) throws NoSuchElementException {
+        return shardFor(key).delete(key);
+    }
+
+    public ListenableFuture<Boolean> putAsync(GameObject value) {
+        Shard shard = shardFor(value.getId());
+        return shard.executor.submit(() -> shard.put(value));
+    }
+
+    /**
+     * @return a future failing with {@link NoSuchElementException} if the object is not stored
+     */
+    public ListenableFuture<GameObject> getAsync(String key) {
+        Shard shard = shardFor(key);
+        return shard.executor.submit(() -> shard.get(key));
+    }
+
+    @Override
+    public boolean isInitialised() {
+        return initialised;
+    }
+
+    @Override
+    public boolean isMalicious() {
+        return malicious;
+    }
+
+    @Override
+    public void truncate() {
+        try {
+            awaitAll(shard -> () -> {
+                shard.storage.truncate();
+                return null;
+            });
+        } catch (SQLException e) {
+            logger.error("Truncate failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    @Scheduled(fixedRateString = "${spring.schedule.dbCleanup}", initialDelay = 60000)
+    public void cleanUp() {
+        if (initialised) {
+            try {
+                awaitAll(shard -> () -> {
+                    shard.storage.cleanUp();
+                    return null;
+                });
+            } catch (SQLException e) {
+                logger.error("Cleanup failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public ObjectList<ShardStatistics> getShardStatistics() {
+        ObjectList<ShardStatistics> statistics = new ObjectArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            statistics.add(shard.statistics());
+        }
+        return statistics;
+    }
+
+    int indexOf(String id) {
+        return Math.floorMod(HashCommon.mix(id.hashCode()), shards.size());
+    }
+
+    private Shard shardFor(String id) {
+        return shards.get(indexOf(id));
+    }
+
+    /**
+     * Runs the task of every shard on that shard's executor and waits for all of them
+     */
+    private void awaitAll(ShardTask task) throws SQLException {
+        ObjectList<ListenableFuture<Void>> futures = new ObjectArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(shard.executor.submit(task.on(shard)));
+        }
+        try {
+            Futures.allAsList(futures).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for local storage shards", e);
+        } catch (ExecutionException e) {
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    private interface ShardTask {
+        Callable<Void> on(Shard shard);
+    }
+
+    /**
+     * Point-in-time counters of a single shard
+     */
+    @Value
+    public static class ShardStatistics {
+        int index;
+        long puts;
+        long gets;
+        long misses;
+        long updates;
+        long deletes;
+        long failures;
+        int queueDepth;
+    }
+
+    private static final class Shard {
+        private final int index;
+        private final LocalStorage storage;
+        private final ThreadPoolExecutor threadPool;
+        private final ListeningExecutorService executor;
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder gets = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder updates = new LongAdder();
+        private final LongAdder deletes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        private Shard(int index, LocalStorage storage) {
+            this.index = index;
+            this.storage = storage;
+            this.threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(1,
+                    new ThreadFactoryBuilder().setNameFormat("nomad-storage-shard-" + index).setDaemon(true).build());
+            this.executor = MoreExecutors.listeningDecorator(threadPool);
+        }
+
+        private boolean put(GameObject value) {
+            puts.increment();
+            return count(storage.put(value));
+        }
+
+        private Map<String, Boolean> putAll(Collection<GameObject> values) {
+            puts.add(values.size());
+            try {
+                Map<String, Boolean> results = storage.putAll(values);
+                results.values().forEach(this::count);
+                return results;
+            } catch (RuntimeException e) {
+                failures.add(values.size());
+                throw e;
+            }
+        }
+
+        private GameObject get(String key) {
+            gets.increment();
+            try {
+                return storage.get(key);
+            } catch (NoSuchElementException e) {
+                misses.increment();
+                throw e;
+            }
+        }
+
+        private boolean update(GameObject value) {
+            updates.increment();
+            return count(storage.update(value));
+        }
+
+        private boolean delete(String key) {
+            deletes.increment();
+            return count(storage.delete(key));
+        }
+
+        private boolean count(boolean result) {
+            if (!result) {
+                failures.increment();
+            }
+            return result;
+        }
+
+        private ShardStatistics statistics() {
+            return new ShardStatistics(index, puts.sum(), gets.sum(), misses.sum(), updates.sum(), deletes.sum(),
+                    failures.sum(), threadPool.getQueue().size());
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.nomad.storage.local;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Allocates fixed-size chunks from direct memory slabs, memcached style.
+ * <p>
+ * Chunk sizes grow geometrically from the minimum chunk size up to the slab size. Every slab is dedicated to a single
+ * size class and carved up on demand, freed chunks go onto the free list of their class for reuse. Once the last chunk
+ * of a slab is freed the slab goes back to the pool and can be handed to any size class, so memory does not stay
+ * stuck with a class whose objects are gone. A chunk is addressed by a handle holding its slab index in the upper and
+ * its offset in the lower 32 bits.
+ * <p>
+ * Free chunks are tagged with the generation of their slab, which changes whenever the slab goes back to the pool.
+ * Chunks of a pooled slab are left on the free list and dropped when they are popped, or when they make up half of the
+ * list, so pooling a slab does not scan the free list.
+ */
+class SlabAllocator {
+    static final long NO_SPACE = -1L;
+    private final long capacity;
+    private final int slabSize;
+    private final int[] chunkSizes;
+    private final LongArrayList[] freeChunks;
+    // slab generation per free chunk, parallel to freeChunks
+    private final IntArrayList[] freeGenerations;
+    // free chunks per size class whose slab was pooled since
+    private final int[] staleChunks;
+    // slab currently being carved up per size class, -1 if none
+    private final int[] currentSlab;
+    private final int[] nextOffset;
+    // size class per slab, -1 for a slab in the pool
+    private final IntArrayList slabClasses = new IntArrayList();
+    private final IntArrayList liveChunks = new IntArrayList();
+    private final IntArrayList slabGenerations = new IntArrayList();
+    private final IntArrayList pooledSlabs = new IntArrayList();
+    private volatile ByteBuffer[] slabs = new ByteBuffer[16];
+    private int slabCount = 0;
+    private long usedBytes = 0;
+
+    SlabAllocator(long capacity, int slabSize, int minChunkSize, double growthFactor) {
+        if (slabSize < minChunkSize || minChunkSize < 8 || growthFactor <= 1.0) {
+            throw new IllegalArgumentException("Invalid slab layout: slab=" + slabSize + ", minChunk=" + minChunkSize + ", growth=" + growthFactor);
+        }
+        this.capacity = capacity;
+        this.slabSize = slabSize;
+
+        IntArrayList sizes = new IntArrayList();
+        for (double size = minChunkSize; size < slabSize; size *= growthFactor) {
+            int aligned = ((int) Math.ceil(size) + 7) & ~7;
+            if (sizes.isEmpty() || aligned > sizes.getInt(sizes.size() - 1)) {
+                sizes.add(Math.min(aligned, slabSize));
+            }
+        }
+        if (sizes.getInt(sizes.size() - 1) != slabSize) {
+            sizes.add(slabSize);
+        }
+        this.chunkSizes = sizes.toIntArray();
+        this.freeChunks = new LongArrayList[chunkSizes.length];
+        this.freeGenerations = new IntArrayList[chunkSizes.length];
+        for (int i = 0; i < chunkSizes.length; i++) {
+            freeChunks[i] = new LongArrayList();
+            freeGenerations[i] = new IntArrayList();
+        }
+        this.staleChunks = new int[chunkSizes.length];
+        this.currentSlab = new int[chunkSizes.length];
+        this.nextOffset = new int[chunkSizes.length];
+        Arrays.fill(currentSlab, -1);
+    }
+
+    /**
+     * @return the handle of a chunk of at least {@code size} bytes, or {@link #NO_SPACE} if the memory cap is reached
+     * @throws IllegalArgumentException if the size exceeds the slab size
+     */
+    synchronized long allocate(int size) {
+        int sizeClass = sizeClass(size);
+        LongArrayList free = freeChunks[sizeClass];
+        IntArrayList generations = freeGenerations[sizeClass];
+        while (!free.isEmpty()) {
+            long handle = free.popLong();
+            int slab = slabIndex(handle);
+            if (generations.popInt() != slabGenerations.getInt(slab)) {
+                staleChunks[sizeClass]--;
+                continue;
+            }
+            usedBytes += chunkSizes[sizeClass];
+            liveChunks.set(slab, liveChunks.getInt(slab) + 1);
+            return handle;
+        }
+
+        int chunkSize = chunkSizes[sizeClass];
+        if (currentSlab[sizeClass] < 0 || nextOffset[sizeClass] + chunkSize > slabSize) {
+            if (pooledSlabs.isEmpty() && (long) (slabCount + 1) * slabSize > capacity) {
+                return NO_SPACE;
+            }
+            currentSlab[sizeClass] = assignSlab(sizeClass);
+            nextOffset[sizeClass] = 0;
+        }
+
+        int slab = currentSlab[sizeClass];
+        long handle = handle(slab, nextOffset[sizeClass]);
+        nextOffset[sizeClass] += chunkSize;
+        usedBytes += chunkSize;
+        liveChunks.set(slab, liveChunks.getInt(slab) + 1);
+        return handle;
+    }
+
+    synchronized void free(long handle) {
+        int slab = slabIndex(handle);
+        int sizeClass = slabClasses.getInt(slab);
+        usedBytes -= chunkSizes[sizeClass];
+        int live = liveChunks.getInt(slab) - 1;
+        liveChunks.set(slab, live);
+        if (live > 0) {
+            freeChunks[sizeClass].push(handle);
+            freeGenerations[sizeClass].push(slabGenerations.getInt(slab));
+        } else {
+            poolSlab(slab, sizeClass);
+        }
+    }
+
+    /**
+     * The slab holding the chunk, only absolute reads and writes or duplicates may be used on it
+     */
+    ByteBuffer slab(long handle) {
+        return slabs[slabIndex(handle)];
+    }
+
+    static int offset(long handle) {
+        return (int) handle;
+    }
+
+    int chunkSize(long handle) {
+        synchronized (this) {
+            return chunkSizes[slabClasses.getInt(slabIndex(handle))];
+        }
+    }
+
+    int maxChunkSize() {
+        return slabSize;
+    }
+
+    int sizeClassCount() {
+        return chunkSizes.length;
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Bytes of the slabs assigned to a size class, slabs in the pool are not counted
+     */
+    synchronized long reservedBytes() {
+        return (long) (slabCount - pooledSlabs.size()) * slabSize;
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Drop every slab, outstanding handles become invalid
+     */
+    synchronized void release() {
+        slabs = new ByteBuffer[16];
+        slabClasses.clear();
+        liveChunks.clear();
+        slabGenerations.clear();
+        pooledSlabs.clear();
+        slabCount = 0;
+        usedBytes = 0;
+        Arrays.fill(currentSlab, -1);
+        Arrays.fill(staleChunks, 0);
+        for (int i = 0; i < chunkSizes.length; i++) {
+            freeChunks[i].clear();
+            freeGenerations[i].clear();
+        }
+    }
+
+    private int sizeClass(int size) {
+        if (size > slabSize) {
+            throw new IllegalArgumentException("Record of " + size + " bytes exceeds the slab size of " + slabSize + " bytes");
+        }
+        int index = Arrays.binarySearch(chunkSizes, size);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * A slab from the pool if there is one, its memory is reused as is
+     */
+    private int assignSlab(int sizeClass) {
+        if (!pooledSlabs.isEmpty()) {
+            int slab = pooledSlabs.popInt();
+            slabClasses.set(slab, sizeClass);
+            return slab;
+        }
+        return newSlab(sizeClass);
+    }
+
+    /**
+     * Returns an empty slab to the pool. All of its chunks but the one just freed are on the free list of its class,
+     * they become stale with the new generation of the slab.
+     */
+    private void poolSlab(int slab, int sizeClass) {
+        int carved = (currentSlab[sizeClass] == slab ? nextOffset[sizeClass] : slabSize) / chunkSizes[sizeClass];
+        if (currentSlab[sizeClass] == slab) {
+            currentSlab[sizeClass] = -1;
+        }
+        slabGenerations.set(slab, slabGenerations.getInt(slab) + 1);
+        slabClasses.set(slab, -1);
+        pooledSlabs.push(slab);
+        staleChunks[sizeClass] += carved - 1;
+        if (staleChunks[sizeClass] * 2 > freeChunks[sizeClass].size()) {
+            compact(sizeClass);
+        }
+    }
+
+    /**
+     * Drops the stale chunks from the free list, each chunk is dropped at most once so the cost is amortized over
+     * the frees that made them stale
+     */
+    private void compact(int sizeClass) {
+        LongArrayList free = freeChunks[sizeClass];
+        IntArrayList generations = freeGenerations[sizeClass];
+        int kept = 0;
+        for (int i = 0; i < free.size(); i++) {
+            long handle = free.getLong(i);
+            int generation = generations.getInt(i);
+            if (generation == slabGenerations.getInt(slabIndex(handle))) {
+                free.set(kept, handle);
+                generations.set(kept++, generation);
+            }
+        }
+        free.size(kept);
+        generations.size(kept);
+        staleChunks[sizeClass] = 0;
+    }
+
+    private int newSlab(int sizeClass) {
+        ByteBuffer[] current = slabs;
+        if (slabCount == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[slabCount] = ByteBuffer.allocateDirect(slabSize);
+        // published after the slab is in place, readers never see a handle into a missing slab
+        slabs = current;
+        slabClasses.add(sizeClass);
+        liveChunks.add(0);
+        slabGenerations.add(0);
+        return slabCount++;
+    }
+
+    private static int slabIndex(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private static long handle(int slab, int offset) {
+        return ((long) slab << 32) | (offset & 0xFFFFFFFFL);
+    }
+}
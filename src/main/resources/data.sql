@@ -6,4 +6,6 @@ create TABLE gameobjects (
   last_modified BIGINT NOT NULL,
   ttl BIGINT NOT NULL,
   value BINARY NOT NULL
-);
\ No newline at end of file
+);
+
+create INDEX IF NOT EXISTS gameobjects_ttl ON gameobjects (ttl);
\ No newline at end of file
@@ -0,0 +1,162 @@
+package org.nomad.grpc;
+
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nomad.commons.NetworkUtility;
+import org.nomad.grpc.groupstorage.GetObjectRequest;
+import org.nomad.grpc.groupstorage.GroupStorageServiceGrpc;
+import org.nomad.grpc.management.services.GroupStorageService;
+import org.nomad.storage.group.LedgerNotificationPipeline;
+import org.nomad.storage.local.LocalStorage;
+
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class ChannelRegistryTest {
+    @Mock
+    LocalStorage storage;
+    @Mock
+    LedgerNotificationPipeline notificationPipeline;
+
+    private final ChannelRegistry registry = new ChannelRegistry();
+    private String target;
+    private Server server;
+
+    @BeforeEach
+    void setup() throws Exception {
+        lenient().when(storage.get("missing")).thenThrow(new NoSuchElementException());
+        int port = NetworkUtility.randomPort(20000, 30000);
+        target = "localhost:" + port;
+        server = GrpcTransport.forPort(port, null)
+                .addService(new GroupStorageService(storage, notificationPipeline))
+                .build()
+                .start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void handlesShareOneChannelUntilTheLastIsReleased() throws Exception {
+        ManagedChannel first = registry.acquire(target, null);
+        ManagedChannel second = registry.acquire(target, null);
+        assertEquals(2, registry.references(target));
+        assertEquals(1, registry.states().size());
+
+        first.shutdown();
+        assertTrue(first.isShutdown());
+        assertTrue(first.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(1, registry.references(target));
+        assertFalse(second.isShutdown());
+        assertFalse(get(second));
+
+        second.shutdown();
+        assertTrue(second.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, registry.references(target));
+        assertTrue(registry.states().isEmpty());
+    }
+
+    @Test
+    void releasingAHandleTwiceReleasesOneReference() {
+        ManagedChannel first = registry.acquire(target, null);
+        ManagedChannel second = registry.acquire(target, null);
+
+        first.shutdown();
+        first.shutdownNow();
+
+        assertEquals(1, registry.references(target));
+        second.shutdownNow();
+        assertEquals(0, registry.references(target));
+    }
+
+    @Test
+    void callsOnAReleasedHandleFail() {
+        ManagedChannel first = registry.acquire(target, null);
+        ManagedChannel second = registry.acquire(target, null);
+        try {
+            first.shutdown();
+
+            StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> get(first));
+            assertEquals(Status.Code.UNAVAILABLE, e.getStatus().getCode());
+            assertFalse(get(second));
+        } finally {
+            second.shutdownNow();
+        }
+    }
+
+    @Test
+    void acquiredChannelsConnectBeforeTheFirstCall() throws Exception {
+        ManagedChannel channel = registry.acquire(target, null);
+        try {
+            awaitState(channel, ConnectivityState.READY);
+            assertEquals(ConnectivityState.READY, registry.states().get(target));
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    @Test
+    void connectWakesIdleChannels() throws Exception {
+        ManagedChannel channel = registry.acquire(target, null);
+        try {
+            awaitState(channel, ConnectivityState.READY);
+            channel.enterIdle();
+            assertNotEquals(ConnectivityState.READY, channel.getState(false));
+
+            registry.connect(Collections.singleton(target));
+            awaitState(channel, ConnectivityState.READY);
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    @Test
+    void releasedTargetsGetANewChannel() {
+        ManagedChannel first = registry.acquire(target, null);
+        first.shutdown();
+        ManagedChannel second = registry.acquire(target, null);
+        try {
+            assertEquals(1, registry.references(target));
+            assertFalse(get(second));
+        } finally {
+            second.shutdownNow();
+        }
+    }
+
+    private static boolean get(ManagedChannel channel) {
+        return GroupStorageServiceGrpc.newBlockingStub(channel)
+                .withDeadlineAfter(5, TimeUnit.SECONDS)
+                .get(GetObjectRequest.newBuilder().setId("missing").build())
+                .getResult();
+    }
+
+    private static void awaitState(ManagedChannel channel, ConnectivityState expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (channel.getState(false) != expected) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Channel did not become " + expected + ", it is " + channel.getState(false));
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.nomad.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nomad.commons.NetworkUtility;
+import org.nomad.config.TransportConfiguration;
+import org.nomad.grpc.groupstorage.GetObjectRequest;
+import org.nomad.grpc.groupstorage.GetObjectResponse;
+import org.nomad.grpc.groupstorage.GroupStorageServiceGrpc;
+import org.nomad.grpc.management.services.GroupStorageService;
+import org.nomad.pithos.models.GameObject;
+import org.nomad.storage.group.LedgerNotificationPipeline;
+import org.nomad.storage.local.LocalStorage;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class GrpcTransportTest {
+    @Mock
+    LocalStorage storage;
+    @Mock
+    LedgerNotificationPipeline notificationPipeline;
+
+    private final byte[] value = new byte[4 * 1024];
+    private int port;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setup() throws Exception {
+        long now = Instant.now().getEpochSecond();
+        Mockito.when(storage.get("large")).thenReturn(GameObject.builder()
+                .id("large")
+                .value(value)
+                .creationTime(now)
+                .ttl(now + 600L)
+                .build());
+        port = NetworkUtility.randomPort(20000, 30000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (channel != null) {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (server != null) {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void defaultsServeOverNetty() throws Exception {
+        start(null, null);
+
+        GetObjectResponse response = get();
+
+        assertTrue(response.getResult());
+        assertArrayEquals(value, response.getObject().getValue().toByteArray());
+    }
+
+    @Test
+    void tunedSettingsAreApplied() throws Exception {
+        TransportConfiguration server = new TransportConfiguration();
+        server.setServerThreads(1);
+        server.setQueueCapacity(1);
+        server.setEventLoopThreads(1);
+        server.setPooledAllocator(false);
+        server.setFlowControlWindow(64);
+        TransportConfiguration client = new TransportConfiguration();
+        client.setMaxMessageSize(1);
+        start(server, client);
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, this::get);
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+    }
+
+    @Test
+    void eventLoopsAreSharedBySettingsAndReleasedOnTermination() throws Exception {
+        TransportConfiguration transport = new TransportConfiguration();
+        transport.setEventLoopThreads(3);
+        transport.setEpoll(false);
+        start(transport, transport);
+        Server second = GrpcTransport.forPort(NetworkUtility.randomPort(20000, 30000), transport).build().start();
+        assertTrue(get().getResult());
+
+        assertEquals(2, GrpcTransport.eventLoopReferences().get("server-nio-3"));
+        assertEquals(1, GrpcTransport.eventLoopReferences().get("channel-nio-3"));
+
+        second.shutdown();
+        assertTrue(second.awaitTermination(5, TimeUnit.SECONDS));
+        awaitReferences("server-nio-3", 1);
+        server.shutdown();
+        channel.shutdown();
+        awaitReferences("server-nio-3", null);
+        awaitReferences("channel-nio-3", null);
+    }
+
+    private static void awaitReferences(String key, Integer expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Objects.equals(expected, GrpcTransport.eventLoopReferences().get(key))) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(key + " is referenced by " + GrpcTransport.eventLoopReferences().get(key) + ", expected " + expected);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private void start(TransportConfiguration serverTransport, TransportConfiguration channelTransport) throws Exception {
+        server = GrpcTransport.forPort(port, serverTransport)
+                .addService(new GroupStorageService(storage, notificationPipeline))
+                .build()
+                .start();
+        channel = GrpcTransport.forTarget("localhost:" + port, channelTransport).build();
+    }
+
+    private GetObjectResponse get() {
+        return GroupStorageServiceGrpc.newBlockingStub(channel)
+                .withDeadlineAfter(5, TimeUnit.SECONDS)
+                .get(GetObjectRequest.newBuilder().setId("large").build());
+    }
+}
@@ -22,6 +22,8 @@ import org.nomad.grpc.management.clients.SuperPeerClient;
 import org.nomad.grpc.management.services.GroupStorageService;
 import org.nomad.pithos.components.GroupLedger;
 import org.nomad.pithos.models.GameObject;
+import org.nomad.storage.FanOutExecutor;
+import org.nomad.storage.group.LedgerNotificationPipeline;
 import org.nomad.storage.local.H2ObjectStorage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -46,7 +48,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @ActiveProfiles("dev,h2")
 @EnableConfigurationProperties(value = Config.class)
 @TestPropertySource("classpath:application.yml")
-@ContextConfiguration(classes = {H2ObjectStorage.class, GroupLedger.class, Config.class, GroupStorageService.class})
+@ContextConfiguration(classes = {H2ObjectStorage.class, GroupLedger.class, Config.class, GroupStorageService.class, LedgerNotificationPipeline.class, FanOutExecutor.class})
 @SpringBootTest
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 @ExtendWith(MockitoExtension.class)
@@ -18,6 +18,7 @@ import org.nomad.grpc.management.clients.SuperPeerClient;
 import org.nomad.grpc.management.models.JoinResponse;
 import org.nomad.grpc.management.models.UpdatePeerPositionResponse;
 import org.nomad.grpc.management.services.SuperPeerService;
+import org.nomad.grpc.superpeerservice.LedgerSyncChunk;
 import org.nomad.grpc.superpeerservice.MetaDataCollection;
 import org.nomad.grpc.superpeerservice.MultiMapPair;
 import org.nomad.grpc.superpeerservice.VirtualPosition;
@@ -26,6 +27,9 @@ import org.nomad.pithos.components.SuperPeer;
 import org.nomad.pithos.models.MetaData;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @ExtendWith(MockitoExtension.class)
@@ -85,6 +89,11 @@ class SuperPeerClientTest {
         Mockito.when(superPeer.handleJoin(Mockito.anyString(), Mockito.anyString())).thenReturn(true);
 
         JoinResponse result = testClient.joinGroup(peerServerHostname, groupStorageServerHostname, position);
+        Assertions.assertEquals(MultiMapPair.getDefaultInstance(), result.getObjectLedger());
+        Assertions.assertEquals(MultiMapPair.getDefaultInstance(), result.getPeerLedger());
+
+        GroupLedger joiningLedger = new GroupLedger();
+        testClient.syncLedger(0, 0, 16).forEachRemaining(joiningLedger::applySyncChunk);
         MultiMapPair expectedObjectLedger = MultiMapPair.newBuilder()
                 .putKeyPair("1", MetaDataCollection.newBuilder()
                         .addValues(org.nomad.grpc.superpeerservice.MetaData.newBuilder()
@@ -103,8 +112,44 @@ class SuperPeerClientTest {
                         .build())
                 .build();
 
-        Assertions.assertEquals(expectedObjectLedger, result.getObjectLedger());
-        Assertions.assertEquals(expectedPeerLedger, result.getPeerLedger());
+        Assertions.assertEquals(expectedObjectLedger, MultiMapPair.newBuilder().putAllKeyPair(joiningLedger.getGrpcObjectLedger()).build());
+        Assertions.assertEquals(expectedPeerLedger, MultiMapPair.newBuilder().putAllKeyPair(joiningLedger.getGrpcPeerLedger()).build());
+    }
+
+    @Test
+    void testSyncLedgerSnapshotThenDelta() {
+        groupLedger.clearAll();
+        for (int i = 0; i < 5000; i++) {
+            groupLedger.addToObjectLedger("obj" + i, MetaData.builder().id("peer" + (i % 10)).ttl(1897744637L).build());
+            groupLedger.addToPeerLedger("peer" + (i % 10), MetaData.builder().id("obj" + i).ttl(1897744637L).build());
+        }
+
+        GroupLedger joiningLedger = new GroupLedger();
+        Iterator<LedgerSyncChunk> snapshot = testClient.syncLedger(0, 0, 100);
+        LedgerSyncChunk first = snapshot.next();
+        Assertions.assertTrue(first.getReset());
+        Assertions.assertEquals(100, first.getChangesCount());
+        joiningLedger.applySyncChunk(first);
+        snapshot.forEachRemaining(joiningLedger::applySyncChunk);
+
+        Assertions.assertEquals(groupLedger.getVersion(), joiningLedger.getSyncedVersion());
+        Assertions.assertEquals(5000, joiningLedger.getAllGroupObjects().size());
+        Assertions.assertEquals(500, joiningLedger.getPeerLedger().countReplicas("peer3"));
+
+        groupLedger.removePeerFromGroupLedger("peer3");
+        groupLedger.addToObjectLedger("new", MetaData.builder().id("peer1").ttl(1897744637L).build());
+
+        List<LedgerSyncChunk> delta = new ArrayList<>();
+        testClient.syncLedger(joiningLedger.getSyncedLedgerId(), joiningLedger.getSyncedVersion(), 100).forEachRemaining(delta::add);
+        Assertions.assertEquals(1, delta.size());
+        Assertions.assertFalse(delta.get(0).getReset());
+        Assertions.assertEquals(3, delta.get(0).getChangesCount());
+        delta.forEach(joiningLedger::applySyncChunk);
+
+        Assertions.assertFalse(joiningLedger.peerLedgerContainsKey("peer3"));
+        Assertions.assertEquals(0, joiningLedger.getObjectLedger().keysContainingValue("peer3").size());
+        Assertions.assertTrue(joiningLedger.objectLedgerContainsKey("new"));
+        Assertions.assertEquals(groupLedger.getVersion(), joiningLedger.getSyncedVersion());
     }
 
     @Test
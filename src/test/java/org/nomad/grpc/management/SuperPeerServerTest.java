@@ -69,6 +69,56 @@ class SuperPeerServerTest {
                 .build(), response);
     }
 
+    @Test
+    void testHandleJoinDeferredLedger() throws Exception {
+        groupLedger.clearAll();
+        groupLedger.addToObjectLedger("1", org.nomad.pithos.models.MetaData.builder().id("abc123").ttl(1897744637L).build());
+        Mockito.when(superPeer.handleJoin(Mockito.anyString(), Mockito.anyString())).thenReturn(true);
+        JoinRequest request = JoinRequest.newBuilder()
+                .setPeerServerHost("localhost:1111")
+                .setGroupStorageServerHost("localhost:1112")
+                .setDeferLedger(true)
+                .build();
+
+        StreamRecorder<JoinResponseWithLedger> responseObserver = StreamRecorder.create();
+        myService.handleJoin(request, responseObserver);
+
+        if (!responseObserver.awaitCompletion(5, TimeUnit.SECONDS)) {
+            Assertions.fail("The call did not terminate in time");
+        }
+
+        JoinResponseWithLedger response = responseObserver.getValues().get(0);
+        assertTrue(response.getAccepted());
+        assertFalse(response.hasObjectLedger());
+        assertFalse(response.hasPeerLedger());
+        groupLedger.clearAll();
+    }
+
+    @Test
+    void testSyncLedger() throws Exception {
+        groupLedger.clearAll();
+        groupLedger.addToObjectLedger("1", org.nomad.pithos.models.MetaData.builder().id("abc123").ttl(1897744637L).build());
+        groupLedger.addToObjectLedger("2", org.nomad.pithos.models.MetaData.builder().id("abc123").ttl(1897744637L).build());
+        groupLedger.addToPeerLedger("abc123", org.nomad.pithos.models.MetaData.builder().id("1").ttl(1897744637L).build());
+
+        StreamRecorder<LedgerSyncChunk> responseObserver = StreamRecorder.create();
+        myService.syncLedger(LedgerSyncRequest.newBuilder().setChunkSize(2).build(), responseObserver);
+
+        if (!responseObserver.awaitCompletion(5, TimeUnit.SECONDS)) {
+            Assertions.fail("The call did not terminate in time");
+        }
+
+        List<LedgerSyncChunk> result = responseObserver.getValues();
+        assertNull(responseObserver.getError());
+        assertEquals(2, result.size());
+        assertTrue(result.get(0).getReset());
+        assertFalse(result.get(1).getReset());
+        assertEquals(2, result.get(0).getChangesCount());
+        assertEquals(1, result.get(1).getChangesCount());
+        assertEquals(groupLedger.getVersion(), result.get(1).getVersion());
+        groupLedger.clearAll();
+    }
+
     @Test
     void testHandleLeave() throws Exception {
         LeaveRequest request = LeaveRequest.newBuilder()
@@ -0,0 +1,85 @@
+package org.nomad.grpc.management.clients;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RequestBatcherTest {
+
+    private final ObjectList<ObjectList<String>> batches = new ObjectArrayList<>();
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setup() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void close() {
+        scheduler.shutdownNow();
+    }
+
+    private RequestBatcher<String, String> batcher(long window, int maxBatchSize) {
+        return new RequestBatcher<>(scheduler, window, maxBatchSize, id -> id,
+                id -> {
+                    singleCalls.incrementAndGet();
+                    return Futures.immediateFuture("value-" + id);
+                },
+                ids -> {
+                    synchronized (batches) {
+                        batches.add(new ObjectArrayList<>(ids));
+                    }
+                    Map<String, String> result = new Object2ObjectOpenHashMap<>();
+                    ids.stream().filter(id -> !id.equals("missing")).forEach(id -> result.put(id, "value-" + id));
+                    return Futures.immediateFuture(result);
+                });
+    }
+
+    @Test
+    void requestsWithinWindowAreBatched() throws Exception {
+        RequestBatcher<String, String> batcher = batcher(50, 100);
+        ListenableFuture<String> first = batcher.submit("1");
+        ListenableFuture<String> second = batcher.submit("2");
+        ListenableFuture<String> missing = batcher.submit("missing");
+
+        Assertions.assertEquals("value-1", first.get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals("value-2", second.get(1, TimeUnit.SECONDS));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> missing.get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof NoSuchElementException);
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(0, singleCalls.get());
+    }
+
+    @Test
+    void fullBatchIsFlushedImmediately() throws Exception {
+        RequestBatcher<String, String> batcher = batcher(60_000, 2);
+        ListenableFuture<String> first = batcher.submit("1");
+        ListenableFuture<String> second = batcher.submit("2");
+
+        Assertions.assertEquals("value-1", first.get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals("value-2", second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void singleRequestUsesUnaryCall() throws Exception {
+        RequestBatcher<String, String> batcher = batcher(5, 100);
+        Assertions.assertEquals("value-1", batcher.submit("1").get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, singleCalls.get());
+        Assertions.assertTrue(batches.isEmpty());
+    }
+}
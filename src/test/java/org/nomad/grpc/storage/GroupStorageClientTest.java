@@ -1,5 +1,6 @@
 package org.nomad.grpc.storage;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.Server;
@@ -17,10 +18,17 @@ import org.nomad.grpc.management.clients.SuperPeerClient;
 import org.nomad.grpc.management.services.GroupStorageService;
 import org.nomad.pithos.components.GroupLedger;
 import org.nomad.pithos.models.GameObject;
+import org.nomad.storage.group.LedgerNotificationPipeline;
 import org.nomad.storage.local.LocalStorage;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,11 +49,13 @@ class GroupStorageClientTest {
     GroupLedger groupLedger;
     @Mock
     SuperPeerClient superPeerClient;
+    @Mock
+    LedgerNotificationPipeline notificationPipeline;
     private GroupStorageClient testClient;
 
     @BeforeEach
     public void setup() throws Exception {
-        GroupStorageService myService = new GroupStorageService(storage);
+        GroupStorageService myService = new GroupStorageService(storage, notificationPipeline);
         myService.updateHostname("localhost:8099");
         myService.updateSuperPeerClient(superPeerClient);
         server = ServerBuilder.forPort(8099).addService(myService).build().start();
@@ -87,4 +97,72 @@ class GroupStorageClientTest {
         Mockito.when(storage.delete(Mockito.anyString())).thenReturn(true);
         Assertions.assertTrue(testClient.deleteGameObject("1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGameObjectAsync() throws Exception {
+        Mockito.when(storage.put(Mockito.any())).thenReturn(true);
+        Mockito.when(storage.get(Mockito.anyString())).thenReturn(testObject);
+        Mockito.when(storage.update(Mockito.any())).thenReturn(true);
+
+        Assertions.assertTrue(testClient.putGameObjectAsync(testObject).get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(testObject, testClient.getGameObjectAsync("1").get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(testClient.updateGameObjectAsync(testObject).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testGroupLedgerAsync() throws Exception {
+        GroupLedger ledger = GroupLedger.getInstance();
+        try {
+            Assertions.assertTrue(testClient.notifyObjectAddedAsync("1", "peer1", unixTime + 600).get(1, TimeUnit.SECONDS));
+            Assertions.assertTrue(ledger.thisPeerContainsObject("peer1", "1"));
+            Assertions.assertTrue(testClient.notifyRemovePeerFromGroupLedgerAsync("peer1").get(1, TimeUnit.SECONDS));
+            Assertions.assertFalse(ledger.thisPeerContainsObject("peer1", "1"));
+        } finally {
+            ledger.clearAll();
+        }
+    }
+
+    @Test
+    void testGetGameObjectAsyncNotFound() {
+        Mockito.when(storage.get(Mockito.anyString())).thenThrow(new NoSuchElementException());
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> testClient.getGameObjectAsync("2").get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof NoSuchElementException);
+    }
+
+    @Test
+    void testBatchGameObjects() throws Exception {
+        GameObject otherObject = GameObject.builder()
+                .id("2")
+                .value("world".getBytes(StandardCharsets.UTF_8))
+                .creationTime(unixTime)
+                .ttl(600)
+                .build();
+        Mockito.when(storage.put(Mockito.any())).thenReturn(true);
+        Mockito.when(storage.putAll(Mockito.anyCollection())).thenCallRealMethod();
+        Mockito.when(storage.get("1")).thenReturn(testObject);
+        Mockito.when(storage.get("3")).thenThrow(new NoSuchElementException());
+
+        Map<String, Boolean> putResults = testClient.putBatchAsync(Arrays.asList(testObject, otherObject)).get(1, TimeUnit.SECONDS);
+        Assertions.assertEquals(2, putResults.size());
+        Assertions.assertTrue(putResults.get("1") && putResults.get("2"));
+
+        Map<String, GameObject> getResults = testClient.getBatchAsync(Arrays.asList("1", "3")).get(1, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, getResults.size());
+        Assertions.assertEquals(testObject, getResults.get("1"));
+    }
+
+    @Test
+    void testBatchedRequests() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        testClient.enableBatching(scheduler, 20, 10);
+        Mockito.when(storage.get("1")).thenReturn(testObject);
+        Mockito.when(storage.get("2")).thenThrow(new NoSuchElementException());
+
+        ListenableFuture<GameObject> found = testClient.getGameObjectBatched("1");
+        ListenableFuture<GameObject> missing = testClient.getGameObjectBatched("2");
+
+        Assertions.assertEquals(testObject, found.get(1, TimeUnit.SECONDS));
+        Assertions.assertThrows(ExecutionException.class, () -> missing.get(1, TimeUnit.SECONDS));
+        scheduler.shutdownNow();
+    }
+}
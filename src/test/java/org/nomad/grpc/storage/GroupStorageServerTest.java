@@ -1,6 +1,7 @@
 package org.nomad.grpc.storage;
 
 import io.grpc.internal.testing.StreamRecorder;
+import io.grpc.stub.StreamObserver;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -24,6 +25,7 @@ import org.nomad.grpc.models.GameObjectGrpc;
 import org.nomad.pithos.components.GroupLedger;
 import org.nomad.pithos.mappers.GameObjectMapperImpl;
 import org.nomad.pithos.models.GameObject;
+import org.nomad.storage.group.LedgerNotificationPipeline;
 import org.nomad.storage.local.LocalStorage;
 
 import java.nio.charset.StandardCharsets;
@@ -41,6 +43,8 @@ public class GroupStorageServerTest {
     LocalStorage storage;
     @Mock
     SuperPeerClient superPeerClient;
+    @Mock
+    LedgerNotificationPipeline notificationPipeline;
     long unixTime = Instant.now().getEpochSecond();
     private final GameObject testObject = GameObject.builder()
             .id("0")
@@ -96,6 +100,7 @@ public class GroupStorageServerTest {
         assertNull(responseObserver.getError());
         assertEquals(1, result.size());
         assertEquals(response, PutObjectResponse.newBuilder().setResult(true).build());
+        Mockito.verify(notificationPipeline).objectAdded(Mockito.eq(testObject.getId()), Mockito.any(), Mockito.eq(testObject.getTtl()));
     }
 
     @Test
@@ -117,6 +122,26 @@ public class GroupStorageServerTest {
         assertEquals(response, UpdateObjectResponse.newBuilder().setResult(true).build());
     }
 
+    @Test
+    void testAddToGroupLedgerBatch() throws Exception {
+        StreamRecorder<AddToGroupLedgerResponse> responseObserver = StreamRecorder.create();
+        StreamObserver<AddToGroupLedgerRequest> requestObserver = myService.addToGroupLedgerBatch(responseObserver);
+        requestObserver.onNext(AddToGroupLedgerRequest.newBuilder().setPeerId("batch-peer").setObjectId("batch-1").setTtl(unixTime + 600L).build());
+        requestObserver.onNext(AddToGroupLedgerRequest.newBuilder().setPeerId("batch-peer").setObjectId("batch-2").setTtl(unixTime + 600L).build());
+        requestObserver.onCompleted();
+
+        if (!responseObserver.awaitCompletion(5, TimeUnit.SECONDS)) {
+            Assertions.fail("The call did not terminate in time");
+        }
+
+        assertNull(responseObserver.getError());
+        assertEquals(1, responseObserver.getValues().size());
+        assertTrue(responseObserver.getValues().get(0).getResult());
+        assertTrue(GroupLedger.getInstance().getObjectLedger().containsKey("batch-1"));
+        assertTrue(GroupLedger.getInstance().getObjectLedger().containsKey("batch-2"));
+        GroupLedger.getInstance().removePeerFromGroupLedger("batch-peer");
+    }
+
     @Test
     void testAddToGroupLedger() throws Exception {
         AddToGroupLedgerRequest request = AddToGroupLedgerRequest.newBuilder().setPeerId("1").setObjectId("1").build();
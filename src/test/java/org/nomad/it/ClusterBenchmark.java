@@ -0,0 +1,243 @@
+package org.nomad.it;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.nomad.metrics.Histogram;
+import org.nomad.pithos.models.GameObject;
+import org.nomad.storage.PeerStorage;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a get/put/update mix against the peers of an {@link InProcessCluster} and reports throughput and latency
+ * percentiles per replication factor, storage mode and retrieval mode.
+ * <p>
+ * Each combination of modes first stores its own set of objects, spread over all peers, which the gets and updates of
+ * the run then pick from at random. Puts always store new objects. Every operation goes to a random peer.
+ */
+public class ClusterBenchmark {
+    private static final String HEADER = "%-3s %-7s %-9s %10s %8s  %-24s %-24s %-24s%n";
+
+    private final int peers;
+    private final int cacheSize;
+    private final long overlayLatencyMicros;
+    private final int[] mix;
+    private final int keys;
+    private final byte[] value;
+    private final int threads;
+    private final long durationMillis;
+    private final long warmupMillis;
+    private final AtomicLong newObjects = new AtomicLong();
+
+    ClusterBenchmark(int peers, int cacheSize, long overlayLatencyMicros, int[] mix, int keys, int valueSize, int threads, long durationMillis, long warmupMillis) {
+        this.peers = peers;
+        this.cacheSize = cacheSize;
+        this.overlayLatencyMicros = overlayLatencyMicros;
+        this.mix = mix;
+        this.keys = keys;
+        this.value = new byte[valueSize];
+        ThreadLocalRandom.current().nextBytes(value);
+        this.threads = threads;
+        this.durationMillis = durationMillis;
+        this.warmupMillis = warmupMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption("p", "peers", true, "storage peers in the group (default 5)");
+        options.addOption("r", "replication", true, "comma separated replication factors (default 3)");
+        options.addOption("s", "storage-modes", true, "comma separated storage modes (default fast,safe)");
+        options.addOption("g", "retrieval-modes", true, "comma separated retrieval modes (default fast,parallel,hedged,safe)");
+        options.addOption("m", "mix", true, "get:put:update ratio (default 80:10:10)");
+        options.addOption("k", "keys", true, "objects stored before each run (default 1000)");
+        options.addOption("v", "value-size", true, "object size in bytes (default 1024)");
+        options.addOption("t", "threads", true, "client threads (default 4)");
+        options.addOption("d", "duration", true, "seconds measured per run (default 10)");
+        options.addOption("w", "warmup", true, "seconds of warm-up per run (default 3)");
+        options.addOption("c", "cache", true, "object cache size of each peer, 0 disables it (default 0)");
+        options.addOption("l", "overlay-latency", true, "delay of every overlay call in microseconds (default 0)");
+        options.addOption("h", "help", false, "print this message");
+
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp(ClusterBenchmark.class.getSimpleName(), options);
+            return;
+        }
+        if (cmd.hasOption("help")) {
+            new HelpFormatter().printHelp(ClusterBenchmark.class.getSimpleName(), options);
+            return;
+        }
+
+        int[] mix = Arrays.stream(cmd.getOptionValue("mix", "80:10:10").split(":")).mapToInt(Integer::parseInt).toArray();
+        if (mix.length != 3 || Arrays.stream(mix).anyMatch(share -> share < 0) || Arrays.stream(mix).sum() == 0) {
+            throw new IllegalArgumentException("The mix should be three non-negative get:put:update shares");
+        }
+
+        ClusterBenchmark benchmark = new ClusterBenchmark(
+                Integer.parseInt(cmd.getOptionValue("peers", "5")),
+                Integer.parseInt(cmd.getOptionValue("cache", "0")),
+                Long.parseLong(cmd.getOptionValue("overlay-latency", "0")),
+                mix,
+                Integer.parseInt(cmd.getOptionValue("keys", "1000")),
+                Integer.parseInt(cmd.getOptionValue("value-size", "1024")),
+                Integer.parseInt(cmd.getOptionValue("threads", "4")),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(cmd.getOptionValue("duration", "10"))),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(cmd.getOptionValue("warmup", "3"))));
+
+        String[] storageModes = cmd.getOptionValue("storage-modes", "fast,safe").split(",");
+        String[] retrievalModes = cmd.getOptionValue("retrieval-modes", "fast,parallel,hedged,safe").split(",");
+        ObjectList<Result> results = new ObjectArrayList<>();
+        for (String replicationFactor : cmd.getOptionValue("replication", "3").split(",")) {
+            results.addAll(benchmark.run(Integer.parseInt(replicationFactor), storageModes, retrievalModes));
+        }
+
+        System.out.printf(HEADER, "rf", "storage", "retrieval", "ops/s", "errors",
+                "get p50/p95/p99 (us)", "put p50/p95/p99 (us)", "update p50/p95/p99 (us)");
+        results.forEach(result -> System.out.print(result.format()));
+    }
+
+    /**
+     * One cluster per replication factor, the modes of its peers are switched between runs
+     */
+    ObjectList<Result> run(int replicationFactor, String[] storageModes, String[] retrievalModes) throws Exception {
+        ObjectList<Result> results = new ObjectArrayList<>();
+        try (InProcessCluster cluster = new InProcessCluster(peers, replicationFactor, cacheSize, overlayLatencyMicros).start()) {
+            for (String storageMode : storageModes) {
+                for (String retrievalMode : retrievalModes) {
+                    for (InProcessCluster.PeerNode node : cluster.getPeerNodes()) {
+                        node.getPeerStorage().setStorageMode(storageMode);
+                        node.getPeerStorage().setRetrievalMode(retrievalMode);
+                    }
+                    String prefix = storageMode + "-" + retrievalMode + "-";
+                    preload(cluster, prefix);
+                    drive(cluster, prefix, warmupMillis);
+                    Result result = drive(cluster, prefix, durationMillis);
+                    result.label(replicationFactor, storageMode, retrievalMode);
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    private void preload(InProcessCluster cluster, String prefix) throws Exception {
+        for (int i = 0; i < keys; i++) {
+            cluster.peer(i % peers).getPeerStorage().put(object(prefix + i), true, true);
+        }
+    }
+
+    Result drive(InProcessCluster cluster, String prefix, long millis) throws Exception {
+        Result result = new Result(millis);
+        int total = mix[0] + mix[1] + mix[2];
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        try {
+            ObjectList<Future<?>> futures = new ObjectArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        PeerStorage storage = cluster.peer(random.nextInt(peers)).getPeerStorage();
+                        int operation = random.nextInt(total);
+                        long start = System.nanoTime();
+                        boolean success;
+                        Histogram histogram;
+                        try {
+                            if (operation < mix[0]) {
+                                histogram = result.gets;
+                                success = storage.get(prefix + random.nextInt(keys), true, true) != null;
+                            } else if (operation < mix[0] + mix[1]) {
+                                histogram = result.puts;
+                                success = storage.put(object(prefix + "new-" + newObjects.incrementAndGet()), true, true);
+                            } else {
+                                histogram = result.updates;
+                                success = storage.update(object(prefix + random.nextInt(keys)));
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            result.errors.increment();
+                            continue;
+                        }
+                        histogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                        if (!success) {
+                            result.errors.increment();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        return result;
+    }
+
+    private GameObject object(String id) {
+        long now = Instant.now().getEpochSecond();
+        return GameObject.builder()
+                .id(id)
+                .creationTime(now)
+                .lastModified(now)
+                .ttl(now + TimeUnit.HOURS.toSeconds(1))
+                .value(value)
+                .build();
+    }
+
+    static class Result {
+        final Histogram gets = new Histogram();
+        final Histogram puts = new Histogram();
+        final Histogram updates = new Histogram();
+        final LongAdder errors = new LongAdder();
+        private final long millis;
+        private int replicationFactor;
+        private String storageMode;
+        private String retrievalMode;
+
+        Result(long millis) {
+            this.millis = millis;
+        }
+
+        void label(int replicationFactor, String storageMode, String retrievalMode) {
+            this.replicationFactor = replicationFactor;
+            this.storageMode = storageMode;
+            this.retrievalMode = retrievalMode;
+        }
+
+        long operations() {
+            return gets.getCount() + puts.getCount() + updates.getCount();
+        }
+
+        String format() {
+            double throughput = operations() * 1000.0 / millis;
+            return String.format(HEADER, replicationFactor, storageMode, retrievalMode, String.format("%.0f", throughput),
+                    errors.sum(), percentiles(gets), percentiles(puts), percentiles(updates));
+        }
+
+        private static String percentiles(Histogram histogram) {
+            if (histogram.getCount() == 0) {
+                return "-";
+            }
+            return histogram.percentile(50) + "/" + histogram.percentile(95) + "/" + histogram.percentile(99);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package org.nomad.it;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import lombok.Getter;
+import org.apache.curator.test.TestingServer;
+import org.nomad.commons.NetworkUtility;
+import org.nomad.config.Config;
+import org.nomad.config.DirectoryServerConfiguration;
+import org.nomad.config.GroupConfiguration;
+import org.nomad.config.NetworkHostnames;
+import org.nomad.config.StorageConfiguration;
+import org.nomad.config.WorldConfiguration;
+import org.nomad.delegation.ZookeeperDirectoryServerClient;
+import org.nomad.delegation.models.GroupData;
+import org.nomad.grpc.GrpcTransport;
+import org.nomad.grpc.management.servers.GroupStorageServer;
+import org.nomad.grpc.management.servers.PeerServer;
+import org.nomad.grpc.management.servers.SuperPeerServer;
+import org.nomad.grpc.management.services.GroupStorageService;
+import org.nomad.grpc.management.services.PeerService;
+import org.nomad.grpc.management.services.SuperPeerService;
+import org.nomad.grpc.superpeerservice.LedgerSyncChunk;
+import org.nomad.grpc.superpeerservice.LedgerSyncRequest;
+import org.nomad.grpc.superpeerservice.VirtualPosition;
+import org.nomad.metrics.StorageMetrics;
+import org.nomad.pithos.components.GroupLedger;
+import org.nomad.pithos.components.Peer;
+import org.nomad.pithos.components.SuperPeer;
+import org.nomad.pithos.models.GameObject;
+import org.nomad.storage.FanOutExecutor;
+import org.nomad.storage.PeerStorage;
+import org.nomad.storage.group.GroupStorage;
+import org.nomad.storage.group.LedgerNotificationPipeline;
+import org.nomad.storage.group.ReplicaStatistics;
+import org.nomad.storage.local.OffHeapStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A group of Nomad nodes inside one JVM, a super-peer and a number of storage peers wired together the way
+ * {@link org.nomad.pithos.MainController} wires a node. The nodes talk over the in-process gRPC transport, use an
+ * embedded ZooKeeper as directory server and share a {@link LocalOverlayStorage} as overlay.
+ * <p>
+ * The {@link GroupLedger} is a process-wide singleton, so all nodes share one ledger (ledger notifications take effect
+ * immediately) and only one cluster can run at a time.
+ */
+public class InProcessCluster implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InProcessCluster.class);
+    private static final double WORLD_SIZE = 10.0;
+    private static final long OFFHEAP_MEMORY_CAP = 64;
+    private static final long TIMEOUT_MILLIS = 30000;
+    // player_00 to player_50 in resources/movements
+    private static final int MOVEMENT_MODELS = 51;
+
+    private final int peers;
+    private final int replicationFactor;
+    private final int cacheSize;
+    private final long overlayLatencyMicros;
+    private final ConcurrentMap<String, GameObject> overlay = new ConcurrentHashMap<>();
+    @Getter
+    private final StorageMetrics metrics = new StorageMetrics();
+    @Getter
+    private final ObjectList<PeerNode> peerNodes = new ObjectArrayList<>();
+    private TestingServer zookeeper;
+    private ZookeeperDirectoryServerClient superPeerDirectoryServerClient;
+    private SuperPeerServer superPeerServer;
+    @Getter
+    private String groupName;
+
+    /**
+     * @param peers                number of storage peers, next to the super-peer
+     * @param replicationFactor    group-storage replication factor, including the copy of the peer itself
+     * @param cacheSize            maximum size of the object cache of each peer, 0 disables it
+     * @param overlayLatencyMicros delay of every overlay call
+     */
+    public InProcessCluster(int peers, int replicationFactor, int cacheSize, long overlayLatencyMicros) {
+        if (peers < 1 || replicationFactor < 1 || replicationFactor > peers) {
+            throw new IllegalArgumentException("Need at least one peer and a replication factor between 1 and " + peers);
+        }
+        this.peers = peers;
+        this.replicationFactor = replicationFactor;
+        this.cacheSize = cacheSize;
+        this.overlayLatencyMicros = overlayLatencyMicros;
+    }
+
+    /**
+     * Stops whatever was started already if a node fails to start
+     */
+    public InProcessCluster start() throws Exception {
+        try {
+            GrpcTransport.setInProcess(true);
+            // in-process servers never bind their port, so a port must not be handed out twice
+            Set<Integer> issuedPorts = ConcurrentHashMap.newKeySet();
+            NetworkUtility.setPortFilter(issuedPorts::add);
+            NetworkUtility.init();
+            zookeeper = new TestingServer(true);
+            startSuperPeer();
+            for (int i = 0; i < peers; i++) {
+                peerNodes.add(startPeer());
+            }
+            // every peer has joined once all of them know the other peers of the group
+            for (PeerNode node : peerNodes) {
+                await(() -> node.getGroupStorage().getClients().size() == peers - 1, "group-storage clients of " + node.getHostname());
+            }
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+        logger.info("Cluster of {} peers in {} started, replication factor {}", peers, groupName, replicationFactor);
+        return this;
+    }
+
+    public PeerNode peer(int index) {
+        return peerNodes.get(index);
+    }
+
+    /**
+     * Waits until the group ledger lists the object on as many peers as the replication factor asks for, the ledger
+     * notifications of the replicas may arrive after the put has returned
+     */
+    public void awaitReplicated(String objectId) throws Exception {
+        await(() -> GroupLedger.getInstance().countReplicas(objectId) >= replicationFactor, "replicas of " + objectId);
+    }
+
+    private void startSuperPeer() throws Exception {
+        Config config = nodeConfig();
+        VirtualPosition position = position();
+        superPeerDirectoryServerClient = directoryServerClient(config);
+        GroupData group = superPeerDirectoryServerClient.newGroupLeader(position);
+        groupName = group.getGroupName();
+        await(() -> group.getPeerId().equals(superPeerDirectoryServerClient.getGroupLeader(groupName)), "leadership of " + groupName);
+
+        SuperPeer superPeer = new SuperPeer(superPeerDirectoryServerClient, config, metrics);
+        superPeerServer = new SuperPeerServer(superPeer, new SharedLedgerSuperPeerService(superPeer), config);
+        superPeerServer.start();
+        superPeerServer.takeLeadership(position);
+    }
+
+    private PeerNode startPeer() throws Exception {
+        Config config = nodeConfig();
+        ZookeeperDirectoryServerClient directoryServerClient = directoryServerClient(config);
+        GroupData group = directoryServerClient.joinGroup(position());
+        if (!groupName.equals(group.getGroupName())) {
+            throw new IllegalStateException("Peer joined " + group.getGroupName() + " instead of " + groupName);
+        }
+        String[] superPeerId = new String[1];
+        await(() -> !(superPeerId[0] = directoryServerClient.getGroupLeader(groupName)).isEmpty(), "leader of " + groupName);
+
+        FanOutExecutor fanOutExecutor = new FanOutExecutor(config);
+        LedgerNotificationPipeline notificationPipeline = new LedgerNotificationPipeline(config, fanOutExecutor);
+        OffHeapStorage localStorage = new OffHeapStorage(config);
+        GroupStorageServer groupStorageServer = new GroupStorageServer(new GroupStorageService(localStorage, notificationPipeline), config);
+        GroupStorage groupStorage = new GroupStorage(groupStorageServer, config, fanOutExecutor, notificationPipeline, new ReplicaStatistics(config), metrics);
+        PeerStorage peerStorage = new PeerStorage(localStorage, new LocalOverlayStorage(overlay, overlayLatencyMicros), groupStorage, config, fanOutExecutor, metrics);
+        Peer peer = new Peer(directoryServerClient, peerStorage, config);
+        peer.setMovementModel(peerNodes.size() % MOVEMENT_MODELS);
+        PeerServer peerServer = new PeerServer(peer, new PeerService(peer), config);
+
+        // as MainController.initializePeerServer, the peer storage API server is not needed to drive the peer storage
+        int peerPort = NetworkUtility.randomPort(5001, 8999);
+        String peerHostname = NetworkUtility.getIP() + ":" + peerPort;
+        peerServer.init(peerPort);
+        peerServer.start();
+        directoryServerClient.setPeerHostname(peerHostname);
+        config.getNetworkHostnames().setPeerServer(peerHostname);
+        peerServer.joinGroup(groupName, group.getPeerId(), superPeerId[0]);
+
+        return new PeerNode(peerHostname, peer, peerServer, peerStorage, groupStorage, fanOutExecutor);
+    }
+
+    /**
+     * All nodes share the {@link GroupLedger} singleton with the super-peer, so a joining peer has nothing to sync. A
+     * sync would even be sent a snapshot, whose reset chunk clears the ledger the super-peer is still streaming from.
+     * Peers fall back to the join response when the super-peer does not implement the sync.
+     */
+    private static final class SharedLedgerSuperPeerService extends SuperPeerService {
+        SharedLedgerSuperPeerService(SuperPeer superPeer) {
+            super(superPeer);
+        }
+
+        @Override
+        public void syncLedger(LedgerSyncRequest request, StreamObserver<LedgerSyncChunk> responseObserver) {
+            responseObserver.onError(Status.UNIMPLEMENTED.asRuntimeException());
+        }
+    }
+
+    private Config nodeConfig() {
+        GroupConfiguration group = new GroupConfiguration();
+        group.setMigration(false);
+        group.setVoronoiGrouping(false);
+
+        StorageConfiguration storage = new StorageConfiguration();
+        storage.setMode("offheap");
+        storage.setStorageMode("fast");
+        storage.setRetrievalMode("parallel");
+        storage.setReplicationFactor(replicationFactor);
+        storage.getOffheap().setMemoryCap(OFFHEAP_MEMORY_CAP);
+        storage.getCache().setMaxSize(cacheSize);
+
+        DirectoryServerConfiguration directoryServer = new DirectoryServerConfiguration();
+        directoryServer.setPath("/GroupStorage");
+        directoryServer.setHostname(zookeeper.getConnectString());
+
+        NetworkHostnames networkHostnames = new NetworkHostnames();
+        networkHostnames.setPeerServer("");
+        networkHostnames.setPeerStorageServer("");
+        networkHostnames.setOverlayServer("");
+        networkHostnames.setSuperPeerServer("");
+        networkHostnames.setGroupStorageServer("");
+
+        WorldConfiguration world = new WorldConfiguration();
+        world.setWidth(WORLD_SIZE);
+        world.setHeight(WORLD_SIZE);
+
+        Config config = new Config();
+        config.setMalicious(false);
+        config.setMaxPeers(peers + 1);
+        config.setGroup(group);
+        config.setStorage(storage);
+        config.setDirectoryServer(directoryServer);
+        config.setNetworkHostnames(networkHostnames);
+        config.setWorld(world);
+        return config;
+    }
+
+    private ZookeeperDirectoryServerClient directoryServerClient(Config config) throws Exception {
+        ZookeeperDirectoryServerClient directoryServerClient = new ZookeeperDirectoryServerClient(config);
+        directoryServerClient.setVoronoiGroupingEnabled(false);
+        directoryServerClient.setBaseSleepTimeMs(50);
+        directoryServerClient.init(WORLD_SIZE, WORLD_SIZE);
+        return directoryServerClient;
+    }
+
+    private static VirtualPosition position() {
+        return VirtualPosition.newBuilder().setX(WORLD_SIZE / 2).setY(WORLD_SIZE / 2).setZ(0).build();
+    }
+
+    private static void await(Callable<Boolean> condition, String description) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.call()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new TimeoutException("Timed out waiting for " + description);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Peers leave the group one by one, as they would on shutdown, before the super-peer and ZooKeeper are stopped
+     */
+    @Override
+    public void close() throws IOException {
+        boolean interrupted = false;
+        try {
+            for (PeerNode node : peerNodes) {
+                try {
+                    node.getPeer().close();
+                    node.getPeerServer().stop();
+                } catch (InterruptedException e) {
+                    logger.warn("Interrupted while stopping peer {}", node.getHostname());
+                    interrupted = true;
+                } catch (Exception e) {
+                    logger.warn("Failed to stop peer {}: {}", node.getHostname(), e.getMessage());
+                }
+                node.getFanOutExecutor().shutdown();
+            }
+            peerNodes.clear();
+            if (superPeerServer != null) {
+                try {
+                    superPeerServer.stop();
+                } catch (InterruptedException e) {
+                    logger.warn("Interrupted while stopping the super-peer");
+                    interrupted = true;
+                }
+            } else if (superPeerDirectoryServerClient != null) {
+                superPeerDirectoryServerClient.close();
+            }
+            if (zookeeper != null) {
+                zookeeper.close();
+            }
+        } finally {
+            GroupLedger.getInstance().clearAll();
+            GrpcTransport.setInProcess(false);
+            NetworkUtility.setPortFilter(null);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Getter
+    public static class PeerNode {
+        private final String hostname;
+        private final Peer peer;
+        private final PeerServer peerServer;
+        private final PeerStorage peerStorage;
+        private final GroupStorage groupStorage;
+        private final FanOutExecutor fanOutExecutor;
+
+        PeerNode(String hostname, Peer peer, PeerServer peerServer, PeerStorage peerStorage, GroupStorage groupStorage, FanOutExecutor fanOutExecutor) {
+            this.hostname = hostname;
+            this.peer = peer;
+            this.peerServer = peerServer;
+            this.peerStorage = peerStorage;
+            this.groupStorage = groupStorage;
+            this.fanOutExecutor = fanOutExecutor;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.nomad.it;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.nomad.pithos.models.GameObject;
+import org.nomad.storage.PeerStorage;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class InProcessClusterTest {
+    private static final int PEERS = 3;
+
+    private InProcessCluster cluster;
+
+    @BeforeAll
+    void start() throws Exception {
+        cluster = new InProcessCluster(PEERS, 3, 0, 0).start();
+        // a fast put returns, and cancels the other replica puts, as soon as one replica has stored the object
+        cluster.peer(0).getPeerStorage().setStorageMode("safe");
+    }
+
+    @AfterAll
+    void stop() throws Exception {
+        cluster.close();
+    }
+
+    @Test
+    void peersJoinTheSameGroup() {
+        assertEquals(PEERS, cluster.getPeerNodes().size());
+        cluster.getPeerNodes().forEach(node -> assertEquals(PEERS - 1, node.getGroupStorage().getClients().size()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"fast", "parallel", "hedged", "safe"})
+    void objectStoredByOnePeerIsRetrievedByAnother(String retrievalMode) throws Exception {
+        // a safe read takes the group-storage and overlay results as votes, it needs both to agree
+        boolean overlay = "safe".equals(retrievalMode);
+        GameObject object = object("object-" + retrievalMode, new byte[]{1, 2, 3});
+        assertTrue(cluster.peer(0).getPeerStorage().put(object, true, overlay));
+        cluster.awaitReplicated(object.getId());
+
+        PeerStorage other = cluster.peer(PEERS - 1).getPeerStorage();
+        other.setRetrievalMode(retrievalMode);
+        assertArrayEquals(object.getValue(), other.get(object.getId(), true, overlay).getValue());
+    }
+
+    @Test
+    void updateIsVisibleOnEveryPeer() throws Exception {
+        assertTrue(cluster.peer(0).getPeerStorage().put(object("updated", new byte[]{1}), true, true));
+        cluster.awaitReplicated("updated");
+        assertTrue(cluster.peer(1).getPeerStorage().update(object("updated", new byte[]{2})));
+
+        for (InProcessCluster.PeerNode node : cluster.getPeerNodes()) {
+            node.getPeerStorage().setRetrievalMode("safe");
+            assertArrayEquals(new byte[]{2}, node.getPeerStorage().get("updated", true, true).getValue());
+        }
+    }
+
+    @Test
+    void benchmarkDrivesTheMix() throws Exception {
+        ClusterBenchmark benchmark = new ClusterBenchmark(PEERS, 0, 0, new int[]{80, 10, 10}, 10, 64, 2, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            cluster.peer(i % PEERS).getPeerStorage().put(object("mix-" + i, new byte[64]), true, true);
+        }
+        ClusterBenchmark.Result result = benchmark.drive(cluster, "mix-", 500);
+        assertTrue(result.operations() > 0);
+        assertEquals(0, result.errors.sum());
+    }
+
+    private static GameObject object(String id, byte[] value) {
+        long now = Instant.now().getEpochSecond();
+        return GameObject.builder()
+                .id(id)
+                .creationTime(now)
+                .lastModified(now)
+                .ttl(now + 600)
+                .value(value)
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package org.nomad.it;
+
+import org.nomad.pithos.models.GameObject;
+import org.nomad.storage.overlay.DHTOverlayStorage;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the DHT overlay of an {@link InProcessCluster}, every node shares the same map. Objects are copied on
+ * the way in and out, as they would be serialised by a real overlay, and each call can be delayed to approximate the
+ * network round trip to the responsible DHT peer.
+ */
+public class LocalOverlayStorage implements DHTOverlayStorage {
+    private final ConcurrentMap<String, GameObject> objects;
+    private final long latencyMicros;
+
+    public LocalOverlayStorage(ConcurrentMap<String, GameObject> objects, long latencyMicros) {
+        this.objects = objects;
+        this.latencyMicros = latencyMicros;
+    }
+
+    public LocalOverlayStorage() {
+        this(new ConcurrentHashMap<>(), 0);
+    }
+
+    @Override
+    public int initOverlay() {
+        return 0;
+    }
+
+    @Override
+    public int joinOverlay(String dhtHostname) {
+        return 0;
+    }
+
+    @Override
+    public GameObject get(String key) throws InterruptedException {
+        delay();
+        GameObject object = objects.get(key);
+        if (object == null || object.getTtl() < Instant.now().getEpochSecond()) {
+            throw new NoSuchElementException();
+        }
+        return copy(object);
+    }
+
+    @Override
+    public GameObject getUninterruptible(String key) throws InterruptedException {
+        return get(key);
+    }
+
+    @Override
+    public boolean put(GameObject value) throws InterruptedException {
+        delay();
+        return objects.putIfAbsent(value.getId(), copy(value)) == null;
+    }
+
+    @Override
+    public boolean putUninterruptible(GameObject gameObject) throws InterruptedException {
+        return put(gameObject);
+    }
+
+    @Override
+    public boolean update(GameObject value) throws InterruptedException {
+        delay();
+        objects.put(value.getId(), copy(value));
+        return true;
+    }
+
+    @Override
+    public boolean delete(String key) throws InterruptedException {
+        delay();
+        return objects.remove(key) != null;
+    }
+
+    @Override
+    public void close() {
+        // the map is shared with the other nodes
+    }
+
+    private void delay() throws InterruptedException {
+        if (latencyMicros > 0) {
+            TimeUnit.MICROSECONDS.sleep(latencyMicros);
+        }
+    }
+
+    private static GameObject copy(GameObject object) {
+        return GameObject.builder()
+                .id(object.getId())
+                .creationTime(object.getCreationTime())
+                .lastModified(object.getLastModified())
+                .ttl(object.getTtl())
+                .value(object.getValue() == null ? null : Arrays.copyOf(object.getValue(), object.getValue().length))
+                .build();
+    }
+}
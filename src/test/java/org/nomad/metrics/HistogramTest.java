@@ -0,0 +1,44 @@
+package org.nomad.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+
+    @Test
+    void bucketsCoverTheRangeOfLong() {
+        long previous = -1;
+        for (int i = 0; i <= Histogram.index(Long.MAX_VALUE); i++) {
+            long upperBound = Histogram.upperBound(i);
+            Assertions.assertTrue(upperBound > previous);
+            Assertions.assertEquals(i, Histogram.index(upperBound));
+            Assertions.assertEquals(i, Histogram.index(previous + 1));
+            previous = upperBound;
+        }
+        Assertions.assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    void percentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        Assertions.assertEquals(0, histogram.percentile(99));
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        Assertions.assertEquals(10_000, histogram.getCount());
+        Assertions.assertEquals(5_000_500.0, histogram.getMean());
+        Assertions.assertEquals(10_000_000L, histogram.getMax());
+        assertWithin(5_000_000, histogram.percentile(50));
+        assertWithin(9_900_000, histogram.percentile(99));
+        Assertions.assertEquals(10_000_000L, histogram.percentile(100));
+
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.percentile(50));
+    }
+
+    private void assertWithin(long expected, long actual) {
+        Assertions.assertTrue(actual >= expected && actual <= expected * 1.125, expected + " ~ " + actual);
+    }
+}
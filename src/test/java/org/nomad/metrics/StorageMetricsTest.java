@@ -0,0 +1,71 @@
+package org.nomad.metrics;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class StorageMetricsTest {
+
+    @Test
+    void meterIds() {
+        Assertions.assertEquals("nomad.storage.latency", StorageMetrics.id("nomad.storage.latency"));
+        Assertions.assertEquals("nomad.storage.latency{tier=group,mode=fast}", StorageMetrics.id("nomad.storage.latency", "tier", "group", "mode", "fast"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> StorageMetrics.id("nomad.storage.latency", "tier"));
+    }
+
+    @Test
+    void timersCountersAndGauges() throws Exception {
+        StorageMetrics metrics = new StorageMetrics();
+        Assertions.assertEquals("value", metrics.timed(() -> "value", StorageMetrics.LATENCY, "tier", "local"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> metrics.timed(() -> {
+            throw new NoSuchElementException();
+        }, StorageMetrics.LATENCY, "tier", "local"));
+
+        SettableFuture<String> completed = SettableFuture.create();
+        SettableFuture<String> cancelled = SettableFuture.create();
+        metrics.time(completed, StorageMetrics.LATENCY, "tier", "group");
+        metrics.time(cancelled, StorageMetrics.LATENCY, "tier", "group");
+        completed.set("value");
+        cancelled.cancel(true);
+
+        metrics.increment(StorageMetrics.QUORUM, "outcome", "reached");
+        metrics.summary(StorageMetrics.FAN_OUT).record(3);
+        AtomicLong depth = new AtomicLong(7);
+        metrics.gauge(depth::get, "nomad.executor.queue");
+        depth.set(9);
+
+        Assertions.assertEquals(2.0, metrics.getTimers().get("nomad.storage.latency{tier=local}").get("count"));
+        Assertions.assertEquals(1.0, metrics.getTimers().get("nomad.storage.latency{tier=group}").get("count"));
+        Assertions.assertEquals(1L, metrics.getCounters().get("nomad.storage.quorum{outcome=reached}"));
+        Assertions.assertEquals(3.0, metrics.getSummaries().get("nomad.storage.fanout").get("max"));
+        Assertions.assertEquals(9L, metrics.getGauges().get("nomad.executor.queue"));
+
+        metrics.reset();
+        Assertions.assertEquals(0.0, metrics.getTimers().get("nomad.storage.latency{tier=local}").get("count"));
+        Assertions.assertEquals(0L, metrics.getCounters().get("nomad.storage.quorum{outcome=reached}"));
+        Assertions.assertEquals(9L, metrics.getGauges().get("nomad.executor.queue"));
+    }
+
+    @Test
+    void perOperationMetersAreLookedUpOnce() {
+        StorageMetrics metrics = new StorageMetrics();
+        AtomicInteger lookups = new AtomicInteger();
+        StorageMetrics.PerOperation<Histogram> timers = new StorageMetrics.PerOperation<>(operation -> {
+            lookups.incrementAndGet();
+            return metrics.timer(StorageMetrics.LATENCY, "operation", operation.tag());
+        });
+
+        timers.get(StorageMetrics.Operation.GET).record(1);
+        timers.get(StorageMetrics.Operation.GET).record(2);
+        timers.get(StorageMetrics.Operation.PUT).record(3);
+
+        Assertions.assertEquals(2, lookups.get());
+        Assertions.assertSame(metrics.timer(StorageMetrics.LATENCY, "operation", "get"), timers.get(StorageMetrics.Operation.GET));
+        Assertions.assertEquals(2.0, metrics.getTimers().get("nomad.storage.latency{operation=get}").get("count"));
+        Assertions.assertEquals(1.0, metrics.getTimers().get("nomad.storage.latency{operation=put}").get("count"));
+    }
+}
@@ -0,0 +1,37 @@
+package org.nomad.pithos.components;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiryIndexTest {
+    ExpiryIndex expiryIndex = new ExpiryIndex();
+
+    @Test
+    @DisplayName("Should only return keys of buckets that have come due")
+    void testPollDue() {
+        expiryIndex.schedule("obj1", 100L);
+        expiryIndex.schedule("obj2", 100L);
+        expiryIndex.schedule("obj3", 200L);
+        expiryIndex.schedule("obj1", 300L);
+
+        assertEquals(100L, expiryIndex.nextExpiry());
+        assertTrue(expiryIndex.pollDue(99L).isEmpty());
+
+        ObjectOpenHashSet<String> due = expiryIndex.pollDue(150L);
+        assertEquals(2, due.size());
+        assertTrue(due.contains("obj1"));
+        assertTrue(due.contains("obj2"));
+        assertEquals(2, expiryIndex.bucketCount());
+        assertEquals(200L, expiryIndex.nextExpiry());
+
+        due = expiryIndex.pollDue(300L);
+        assertEquals(2, due.size());
+        assertTrue(due.contains("obj3"));
+        assertEquals(Long.MAX_VALUE, expiryIndex.nextExpiry());
+        assertEquals(0, expiryIndex.bucketCount());
+    }
+}
@@ -3,16 +3,19 @@ package org.nomad.pithos.components;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.nomad.grpc.superpeerservice.LedgerSyncChunk;
 import org.nomad.pithos.models.MetaData;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GroupLedgerTest {
@@ -78,4 +81,58 @@ class GroupLedgerTest {
         assertArrayEquals(expected.toArray(), result.toArray());
         assertArrayEquals(expected2.toArray(), result2.toArray());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should serve a delta to a synced ledger and a snapshot to an unknown one")
+    void testSyncChunks() {
+        GroupLedger source = new GroupLedger();
+        GroupLedger replica = new GroupLedger();
+        source.addToObjectLedger("obj1", testMetaData3);
+        source.addToPeerLedger("peer3", MetaData.builder().id("obj1").ttl(ut + 100L).build());
+        replica.addToObjectLedger("stale", testMetaData4);
+
+        source.syncChunks(replica.getSyncedLedgerId(), replica.getSyncedVersion(), 10).forEachRemaining(replica::applySyncChunk);
+        assertFalse(replica.objectLedgerContainsKey("stale"));
+        assertTrue(replica.objectLedgerContainsEntry("obj1", testMetaData3));
+        assertTrue(replica.thisPeerContainsObject("peer3", "obj1"));
+        assertEquals(source.getVersion(), replica.getSyncedVersion());
+
+        source.removeFromObjectLedger("obj1", testMetaData3);
+        source.addToObjectLedger("obj2", testMetaData5);
+        Iterator<LedgerSyncChunk> delta = source.syncChunks(replica.getSyncedLedgerId(), replica.getSyncedVersion(), 10);
+        LedgerSyncChunk chunk = delta.next();
+        assertFalse(chunk.getReset());
+        assertEquals(2, chunk.getChangesCount());
+        assertFalse(delta.hasNext());
+        replica.applySyncChunk(chunk);
+        assertFalse(replica.objectLedgerContainsKey("obj1"));
+        assertTrue(replica.objectLedgerContainsEntry("obj2", testMetaData5));
+
+        source.clearAll();
+        assertTrue(source.syncChunks(replica.getSyncedLedgerId(), replica.getSyncedVersion(), 10).next().getReset());
+    }
+
+    @Test
+    @DisplayName("Should not log synced changes and fall back to a snapshot once the replica diverged")
+    void testSyncDivergence() {
+        GroupLedger source = new GroupLedger();
+        GroupLedger replica = new GroupLedger();
+        source.addToObjectLedger("obj1", testMetaData3);
+        source.addToObjectLedger("obj2", testMetaData4);
+
+        source.syncChunks(0, 0, 10).forEachRemaining(replica::applySyncChunk);
+        assertEquals(0, replica.getVersion());
+        assertEquals(source.getVersion(), replica.getSyncedVersion());
+
+        source.addToObjectLedger("obj3", testMetaData5);
+        assertFalse(source.syncChunks(replica.getSyncedLedgerId(), replica.getSyncedVersion(), 10).next().getReset());
+
+        replica.removeFromObjectLedger("obj1", testMetaData3);
+        assertEquals(0, replica.getSyncedLedgerId());
+        assertTrue(source.syncChunks(replica.getSyncedLedgerId(), replica.getSyncedVersion(), 10).next().getReset());
+        assertTrue(source.syncChunks(42, source.getVersion(), 10).next().getReset());
+        source.syncChunks(replica.getSyncedLedgerId(), replica.getSyncedVersion(), 10).forEachRemaining(replica::applySyncChunk);
+        assertTrue(replica.objectLedgerContainsEntry("obj1", testMetaData3));
+        assertTrue(replica.objectLedgerContainsEntry("obj3", testMetaData5));
+    }
+}
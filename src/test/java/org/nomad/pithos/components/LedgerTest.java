@@ -10,6 +10,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -191,4 +196,143 @@ public class LedgerTest {
         assertTrue(ledger.containsEntryNoTTL("obj2", "peer4"));
         assertFalse(ledger.containsEntryNoTTL("obj2", "peer1"));
     }
+
+    @Test
+    @DisplayName("Should keep TTL variants of the same value as separate entries")
+    void testSameIdDifferentTTL() {
+        MetaData refreshed = MetaData.builder().id("peer1").ttl(ut + 200L).build();
+        ledger.add(TEST_OBJECT_KEY_1, testMetaData1);
+        ledger.add(TEST_OBJECT_KEY_1, refreshed);
+
+        assertEquals(2, ledger.countReplicas(TEST_OBJECT_KEY_1));
+        ledger.remove(TEST_OBJECT_KEY_1, testMetaData1);
+        assertFalse(ledger.containsEntry(TEST_OBJECT_KEY_1, testMetaData1));
+        assertTrue(ledger.containsEntry(TEST_OBJECT_KEY_1, refreshed));
+        assertTrue(ledger.containsEntryNoTTL(TEST_OBJECT_KEY_1, "peer1"));
+
+        ledger.remove(TEST_OBJECT_KEY_1, refreshed);
+        assertFalse(ledger.containsKey(TEST_OBJECT_KEY_1));
+        assertTrue(ledger.get(TEST_OBJECT_KEY_1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Readers should observe consistent entries while writers modify other keys")
+    void testConcurrentReadersAndWriters() throws InterruptedException {
+        int writers = 4;
+        int objectsPerWriter = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        CountDownLatch done = new CountDownLatch(writers);
+        AtomicBoolean readerFailed = new AtomicBoolean(false);
+        ledger.add(TEST_OBJECT_KEY_1, testMetaData3);
+
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            executor.execute(() -> {
+                for (int i = 0; i < objectsPerWriter; i++) {
+                    String key = "obj-" + writer + "-" + i;
+                    ledger.add(key, testMetaData3);
+                    ledger.add(key, testMetaData4);
+                    ledger.remove(key, testMetaData4);
+                }
+                done.countDown();
+            });
+        }
+        executor.execute(() -> {
+            while (done.getCount() > 0) {
+                if (!ledger.containsEntryNoTTL(TEST_OBJECT_KEY_1, "peer3")) {
+                    readerFailed.set(true);
+                }
+            }
+        });
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(readerFailed.get());
+        assertEquals(writers * objectsPerWriter + 1, ledger.keySet().size());
+        assertEquals(writers * objectsPerWriter + 1, ledger.values().size());
+    }
+
+    @Test
+    @DisplayName("Should index keys by value")
+    void testKeysContainingValue() {
+        ledger.add(TEST_OBJECT_KEY_1, testMetaData1);
+        ledger.add(TEST_OBJECT_KEY_2, testMetaData1);
+        ledger.add(TEST_OBJECT_KEY_2, testMetaData3);
+
+        assertEquals(2, ledger.keysContainingValue("peer1").size());
+        assertTrue(ledger.keysContainingValue("peer3").contains(TEST_OBJECT_KEY_2));
+        assertTrue(ledger.keysContainingValue("unknown").isEmpty());
+
+        ledger.removeAll(TEST_OBJECT_KEY_2);
+        assertEquals(1, ledger.keysContainingValue("peer1").size());
+        assertTrue(ledger.keysContainingValue("peer3").isEmpty());
+
+        ledger.removeValueNoTTL("peer1");
+        assertTrue(ledger.keysContainingValue("peer1").isEmpty());
+        assertTrue(ledger.keySet().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reclaim the ids and index sets of values that are no longer stored")
+    void testReclaimsRemovedValues() {
+        for (int i = 0; i < 100; i++) {
+            ledger.add("peer" + (i % 5), MetaData.builder().id("object" + i).ttl(ut + 100L).build());
+        }
+        // a duplicate entry holds no extra reference
+        ledger.add("peer0", MetaData.builder().id("object0").ttl(ut + 100L).build());
+        assertEquals(100, ledger.internedValues());
+        assertEquals(100, ledger.indexedValues());
+
+        for (int i = 0; i < 100; i++) {
+            ledger.removeValueNoTTL("object" + i);
+        }
+        assertEquals(0, ledger.internedValues());
+        assertEquals(0, ledger.indexedValues());
+        assertEquals(0, ledger.size());
+
+        MetaData fresh = MetaData.builder().id("fresh").ttl(ut + 100L).build();
+        ledger.add("peer0", fresh);
+        assertEquals(1, ledger.internedValues());
+        assertTrue(ledger.containsEntry("peer0", fresh));
+        assertFalse(ledger.containsEntryNoTTL("peer0", "object0"));
+        assertEquals("fresh", ledger.get("peer0").iterator().next().getId());
+    }
+
+    @Test
+    @DisplayName("Should release the ids of expired and cleared entries")
+    void testReclaimsExpiredValues() {
+        ledger.add(TEST_OBJECT_KEY_1, MetaData.builder().id("peer1").ttl(ut - 10L).build());
+        ledger.add(TEST_OBJECT_KEY_1, testMetaData3);
+        ledger.add(TEST_OBJECT_KEY_2, testMetaData3);
+
+        assertTrue(ledger.cleanExpiredObjects());
+        assertEquals(1, ledger.internedValues());
+        assertEquals(1, ledger.indexedValues());
+
+        ledger.clear();
+        assertEquals(0, ledger.internedValues());
+        assertEquals(0, ledger.indexedValues());
+    }
+
+    @Test
+    @DisplayName("Should only expire entries whose TTL has come due")
+    void testIncrementalExpiry() {
+        MetaData expired = MetaData.builder().id("peer1").ttl(ut - 10L).build();
+        ledger.add(TEST_OBJECT_KEY_1, expired);
+        ledger.add(TEST_OBJECT_KEY_1, testMetaData3);
+        ledger.add(TEST_OBJECT_KEY_2, testMetaData4);
+
+        assertTrue(ledger.cleanExpiredObjects());
+        assertFalse(ledger.cleanExpiredObjects());
+        assertFalse(ledger.containsEntry(TEST_OBJECT_KEY_1, expired));
+        assertTrue(ledger.keysContainingValue("peer1").isEmpty());
+        assertTrue(ledger.containsEntry(TEST_OBJECT_KEY_1, testMetaData3));
+        assertTrue(ledger.containsEntry(TEST_OBJECT_KEY_2, testMetaData4));
+
+        ledger.removeAll(TEST_OBJECT_KEY_2);
+        ledger.add(TEST_OBJECT_KEY_2, expired);
+        assertTrue(ledger.cleanExpiredObjects());
+        assertFalse(ledger.containsKey(TEST_OBJECT_KEY_2));
+    }
 }
@@ -7,9 +7,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.nomad.config.Config;
 import org.nomad.delegation.DirectoryServerClient;
+import org.nomad.metrics.StorageMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 
@@ -27,6 +29,9 @@ class SuperPeerTest {
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     Config config;
 
+    @Spy
+    StorageMetrics metrics = new StorageMetrics();
+
     @InjectMocks
     SuperPeer superPeer;
 
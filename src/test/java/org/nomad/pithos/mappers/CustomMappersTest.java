@@ -16,6 +16,7 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class CustomMappersTest {
 
@@ -30,6 +31,24 @@ class CustomMappersTest {
         assertArrayEquals("test".getBytes(StandardCharsets.UTF_8), byteArray);
     }
 
+    @Test
+    void testByteArrayIsSharedWithByteString() {
+        byte[] byteArray = "test".getBytes(StandardCharsets.UTF_8);
+        ByteString byteString = testMapper.byteArrayToByteString(byteArray);
+        assertArrayEquals(byteArray, byteString.toByteArray());
+        assertSame(byteArray, testMapper.byteStringToByteArray(byteString));
+    }
+
+    @Test
+    void testPartialByteStringIsCopied() {
+        byte[] byteArray = "test-value".getBytes(StandardCharsets.UTF_8);
+        ByteString substring = testMapper.byteArrayToByteString(byteArray).substring(5);
+        assertArrayEquals("value".getBytes(StandardCharsets.UTF_8), testMapper.byteStringToByteArray(substring));
+
+        ByteString concatenated = ByteString.copyFromUtf8("test-").concat(ByteString.copyFromUtf8("value"));
+        assertArrayEquals(byteArray, testMapper.byteStringToByteArray(concatenated));
+    }
+
     @Test
     void TestMapConversion() {
         Map<String, java.util.Collection<MetaData>> map = new HashMap<>();
@@ -11,6 +11,7 @@ import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class GameObjectMapperTest {
 
@@ -64,6 +65,18 @@ class GameObjectMapperTest {
         assertArrayEquals(valueAsByteArray, result.getValue());
     }
 
+    @Test
+    @DisplayName("Should share the value between Internal and gRPC Objects")
+    void mapToGrpcAndBackSharesValue() throws Exception {
+        GameObject result = GameObjectMapperImpl.INSTANCE.mapToInternal(GameObjectMapperImpl.INSTANCE.mapToGrpc(internalGameObject));
+        assertSame(internalGameObject.getValue(), result.getValue());
+
+        GameObjectGrpc parsed = GameObjectGrpc.parseFrom(grpcGameObject.toByteArray());
+        GameObject parsedResult = GameObjectMapperImpl.INSTANCE.mapToInternal(parsed);
+        assertArrayEquals(valueAsByteArray, parsedResult.getValue());
+        assertSame(parsedResult.getValue(), GameObjectMapperImpl.INSTANCE.mapToInternal(parsed).getValue());
+    }
+
     @Test
     @DisplayName("Should map from API Object to Internal Object")
     void mapToInternalFromAPIModel() {
@@ -0,0 +1,82 @@
+package org.nomad.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.nomad.config.Config;
+import org.nomad.config.ExecutorConfiguration;
+import org.nomad.config.StorageConfiguration;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class FanOutExecutorTest {
+
+    private FanOutExecutor fanOutExecutor;
+
+    @AfterEach
+    void close() {
+        fanOutExecutor.shutdown();
+    }
+
+    private Config config(int concurrency, int queueCapacity) {
+        ExecutorConfiguration executorConfiguration = new ExecutorConfiguration();
+        executorConfiguration.setPeerConcurrency(concurrency);
+        executorConfiguration.setGroupConcurrency(concurrency);
+        executorConfiguration.setQueueCapacity(queueCapacity);
+        StorageConfiguration storageConfiguration = new StorageConfiguration();
+        storageConfiguration.setExecutor(executorConfiguration);
+        Config config = new Config();
+        config.setStorage(storageConfiguration);
+        return config;
+    }
+
+    @Test
+    void tiersUseSeparateNamedThreads() throws ExecutionException, InterruptedException {
+        fanOutExecutor = new FanOutExecutor(config(1, 1));
+        String peerThread = fanOutExecutor.forTier(FanOutExecutor.Tier.PEER).submit(() -> Thread.currentThread().getName()).get();
+        String groupThread = fanOutExecutor.forTier(FanOutExecutor.Tier.GROUP).submit(() -> Thread.currentThread().getName()).get();
+
+        Assertions.assertTrue(peerThread.startsWith("nomad-peer-fanout-"));
+        Assertions.assertTrue(groupThread.startsWith("nomad-group-fanout-"));
+        Assertions.assertNotSame(fanOutExecutor.forTier(FanOutExecutor.Tier.PEER), fanOutExecutor.forTier(FanOutExecutor.Tier.GROUP));
+    }
+
+    @Test
+    void saturatedTierRunsOnCallerThread() throws Exception {
+        fanOutExecutor = new FanOutExecutor(config(1, 1));
+        ExecutorService executor = fanOutExecutor.forTier(FanOutExecutor.Tier.PEER);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> running = executor.submit(() -> {
+            release.await();
+            return null;
+        });
+        Future<?> queued = executor.submit(() -> null);
+        String overflowThread = executor.submit(() -> Thread.currentThread().getName()).get();
+
+        Assertions.assertEquals(Thread.currentThread().getName(), overflowThread);
+        Assertions.assertEquals(1, fanOutExecutor.getRejectedCount());
+        Assertions.assertEquals(1, fanOutExecutor.queueDepth(FanOutExecutor.Tier.PEER));
+
+        release.countDown();
+        running.get(1, TimeUnit.SECONDS);
+        queued.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void invalidLimitsFallBackToDefaults() throws ExecutionException, InterruptedException {
+        fanOutExecutor = new FanOutExecutor(config(0, 0));
+        Assertions.assertTrue(fanOutExecutor.forTier(FanOutExecutor.Tier.GROUP).submit(() -> true).get());
+    }
+
+    @Test
+    void shutdown() {
+        fanOutExecutor = new FanOutExecutor(new Config());
+        fanOutExecutor.shutdown();
+        Assertions.assertTrue(fanOutExecutor.isShutdown());
+    }
+}
@@ -0,0 +1,123 @@
+package org.nomad.storage;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.nomad.config.NegativeCacheConfiguration;
+import org.nomad.grpc.superpeerservice.LedgerChange;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+class GroupObjectFiltersTest {
+
+    private static final long SOURCE = 42;
+
+    private GroupObjectFilters filters(boolean enabled, long maxAge) {
+        NegativeCacheConfiguration configuration = new NegativeCacheConfiguration();
+        configuration.setGroupFilters(enabled);
+        configuration.setFilterMaxAge(maxAge);
+        return new GroupObjectFilters(configuration);
+    }
+
+    private static byte[] filter(long version, String... objectIds) throws IOException {
+        return GroupObjectFilters.encode(Arrays.asList(objectIds), 0.01, SOURCE, version);
+    }
+
+    private static Object2ObjectOpenHashMap<String, byte[]> versions(long version, String... groups) {
+        Object2ObjectOpenHashMap<String, byte[]> versions = new Object2ObjectOpenHashMap<>();
+        for (String group : groups) {
+            versions.put(group, GroupObjectFilters.encodeVersion(SOURCE, version));
+        }
+        return versions;
+    }
+
+    @Test
+    void testAbsentFromEveryGroup() throws IOException {
+        GroupObjectFilters filters = filters(true, 60000);
+        Object2ObjectOpenHashMap<String, byte[]> published = new Object2ObjectOpenHashMap<>();
+        published.put("group-1", new byte[]{1, 2, 3});
+        published.put("group-2", filter(3, "a", "b"));
+        published.put("group-3", filter(3, "c"));
+        // the own group is skipped, its filter is never read
+        filters.update(published, "group-1");
+        filters.updateVersions(versions(3, "group-1", "group-2", "group-3"));
+
+        Assertions.assertFalse(filters.isAbsent("a"));
+        Assertions.assertFalse(filters.isAbsent("c"));
+        int absent = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filters.isAbsent("missing-" + i)) {
+                absent++;
+            }
+        }
+        Assertions.assertTrue(absent > 950, absent + " of 1000 lookups answered");
+        Assertions.assertEquals(absent, filters.getRejections());
+    }
+
+    @Test
+    void testIncompleteFiltersAreNotTrusted() throws IOException {
+        GroupObjectFilters filters = filters(true, 60000);
+        Object2ObjectOpenHashMap<String, byte[]> published = new Object2ObjectOpenHashMap<>();
+        published.put("group-2", filter(0, "a"));
+        published.put("group-3", new byte[0]);
+        filters.update(published, "group-1");
+        filters.updateVersions(versions(0, "group-2", "group-3"));
+        Assertions.assertFalse(filters.isAbsent("missing"));
+
+        published.put("group-3", new byte[]{1, 2, 3});
+        filters.update(published, "group-1");
+        Assertions.assertFalse(filters.isAbsent("missing"));
+    }
+
+    @Test
+    void testStaleOrDisabledFiltersAreNotTrusted() throws Exception {
+        Object2ObjectOpenHashMap<String, byte[]> published = new Object2ObjectOpenHashMap<>();
+        published.put("group-2", filter(0, "a"));
+
+        GroupObjectFilters stale = filters(true, 10);
+        stale.update(published, "group-1");
+        stale.updateVersions(versions(0, "group-2"));
+        Thread.sleep(50);
+        Assertions.assertFalse(stale.isAbsent("missing"));
+
+        GroupObjectFilters disabled = filters(false, 60000);
+        disabled.update(published, "group-1");
+        disabled.updateVersions(versions(0, "group-2"));
+        Assertions.assertFalse(disabled.isAbsent("missing"));
+    }
+
+    @Test
+    void testFiltersBehindTheirGroupAreNotTrusted() throws IOException {
+        GroupObjectFilters filters = filters(true, 60000);
+        Object2ObjectOpenHashMap<String, byte[]> published = new Object2ObjectOpenHashMap<>();
+        published.put("group-2", filter(5, "a"));
+        filters.update(published, "group-1");
+        Assertions.assertFalse(filters.isAbsent("missing"), "no version published yet");
+
+        filters.updateVersions(versions(5, "group-2"));
+        Assertions.assertTrue(filters.isAbsent("missing"));
+
+        // an object was added to group-2 after its filter was taken
+        filters.updateVersions(versions(6, "group-2"));
+        Assertions.assertFalse(filters.isAbsent("missing"));
+
+        // a new super-peer counts from zero again
+        Object2ObjectOpenHashMap<String, byte[]> restarted = new Object2ObjectOpenHashMap<>();
+        restarted.put("group-2", GroupObjectFilters.encodeVersion(SOURCE + 1, 0));
+        filters.updateVersions(restarted);
+        Assertions.assertFalse(filters.isAbsent("missing"));
+    }
+
+    @Test
+    void testAdditionsCountObjectAdditions() {
+        GroupObjectFilters.Additions additions = new GroupObjectFilters.Additions();
+        additions.changeApplied(LedgerChange.Operation.ADD, LedgerChange.Target.OBJECT_LEDGER, "a", "peer");
+        additions.changeApplied(LedgerChange.Operation.ADD, LedgerChange.Target.PEER_LEDGER, "peer", "a");
+        additions.changeApplied(LedgerChange.Operation.REMOVE, LedgerChange.Target.OBJECT_LEDGER, "a", "peer");
+        Assertions.assertEquals(1, additions.getVersion());
+
+        additions.ledgerReset();
+        Assertions.assertEquals(2, additions.getVersion());
+    }
+}
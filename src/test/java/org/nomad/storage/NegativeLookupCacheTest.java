@@ -0,0 +1,77 @@
+package org.nomad.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.nomad.config.NegativeCacheConfiguration;
+import org.nomad.pithos.components.GroupLedger;
+import org.nomad.pithos.models.MetaData;
+
+import java.time.Instant;
+
+class NegativeLookupCacheTest {
+
+    @AfterEach
+    void close() {
+        GroupLedger.getInstance().clearAll();
+    }
+
+    private NegativeLookupCache cache(long ttl, int maxSize) {
+        NegativeCacheConfiguration configuration = new NegativeCacheConfiguration();
+        configuration.setTtl(ttl);
+        configuration.setMaxSize(maxSize);
+        return new NegativeLookupCache(configuration);
+    }
+
+    @Test
+    void testMissesExpire() throws InterruptedException {
+        NegativeLookupCache cache = cache(50, 100);
+        Assertions.assertFalse(cache.contains("1"));
+        cache.add("1");
+        Assertions.assertTrue(cache.contains("1"));
+        Assertions.assertEquals(1L, cache.getStatistics().get("hits"));
+
+        Thread.sleep(100);
+        Assertions.assertFalse(cache.contains("1"));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testBoundedSize() {
+        NegativeLookupCache cache = cache(60000, 10);
+        for (int i = 0; i < 20; i++) {
+            cache.add("object-" + i);
+        }
+        Assertions.assertEquals(10, cache.size());
+        Assertions.assertFalse(cache.contains("object-0"));
+        Assertions.assertTrue(cache.contains("object-19"));
+    }
+
+    @Test
+    void testInvalidation() {
+        GroupLedger ledger = GroupLedger.getInstance();
+        NegativeLookupCache cache = cache(60000, 100);
+        ledger.addChangeListener(cache);
+        try {
+            cache.add("1");
+            cache.add("2");
+            cache.invalidate("1");
+            Assertions.assertFalse(cache.contains("1"));
+
+            // the object was created in this group
+            ledger.addToObjectLedger("2", MetaData.builder().id("peer1").ttl(Instant.now().getEpochSecond() + 600).build());
+            Assertions.assertFalse(cache.contains("2"));
+            Assertions.assertEquals(2L, cache.getStatistics().get("invalidations"));
+        } finally {
+            ledger.removeChangeListener(cache);
+        }
+    }
+
+    @Test
+    void testDisabled() {
+        NegativeLookupCache cache = cache(0, 100);
+        Assertions.assertFalse(cache.isEnabled());
+        cache.add("1");
+        Assertions.assertFalse(cache.contains("1"));
+    }
+}
@@ -0,0 +1,183 @@
+package org.nomad.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.nomad.config.CacheConfiguration;
+import org.nomad.pithos.components.GroupLedger;
+import org.nomad.pithos.models.GameObject;
+import org.nomad.pithos.models.MetaData;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+class ObjectCacheTest {
+
+    final long unixTime = Instant.now().getEpochSecond();
+
+    @AfterEach
+    void close() {
+        GroupLedger.getInstance().clearAll();
+    }
+
+    private ObjectCache cache(int maxSize) {
+        CacheConfiguration configuration = new CacheConfiguration();
+        configuration.setMaxSize(maxSize);
+        return new ObjectCache(configuration);
+    }
+
+    private GameObject buildTestObject(String id, long ttl) {
+        return GameObject.builder()
+                .id(id)
+                .value(("value-" + id).getBytes(StandardCharsets.UTF_8))
+                .creationTime(unixTime)
+                .lastModified(unixTime)
+                .ttl(ttl)
+                .build();
+    }
+
+    @Test
+    void testHitsMissesAndCopies() {
+        ObjectCache cache = cache(100);
+        GameObject object = buildTestObject("1", unixTime + 600);
+        Assertions.assertNull(cache.get("1"));
+        cache.put(object);
+
+        GameObject cached = cache.get("1");
+        Assertions.assertEquals(object, cached);
+        Assertions.assertSame(object.getValue(), cached.getValue());
+        // modifying the returned object does not affect the cached one
+        cached.setTtl(0);
+        Assertions.assertEquals(object, cache.get("1"));
+
+        Map<String, Long> statistics = cache.getStatistics();
+        Assertions.assertEquals(2L, statistics.get("hits"));
+        Assertions.assertEquals(1L, statistics.get("misses"));
+        Assertions.assertEquals(1L, statistics.get("size"));
+    }
+
+    @Test
+    void testTtl() {
+        ObjectCache cache = cache(100);
+        cache.put(buildTestObject("expired", unixTime - 10));
+        Assertions.assertEquals(0, cache.size());
+
+        CacheConfiguration configuration = new CacheConfiguration();
+        configuration.setMaxAge(-1);
+        ObjectCache stale = new ObjectCache(configuration);
+        stale.put(buildTestObject("1", unixTime + 600));
+        Assertions.assertEquals(0, stale.size());
+
+        // an expired copy drops the cached one
+        cache.put(buildTestObject("2", unixTime + 600));
+        Assertions.assertNotNull(cache.get("2"));
+        cache.put(buildTestObject("2", unixTime - 1));
+        Assertions.assertNull(cache.get("2"));
+        Assertions.assertEquals(1L, cache.getStatistics().get("expirations"));
+    }
+
+    @Test
+    void testFrequentObjectsSurviveScans() {
+        ObjectCache cache = cache(100);
+        for (int i = 0; i < 20; i++) {
+            cache.put(buildTestObject("hot-" + i, unixTime + 600));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 20; i++) {
+                Assertions.assertNotNull(cache.get("hot-" + i));
+            }
+        }
+
+        // a long run of objects read once must not push out the hot set
+        for (int i = 0; i < 1000; i++) {
+            cache.put(buildTestObject("cold-" + i, unixTime + 600));
+        }
+        Assertions.assertEquals(100, cache.size());
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertNotNull(cache.get("hot-" + i), "hot-" + i);
+        }
+        Assertions.assertEquals(920L, cache.getStatistics().get("evictions"));
+    }
+
+    @Test
+    void testInvalidationOnLedgerChanges() {
+        GroupLedger ledger = GroupLedger.getInstance();
+        ObjectCache cache = cache(100);
+        ledger.addChangeListener(cache);
+        try {
+            cache.put(buildTestObject("1", unixTime + 600));
+            cache.put(buildTestObject("2", unixTime + 600));
+            cache.put(buildTestObject("3", unixTime + 600));
+
+            // another peer stored a new version
+            ledger.addToObjectLedger("1", MetaData.builder().id("peer1").ttl(unixTime + 900).build());
+            Assertions.assertNull(cache.get("1"));
+            Assertions.assertNotNull(cache.get("2"));
+
+            ledger.removeObjectFromGroupLedger("2");
+            Assertions.assertNull(cache.get("2"));
+
+            ledger.clearAll();
+            Assertions.assertEquals(0, cache.size());
+            Assertions.assertEquals(3L, cache.getStatistics().get("invalidations"));
+        } finally {
+            ledger.removeChangeListener(cache);
+        }
+    }
+
+    @Test
+    void testOlderVersionsAreNotCached() {
+        ObjectCache cache = cache(100);
+        GameObject updated = buildTestObject("1", unixTime + 600);
+        updated.setLastModified(unixTime + 10);
+        cache.put(updated);
+
+        cache.put(buildTestObject("1", unixTime + 600));
+        Assertions.assertEquals(unixTime + 10, cache.get("1").getLastModified());
+    }
+
+    @Test
+    void testFetchesRacingInvalidationAreNotCached() {
+        ObjectCache cache = cache(100);
+        long generation = cache.generation("1");
+        cache.invalidate("1");
+
+        cache.put(buildTestObject("1", unixTime + 600), generation);
+        Assertions.assertNull(cache.get("1"));
+
+        cache.put(buildTestObject("1", unixTime + 600), cache.generation("1"));
+        Assertions.assertNotNull(cache.get("1"));
+        generation = cache.generation("1");
+        cache.invalidateAll();
+        cache.put(buildTestObject("1", unixTime + 600), generation);
+        Assertions.assertNull(cache.get("1"));
+    }
+
+    @Test
+    void testInvalidationOnRepeatedAnnouncements() {
+        GroupLedger ledger = GroupLedger.getInstance();
+        ObjectCache cache = cache(100);
+        MetaData peer = MetaData.builder().id("peer1").ttl(unixTime + 900).build();
+        ledger.addToObjectLedger("1", peer);
+        ledger.addChangeListener(cache);
+        try {
+            cache.put(buildTestObject("1", unixTime + 600));
+            // the peer wrote the object again, the TTL in the ledger did not change
+            ledger.addToObjectLedger("1", peer);
+            Assertions.assertNull(cache.get("1"));
+        } finally {
+            ledger.removeChangeListener(cache);
+            ledger.clearAll();
+        }
+    }
+
+    @Test
+    void testDisabled() {
+        ObjectCache cache = cache(0);
+        Assertions.assertFalse(cache.isEnabled());
+        cache.put(buildTestObject("1", unixTime + 600));
+        Assertions.assertNull(cache.get("1"));
+        Assertions.assertEquals(0L, cache.getStatistics().get("misses"));
+    }
+}
@@ -13,9 +13,12 @@ import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.nomad.config.CacheConfiguration;
 import org.nomad.config.Config;
 import org.nomad.grpc.management.clients.SuperPeerClient;
+import org.nomad.metrics.StorageMetrics;
 import org.nomad.pithos.components.GroupLedger;
 import org.nomad.pithos.models.GameObject;
 import org.nomad.storage.group.GroupStorage;
@@ -29,7 +32,11 @@ import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @EnableConfigurationProperties(value = Config.class)
 @TestPropertySource("classpath:application.yml")
@@ -52,6 +59,10 @@ class PeerStorageTest {
     private Config configuration;
     @Mock
     private GroupLedger groupLedger;
+    @Spy
+    private FanOutExecutor fanOutExecutor = new FanOutExecutor(new Config());
+    @Spy
+    private StorageMetrics metrics = new StorageMetrics();
     @InjectMocks
     private PeerStorage peerStorage;
 
@@ -72,7 +83,10 @@ class PeerStorageTest {
     void get_overlay_1() throws Exception {
         Mockito.lenient().when(groupLedger.objectLedgerContainsKey(Mockito.anyString())).thenReturn(false);
         Mockito.lenient().when(dhtOverlayStorage.get(Mockito.anyString())).thenReturn(testObject);
+        peerStorage.setRetrievalMode("fast");
         Assertions.assertEquals(testObject, peerStorage.get("2", true, true));
+        Assertions.assertEquals(1.0, metrics.getTimers().get("nomad.storage.latency{tier=overlay,operation=get,mode=dht}").get("count"));
+        Assertions.assertEquals(1.0, metrics.getTimers().get("nomad.storage.latency{tier=peer,operation=get,mode=fast}").get("count"));
     }
 
     @Test
@@ -91,6 +105,76 @@ class PeerStorageTest {
         Assertions.assertEquals(testObject, peerStorage.get("2", true, true));
     }
 
+    @Test
+    void get_overlay_coalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(groupLedger.objectLedgerContainsKey(Mockito.anyString())).thenReturn(false);
+        Mockito.when(dhtOverlayStorage.get(Mockito.anyString())).thenAnswer(invocation -> {
+            release.await();
+            return testObject;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ObjectList<Future<GameObject>> gets = new ObjectArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                gets.add(executor.submit(() -> peerStorage.get("0", true, true)));
+            }
+            while (peerStorage.getCoalescingStatistics().get("coalesced") < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<GameObject> get : gets) {
+                Assertions.assertEquals(testObject, get.get(5, TimeUnit.SECONDS));
+            }
+            Mockito.verify(dhtOverlayStorage, Mockito.times(1)).get("0");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_overlay_racing_update_not_cached() throws Exception {
+        CacheConfiguration cache = new CacheConfiguration();
+        Mockito.when(configuration.getStorage().getCache()).thenReturn(cache);
+        PeerStorage cachingStorage = new PeerStorage(localStorage, dhtOverlayStorage, groupStorage, configuration, fanOutExecutor, metrics);
+        cachingStorage.setGroupLedger(groupLedger);
+
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(groupLedger.objectLedgerContainsKey(Mockito.anyString())).thenReturn(false);
+        Mockito.when(dhtOverlayStorage.get(Mockito.anyString())).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await();
+            return testObject;
+        });
+        Mockito.when(dhtOverlayStorage.update(Mockito.any())).thenReturn(true);
+        Mockito.when(localStorage.update(Mockito.any())).thenReturn(true);
+        Mockito.when(groupStorage.safeUpdate(Mockito.any())).thenReturn(true);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the get read the old version before the update was written and caches it after
+            Future<GameObject> get = executor.submit(() -> cachingStorage.get("0", true, true));
+            Assertions.assertTrue(fetching.await(5, TimeUnit.SECONDS));
+            GameObject updated = GameObject.builder()
+                    .id("0")
+                    .value("1".getBytes(StandardCharsets.UTF_8))
+                    .creationTime(unixTime)
+                    .lastModified(unixTime + 1)
+                    .ttl(unixTime + 600L)
+                    .build();
+            Assertions.assertTrue(cachingStorage.update(updated));
+            release.countDown();
+
+            Assertions.assertEquals(testObject, get.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(0L, cachingStorage.getCacheStatistics().get("size"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     void get_group_storage() throws Exception {
         Mockito.when(groupLedger.objectLedgerContainsKey(Mockito.anyString())).thenReturn(true);
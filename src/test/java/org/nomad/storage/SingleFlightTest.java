@@ -0,0 +1,88 @@
+package org.nomad.storage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, StringBuilder> flight = new SingleFlight<>(value -> new StringBuilder(value));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> flight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    release.await();
+                    return new StringBuilder("value");
+                }));
+            }
+            while (flight.getStatistics().get("coalesced") < futures.length - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            Object first = futures[0].get(5, TimeUnit.SECONDS);
+            for (Future<?> future : futures) {
+                Assertions.assertEquals("value", future.get(5, TimeUnit.SECONDS).toString());
+                // every caller gets its own copy
+                Assertions.assertTrue(future == futures[0] || future.get() != first);
+            }
+            Assertions.assertEquals(1, loads.get());
+            Assertions.assertEquals(1L, flight.getStatistics().get("loads"));
+            Assertions.assertEquals(0, flight.inFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failuresReachEveryWaiter() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(value -> value);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> flight.execute("key", () -> {
+                release.await();
+                throw new NoSuchElementException();
+            }));
+            while (flight.inFlight() == 0) {
+                Thread.sleep(1);
+            }
+            Future<String> waiter = executor.submit(() -> flight.execute("key", () -> "unused"));
+            while (flight.getStatistics().get("coalesced") == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            Assertions.assertTrue(Assertions.assertThrows(ExecutionException.class, leader::get).getCause() instanceof NoSuchElementException);
+            Assertions.assertTrue(Assertions.assertThrows(ExecutionException.class, waiter::get).getCause() instanceof NoSuchElementException);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void completedLoadsAreNotKept() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(value -> value);
+        Assertions.assertEquals("1", flight.execute("key", () -> "1"));
+        Assertions.assertEquals("2", flight.execute("key", () -> "2"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> flight.execute("key", () -> {
+            throw new NoSuchElementException();
+        }));
+        Assertions.assertEquals("3", flight.execute("key", () -> "3"));
+        Assertions.assertEquals(0L, flight.getStatistics().get("coalesced"));
+    }
+}
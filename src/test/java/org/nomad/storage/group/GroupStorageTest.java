@@ -11,11 +11,14 @@ import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.nomad.config.Config;
 import org.nomad.grpc.management.clients.SuperPeerClient;
 import org.nomad.grpc.management.servers.GroupStorageServer;
+import org.nomad.metrics.StorageMetrics;
 import org.nomad.pithos.components.GroupLedger;
+import org.nomad.storage.FanOutExecutor;
 
 import java.io.IOException;
 import java.util.Random;
@@ -36,6 +39,18 @@ class GroupStorageTest {
     @Mock
     SuperPeerClient superPeerClient;
 
+    @Spy
+    FanOutExecutor fanOutExecutor = new FanOutExecutor(new Config());
+
+    @Mock
+    LedgerNotificationPipeline notificationPipeline;
+
+    @Spy
+    ReplicaStatistics replicaStatistics = new ReplicaStatistics(new Config());
+
+    @Spy
+    StorageMetrics metrics = new StorageMetrics();
+
     @InjectMocks
     GroupStorage groupStorage;
 
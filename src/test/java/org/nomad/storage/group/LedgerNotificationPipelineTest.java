@@ -0,0 +1,105 @@
+package org.nomad.storage.group;
+
+import com.google.common.util.concurrent.Futures;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nomad.config.BatchConfiguration;
+import org.nomad.config.Config;
+import org.nomad.config.StorageConfiguration;
+import org.nomad.grpc.management.clients.GroupStorageClient;
+import org.nomad.grpc.management.clients.SuperPeerClient;
+import org.nomad.storage.FanOutExecutor;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerNotificationPipelineTest {
+
+    private final FanOutExecutor fanOutExecutor = new FanOutExecutor(new Config());
+    @Mock
+    GroupStorageClient client1;
+    @Mock
+    GroupStorageClient client2;
+    @Mock
+    SuperPeerClient superPeerClient;
+
+    @BeforeEach
+    void setup() {
+        Mockito.lenient().when(client1.isActive()).thenReturn(true);
+        Mockito.lenient().when(client2.isActive()).thenReturn(true);
+        Mockito.lenient().when(client1.notifyObjectsAddedBatch(Mockito.anyString(), Mockito.any())).thenReturn(Futures.immediateFuture(true));
+        Mockito.lenient().when(client2.notifyObjectsAddedBatch(Mockito.anyString(), Mockito.any())).thenReturn(Futures.immediateFuture(true));
+        Mockito.lenient().when(superPeerClient.addObjectReferenceBatch(Mockito.anyString(), Mockito.any())).thenReturn(Futures.immediateFuture(true));
+    }
+
+    @AfterEach
+    void close() {
+        fanOutExecutor.shutdown();
+    }
+
+    private LedgerNotificationPipeline pipeline(long window, int maxSize) {
+        BatchConfiguration ledgerBatch = new BatchConfiguration();
+        ledgerBatch.setWindow(window);
+        ledgerBatch.setMaxSize(maxSize);
+        StorageConfiguration storageConfiguration = new StorageConfiguration();
+        storageConfiguration.setLedgerBatch(ledgerBatch);
+        Config config = new Config();
+        config.setStorage(storageConfiguration);
+
+        LedgerNotificationPipeline pipeline = new LedgerNotificationPipeline(config, fanOutExecutor);
+        pipeline.updateClients(Lists.newArrayList(client1, client2));
+        pipeline.updateSuperPeerClient(superPeerClient);
+        return pipeline;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void coalescesPerObjectAndSendsOneBatchPerDestination() throws InterruptedException {
+        LedgerNotificationPipeline pipeline = pipeline(60_000, 100);
+        pipeline.objectAdded("1", "peer", 100L);
+        pipeline.objectAdded("2", "peer", 100L);
+        pipeline.objectAdded("1", "peer", 200L);
+        Assertions.assertEquals(2, pipeline.getPendingEntries());
+
+        pipeline.flushAndWait();
+
+        ArgumentCaptor<Object2LongMap<String>> batch = ArgumentCaptor.forClass(Object2LongMap.class);
+        Mockito.verify(client1, Mockito.times(1)).notifyObjectsAddedBatch(Mockito.eq("peer"), batch.capture());
+        Mockito.verify(client2, Mockito.times(1)).notifyObjectsAddedBatch(Mockito.eq("peer"), Mockito.any());
+        Mockito.verify(superPeerClient, Mockito.times(1)).addObjectReferenceBatch(Mockito.eq("peer"), Mockito.any());
+        Assertions.assertEquals(2, batch.getValue().size());
+        Assertions.assertEquals(200L, batch.getValue().getLong("1"));
+        Assertions.assertEquals(0, pipeline.getPendingEntries());
+    }
+
+    @Test
+    void fullBufferIsFlushed() {
+        LedgerNotificationPipeline pipeline = pipeline(60_000, 2);
+        pipeline.objectAdded("1", "peer", 100L);
+        Mockito.verifyNoInteractions(superPeerClient);
+
+        pipeline.objectAdded("2", "peer", 100L);
+        Mockito.verify(superPeerClient, Mockito.times(1)).addObjectReferenceBatch(Mockito.eq("peer"), Mockito.any());
+    }
+
+    @Test
+    void windowElapsedIsFlushed() {
+        LedgerNotificationPipeline pipeline = pipeline(10, 100);
+        pipeline.objectAdded("1", "peer", 100L);
+        Mockito.verify(superPeerClient, Mockito.timeout(1000)).addObjectReferenceBatch(Mockito.eq("peer"), Mockito.any());
+    }
+
+    @Test
+    void zeroWindowSendsImmediately() {
+        LedgerNotificationPipeline pipeline = pipeline(0, 100);
+        pipeline.objectAdded("1", "peer", 100L);
+        Mockito.verify(client1, Mockito.times(1)).notifyObjectsAddedBatch(Mockito.eq("peer"), Mockito.any());
+    }
+}
@@ -0,0 +1,119 @@
+package org.nomad.storage.group;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ReplicaFuturesTest {
+
+    @Test
+    void firstSuccessfulCancelsRemainingCalls() throws Exception {
+        SettableFuture<String> slow = SettableFuture.create();
+        SettableFuture<String> fast = SettableFuture.create();
+        ListenableFuture<String> result = ReplicaFutures.firstSuccessful(Lists.newArrayList(slow, fast));
+
+        Assertions.assertFalse(result.isDone());
+        fast.set("fast");
+
+        Assertions.assertEquals("fast", result.get());
+        Assertions.assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    void firstSuccessfulSkipsFailuresAndRejectedResults() throws Exception {
+        List<ListenableFuture<Boolean>> futures = Lists.newArrayList(
+                Futures.immediateFailedFuture(new NoSuchElementException()),
+                Futures.immediateFuture(false),
+                Futures.immediateFuture(true));
+
+        Assertions.assertTrue(ReplicaFutures.firstSuccessful(futures, Boolean::booleanValue).get());
+    }
+
+    @Test
+    void firstSuccessfulFailsWhenNoReplicaSucceeds() {
+        List<ListenableFuture<Boolean>> futures = Lists.newArrayList(
+                Futures.immediateFailedFuture(new NoSuchElementException()),
+                Futures.immediateFuture(false));
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> ReplicaFutures.firstSuccessful(futures, Boolean::booleanValue).get());
+        Assertions.assertTrue(e.getCause() instanceof NoSuchElementException);
+        Assertions.assertThrows(ExecutionException.class, () -> ReplicaFutures.firstSuccessful(Collections.<ListenableFuture<String>>emptyList()).get());
+    }
+
+    @Test
+    void hedgedSkipsBackupWhenPrimaryAnswersInTime() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            AtomicInteger backups = new AtomicInteger();
+            ListenableFuture<String> result = ReplicaFutures.hedged(() -> Futures.immediateFuture("primary"), () -> {
+                backups.incrementAndGet();
+                return SettableFuture.create();
+            }, 10, TimeUnit.MILLISECONDS, scheduler);
+
+            Assertions.assertEquals("primary", result.get());
+            Thread.sleep(50);
+            Assertions.assertEquals(0, backups.get());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void hedgedSendsBackupAfterDelayAndCancelsLoser() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            SettableFuture<String> primary = SettableFuture.create();
+            SettableFuture<String> backup = SettableFuture.create();
+            ListenableFuture<String> result = ReplicaFutures.hedged(() -> primary, () -> backup, 10, TimeUnit.MILLISECONDS, scheduler);
+
+            Thread.sleep(50);
+            Assertions.assertFalse(result.isDone());
+            backup.set("backup");
+
+            Assertions.assertEquals("backup", result.get(1, TimeUnit.SECONDS));
+            Assertions.assertTrue(primary.isCancelled());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void hedgedFallsBackImmediatelyOnFailure() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ListenableFuture<String> result = ReplicaFutures.hedged(() -> Futures.immediateFailedFuture(new NoSuchElementException()),
+                    () -> Futures.immediateFuture("backup"), 1, TimeUnit.HOURS, scheduler);
+            Assertions.assertEquals("backup", result.get(1, TimeUnit.SECONDS));
+
+            ListenableFuture<String> failed = ReplicaFutures.hedged(() -> Futures.immediateFailedFuture(new NoSuchElementException()),
+                    () -> Futures.immediateFuture(null), 1, TimeUnit.HOURS, scheduler);
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof NoSuchElementException);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void countSuccessful() throws Exception {
+        List<ListenableFuture<Boolean>> futures = Lists.newArrayList(
+                Futures.immediateFuture(true),
+                Futures.immediateFailedFuture(new IllegalStateException()),
+                Futures.immediateFuture(false),
+                Futures.immediateFuture(true));
+
+        Assertions.assertEquals(2, ReplicaFutures.countSuccessful(futures).get());
+    }
+}
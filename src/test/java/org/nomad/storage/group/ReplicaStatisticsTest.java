@@ -0,0 +1,105 @@
+package org.nomad.storage.group;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+class ReplicaStatisticsTest {
+
+    private void record(ReplicaStatistics statistics, String hostname, long nanos) {
+        statistics.started(hostname);
+        statistics.completed(hostname, nanos, true);
+    }
+
+    @Test
+    void percentileOverRecentWindow() {
+        ReplicaStatistics statistics = new ReplicaStatistics(100);
+        Assertions.assertEquals(-1, statistics.percentile(95));
+
+        for (int i = 1; i <= 100; i++) {
+            record(statistics, "peer" + (i % 3), i);
+        }
+        Assertions.assertEquals(95, statistics.percentile(95));
+        Assertions.assertEquals(50, statistics.percentile(50));
+        Assertions.assertEquals(100, statistics.percentile(100));
+
+        // older samples leave the window
+        for (int i = 0; i < 100; i++) {
+            record(statistics, "peer0", 1000);
+        }
+        Assertions.assertEquals(1000, statistics.percentile(50));
+    }
+
+    @Test
+    void rankByLatencyAndLoad() {
+        ReplicaStatistics statistics = new ReplicaStatistics(16);
+        for (int i = 0; i < 10; i++) {
+            record(statistics, "slow", 500);
+            record(statistics, "fast", 10);
+        }
+        // a replica that was never measured ranks as an average one
+        Assertions.assertEquals(Lists.newArrayList("fast", "new", "slow"), statistics.rank(Lists.newArrayList("slow", "new", "fast")));
+
+        // outstanding calls make the fast replica more expensive than the slow one
+        for (int i = 0; i < 100; i++) {
+            statistics.started("fast");
+        }
+        Assertions.assertEquals(100, statistics.inFlight("fast"));
+        Assertions.assertEquals("slow", statistics.rank(Lists.newArrayList("slow", "fast")).get(0));
+
+        statistics.remove("fast");
+        Assertions.assertEquals(0, statistics.inFlight("fast"));
+    }
+
+    @Test
+    void pickPrefersCheaperReplicas() {
+        ReplicaStatistics statistics = new ReplicaStatistics(16);
+        List<String> hostnames = Lists.newArrayList("a", "b", "c", "slow");
+        for (String hostname : hostnames) {
+            record(statistics, hostname, hostname.equals("slow") ? 100_000 : 100);
+        }
+
+        int slowPicks = 0;
+        for (int i = 0; i < 1000; i++) {
+            List<String> picks = statistics.pick(hostnames, 2);
+            Assertions.assertEquals(2, picks.size());
+            Assertions.assertNotEquals(picks.get(0), picks.get(1));
+            if (picks.contains("slow")) {
+                slowPicks++;
+            }
+        }
+        // the slow replica can only be picked when both candidates of the second pick are slow, which cannot happen
+        Assertions.assertEquals(0, slowPicks);
+
+        Assertions.assertEquals(4, statistics.pick(hostnames, 10).size());
+        Assertions.assertTrue(statistics.pick(hostnames, 0).isEmpty());
+    }
+
+    @Test
+    void trackOutcomes() {
+        ReplicaStatistics statistics = new ReplicaStatistics(16);
+        SettableFuture<String> call = SettableFuture.create();
+        statistics.track("peer", () -> call, true);
+        Assertions.assertEquals(1, statistics.inFlight("peer"));
+        call.set("done");
+        Assertions.assertEquals(0, statistics.inFlight("peer"));
+        Assertions.assertTrue(statistics.average("peer") > 0);
+
+        statistics.track("peer", () -> Futures.immediateFailedFuture(new NoSuchElementException()), true);
+        statistics.track("peer", () -> {
+            throw new IllegalStateException();
+        }, true);
+        Assertions.assertEquals(36L, statistics.getStatistics().get("peer").get("errorRate"));
+
+        SettableFuture<String> cancelled = SettableFuture.create();
+        statistics.track("peer", () -> cancelled, true);
+        cancelled.cancel(true);
+        Assertions.assertEquals(0, statistics.inFlight("peer"));
+        Assertions.assertEquals(36L, statistics.getStatistics().get("peer").get("errorRate"));
+    }
+}
@@ -0,0 +1,73 @@
+package org.nomad.storage.local;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nomad.pithos.models.GameObject;
+import org.springframework.util.SerializationUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameObjectCodecTest {
+    final long unixTime = Instant.now().getEpochSecond();
+    final GameObject testObject = GameObject.builder()
+            .id("\u00f8bject-1")
+            .creationTime(unixTime)
+            .lastModified(unixTime + 5)
+            .ttl(unixTime + 600)
+            .value("hello".getBytes(StandardCharsets.UTF_8))
+            .build();
+
+    @Test
+    @DisplayName("Should round-trip every field")
+    void testRoundTrip() {
+        byte[] encoded = GameObjectCodec.encode(testObject);
+
+        assertEquals(GameObjectCodec.encodedSize(testObject), encoded.length);
+        assertEquals(GameObjectCodec.HEADER_SIZE + "\u00f8bject-1".getBytes(StandardCharsets.UTF_8).length + 5, encoded.length);
+        assertEquals(testObject, GameObjectCodec.decode(encoded));
+    }
+
+    @Test
+    @DisplayName("Should keep null and empty values apart")
+    void testNullValue() {
+        GameObject nullValue = GameObject.builder().id("1").ttl(1).build();
+        GameObject emptyValue = GameObject.builder().id("1").ttl(1).value(new byte[0]).build();
+
+        assertNull(GameObjectCodec.decode(GameObjectCodec.encode(nullValue)).getValue());
+        assertArrayEquals(new byte[0], GameObjectCodec.decode(GameObjectCodec.encode(emptyValue)).getValue());
+    }
+
+    @Test
+    @DisplayName("Should encode back-to-back records into one buffer")
+    void testBufferEncoding() {
+        GameObject second = GameObject.builder().id("2").value(new byte[]{1, 2, 3}).build();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(GameObjectCodec.encodedSize(testObject) + GameObjectCodec.encodedSize(second));
+        GameObjectCodec.encode(testObject, buffer);
+        GameObjectCodec.encode(second, buffer);
+        assertFalse(buffer.hasRemaining());
+
+        buffer.flip();
+        assertEquals(testObject, GameObjectCodec.decode(buffer));
+        assertEquals(second, GameObjectCodec.decode(buffer));
+    }
+
+    @Test
+    @DisplayName("Should tell legacy Java-serialized records apart")
+    void testLegacyDetection() {
+        byte[] legacy = SerializationUtils.serialize(testObject);
+
+        assertTrue(GameObjectCodec.isJavaSerialized(legacy));
+        assertFalse(GameObjectCodec.isJavaSerialized(GameObjectCodec.encode(testObject)));
+        assertThrows(IllegalArgumentException.class, () -> GameObjectCodec.decode(legacy));
+        assertTrue(legacy.length > GameObjectCodec.encode(testObject).length);
+    }
+}
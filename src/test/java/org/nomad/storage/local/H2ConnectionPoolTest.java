@@ -0,0 +1,26 @@
+package org.nomad.storage.local;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+class H2ConnectionPoolTest {
+
+    @Test
+    void testClosingTwiceReturnsTheConnectionOnce() throws SQLException {
+        try (H2ConnectionPool pool = new H2ConnectionPool("jdbc:h2:mem:pooltest", "sa", "", 2, 100)) {
+            H2ConnectionPool.PooledConnection connection = pool.acquire();
+            Assertions.assertEquals(1, pool.available());
+
+            connection.close();
+            connection.close();
+            Assertions.assertEquals(2, pool.available());
+
+            H2ConnectionPool.PooledConnection first = pool.acquire();
+            H2ConnectionPool.PooledConnection second = pool.acquire();
+            Assertions.assertNotSame(first, second);
+            Assertions.assertThrows(SQLException.class, pool::acquire);
+        }
+    }
+}
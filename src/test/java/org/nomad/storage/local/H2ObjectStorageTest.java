@@ -9,6 +9,7 @@ import org.nomad.commons.Base64Utility;
 import org.nomad.config.Config;
 import org.nomad.pithos.components.GroupLedger;
 import org.nomad.pithos.models.GameObject;
+import org.nomad.pithos.models.MetaData;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -21,7 +22,12 @@ import org.springframework.test.context.TestPropertySource;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 
@@ -99,6 +105,73 @@ public class H2ObjectStorageTest {
         Assertions.assertTrue(h2ObjectStorage.update(updated2));
     }
 
+    @Test
+    public void testUpdateOfObjectMissingFromLedger() {
+        // the row exists but the ledger has lost track of it, the update must not depend on the ledger
+        GroupLedger.getInstance().clearAll();
+        GameObject updated = buildTestObject("2");
+        updated.setLastModified(unixTime + 10);
+        Assertions.assertTrue(h2ObjectStorage.update(updated));
+        Assertions.assertEquals(unixTime + 10, h2ObjectStorage.get("2").getLastModified());
+        Assertions.assertTrue(GroupLedger.getInstance().objectLedgerContainsKey("2"));
+    }
+
+    @Test
+    public void testUpdateOfObjectStoredElsewhere() {
+        GroupLedger.getInstance().addToObjectLedger("3", MetaData.builder().id("another-peer").ttl(unixTime + 600).build());
+        try {
+            Assertions.assertThrows(NoSuchElementException.class, () -> h2ObjectStorage.update(buildTestObject("3")));
+            Assertions.assertThrows(NoSuchElementException.class, () -> h2ObjectStorage.get("3"));
+        } finally {
+            GroupLedger.getInstance().removeObjectFromGroupLedger("3");
+        }
+    }
+
+    @Test
+    public void testPutAll() {
+        Map<String, Boolean> results = h2ObjectStorage.putAll(Arrays.asList(
+                buildTestObject("10"), buildTestObject("2"), buildTestObject("11")));
+
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertTrue(results.get("10"));
+        Assertions.assertFalse(results.get("2"));
+        Assertions.assertTrue(results.get("11"));
+        Assertions.assertNotNull(h2ObjectStorage.get("10"));
+        Assertions.assertNotNull(h2ObjectStorage.get("11"));
+        Assertions.assertTrue(GroupLedger.getInstance().objectLedgerContainsKey("11"));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            String id = "c" + i;
+            executor.submit(() -> {
+                h2ObjectStorage.put(buildTestObject(id));
+                h2ObjectStorage.get(id);
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertNotNull(h2ObjectStorage.get("c" + i));
+        }
+    }
+
+    @Test
+    public void testShardUsesSeparateDatabase() throws SQLException {
+        LocalStorage shard = h2ObjectStorage.newShard(1);
+        shard.init();
+        try {
+            Assertions.assertThrows(NoSuchElementException.class, () -> shard.get("2"));
+            Assertions.assertTrue(shard.put(buildTestObject("20")));
+            Assertions.assertNotNull(shard.get("20"));
+            Assertions.assertThrows(NoSuchElementException.class, () -> h2ObjectStorage.get("20"));
+        } finally {
+            shard.close();
+        }
+    }
+
     @Test
     public void testDelete() throws SQLException {
         Assertions.assertTrue(h2ObjectStorage.delete("2"));
@@ -166,6 +239,10 @@ public class H2ObjectStorageTest {
         Assertions.assertThrows(NoSuchElementException.class, () -> {
             h2ObjectStorage.get("6");
         });
+        // expired rows are deleted in chunks of node.storage.h2.expiryChunkSize
+        Assertions.assertThrows(NoSuchElementException.class, () -> {
+            h2ObjectStorage.get("8");
+        });
     }
 
     @Test
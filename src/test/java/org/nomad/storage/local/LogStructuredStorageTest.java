@@ -0,0 +1,202 @@
+package org.nomad.storage.local;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nomad.commons.NetworkUtility;
+import org.nomad.config.Config;
+import org.nomad.config.NetworkHostnames;
+import org.nomad.config.StorageConfiguration;
+import org.nomad.pithos.components.GroupLedger;
+import org.nomad.pithos.models.GameObject;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class LogStructuredStorageTest {
+
+    final long unixTime = Instant.now().getEpochSecond();
+    @TempDir
+    Path directory;
+    private Config config;
+    private LogStructuredStorage logStorage;
+
+    @BeforeEach
+    @SneakyThrows
+    void setup() {
+        NetworkHostnames hostnames = new NetworkHostnames();
+        hostnames.setGroupStorageServer("localhost:5001");
+        StorageConfiguration storage = new StorageConfiguration();
+        storage.getLog().setPath(directory.toString());
+        storage.getLog().setSegmentSize(1);
+        config = new Config();
+        config.setNetworkHostnames(hostnames);
+        config.setStorage(storage);
+        NetworkUtility.setID("log-test");
+
+        logStorage = new LogStructuredStorage(config);
+        logStorage.init();
+    }
+
+    @AfterEach
+    void close() {
+        logStorage.close();
+        GroupLedger.getInstance().clearAll();
+    }
+
+    @SneakyThrows
+    private void restart() {
+        logStorage.close();
+        logStorage = new LogStructuredStorage(config);
+        logStorage.init();
+    }
+
+    private GameObject buildTestObject(String id, long ttl, int size) {
+        byte[] value = new byte[size];
+        byte[] prefix = ("value-" + id).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(prefix, 0, value, 0, Math.min(prefix.length, size));
+        return GameObject.builder()
+                .id(id)
+                .value(value)
+                .creationTime(unixTime)
+                .lastModified(unixTime)
+                .ttl(ttl)
+                .build();
+    }
+
+    @SneakyThrows
+    private long files(String suffix) {
+        try (Stream<Path> files = Files.list(directory.resolve("nomad-log-test"))) {
+            return files.filter(file -> file.toString().endsWith(suffix)).count();
+        }
+    }
+
+    @Test
+    public void testPutGetUpdateDelete() {
+        Assertions.assertTrue(logStorage.isInitialised());
+        GameObject object = buildTestObject("1", unixTime + 600, 32);
+        Assertions.assertTrue(logStorage.put(object));
+        Assertions.assertFalse(logStorage.put(object));
+        Assertions.assertEquals(object, logStorage.get("1"));
+        Assertions.assertTrue(GroupLedger.getInstance().objectLedgerContainsKey("1"));
+
+        GameObject updated = buildTestObject("1", unixTime + 1200, 2048);
+        Assertions.assertTrue(logStorage.update(updated));
+        Assertions.assertEquals(updated, logStorage.get("1"));
+        Assertions.assertTrue(logStorage.update(buildTestObject("2", unixTime + 600, 32)));
+        Assertions.assertNotNull(logStorage.get("2"));
+
+        Assertions.assertTrue(logStorage.delete("1"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> logStorage.get("1"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> logStorage.delete("1"));
+
+        // objects larger than a segment are rejected up front
+        Assertions.assertFalse(logStorage.put(buildTestObject("huge", unixTime + 600, 2 * 1024 * 1024)));
+    }
+
+    @Test
+    public void testRestartFromHintsAndTail() {
+        // about ten objects per segment, so the log rolls over several times
+        for (int i = 0; i < 50; i++) {
+            Assertions.assertTrue(logStorage.put(buildTestObject("object-" + i, unixTime + 600, 100 * 1024)));
+        }
+        for (int i = 0; i < 50; i += 5) {
+            logStorage.delete("object-" + i);
+        }
+        GameObject updated = buildTestObject("object-1", unixTime + 1200, 16);
+        logStorage.update(updated);
+        Assertions.assertTrue(logStorage.getStatistics().get("segments") > 1);
+
+        restart();
+        Assertions.assertTrue(files(".hint") > 0);
+        Assertions.assertEquals(40L, logStorage.getStatistics().get("objects"));
+        Assertions.assertEquals(updated, logStorage.get("object-1"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> logStorage.get("object-5"));
+        Assertions.assertEquals("object-49", logStorage.get("object-49").getId());
+
+        // appends continue in the tail segment after a restart
+        Assertions.assertTrue(logStorage.put(buildTestObject("after-restart", unixTime + 600, 32)));
+        restart();
+        Assertions.assertNotNull(logStorage.get("after-restart"));
+        Assertions.assertEquals(41L, logStorage.getStatistics().get("objects"));
+    }
+
+    @Test
+    public void testCompactionDropsExpiredAndDeadEntries() {
+        for (int i = 0; i < 30; i++) {
+            logStorage.put(buildTestObject("object-" + i, i < 10 ? unixTime - 10 : unixTime + 600, 100 * 1024));
+        }
+        for (int i = 10; i < 25; i++) {
+            logStorage.delete("object-" + i);
+        }
+        long segments = logStorage.getStatistics().get("segments");
+
+        Assertions.assertEquals(10, logStorage.removeExpired(unixTime));
+        Assertions.assertTrue(logStorage.compact() > 0);
+        Assertions.assertTrue(logStorage.getStatistics().get("segments") < segments);
+        for (int i = 25; i < 30; i++) {
+            Assertions.assertEquals("object-" + i, logStorage.get("object-" + i).getId());
+        }
+
+        // neither expired nor deleted objects come back from older segments after a restart
+        restart();
+        Assertions.assertEquals(5L, logStorage.getStatistics().get("objects"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> logStorage.get("object-0"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> logStorage.get("object-10"));
+        Assertions.assertNotNull(logStorage.get("object-29"));
+    }
+
+    @Test
+    public void testTruncate() {
+        for (int i = 0; i < 20; i++) {
+            logStorage.put(buildTestObject("object-" + i, unixTime + 600, 100 * 1024));
+        }
+        logStorage.truncate();
+        Assertions.assertEquals(0L, logStorage.getStatistics().get("objects"));
+        Assertions.assertEquals(1L, files(".data"));
+        Assertions.assertTrue(logStorage.put(buildTestObject("object-0", unixTime + 600, 32)));
+
+        restart();
+        Assertions.assertEquals(1L, logStorage.getStatistics().get("objects"));
+    }
+
+    @Test
+    public void testSyncModes() throws Exception {
+        for (String mode : new String[]{"write", "group", "periodic"}) {
+            config.getStorage().getLog().setSyncMode(mode);
+            config.getStorage().getLog().setSyncInterval(10);
+            restart();
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                int thread = t;
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        String id = mode + "-" + thread + "-" + i;
+                        Assertions.assertTrue(logStorage.put(buildTestObject(id, unixTime + 600, 1024)));
+                        Assertions.assertEquals(id, logStorage.get(id).getId());
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        restart();
+        Assertions.assertEquals(3L * 4 * 250, logStorage.getStatistics().get("objects"));
+    }
+}
@@ -0,0 +1,184 @@
+package org.nomad.storage.local;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nomad.config.Config;
+import org.nomad.config.NetworkHostnames;
+import org.nomad.config.StorageConfiguration;
+import org.nomad.pithos.components.GroupLedger;
+import org.nomad.pithos.models.GameObject;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OffHeapStorageTest {
+
+    final long unixTime = Instant.now().getEpochSecond();
+    private Config config;
+    private OffHeapStorage offHeapStorage;
+
+    @BeforeEach
+    void setup() {
+        NetworkHostnames hostnames = new NetworkHostnames();
+        hostnames.setGroupStorageServer("localhost:5001");
+        StorageConfiguration storage = new StorageConfiguration();
+        storage.getOffheap().setMemoryCap(8);
+        storage.getOffheap().setSegments(4);
+        config = new Config();
+        config.setNetworkHostnames(hostnames);
+        config.setStorage(storage);
+
+        offHeapStorage = new OffHeapStorage(config);
+        offHeapStorage.init();
+    }
+
+    @AfterEach
+    void close() {
+        offHeapStorage.close();
+        GroupLedger.getInstance().clearAll();
+    }
+
+    private GameObject buildTestObject(String id, long ttl) {
+        return GameObject.builder()
+                .id(id)
+                .value(("value-" + id).getBytes(StandardCharsets.UTF_8))
+                .creationTime(unixTime)
+                .lastModified(unixTime)
+                .ttl(ttl)
+                .build();
+    }
+
+    @Test
+    public void testPutGetUpdateDelete() {
+        Assertions.assertTrue(offHeapStorage.isInitialised());
+        GameObject object = buildTestObject("1", unixTime + 600);
+        Assertions.assertTrue(offHeapStorage.put(object));
+        Assertions.assertFalse(offHeapStorage.put(object));
+        Assertions.assertEquals(object, offHeapStorage.get("1"));
+        Assertions.assertTrue(GroupLedger.getInstance().objectLedgerContainsKey("1"));
+
+        GameObject updated = buildTestObject("1", unixTime + 1200);
+        updated.setValue(new byte[2048]);
+        Assertions.assertTrue(offHeapStorage.update(updated));
+        Assertions.assertEquals(updated, offHeapStorage.get("1"));
+        Assertions.assertTrue(offHeapStorage.update(buildTestObject("2", unixTime + 600)));
+        Assertions.assertNotNull(offHeapStorage.get("2"));
+
+        Assertions.assertTrue(offHeapStorage.delete("1"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> offHeapStorage.get("1"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> offHeapStorage.delete("1"));
+    }
+
+    @Test
+    public void testManyObjects() {
+        // enough to resize every segment index several times
+        for (int i = 0; i < 20000; i++) {
+            Assertions.assertTrue(offHeapStorage.put(buildTestObject("object-" + i, unixTime + 600)));
+        }
+        for (int i = 0; i < 20000; i += 2) {
+            offHeapStorage.delete("object-" + i);
+        }
+        for (int i = 0; i < 20000; i++) {
+            String id = "object-" + i;
+            if (i % 2 == 0) {
+                Assertions.assertThrows(NoSuchElementException.class, () -> offHeapStorage.get(id));
+            } else {
+                Assertions.assertEquals(id, offHeapStorage.get(id).getId());
+            }
+        }
+        Assertions.assertEquals(10000L, offHeapStorage.getStatistics().get("objects"));
+    }
+
+    @Test
+    public void testExpiry() {
+        offHeapStorage.put(buildTestObject("expired", unixTime - 10));
+        offHeapStorage.put(buildTestObject("live", unixTime + 600));
+        Assertions.assertThrows(NoSuchElementException.class, () -> offHeapStorage.get("expired"));
+        // an expired object does not block a new put of the same id
+        Assertions.assertTrue(offHeapStorage.put(buildTestObject("expired", unixTime - 5)));
+
+        Assertions.assertEquals(1, offHeapStorage.removeExpired(unixTime));
+        Assertions.assertNotNull(offHeapStorage.get("live"));
+        Assertions.assertEquals(1L, offHeapStorage.getStatistics().get("objects"));
+    }
+
+    @Test
+    public void testMemoryCap() {
+        byte[] value = new byte[512 * 1024];
+        int stored = 0;
+        while (stored < 100 && offHeapStorage.put(GameObject.builder().id("big-" + stored).value(value).ttl(unixTime + 600).build())) {
+            stored++;
+        }
+        Assertions.assertTrue(stored > 0 && stored < 100, "stored " + stored + " objects");
+        Assertions.assertTrue(offHeapStorage.getStatistics().get("reserved") <= 8 * 1024 * 1024);
+
+        // large objects are rejected up front
+        Assertions.assertFalse(offHeapStorage.put(GameObject.builder().id("huge").value(new byte[2 * 1024 * 1024]).ttl(unixTime + 600).build()));
+
+        offHeapStorage.truncate();
+        Assertions.assertEquals(0L, offHeapStorage.getStatistics().get("used"));
+        Assertions.assertTrue(offHeapStorage.put(GameObject.builder().id("big-0").value(value).ttl(unixTime + 600).build()));
+    }
+
+    @Test
+    public void testShards() throws SQLException {
+        config.getStorage().setShards(2);
+        ShardedLocalStorage sharded = new ShardedLocalStorage(offHeapStorage, 2, false);
+        sharded.init();
+        try {
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertTrue(sharded.put(buildTestObject("sharded-" + i, unixTime + 600)));
+            }
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertEquals("sharded-" + i, sharded.get("sharded-" + i).getId());
+            }
+        } finally {
+            sharded.close();
+        }
+
+        OffHeapStorage shard = (OffHeapStorage) offHeapStorage.newShard(0);
+        shard.init();
+        Assertions.assertEquals(4L * 1024 * 1024, shard.getStatistics().get("cap"));
+        shard.close();
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger failures = new AtomicInteger();
+        Future<?>[] futures = new Future<?>[8];
+        for (int t = 0; t < futures.length; t++) {
+            int thread = t;
+            futures[t] = executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String id = thread + "-" + i;
+                    offHeapStorage.put(buildTestObject(id, unixTime + 600));
+                    if (!id.equals(offHeapStorage.get(id).getId())) {
+                        failures.incrementAndGet();
+                    }
+                    if (i % 3 == 0) {
+                        offHeapStorage.delete(id);
+                    }
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(0, failures.get());
+        Map<String, Long> statistics = offHeapStorage.getStatistics();
+        Assertions.assertEquals(8L * (2000 - 667), statistics.get("objects"));
+    }
+}
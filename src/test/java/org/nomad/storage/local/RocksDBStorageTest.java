@@ -0,0 +1,118 @@
+package org.nomad.storage.local;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nomad.commons.NetworkUtility;
+import org.nomad.config.Config;
+import org.nomad.config.NetworkHostnames;
+import org.nomad.config.StorageConfiguration;
+import org.nomad.pithos.components.GroupLedger;
+import org.nomad.pithos.models.GameObject;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+public class RocksDBStorageTest {
+
+    final long unixTime = Instant.now().getEpochSecond();
+    @TempDir
+    Path directory;
+    private RocksDBStorage rocksDBStorage;
+
+    @BeforeEach
+    @SneakyThrows
+    void setup() {
+        NetworkHostnames hostnames = new NetworkHostnames();
+        hostnames.setGroupStorageServer("localhost:5001");
+        StorageConfiguration storage = new StorageConfiguration();
+        storage.getRocksdb().setPath(directory.toString());
+        storage.getRocksdb().setBlockCacheSize(8);
+        storage.getRocksdb().setWriteBufferSize(4);
+        Config config = new Config();
+        config.setNetworkHostnames(hostnames);
+        config.setStorage(storage);
+        NetworkUtility.setID("rocksdb-test");
+
+        rocksDBStorage = new RocksDBStorage(config);
+        rocksDBStorage.init();
+    }
+
+    @AfterEach
+    @SneakyThrows
+    void close() {
+        rocksDBStorage.close();
+        GroupLedger.getInstance().clearAll();
+    }
+
+    private GameObject buildTestObject(String id, long ttl) {
+        return GameObject.builder()
+                .id(id)
+                .value(("value-" + id).getBytes(StandardCharsets.UTF_8))
+                .creationTime(unixTime)
+                .lastModified(unixTime)
+                .ttl(ttl)
+                .build();
+    }
+
+    @Test
+    public void testPutGetDelete() {
+        Assertions.assertTrue(rocksDBStorage.isInitialised());
+        GameObject object = buildTestObject("1", unixTime + 600);
+        Assertions.assertTrue(rocksDBStorage.put(object));
+        Assertions.assertEquals(object, rocksDBStorage.get("1"));
+        Assertions.assertTrue(GroupLedger.getInstance().objectLedgerContainsKey("1"));
+
+        GameObject updated = buildTestObject("1", unixTime + 1200);
+        Assertions.assertTrue(rocksDBStorage.update(updated));
+        Assertions.assertEquals(unixTime + 1200, rocksDBStorage.get("1").getTtl());
+
+        Assertions.assertTrue(rocksDBStorage.delete("1"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> rocksDBStorage.get("1"));
+    }
+
+    @Test
+    public void testExpiredObjectsAreHiddenAndRemoved() throws Exception {
+        rocksDBStorage.put(buildTestObject("expired", unixTime - 10));
+        rocksDBStorage.put(buildTestObject("live", unixTime + 600));
+        // rewritten with a later TTL, its original expiry entry is stale
+        rocksDBStorage.put(buildTestObject("extended", unixTime - 10));
+        rocksDBStorage.update(buildTestObject("extended", unixTime + 600));
+
+        Assertions.assertThrows(NoSuchElementException.class, () -> rocksDBStorage.get("expired"));
+        Assertions.assertEquals(1, rocksDBStorage.removeExpired(unixTime));
+        Assertions.assertEquals(0, rocksDBStorage.removeExpired(unixTime));
+        Assertions.assertNotNull(rocksDBStorage.get("live"));
+        Assertions.assertNotNull(rocksDBStorage.get("extended"));
+        Assertions.assertEquals(2, rocksDBStorage.removeExpired(unixTime + 601));
+    }
+
+    @Test
+    public void testTruncate() {
+        for (int i = 0; i < 100; i++) {
+            rocksDBStorage.put(buildTestObject(String.valueOf(i), unixTime + 600));
+        }
+        rocksDBStorage.truncate();
+
+        Assertions.assertThrows(NoSuchElementException.class, () -> rocksDBStorage.get("0"));
+        Assertions.assertTrue(rocksDBStorage.put(buildTestObject("0", unixTime + 600)));
+        Assertions.assertNotNull(rocksDBStorage.get("0"));
+    }
+
+    @Test
+    public void testStatistics() {
+        rocksDBStorage.put(buildTestObject("1", unixTime + 600));
+        rocksDBStorage.get("1");
+
+        Map<String, Long> statistics = rocksDBStorage.getStatistics();
+        Assertions.assertTrue(statistics.containsKey("estimate-num-keys"));
+        Assertions.assertTrue(statistics.get("number_keys_written") > 0);
+        Assertions.assertTrue(statistics.get("number_keys_read") > 0);
+    }
+}
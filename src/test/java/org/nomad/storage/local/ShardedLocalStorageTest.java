@@ -0,0 +1,214 @@
+package org.nomad.storage.local;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nomad.pithos.models.GameObject;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ShardedLocalStorageTest {
+    private static final int SHARDS = 4;
+    private final List<MapStorage> created = new ArrayList<>();
+    private ShardedLocalStorage storage;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        storage = new ShardedLocalStorage(new MapStorage(), SHARDS, false);
+        storage.init();
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        storage.close();
+    }
+
+    private static GameObject buildTestObject(String id) {
+        return GameObject.builder()
+                .id(id)
+                .value(id.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+
+    @Test
+    public void testObjectsArePartitioned() {
+        Assertions.assertTrue(storage.isInitialised());
+        Assertions.assertEquals(SHARDS, created.size());
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertTrue(storage.put(buildTestObject(String.valueOf(i))));
+        }
+
+        int total = 0;
+        for (MapStorage shard : created) {
+            Assertions.assertTrue(shard.isInitialised());
+            // a usable spread, not an exact one
+            Assertions.assertTrue(shard.objects.size() > 150, "shard holds " + shard.objects.size() + " objects");
+            total += shard.objects.size();
+        }
+        Assertions.assertEquals(1000, total);
+
+        for (int i = 0; i < 1000; i++) {
+            String id = String.valueOf(i);
+            Assertions.assertEquals(id, storage.get(id).getId());
+            Assertions.assertTrue(created.get(storage.indexOf(id)).objects.containsKey(id));
+        }
+    }
+
+    @Test
+    public void testPutAllAcrossShards() {
+        List<GameObject> objects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            objects.add(buildTestObject(String.valueOf(i)));
+        }
+        storage.put(objects.get(0));
+
+        Map<String, Boolean> results = storage.putAll(objects);
+        Assertions.assertEquals(100, results.size());
+        Assertions.assertFalse(results.get("0"));
+        Assertions.assertEquals(99, results.values().stream().filter(result -> result).count());
+        Assertions.assertNotNull(storage.get("99"));
+    }
+
+    @Test
+    public void testPutAllFailsOnlyTheFailedShard() {
+        List<GameObject> objects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            objects.add(buildTestObject(String.valueOf(i)));
+        }
+        int failing = storage.indexOf("0");
+        created.get(failing).failing = true;
+
+        Map<String, Boolean> results = storage.putAll(objects);
+        Assertions.assertEquals(100, results.size());
+        for (GameObject object : objects) {
+            Assertions.assertEquals(storage.indexOf(object.getId()) != failing, results.get(object.getId()), object.getId());
+        }
+    }
+
+    @Test
+    public void testAsyncOperations() throws Exception {
+        Assertions.assertTrue(storage.putAsync(buildTestObject("a")).get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals("a", storage.getAsync("a").get(1, TimeUnit.SECONDS).getId());
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> storage.getAsync("b").get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof NoSuchElementException);
+    }
+
+    @Test
+    public void testShardStatistics() {
+        storage.put(buildTestObject("a"));
+        storage.put(buildTestObject("a"));
+        storage.get("a");
+        Assertions.assertThrows(NoSuchElementException.class, () -> storage.get("b"));
+        storage.delete("a");
+
+        List<ShardedLocalStorage.ShardStatistics> statistics = storage.getShardStatistics();
+        Assertions.assertEquals(SHARDS, statistics.size());
+        Assertions.assertEquals(2, statistics.stream().mapToLong(ShardedLocalStorage.ShardStatistics::getPuts).sum());
+        Assertions.assertEquals(2, statistics.stream().mapToLong(ShardedLocalStorage.ShardStatistics::getGets).sum());
+        Assertions.assertEquals(1, statistics.stream().mapToLong(ShardedLocalStorage.ShardStatistics::getMisses).sum());
+        Assertions.assertEquals(1, statistics.stream().mapToLong(ShardedLocalStorage.ShardStatistics::getFailures).sum());
+        Assertions.assertEquals(1, statistics.get(storage.indexOf("a")).getDeletes());
+    }
+
+    @Test
+    public void testTruncateAndCleanUp() {
+        for (int i = 0; i < 100; i++) {
+            storage.put(buildTestObject(String.valueOf(i)));
+        }
+        storage.cleanUp();
+        created.forEach(shard -> Assertions.assertEquals(1, shard.cleanUps));
+
+        storage.truncate();
+        created.forEach(shard -> Assertions.assertTrue(shard.objects.isEmpty()));
+    }
+
+    /**
+     * Minimal in-memory backend, every shard it creates is recorded for inspection
+     */
+    private class MapStorage implements LocalStorage {
+        private final Map<String, GameObject> objects = new ConcurrentHashMap<>();
+        private boolean initialised = false;
+        private int cleanUps = 0;
+        private volatile boolean failing = false;
+
+        @Override
+        public void init() {
+            initialised = true;
+        }
+
+        @Override
+        public void close() {
+            initialised = false;
+        }
+
+        @Override
+        public boolean put(GameObject value) {
+            return objects.putIfAbsent(value.getId(), value) == null;
+        }
+
+        @Override
+        public Map<String, Boolean> putAll(Collection<GameObject> values) {
+            if (failing) {
+                throw new IllegalStateException("shard unavailable");
+            }
+            return LocalStorage.super.putAll(values);
+        }
+
+        @Override
+        public GameObject get(String key) throws NoSuchElementException {
+            GameObject object = objects.get(key);
+            if (object == null) {
+                throw new NoSuchElementException(key);
+            }
+            return object;
+        }
+
+        @Override
+        public boolean update(GameObject value) {
+            objects.put(value.getId(), value);
+            return true;
+        }
+
+        @Override
+        public boolean delete(String key) {
+            return objects.remove(key) != null;
+        }
+
+        @Override
+        public boolean isInitialised() {
+            return initialised;
+        }
+
+        @Override
+        public boolean isMalicious() {
+            return false;
+        }
+
+        @Override
+        public void truncate() {
+            objects.clear();
+        }
+
+        @Override
+        public void cleanUp() {
+            cleanUps++;
+        }
+
+        @Override
+        public LocalStorage newShard(int index) {
+            MapStorage shard = new MapStorage();
+            created.add(shard);
+            return shard;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.nomad.storage.local;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SlabAllocatorTest {
+
+    @Test
+    public void testSizeClasses() {
+        SlabAllocator allocator = new SlabAllocator(1 << 20, 4096, 64, 2.0);
+        Assertions.assertEquals(7, allocator.sizeClassCount());
+
+        long small = allocator.allocate(10);
+        long medium = allocator.allocate(65);
+        Assertions.assertEquals(64, allocator.chunkSize(small));
+        Assertions.assertEquals(128, allocator.chunkSize(medium));
+        Assertions.assertEquals(4096, allocator.chunkSize(allocator.allocate(4000)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> allocator.allocate(4097));
+        // one slab per size class in use
+        Assertions.assertEquals(3 * 4096, allocator.reservedBytes());
+        Assertions.assertEquals(64 + 128 + 4096, allocator.usedBytes());
+    }
+
+    @Test
+    public void testFreedChunksAreReused() {
+        SlabAllocator allocator = new SlabAllocator(1 << 20, 4096, 64, 2.0);
+        long first = allocator.allocate(100);
+        long second = allocator.allocate(100);
+        Assertions.assertNotEquals(first, second);
+        Assertions.assertEquals(SlabAllocator.offset(first) + 128, SlabAllocator.offset(second));
+
+        allocator.free(first);
+        Assertions.assertEquals(128, allocator.usedBytes());
+        Assertions.assertEquals(first, allocator.allocate(120));
+    }
+
+    @Test
+    public void testEmptySlabsReturnToThePool() {
+        SlabAllocator allocator = new SlabAllocator(2 * 4096, 4096, 64, 2.0);
+        long[] small = new long[4096 / 64];
+        for (int i = 0; i < small.length; i++) {
+            small[i] = allocator.allocate(64);
+        }
+        Assertions.assertNotEquals(SlabAllocator.NO_SPACE, allocator.allocate(4096));
+        Assertions.assertEquals(SlabAllocator.NO_SPACE, allocator.allocate(2048));
+
+        for (long handle : small) {
+            allocator.free(handle);
+        }
+        Assertions.assertEquals(4096, allocator.reservedBytes());
+        long large = allocator.allocate(2048);
+        Assertions.assertNotEquals(SlabAllocator.NO_SPACE, large);
+        Assertions.assertEquals(2048, allocator.chunkSize(large));
+        // the chunks freed into the pooled slab are not handed out again
+        Assertions.assertEquals(SlabAllocator.NO_SPACE, allocator.allocate(64));
+    }
+
+    @Test
+    public void testInterleavedFreesAcrossManySlabs() {
+        int slabs = 64;
+        int perSlab = 4096 / 64;
+        SlabAllocator allocator = new SlabAllocator((long) slabs * 4096, 4096, 64, 2.0);
+        long[] handles = new long[slabs * perSlab];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = allocator.allocate(64);
+        }
+
+        // free one chunk of every slab in turn, the odd slabs empty in the last round while the even ones keep one chunk
+        LongOpenHashSet kept = new LongOpenHashSet();
+        for (int chunk = 0; chunk < perSlab; chunk++) {
+            for (int slab = 0; slab < slabs; slab++) {
+                long handle = handles[slab * perSlab + chunk];
+                if (slab % 2 == 0 && chunk == perSlab - 1) {
+                    kept.add(handle);
+                } else {
+                    allocator.free(handle);
+                }
+            }
+        }
+        Assertions.assertEquals(slabs / 2 * 4096, allocator.reservedBytes());
+        Assertions.assertEquals(slabs / 2 * 64, allocator.usedBytes());
+
+        // every chunk handed out again is either in a slab still in use or in a reassigned one, never twice
+        LongOpenHashSet handedOut = new LongOpenHashSet(kept);
+        for (int i = 0; i < handles.length - kept.size(); i++) {
+            long handle = allocator.allocate(64);
+            Assertions.assertNotEquals(SlabAllocator.NO_SPACE, handle);
+            Assertions.assertTrue(handedOut.add(handle));
+        }
+        Assertions.assertEquals(SlabAllocator.NO_SPACE, allocator.allocate(64));
+        Assertions.assertEquals((long) slabs * 4096, allocator.usedBytes());
+    }
+
+    @Test
+    public void testMemoryCap() {
+        SlabAllocator allocator = new SlabAllocator(2 * 4096, 4096, 64, 2.0);
+        Assertions.assertNotEquals(SlabAllocator.NO_SPACE, allocator.allocate(4096));
+        Assertions.assertNotEquals(SlabAllocator.NO_SPACE, allocator.allocate(4096));
+        Assertions.assertEquals(SlabAllocator.NO_SPACE, allocator.allocate(4096));
+        Assertions.assertEquals(SlabAllocator.NO_SPACE, allocator.allocate(64));
+
+        allocator.release();
+        Assertions.assertEquals(0, allocator.reservedBytes());
+        Assertions.assertNotEquals(SlabAllocator.NO_SPACE, allocator.allocate(64));
+    }
+}